@@ -60,10 +60,17 @@ public class EventManagerImpl
 
   private final EventBus asyncBus;
 
+  private final QueuedEventDispatcher queuedDispatcher;
+
   @Inject
-  public EventManagerImpl(final BeanLocator beanLocator, final EventExecutor eventExecutor) {
+  public EventManagerImpl(
+      final BeanLocator beanLocator,
+      final EventExecutor eventExecutor,
+      final QueuedEventDispatcher queuedDispatcher)
+  {
     this.beanLocator = checkNotNull(beanLocator);
     this.eventExecutor = checkNotNull(eventExecutor);
+    this.queuedDispatcher = checkNotNull(queuedDispatcher);
 
     this.eventBus = reentrantEventBus("nexus");
     this.asyncBus = reentrantAsyncEventBus("nexus.async", eventExecutor);
@@ -96,7 +103,10 @@ public class EventManagerImpl
   public void register(final Object object) {
     boolean async = object instanceof Asynchronous;
 
-    if (async) {
+    if (async && queuedDispatcher.isEnabled()) {
+      queuedDispatcher.register(object);
+    }
+    else if (async) {
       asyncBus.register(object);
     }
     else {
@@ -110,7 +120,10 @@ public class EventManagerImpl
   public void unregister(final Object object) {
     boolean async = object instanceof Asynchronous;
 
-    if (async) {
+    if (async && queuedDispatcher.isEnabled()) {
+      queuedDispatcher.unregister(object);
+    }
+    else if (async) {
       asyncBus.unregister(object);
     }
     else {
@@ -125,7 +138,11 @@ public class EventManagerImpl
     // notify synchronous subscribers before going asynchronous
     eventBus.post(event);
 
-    if (isAffinityEnabled() && event instanceof HasAffinity) {
+    if (queuedDispatcher.isEnabled()) {
+      // per-subscriber queues already deliver events in the order they were posted
+      queuedDispatcher.post(event);
+    }
+    else if (isAffinityEnabled() && event instanceof HasAffinity) {
       String affinity = ((HasAffinity) event).getAffinity();
       if (affinity != null) {
         eventExecutor.executeWithAffinity(affinity, () -> asyncBus.post(event));
@@ -145,7 +162,7 @@ public class EventManagerImpl
   @VisibleForTesting
   @ManagedAttribute
   public boolean isCalmPeriod() {
-    return eventExecutor.isCalmPeriod();
+    return eventExecutor.isCalmPeriod() && queuedDispatcher.isCalmPeriod();
   }
 
   @Override
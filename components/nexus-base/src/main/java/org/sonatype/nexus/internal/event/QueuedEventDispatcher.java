@@ -0,0 +1,230 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.event;
+
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.common.event.EventAware.Asynchronous;
+import org.sonatype.nexus.jmx.reflect.ManagedAttribute;
+import org.sonatype.nexus.jmx.reflect.ManagedObject;
+import org.sonatype.nexus.jmx.reflect.ReflectionMBeanBuilder;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.TASKS;
+
+/**
+ * Dispatches events to {@link Asynchronous} subscribers through bounded per-subscriber queues, so a slow subscriber
+ * only holds up its own events instead of turning event posting into synchronous work on the posting thread.
+ *
+ * Enabled with {@code nexus.event.queued.enabled}; queue depth, delivery latency, coalesced, dropped and overflowing
+ * events are exposed per subscriber through JMX.
+ *
+ * Like {@link EventExecutor} events are delivered directly by the posting thread outside of the TASKS phase. Events
+ * reach each subscriber in the order they were posted, under the subject that posted them. Subscribers allowing
+ * concurrent events may see them out of order, except for {@code HasAffinity} events sharing an affinity which are
+ * always delivered one at a time in the order they were posted.
+ *
+ * @see SubscriberQueue
+ */
+@Named
+@ManagedLifecycle(phase = TASKS)
+@ManagedObject
+@Singleton
+public class QueuedEventDispatcher
+    extends LifecycleSupport
+{
+  private final boolean enabled;
+
+  private final int threads;
+
+  private final int capacity;
+
+  private final int batchSize;
+
+  private final int concurrency;
+
+  private final boolean coalesce;
+
+  private final boolean dropWhenFull;
+
+  private final MBeanServer server;
+
+  private final Map<Object, SubscriberQueue> queues = new ConcurrentHashMap<>();
+
+  private ThreadPoolExecutor threadPool;
+
+  private volatile ExecutorService executor;
+
+  @Inject
+  public QueuedEventDispatcher(
+      @Named("${nexus.event.queued.enabled:-false}") final boolean enabled,
+      @Named("${nexus.event.queued.threads:-50}") final int threads,
+      @Named("${nexus.event.queued.capacity:-10000}") final int capacity,
+      @Named("${nexus.event.queued.batchSize:-100}") final int batchSize,
+      @Named("${nexus.event.queued.subscriberConcurrency:-4}") final int concurrency,
+      @Named("${nexus.event.queued.coalesce:-true}") final boolean coalesce,
+      @Named("${nexus.event.queued.dropWhenFull:-true}") final boolean dropWhenFull,
+      @Nullable final MBeanServer server)
+  {
+    checkArgument(threads > 0, "Thread count must be greater than zero");
+    checkArgument(capacity > 0, "Capacity must be greater than zero");
+    checkArgument(batchSize > 0, "Batch size must be greater than zero");
+    checkArgument(concurrency > 0, "Concurrency must be greater than zero");
+    this.enabled = enabled;
+    this.threads = threads;
+    this.capacity = capacity;
+    this.batchSize = batchSize;
+    this.concurrency = concurrency;
+    this.coalesce = coalesce;
+    this.dropWhenFull = dropWhenFull;
+    this.server = server;
+  }
+
+  @ManagedAttribute
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (enabled) {
+      threadPool = new ThreadPoolExecutor(
+          threads,
+          threads,
+          60L,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), // at most one entry per subscriber worker
+          new NexusThreadFactory("event-queue", "event-manager"));
+      threadPool.allowCoreThreadTimeOut(true);
+
+      executor = NexusExecutorService.forCurrentSubject(threadPool);
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (executor != null) {
+      executor = null;
+      threadPool.shutdown();
+      try {
+        threadPool.awaitTermination(5L, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e) {
+        log.debug("Interrupted while waiting for termination", e);
+      }
+      threadPool = null;
+
+      // don't lose events which were still waiting
+      queues.values().forEach(SubscriberQueue::drainNow);
+    }
+  }
+
+  public void register(final Object subscriber) {
+    SubscriberQueue queue = new SubscriberQueue(subscriber, capacity, batchSize, concurrency, coalesce, dropWhenFull);
+    if (queues.putIfAbsent(subscriber, queue) == null) {
+      export(queue);
+    }
+  }
+
+  public void unregister(final Object subscriber) {
+    SubscriberQueue queue = queues.remove(subscriber);
+    if (queue != null) {
+      unexport(queue);
+    }
+  }
+
+  public void post(final Object event) {
+    ExecutorService current = executor;
+    for (SubscriberQueue queue : queues.values()) {
+      if (queue.accepts(event)) {
+        if (current != null) {
+          queue.enqueue(event, current);
+        }
+        else {
+          queue.deliverNow(event);
+        }
+      }
+    }
+  }
+
+  /**
+   * Used by UTs and ITs only, to "wait for calm period", when all queued events have been delivered.
+   */
+  @VisibleForTesting
+  boolean isCalmPeriod() {
+    return queues.values().stream().allMatch(SubscriberQueue::isCalm);
+  }
+
+  @ManagedAttribute
+  public int getQueuedCount() {
+    return queues.values().stream().mapToInt(SubscriberQueue::getQueueDepth).sum();
+  }
+
+  @VisibleForTesting
+  @Nullable
+  SubscriberQueue getQueue(final Object subscriber) {
+    return queues.get(subscriber);
+  }
+
+  private void export(final SubscriberQueue queue) {
+    if (server != null) {
+      try {
+        server.registerMBean(new ReflectionMBeanBuilder(SubscriberQueue.class)
+            .target(() -> queue)
+            .discover()
+            .build(), objectName(queue));
+      }
+      catch (Exception e) {
+        log.warn("Failed to export queue of {}; ignoring", queue.getSubscriberName(), e);
+      }
+    }
+  }
+
+  private void unexport(final SubscriberQueue queue) {
+    if (server != null) {
+      try {
+        server.unregisterMBean(objectName(queue));
+      }
+      catch (Exception e) {
+        log.warn("Failed to un-export queue of {}; ignoring", queue.getSubscriberName(), e);
+      }
+    }
+  }
+
+  private static ObjectName objectName(final SubscriberQueue queue) throws Exception {
+    // Hashtable is required by ancient JMX api
+    Hashtable<String, String> entries = new Hashtable<>();
+    entries.put("type", SubscriberQueue.class.getSimpleName());
+    entries.put("name", ObjectName.quote(queue.getSubscriberName()));
+    return new ObjectName(SubscriberQueue.class.getPackage().getName(), entries);
+  }
+}
@@ -0,0 +1,469 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.event;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.common.event.EventAware.Batching;
+import org.sonatype.nexus.common.event.HasAffinity;
+import org.sonatype.nexus.common.event.HasCoalescingKey;
+import org.sonatype.nexus.jmx.reflect.ManagedAttribute;
+import org.sonatype.nexus.jmx.reflect.ManagedObject;
+
+import com.codahale.metrics.Timer;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.primitives.Primitives;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.common.event.EventBusFactory.reentrantEventBus;
+import static org.sonatype.nexus.common.event.EventHelper.asReplicating;
+import static org.sonatype.nexus.common.event.EventHelper.isReplicating;
+
+/**
+ * Bounded queue of events waiting to be delivered to a single asynchronous subscriber.
+ *
+ * Events are delivered in the order they were queued by workers borrowed from a shared pool; subscribers whose
+ * methods are all marked {@link AllowConcurrentEvents} may have several workers at a time, in which case only
+ * {@link HasAffinity} events sharing an affinity keep their relative order. {@link Batching} subscribers have up to a
+ * batch of events delivered per worker, others one. Each event is delivered under the subject that posted it.
+ *
+ * When the queue is full the posting thread waits for room, delivering the oldest queued events itself whenever no
+ * worker is delivering them so the order is kept, except for {@link HasCoalescingKey} events which may be dropped
+ * instead; such events are also skipped while an equivalent event is still queued.
+ *
+ * @see QueuedEventDispatcher
+ */
+@ManagedObject(description = "Queue of events waiting for delivery to an asynchronous subscriber")
+public class SubscriberQueue
+{
+  private static final Logger log = LoggerFactory.getLogger(SubscriberQueue.class);
+
+  private static final long OVERFLOW_WAIT_MILLIS = 10;
+
+  private final Object subscriber;
+
+  private final EventBus eventBus;
+
+  private final Set<Class<?>> eventTypes;
+
+  private final ConcurrentMap<Class<?>, Boolean> acceptedTypes = new ConcurrentHashMap<>();
+
+  private final int capacity;
+
+  private final Lane lane;
+
+  /**
+   * Single-worker lanes for {@link HasAffinity} events sent to concurrent subscribers, {@code null} otherwise.
+   */
+  @Nullable
+  private final Lane[] affinityLanes;
+
+  private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+
+  private final int batchSize;
+
+  private final boolean coalesce;
+
+  private final boolean dropWhenFull;
+
+  private final Timer latency = new Timer();
+
+  private final LongAdder coalescedCount = new LongAdder();
+
+  private final LongAdder droppedCount = new LongAdder();
+
+  private final LongAdder overflowCount = new LongAdder();
+
+  SubscriberQueue(
+      final Object subscriber,
+      final int capacity,
+      final int batchSize,
+      final int concurrency,
+      final boolean coalesce,
+      final boolean dropWhenFull)
+  {
+    checkArgument(capacity > 0, "Capacity must be greater than zero");
+    checkArgument(batchSize > 0, "Batch size must be greater than zero");
+    checkArgument(concurrency > 0, "Concurrency must be greater than zero");
+
+    this.subscriber = checkNotNull(subscriber);
+    this.eventBus = reentrantEventBus(getSubscriberName());
+    this.eventBus.register(subscriber);
+
+    Set<Class<?>> types = new HashSet<>();
+    boolean concurrent = findSubscribedTypes(subscriber.getClass(), types);
+    this.eventTypes = types;
+
+    this.capacity = capacity;
+    this.batchSize = subscriber instanceof Batching ? batchSize : 1;
+    this.lane = new Lane(capacity, concurrent ? concurrency : 1);
+    if (concurrent && concurrency > 1) {
+      affinityLanes = new Lane[concurrency];
+      for (int i = 0; i < concurrency; i++) {
+        affinityLanes[i] = new Lane(Math.max(1, capacity / concurrency), 1);
+      }
+    }
+    else {
+      affinityLanes = null;
+    }
+    this.coalesce = coalesce;
+    this.dropWhenFull = dropWhenFull;
+  }
+
+  /**
+   * Collects the event types the subscriber listens to, returning {@code true} if it handles events concurrently.
+   */
+  private static boolean findSubscribedTypes(final Class<?> type, final Set<Class<?>> types) {
+    boolean concurrent = true;
+    for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+      for (Method method : clazz.getDeclaredMethods()) {
+        if (method.isAnnotationPresent(Subscribe.class) && !method.isSynthetic()
+            && method.getParameterCount() == 1) {
+          types.add(Primitives.wrap(method.getParameterTypes()[0]));
+          concurrent &= method.isAnnotationPresent(AllowConcurrentEvents.class);
+        }
+      }
+    }
+    return concurrent && !types.isEmpty();
+  }
+
+  /**
+   * Does the subscriber listen to this event?
+   */
+  boolean accepts(final Object event) {
+    return acceptedTypes.computeIfAbsent(event.getClass(),
+        eventType -> eventTypes.stream().anyMatch(type -> type.isAssignableFrom(eventType)));
+  }
+
+  /**
+   * Queues the event for delivery using the given executor, applying the overflow and coalescing policies.
+   */
+  void enqueue(final Object event, final Executor executor) {
+    String key = null;
+    if (event instanceof HasCoalescingKey) {
+      if (coalesce) {
+        key = event.getClass().getName() + ':' + ((HasCoalescingKey) event).getCoalescingKey();
+        if (!pendingKeys.add(key)) {
+          coalescedCount.increment();
+          return;
+        }
+      }
+    }
+
+    Lane target = laneFor(event);
+    QueuedEvent queued = new QueuedEvent(event, key, isReplicating(), ThreadContext.getSubject());
+    if (!target.queue.offer(queued)) {
+      if (dropWhenFull && event instanceof HasCoalescingKey) {
+        if (key != null) {
+          pendingKeys.remove(key);
+        }
+        droppedCount.increment();
+        log.trace("Dropped {} for {}", event, subscriber);
+        return;
+      }
+      // queue full, apply backpressure by making the posting thread wait for room
+      overflowCount.increment();
+      target.put(queued);
+    }
+
+    target.schedule(executor);
+  }
+
+  /**
+   * Picks the lane for the event; concurrent subscribers get events sharing an affinity through the same lane.
+   */
+  private Lane laneFor(final Object event) {
+    if (affinityLanes != null && event instanceof HasAffinity) {
+      String affinity = ((HasAffinity) event).getAffinity();
+      return affinityLanes[affinity == null ? 0 : Math.floorMod(affinity.hashCode(), affinityLanes.length)];
+    }
+    return lane;
+  }
+
+  /**
+   * Delivers the event on the current thread, bypassing the queue.
+   */
+  void deliverNow(final Object event) {
+    eventBus.post(event);
+  }
+
+  /**
+   * Delivers everything left in the queue on the current thread.
+   */
+  void drainNow() {
+    lanes().forEach(Lane::drainNow);
+  }
+
+  private void deliver(final QueuedEvent queued) {
+    if (queued.key != null) {
+      pendingKeys.remove(queued.key);
+    }
+    Subject previous = ThreadContext.unbindSubject();
+    try {
+      if (queued.subject != null) {
+        ThreadContext.bind(queued.subject);
+      }
+      if (queued.replicating && !isReplicating()) {
+        asReplicating(() -> eventBus.post(queued.event));
+      }
+      else {
+        eventBus.post(queued.event);
+      }
+    }
+    finally {
+      ThreadContext.unbindSubject();
+      if (previous != null) {
+        ThreadContext.bind(previous);
+      }
+      latency.update(System.nanoTime() - queued.queuedNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  boolean isCalm() {
+    return lanes().allMatch(Lane::isCalm);
+  }
+
+  private Stream<Lane> lanes() {
+    return affinityLanes == null ? Stream.of(lane) : Stream.concat(Stream.of(lane), Arrays.stream(affinityLanes));
+  }
+
+  @ManagedAttribute
+  public String getSubscriberName() {
+    return subscriber.getClass().getName();
+  }
+
+  @ManagedAttribute
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @ManagedAttribute
+  public int getQueueDepth() {
+    return lanes().mapToInt(l -> l.queue.size()).sum();
+  }
+
+  @ManagedAttribute
+  public int getActiveWorkers() {
+    return lanes().mapToInt(l -> l.workers.get()).sum();
+  }
+
+  @ManagedAttribute
+  public long getDeliveredCount() {
+    return latency.getCount();
+  }
+
+  @ManagedAttribute
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+
+  @ManagedAttribute
+  public long getDroppedCount() {
+    return droppedCount.sum();
+  }
+
+  @ManagedAttribute(description = "Events whose posting thread had to wait because the queue was full")
+  public long getOverflowCount() {
+    return overflowCount.sum();
+  }
+
+  @ManagedAttribute(description = "Mean time from queueing to delivery, in milliseconds")
+  public double getMeanLatencyMillis() {
+    return toMillis(latency.getSnapshot().getMean());
+  }
+
+  @ManagedAttribute(description = "99th percentile of time from queueing to delivery, in milliseconds")
+  public double getLatency99thPercentileMillis() {
+    return toMillis(latency.getSnapshot().get99thPercentile());
+  }
+
+  private static double toMillis(final double nanos) {
+    return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Queue of events with its own allowance of workers.
+   */
+  private class Lane
+  {
+    private final BlockingQueue<QueuedEvent> queue;
+
+    private final int maxWorkers;
+
+    private final AtomicInteger workers = new AtomicInteger();
+
+    /**
+     * Held while delivering from a single-worker lane, so threads helping to drain it keep the order.
+     */
+    @Nullable
+    private final ReentrantLock deliveryLock;
+
+    Lane(final int capacity, final int maxWorkers) {
+      this.queue = new LinkedBlockingQueue<>(capacity);
+      this.maxWorkers = maxWorkers;
+      this.deliveryLock = maxWorkers == 1 ? new ReentrantLock() : null;
+    }
+
+    void schedule(final Executor executor) {
+      int current;
+      while (!queue.isEmpty() && (current = workers.get()) < maxWorkers) {
+        if (workers.compareAndSet(current, current + 1)) {
+          try {
+            executor.execute(() -> work(executor));
+          }
+          catch (RejectedExecutionException e) {
+            workers.decrementAndGet();
+            log.debug("Delivering queued events for {} on posting thread", subscriber, e);
+            drainNow();
+          }
+          return;
+        }
+      }
+    }
+
+    private void work(final Executor executor) {
+      try {
+        deliverBatch(true);
+      }
+      finally {
+        workers.decrementAndGet();
+      }
+      schedule(executor); // pick up events queued while this worker was busy
+    }
+
+    /**
+     * Queues the event once there is room, delivering the oldest events on the current thread while nobody else is.
+     */
+    void put(final QueuedEvent queued) {
+      boolean interrupted = false;
+      try {
+        while (!queue.offer(queued)) {
+          if (!deliverBatch(false)) {
+            try {
+              if (queue.offer(queued, OVERFLOW_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return;
+              }
+            }
+            catch (InterruptedException e) {
+              // the event must not be lost, keep waiting and restore the interrupt afterwards
+              interrupted = true;
+            }
+          }
+        }
+      }
+      finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    /**
+     * Delivers up to a batch of the oldest events, returning {@code false} if told not to wait while another thread
+     * delivers from this lane.
+     */
+    private boolean deliverBatch(final boolean wait) {
+      if (deliveryLock != null) {
+        if (wait) {
+          deliveryLock.lock();
+        }
+        else if (!deliveryLock.tryLock()) {
+          return false;
+        }
+      }
+      try {
+        QueuedEvent queued;
+        for (int i = 0; i < batchSize && (queued = queue.poll()) != null; i++) {
+          deliver(queued);
+        }
+        return true;
+      }
+      finally {
+        if (deliveryLock != null) {
+          deliveryLock.unlock();
+        }
+      }
+    }
+
+    void drainNow() {
+      if (deliveryLock != null) {
+        deliveryLock.lock();
+      }
+      try {
+        QueuedEvent queued;
+        while ((queued = queue.poll()) != null) {
+          deliver(queued);
+        }
+      }
+      finally {
+        if (deliveryLock != null) {
+          deliveryLock.unlock();
+        }
+      }
+    }
+
+    boolean isCalm() {
+      return queue.isEmpty() && workers.get() == 0;
+    }
+  }
+
+  private static class QueuedEvent
+  {
+    private final Object event;
+
+    @Nullable
+    private final String key;
+
+    private final boolean replicating;
+
+    @Nullable
+    private final Subject subject;
+
+    private final long queuedNanos = System.nanoTime();
+
+    QueuedEvent(
+        final Object event,
+        @Nullable final String key,
+        final boolean replicating,
+        @Nullable final Subject subject)
+    {
+      this.event = event;
+      this.key = key;
+      this.replicating = replicating;
+      this.subject = subject;
+    }
+  }
+}
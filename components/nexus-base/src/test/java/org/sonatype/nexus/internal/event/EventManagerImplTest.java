@@ -43,7 +43,8 @@ public class EventManagerImplTest
 {
   @Test
   public void dispatchOrder() {
-    EventManager underTest = new EventManagerImpl(new DefaultBeanLocator(), newEventExecutor());
+    EventManager underTest =
+        new EventManagerImpl(new DefaultBeanLocator(), newEventExecutor(), newQueuedEventDispatcher());
     ReentrantHandler handler = new ReentrantHandler(underTest);
 
     underTest.register(handler);
@@ -81,7 +82,7 @@ public class EventManagerImplTest
   @Test
   public void asyncInheritsIsReplicating() throws Exception {
     EventExecutor executor = newEventExecutor();
-    EventManager underTest = new EventManagerImpl(new DefaultBeanLocator(), executor);
+    EventManager underTest = new EventManagerImpl(new DefaultBeanLocator(), executor, newQueuedEventDispatcher());
     AsyncReentrantHandler handler = new AsyncReentrantHandler(underTest);
     underTest.register(handler);
 
@@ -148,7 +149,7 @@ public class EventManagerImplTest
   @Test
   public void singleThreadedOnShutdown() throws Exception {
     EventExecutor executor = newEventExecutor();
-    EventManager underTest = new EventManagerImpl(new DefaultBeanLocator(), executor);
+    EventManager underTest = new EventManagerImpl(new DefaultBeanLocator(), executor, newQueuedEventDispatcher());
     AsyncHandler handler = new AsyncHandler();
     underTest.register(handler);
 
@@ -196,6 +197,10 @@ public class EventManagerImplTest
     return new EventExecutor(false, 0, Time.seconds(0), false, false);
   }
 
+  private static QueuedEventDispatcher newQueuedEventDispatcher() {
+    return new QueuedEventDispatcher(false, 1, 1, 1, 1, false, false, null);
+  }
+
   private class AsyncHandler
       implements Asynchronous
   {
@@ -0,0 +1,306 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.event;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.event.EventAware.Asynchronous;
+import org.sonatype.nexus.common.event.HasAffinity;
+import org.sonatype.nexus.common.event.HasCoalescingKey;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link QueuedEventDispatcher}.
+ */
+public class QueuedEventDispatcherTest
+    extends TestSupport
+{
+  private static final Object NO_SUBJECT = "none";
+
+  private QueuedEventDispatcher underTest;
+
+  private boolean started;
+
+  @After
+  public void tearDown() throws Exception {
+    if (started) {
+      underTest.stop();
+    }
+    ThreadContext.unbindSubject();
+  }
+
+  private void start() throws Exception {
+    underTest.start();
+    started = true;
+  }
+
+  @Test
+  public void deliversDirectlyUntilStarted() {
+    underTest = new QueuedEventDispatcher(true, 2, 10, 10, 1, true, true, null);
+    Handler handler = new Handler();
+    underTest.register(handler);
+
+    underTest.post("direct");
+
+    assertThat(handler.events, contains("direct"));
+    assertThat(handler.threads, contains(Thread.currentThread()));
+  }
+
+  @Test
+  public void deliversInOrderOnPoolThreads() throws Exception {
+    underTest = new QueuedEventDispatcher(true, 2, 100, 10, 1, true, true, null);
+    start();
+    Handler handler = new Handler();
+    underTest.register(handler);
+
+    for (int i = 0; i < 50; i++) {
+      underTest.post("event-" + i);
+    }
+    underTest.post(1); // not subscribed
+
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.events, hasSize(50));
+    for (int i = 0; i < 50; i++) {
+      assertThat(handler.events.get(i), is("event-" + i));
+    }
+    assertThat(handler.threads.get(0), is(not(Thread.currentThread())));
+    assertThat(underTest.getQueue(handler).getDeliveredCount(), is(50L));
+  }
+
+  @Test
+  public void coalescesPendingEvents() throws Exception {
+    underTest = new QueuedEventDispatcher(true, 1, 100, 10, 1, true, true, null);
+    start();
+    BlockingHandler handler = new BlockingHandler();
+    underTest.register(handler);
+
+    underTest.post(new Downloaded("blocker"));
+    handler.entered.await(5, TimeUnit.SECONDS);
+
+    underTest.post(new Downloaded("a"));
+    underTest.post(new Downloaded("a"));
+    underTest.post(new Downloaded("b"));
+    handler.release.countDown();
+
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.keys, is(asList("blocker", "a", "b")));
+    assertThat(underTest.getQueue(handler).getCoalescedCount(), is(1L));
+  }
+
+  @Test
+  public void fullQueueDropsCoalescingEventsAndMakesOthersWaitInOrder() throws Exception {
+    underTest = new QueuedEventDispatcher(true, 1, 1, 10, 1, true, true, null);
+    start();
+    BlockingHandler handler = new BlockingHandler();
+    underTest.register(handler);
+
+    underTest.post(new Downloaded("blocker"));
+    handler.entered.await(5, TimeUnit.SECONDS);
+
+    underTest.post(new Downloaded("queued"));
+    underTest.post(new Downloaded("dropped"));
+    Thread poster = new Thread(() -> underTest.post("overflow"));
+    poster.start();
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> poster.getState() == Thread.State.TIMED_WAITING);
+    assertThat(handler.keys, is(asList("blocker")));
+    handler.release.countDown();
+
+    poster.join(5000);
+    assertThat(poster.isAlive(), is(false));
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    SubscriberQueue queue = underTest.getQueue(handler);
+    assertThat(handler.keys, is(asList("blocker", "queued", "overflow")));
+    assertThat(queue.getDroppedCount(), is(1L));
+    assertThat(queue.getOverflowCount(), is(1L));
+  }
+
+  @Test
+  public void concurrentSubscribersReceiveEventsWithTheSameAffinityInOrder() throws Exception {
+    underTest = new QueuedEventDispatcher(true, 4, 1000, 10, 4, true, true, null);
+    start();
+    ConcurrentHandler handler = new ConcurrentHandler();
+    underTest.register(handler);
+
+    for (int i = 0; i < 100; i++) {
+      underTest.post(new Affine("affinity-" + (i % 3), i));
+    }
+
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    for (int a = 0; a < 3; a++) {
+      List<Integer> received = handler.received.get("affinity-" + a);
+      assertThat(received, hasSize(a == 0 ? 34 : 33));
+      for (int i = 0; i < received.size(); i++) {
+        assertThat(received.get(i), is(a + 3 * i));
+      }
+    }
+  }
+
+  @Test
+  public void eventsAreDeliveredUnderThePostingSubject() throws Exception {
+    underTest = new QueuedEventDispatcher(true, 1, 100, 10, 1, true, true, null);
+    start();
+    BlockingHandler handler = new BlockingHandler();
+    underTest.register(handler);
+
+    Subject first = mock(Subject.class);
+    Subject second = mock(Subject.class);
+
+    ThreadContext.bind(first);
+    underTest.post(new Downloaded("blocker"));
+    handler.entered.await(5, TimeUnit.SECONDS);
+
+    ThreadContext.bind(second);
+    underTest.post("second");
+    ThreadContext.unbindSubject();
+    underTest.post("anonymous");
+    handler.release.countDown();
+
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.keys, is(asList("blocker", "second", "anonymous")));
+    assertThat(handler.subjects, is(asList(first, second, NO_SUBJECT)));
+  }
+
+  @Test
+  public void unregisteredSubscribersStopReceivingEvents() {
+    underTest = new QueuedEventDispatcher(true, 1, 10, 10, 1, true, true, null);
+    Handler handler = new Handler();
+    underTest.register(handler);
+    underTest.unregister(handler);
+
+    underTest.post("ignored");
+
+    assertThat(handler.events, hasSize(0));
+    assertThat(underTest.getQueue(handler), is(nullValue()));
+  }
+
+  private static class Handler
+      implements Asynchronous
+  {
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+    @Subscribe
+    public void on(final String event) {
+      events.add(event);
+      threads.add(Thread.currentThread());
+    }
+  }
+
+  private static class ConcurrentHandler
+      implements Asynchronous
+  {
+    private final Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void on(final Affine event) throws InterruptedException {
+      Thread.sleep(event.sequence % 2); // vary delivery times between workers
+      received.computeIfAbsent(event.affinity, k -> new CopyOnWriteArrayList<>()).add(event.sequence);
+    }
+  }
+
+  private static class BlockingHandler
+      implements Asynchronous
+  {
+    private final List<String> keys = new CopyOnWriteArrayList<>();
+
+    private final List<Object> subjects = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Subscribe
+    public void on(final Downloaded event) throws InterruptedException {
+      keys.add(event.key);
+      subjects.add(currentSubject());
+      if ("blocker".equals(event.key)) {
+        entered.countDown();
+        release.await(5, TimeUnit.SECONDS);
+      }
+    }
+
+    @Subscribe
+    public void on(final String event) {
+      keys.add(event);
+      subjects.add(currentSubject());
+    }
+
+    private static Object currentSubject() {
+      Subject subject = ThreadContext.getSubject();
+      return subject != null ? subject : NO_SUBJECT;
+    }
+  }
+
+  private static class Affine
+      implements HasAffinity
+  {
+    private final String affinity;
+
+    private final int sequence;
+
+    Affine(final String affinity, final int sequence) {
+      this.affinity = affinity;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public String getAffinity() {
+      return affinity;
+    }
+  }
+
+  private static class Downloaded
+      implements HasCoalescingKey
+  {
+    private final String key;
+
+    Downloaded(final String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String getCoalescingKey() {
+      return key;
+    }
+  }
+}
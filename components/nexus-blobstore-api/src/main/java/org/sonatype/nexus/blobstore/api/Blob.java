@@ -13,8 +13,11 @@
 package org.sonatype.nexus.blobstore.api;
 
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 /**
  * A handle for binary data stored within a {@link BlobStore}.
  *
@@ -42,6 +45,19 @@ public interface Blob
    */
   InputStream getInputStream();
 
+  /**
+   * Opens a channel to the blob's content when it is held in a local file, so it can be sent without being copied
+   * through the heap. The caller is responsible for closing the channel.
+   *
+   * @return {@code null} if the blob's content is not held in a local file
+   * @throws BlobStoreException may be thrown if the blob is {@link BlobStore#delete deleted} or
+   *           {@link BlobStore#delete hard deleted}.
+   */
+  @Nullable
+  default FileChannel openFileChannel() {
+    return null;
+  }
+
   /**
    * Provides metrics about this Blob.
    *
@@ -0,0 +1,73 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.sonatype.nexus.common.property.PropertiesFile;
+
+/**
+ * Progress of a {@link FileBlobStore} compaction walking the content directories, kept next to the blob store
+ * metadata so an interrupted walk resumes with the partitions (volume/chapter directories) it had not completed
+ * instead of starting over.
+ *
+ * Compaction driven by the deletion index needs no checkpoint, records are only removed from the index once
+ * processed.
+ */
+class CompactionCheckpoint
+{
+  static final String FILENAME = "compaction-checkpoint.properties";
+
+  private static final String COMPLETED = "completed";
+
+  private final PropertiesFile partitions;
+
+  CompactionCheckpoint(final Path blobDir) {
+    this.partitions = new PropertiesFile(blobDir.resolve(FILENAME).toFile());
+  }
+
+  /**
+   * Starts or resumes a walk, returning {@code true} when resuming.
+   */
+  synchronized boolean start() throws IOException {
+    if (partitions.exists()) {
+      partitions.load();
+      return true;
+    }
+    partitions.store();
+    return false;
+  }
+
+  synchronized boolean isCompleted(final String partition) {
+    return COMPLETED.equals(partitions.getProperty(partition));
+  }
+
+  synchronized void markCompleted(final String partition) throws IOException {
+    partitions.setProperty(partition, COMPLETED);
+    partitions.store();
+  }
+
+  synchronized int getCompletedCount() {
+    return partitions.size();
+  }
+
+  /**
+   * Ends the walk, the next one starts over.
+   */
+  synchronized void finish() throws IOException {
+    partitions.clear();
+    Files.deleteIfExists(partitions.getFile().toPath());
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.scheduling.TaskInterruptedException;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.scheduling.CancelableHelper.checkCancellation;
+
+/**
+ * Runs the units of work of a {@link FileBlobStore} compaction on a pool of workers, handing their results back to
+ * the calling thread in submission order so index and checkpoint updates stay on a single thread. With a single
+ * worker everything runs on the calling thread.
+ *
+ * Task cancellation is only visible to the calling thread; it is checked there while waiting for workers and passed
+ * on to long running units through {@link #isCancelled()}.
+ */
+class CompactionExecutor<T>
+    implements AutoCloseable
+{
+  private static final long POLL_MILLIS = 500L;
+
+  /**
+   * Handles the result of a unit of work on the calling thread.
+   */
+  @FunctionalInterface
+  interface ResultHandler<T>
+  {
+    void handle(T result) throws Exception;
+  }
+
+  @Nullable
+  private final ExecutorService executor;
+
+  private final int window;
+
+  private final ResultHandler<T> resultHandler;
+
+  private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+
+  CompactionExecutor(final String name, final int threads, final ResultHandler<T> resultHandler) {
+    checkArgument(threads > 0, "Thread count must be greater than zero");
+    this.resultHandler = checkNotNull(resultHandler);
+    this.window = threads * 2;
+    this.executor = threads > 1
+        ? Executors.newFixedThreadPool(threads, new NexusThreadFactory("blobstore-compact", name))
+        : null;
+  }
+
+  /**
+   * Returns {@code true} once the task has been canceled, for units of work to stop early.
+   */
+  boolean isCancelled() {
+    if (executor == null) {
+      // running on the calling thread, which sees the cancellation directly
+      try {
+        checkCancellation();
+      }
+      catch (TaskInterruptedException e) {
+        cancelled.set(true);
+      }
+    }
+    else if (Thread.currentThread().isInterrupted()) {
+      cancelled.set(true);
+    }
+    return cancelled.get();
+  }
+
+  /**
+   * Submits a unit of work, first waiting for the oldest outstanding unit when enough are in progress.
+   */
+  void submit(final Callable<T> unit) throws Exception {
+    checkNotCancelled();
+    if (executor == null) {
+      resultHandler.handle(unit.call());
+      return;
+    }
+    while (pending.size() >= window) {
+      completeOldest();
+    }
+    pending.add(executor.submit(unit));
+  }
+
+  /**
+   * Waits for all outstanding units of work.
+   */
+  void awaitAll() throws Exception {
+    while (!pending.isEmpty()) {
+      completeOldest();
+    }
+  }
+
+  private void completeOldest() throws Exception {
+    Future<T> oldest = pending.element();
+    T result = null;
+    boolean done = false;
+    while (!done) {
+      checkNotCancelled();
+      try {
+        result = oldest.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        done = true;
+      }
+      catch (TimeoutException e) { // NOSONAR
+        // keep waiting
+      }
+      catch (ExecutionException e) {
+        pending.remove();
+        Throwable cause = e.getCause();
+        throw cause instanceof Exception ? (Exception) cause : e;
+      }
+    }
+    pending.remove();
+    resultHandler.handle(result);
+  }
+
+  private void checkNotCancelled() {
+    if (cancelled.get()) {
+      throw new TaskInterruptedException("Compaction is canceled", true);
+    }
+    try {
+      checkCancellation();
+    }
+    catch (TaskInterruptedException e) {
+      cancelled.set(true);
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    cancelled.set(true);
+    if (executor != null) {
+      executor.shutdownNow();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+}
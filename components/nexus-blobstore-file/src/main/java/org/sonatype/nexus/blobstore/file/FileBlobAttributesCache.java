@@ -0,0 +1,146 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.nio.file.Path;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+
+import com.codahale.metrics.annotation.Gauge;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Shared cache of parsed {@link FileBlobAttributes}, keyed by attribute file, so hot blobs are served without
+ * re-reading their properties file on every {@link FileBlobStore#get}.
+ *
+ * The cache is bounded by {@code nexus.blobstore.file.attributesCache.maxWeight}, an estimate of the retained size in
+ * bytes; {@code 0} disables it. Cached attributes are only used to answer reads, anything which modifies attributes
+ * loads them afresh and invalidates the cached entry once stored. Loads and invalidations of a blob's attributes are
+ * made while holding that blob's lock, as the load is not atomic with respect to invalidation.
+ */
+@Named
+@Singleton
+public class FileBlobAttributesCache
+    extends ComponentSupport
+{
+  private static final int ENTRY_OVERHEAD = 512;
+
+  @Nullable
+  private final Cache<Path, FileBlobAttributes> cache;
+
+  @Inject
+  public FileBlobAttributesCache(
+      @Named("${nexus.blobstore.file.attributesCache.maxWeight:-33554432}") final long maxWeight)
+  {
+    checkArgument(maxWeight >= 0, "Maximum weight must not be negative");
+    if (maxWeight > 0) {
+      cache = CacheBuilder.newBuilder()
+          .maximumWeight(maxWeight)
+          .weigher(FileBlobAttributesCache::weigh)
+          .recordStats()
+          .build();
+    }
+    else {
+      cache = null;
+    }
+  }
+
+  /**
+   * Returns the cached attributes for the given attribute file, using the loader to read them when missing; a
+   * {@code null} result from the loader is returned as is and not cached.
+   */
+  @Nullable
+  public FileBlobAttributes get(final Path attributePath, final Callable<FileBlobAttributes> loader) throws Exception {
+    if (cache == null) {
+      return loader.call();
+    }
+    FileBlobAttributes attributes = cache.getIfPresent(attributePath);
+    if (attributes == null) {
+      attributes = loader.call();
+      if (attributes != null) {
+        cache.put(attributePath, attributes);
+      }
+    }
+    return attributes;
+  }
+
+  /**
+   * Discards the cached attributes for the given attribute file.
+   */
+  public void invalidate(final Path attributePath) {
+    if (cache != null) {
+      cache.invalidate(attributePath);
+    }
+  }
+
+  /**
+   * Discards all cached attributes for attribute files below the given directory.
+   */
+  public void invalidateAll(final Path directory) {
+    if (cache != null) {
+      cache.asMap().keySet().removeIf(path -> path.startsWith(directory));
+    }
+  }
+
+  @VisibleForTesting
+  static int weigh(final Path attributePath, final FileBlobAttributes attributes) {
+    long weight = ENTRY_OVERHEAD + 2L * attributePath.toString().length();
+    if (attributes.getHeaders() != null) {
+      for (Entry<String, String> header : attributes.getHeaders().entrySet()) {
+        weight += 2L * (header.getKey().length() + header.getValue().length());
+      }
+    }
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+  private CacheStats stats() {
+    return cache != null ? cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+  }
+
+  @Gauge(name = "nexus.blobstore.file.attributesCache.hitRate")
+  public double getHitRate() {
+    return stats().hitRate();
+  }
+
+  @Gauge(name = "nexus.blobstore.file.attributesCache.hits")
+  public long getHitCount() {
+    return stats().hitCount();
+  }
+
+  @Gauge(name = "nexus.blobstore.file.attributesCache.misses")
+  public long getMissCount() {
+    return stats().missCount();
+  }
+
+  @Gauge(name = "nexus.blobstore.file.attributesCache.evictions")
+  public long getEvictionCount() {
+    return stats().evictionCount();
+  }
+
+  @Gauge(name = "nexus.blobstore.file.attributesCache.size")
+  public long getSize() {
+    return cache != null ? cache.size() : 0;
+  }
+}
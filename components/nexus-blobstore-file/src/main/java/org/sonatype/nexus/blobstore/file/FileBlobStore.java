@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileStore;
@@ -26,6 +27,7 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -36,13 +38,17 @@ import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -162,6 +168,8 @@ public class FileBlobStore
 
   private static final int INTERVAL_IN_SECONDS = 60;
 
+  private static final int PARTITION_DEPTH = 2;
+
   private Path contentDir;
 
   private Path reconciliationLogDir;
@@ -192,6 +200,28 @@ public class FileBlobStore
 
   private final BlobStoreQuotaUsageChecker blobStoreQuotaUsageChecker;
 
+  private FileBlobAttributesCache attributesCache;
+
+  private int compactThreads;
+
+  public FileBlobStore(
+      final BlobIdLocationResolver blobIdLocationResolver,
+      final FileOperations fileOperations,
+      final ApplicationDirectories applicationDirectories,
+      final BlobStoreMetricsService<FileBlobStore> metricsService,
+      final NodeAccess nodeAccess,
+      final DryRunPrefix dryRunPrefix,
+      final BlobStoreReconciliationLogger reconciliationLogger,
+      final long pruneEmptyDirectoryAge,
+      final BlobStoreQuotaUsageChecker blobStoreQuotaUsageChecker,
+      final FileBlobDeletionIndex blobDeletionIndex,
+      final FileBlobAttributesCache attributesCache)
+  {
+    this(blobIdLocationResolver, fileOperations, applicationDirectories, metricsService, nodeAccess, dryRunPrefix,
+        reconciliationLogger, pruneEmptyDirectoryAge, blobStoreQuotaUsageChecker, blobDeletionIndex, attributesCache,
+        1);
+  }
+
   @Inject
   public FileBlobStore(
       final BlobIdLocationResolver blobIdLocationResolver,
@@ -203,9 +233,12 @@ public class FileBlobStore
       final BlobStoreReconciliationLogger reconciliationLogger,
       @Named("${nexus.blobstore.prune.empty.directory.age.ms:-86400000}") final long pruneEmptyDirectoryAge,
       final BlobStoreQuotaUsageChecker blobStoreQuotaUsageChecker,
-      final FileBlobDeletionIndex blobDeletionIndex)
+      final FileBlobDeletionIndex blobDeletionIndex,
+      final FileBlobAttributesCache attributesCache,
+      @Named("${nexus.blobstore.compact.threads:-1}") final int compactThreads)
   {
     super(blobIdLocationResolver, dryRunPrefix);
+    checkArgument(compactThreads > 0, "Compaction thread count must be greater than zero");
     this.fileOperations = checkNotNull(fileOperations);
     this.applicationDirectories = checkNotNull(applicationDirectories);
     this.metricsService = checkNotNull(metricsService);
@@ -216,6 +249,8 @@ public class FileBlobStore
     this.pruneEmptyDirectoryAge = pruneEmptyDirectoryAge;
     this.blobStoreQuotaUsageChecker = checkNotNull(blobStoreQuotaUsageChecker);
     this.blobDeletionIndex = checkNotNull(blobDeletionIndex);
+    this.attributesCache = checkNotNull(attributesCache);
+    this.compactThreads = compactThreads;
   }
 
   @VisibleForTesting
@@ -235,7 +270,8 @@ public class FileBlobStore
 
   {
     this(blobIdLocationResolver, fileOperations, directories, metricsService, nodeAccess, dryRunPrefix,
-        reconciliationLogger, pruneEmptyDirectoryAge, blobStoreQuotaUsageChecker, blobDeletionIndex);
+        reconciliationLogger, pruneEmptyDirectoryAge, blobStoreQuotaUsageChecker, blobDeletionIndex,
+        new FileBlobAttributesCache(0));
     this.contentDir = checkNotNull(contentDir);
     this.blobStoreConfiguration = checkNotNull(configuration);
   }
@@ -292,6 +328,7 @@ public class FileBlobStore
   @Override
   protected void doStop() throws Exception {
     liveBlobs = null;
+    attributesCache.invalidateAll(contentDir);
     try {
       blobDeletionIndex.stopIndex();
     }
@@ -372,6 +409,7 @@ public class FileBlobStore
     try {
       FileBlobAttributes blobAttributes = new FileBlobAttributes(attributePath, headers, blobMetrics);
       blobAttributes.store();
+      invalidateAttributes(blobId, attributePath);
     }
     catch (Exception e) {
       // Something went wrong, clean up the file we created
@@ -451,6 +489,7 @@ public class FileBlobStore
           move(temporaryBlobPath, blobPath);
           move(temporaryAttributePath, attributePath);
         }
+        attributesCache.invalidate(attributePath);
 
         metricsService.recordAddition(blobAttributes.getMetrics().getContentSize());
 
@@ -520,7 +559,8 @@ public class FileBlobStore
       Lock lock = blob.lock();
       try {
         if (blob.isStale()) {
-          FileBlobAttributes blobAttributes = getFileBlobAttributes(blobId);
+          FileBlobAttributes blobAttributes =
+              attributesCache.get(attributePath(blobId), () -> getFileBlobAttributes(blobId));
           if (blobAttributes == null) {
             return null;
           }
@@ -588,6 +628,7 @@ public class FileBlobStore
       blobAttributes.setDeleted(true);
       blobAttributes.setDeletedReason(reason);
       blobAttributes.store();
+      attributesCache.invalidate(blobAttributes.getPath());
 
       // record blob for hard-deletion when the next compact task runs
       blobDeletionIndex.createRecord(blobId);
@@ -629,6 +670,7 @@ public class FileBlobStore
 
       boolean blobDeleted = delete(blobPath);
       delete(attributePath);
+      attributesCache.invalidate(attributePath);
 
       if (blobDeleted && contentSize != null) {
         metricsService.recordDeletion(contentSize);
@@ -742,14 +784,41 @@ public class FileBlobStore
     }
   }
 
-  private boolean maybeCompactBlob(@Nullable final BlobStoreUsageChecker inUseChecker, final BlobId blobId) {
+  @Override
+  @Guarded(by = STARTED)
+  public boolean undelete(
+      @Nullable final BlobStoreUsageChecker inUseChecker,
+      final BlobId blobId,
+      final BlobAttributes attributes,
+      final boolean isDryRun)
+  {
+    try {
+      return super.undelete(inUseChecker, blobId, attributes, isDryRun);
+    }
+    finally {
+      if (!isDryRun) {
+        invalidateAttributes(blobId, attributePath(blobId));
+      }
+    }
+  }
+
+  /**
+   * Hard deletes the blob unless it is still in use, returning the number of bytes reclaimed or {@code -1} if the blob
+   * was kept.
+   */
+  private long maybeCompactBlob(@Nullable final BlobStoreUsageChecker inUseChecker, final BlobId blobId) {
     Optional<FileBlobAttributes> attributesOption = ofNullable((FileBlobAttributes) getBlobAttributes(blobId));
     if (!attributesOption.isPresent() || !undelete(inUseChecker, blobId, attributesOption.get(), false)) {
       // attributes file is missing or blob id not in use, so it's safe to delete the file
       log.debug("Hard deleting blob id: {}, in blob store: {}", blobId, blobStoreConfiguration.getName());
-      return deleteHard(blobId);
+      if (deleteHard(blobId)) {
+        return attributesOption
+            .map(BlobAttributes::getMetrics)
+            .map(BlobMetrics::getContentSize)
+            .orElse(0L);
+      }
     }
-    return false;
+    return -1L;
   }
 
   @Override
@@ -960,37 +1029,81 @@ public class FileBlobStore
 
   void doCompactWithDeletedBlobIndex(@Nullable final BlobStoreUsageChecker inUseChecker) throws IOException {
     log.info("Begin deleted blobs processing");
-    // only process each blob once (in-use blobs may be re-added to the index)
     ProgressLogIntervalHelper progressLogger = new ProgressLogIntervalHelper(log, INTERVAL_IN_SECONDS);
-    for (int counter = 0, numBlobs = blobDeletionIndex.size(); counter < numBlobs; counter++) {
-      log.debug("Processing record {} of {}", counter + 1, numBlobs);
-      BlobId nextAvailableRecord = blobDeletionIndex.getNextAvailableRecord();
-      if (Objects.isNull(nextAvailableRecord)) {
-        log.info("Deleted blobs not found");
-        return;
-      }
-      FileBlob blob = liveBlobs.getIfPresent(nextAvailableRecord);
-      log.debug("Next available record for compaction: {}", nextAvailableRecord);
-      if (Objects.isNull(blob) || blob.isStale()) {
-        log.debug("Compacting...");
-        maybeCompactBlob(inUseChecker, nextAvailableRecord);
-        blobDeletionIndex.deleteRecord(nextAvailableRecord);
-      }
-      else {
-        log.debug("Still in use to deferring");
-        // still in use, so move it to end of the queue
-        blobDeletionIndex.deleteRecord(nextAvailableRecord);
-        blobDeletionIndex.createRecord(nextAvailableRecord);
+    CompactionProgress progress = new CompactionProgress();
+    Set<BlobId> inFlight = ConcurrentHashMap.newKeySet();
+    boolean exhausted = false;
+    // only process each blob once (in-use blobs may be re-added to the index)
+    int numBlobs = blobDeletionIndex.size();
+    try (CompactionExecutor<CompactionProgress> executor = new CompactionExecutor<>(compactionName(), compactThreads,
+        result -> {
+          progress.add(result);
+          progressLogger.info("Elapsed time: {}, processed: {}/{}, reclaimed: {}", progressLogger.getElapsed(),
+              progress.getProcessed(), numBlobs, progress);
+        })) {
+      for (int counter = 0; counter < numBlobs; counter++) {
+        log.debug("Processing record {} of {}", counter + 1, numBlobs);
+        BlobId nextAvailableRecord = blobDeletionIndex.getNextAvailableRecord();
+        if (nextAvailableRecord != null && inFlight.contains(nextAvailableRecord)) {
+          // index hands out records until they are deleted, wait for those in progress to be processed
+          executor.awaitAll();
+          nextAvailableRecord = blobDeletionIndex.getNextAvailableRecord();
+        }
+        if (Objects.isNull(nextAvailableRecord)) {
+          log.info("Deleted blobs not found");
+          exhausted = true;
+          break;
+        }
+        BlobId blobId = nextAvailableRecord;
+        inFlight.add(blobId);
+        executor.submit(() -> {
+          try {
+            return compactRecord(inUseChecker, blobId);
+          }
+          finally {
+            inFlight.remove(blobId);
+          }
+        });
       }
-
-      progressLogger.info("Elapsed time: {}, processed: {}/{}", progressLogger.getElapsed(),
-          counter + 1, numBlobs);
+      executor.awaitAll();
+    }
+    catch (IOException | RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new IOException(e);
+    }
+    log.info("Deleted blobs processing finished, reclaimed: {}", progress);
+    if (exhausted) {
+      return;
     }
     // once done removing stuff, clean any empty directories left around in the directpath area
     pruneEmptyDirectories(progressLogger, contentDir.resolve(DIRECT_PATH_ROOT));
     progressLogger.flush();
   }
 
+  private CompactionProgress compactRecord(
+      @Nullable final BlobStoreUsageChecker inUseChecker,
+      final BlobId blobId) throws IOException
+  {
+    CompactionProgress progress = new CompactionProgress();
+    FileBlob blob = liveBlobs.getIfPresent(blobId);
+    log.debug("Next available record for compaction: {}", blobId);
+    if (Objects.isNull(blob) || blob.isStale()) {
+      log.debug("Compacting...");
+      progress.processed(maybeCompactBlob(inUseChecker, blobId));
+      blobDeletionIndex.deleteRecord(blobId);
+    }
+    else {
+      log.debug("Still in use to deferring");
+      // still in use, so move it to end of the queue
+      blobDeletionIndex.deleteRecord(blobId);
+      blobDeletionIndex.createRecord(blobId);
+      progress.processed(-1L);
+    }
+    return progress;
+  }
+
   private void pruneEmptyDirectories(final ProgressLogIntervalHelper progressLogger, final Path directPathDir) {
     long timestamp = new Date().getTime() - pruneEmptyDirectoryAge;
 
@@ -1012,25 +1125,97 @@ public class FileBlobStore
   @VisibleForTesting
   void doCompactWithoutDeletedBlobIndex(@Nullable final BlobStoreUsageChecker inUseChecker) throws IOException {
     log.info("Begin deleted blobs processing without deleted blob index");
-    // clear the deleted blob index ahead of time, so we won't lose deletes that may occur while the compact is being
-    // performed
-    blobDeletionIndex.deleteAllRecords();
+    CompactionCheckpoint checkpoint = new CompactionCheckpoint(getAbsoluteBlobDir());
+    if (checkpoint.start()) {
+      log.info("Resuming deleted blobs processing, {} content directories already processed",
+          checkpoint.getCompletedCount());
+    }
+    else {
+      // clear the deleted blob index ahead of time, so we won't lose deletes that may occur while the compact is being
+      // performed
+      blobDeletionIndex.deleteAllRecords();
+    }
 
     ProgressLogIntervalHelper progressLogger = new ProgressLogIntervalHelper(log, INTERVAL_IN_SECONDS);
-    AtomicInteger count = new AtomicInteger(0);
+    CompactionProgress progress = new CompactionProgress();
+
+    // the content directory is walked in partitions, the directories two levels down (i.e. volume/chapter) and the
+    // files above them, so partitions are compacted in parallel and completed ones are skipped when resuming
+    try (CompactionExecutor<CompactionProgress> executor = new CompactionExecutor<>(compactionName(), compactThreads,
+        result -> {
+          progress.add(result);
+          progressLogger.info("Elapsed time: {}, processed: {}, reclaimed: {}", progressLogger.getElapsed(),
+              progress.getProcessed(), progress);
+        })) {
+      Map<String, Path> partitions = new LinkedHashMap<>();
+      partitions.put(".", contentDir);
+      for (Path partition : getContentPartitions()) {
+        partitions.put(contentDir.relativize(partition).toString().replace(File.separatorChar, '/'), partition);
+      }
+      for (Entry<String, Path> partition : partitions.entrySet()) {
+        if (checkpoint.isCompleted(partition.getKey())) {
+          continue;
+        }
+        int maxDepth = contentDir.equals(partition.getValue()) ? PARTITION_DEPTH : Integer.MAX_VALUE;
+        executor.submit(() -> {
+          CompactionProgress result =
+              compactPartition(partition.getValue(), maxDepth, inUseChecker, executor::isCancelled);
+          if (!executor.isCancelled()) {
+            checkpoint.markCompleted(partition.getKey());
+          }
+          return result;
+        });
+      }
+      executor.awaitAll();
+
+      if (executor.isCancelled()) {
+        // Preserve the functionality of throwing an exception when interrupted
+        checkCancellation();
+        throw new TaskInterruptedException("Compaction of " + compactionName() + " is canceled", true);
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new IOException(e);
+    }
+
+    checkpoint.finish();
+    log.info("Deleted blobs processing finished, reclaimed: {}", progress);
+    progressLogger.flush();
+  }
+
+  /**
+   * Returns the directories {@link #PARTITION_DEPTH} levels below the content directory.
+   */
+  private List<Path> getContentPartitions() throws IOException {
+    try (Stream<Path> paths = Files.walk(contentDir, PARTITION_DEPTH, FOLLOW_LINKS)) {
+      return paths
+          .filter(path -> contentDir.relativize(path).getNameCount() == PARTITION_DEPTH)
+          .filter(Files::isDirectory)
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private CompactionProgress compactPartition(
+      final Path partition,
+      final int maxDepth,
+      @Nullable final BlobStoreUsageChecker inUseChecker,
+      final BooleanSupplier cancelled) throws IOException
+  {
+    CompactionProgress progress = new CompactionProgress();
 
     // rather than using the blobId stream here, need to use a different means of walking the file tree, as
     // we are deleting items on the way through, and apparently on *nix systems, deleting files that you are about to
     // walk over causes a FileNotFoundException to be thrown and the walking stops. Overridding the visitFileFailed
     // method allows us to get past that
-    Files.walkFileTree(contentDir, EnumSet.of(FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>()
+    Files.walkFileTree(partition, EnumSet.of(FOLLOW_LINKS), maxDepth, new SimpleFileVisitor<Path>()
     {
       @Override
       public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
-        try {
-          checkCancellation();
-        }
-        catch (TaskInterruptedException e) {
+        if (cancelled.getAsBoolean()) {
           log.info("Cancel request received, terminating compact process.");
           return FileVisitResult.TERMINATE;
         }
@@ -1044,7 +1229,7 @@ public class FileBlobStore
           FileBlobAttributes attributes = getFileBlobAttributes(blobId);
 
           if (attributes != null && attributes.isDeleted()) {
-            compactByAttributes(attributes, inUseChecker, count, progressLogger);
+            compactByAttributes(attributes, inUseChecker, progress);
           }
         }
 
@@ -1058,29 +1243,23 @@ public class FileBlobStore
       }
     });
 
-    // Do this check one final time, to preserve the functionality of throwing an exception when interrupted
-    checkCancellation();
-
-    progressLogger.flush();
+    return progress;
   }
 
   private void compactByAttributes(
       final FileBlobAttributes attributes,
       final BlobStoreUsageChecker inUseChecker,
-      final AtomicInteger count,
-      final ProgressLogIntervalHelper progressLogger)
+      final CompactionProgress progress)
   {
     BlobId blobId = getBlobIdFromAttributeFilePath(new FileAttributesLocation(attributes.getPath()));
     FileBlob blob = blobId != null ? liveBlobs.getIfPresent(blobId) : null;
     try {
       if (blob == null || blob.isStale()) {
-        if (!maybeCompactBlob(inUseChecker, blobId)) {
+        long reclaimed = maybeCompactBlob(inUseChecker, blobId);
+        if (reclaimed < 0) {
           blobDeletionIndex.createRecord(blobId);
         }
-        else {
-          progressLogger.info("Elapsed time: {}, processed: {}", progressLogger.getElapsed(),
-              count.incrementAndGet());
-        }
+        progress.processed(reclaimed);
       }
       else {
         blobDeletionIndex.createRecord(blobId);
@@ -1091,6 +1270,48 @@ public class FileBlobStore
     }
   }
 
+  private String compactionName() {
+    return "compact-" + blobStoreConfiguration.getName();
+  }
+
+  /**
+   * Blobs processed and bytes reclaimed by (part of) a compaction.
+   */
+  private static class CompactionProgress
+  {
+    private final long started = System.nanoTime();
+
+    private long processed;
+
+    private long deleted;
+
+    private long reclaimedBytes;
+
+    void processed(final long reclaimed) {
+      processed++;
+      if (reclaimed >= 0) {
+        deleted++;
+        reclaimedBytes += reclaimed;
+      }
+    }
+
+    void add(final CompactionProgress other) {
+      processed += other.processed;
+      deleted += other.deleted;
+      reclaimedBytes += other.reclaimedBytes;
+    }
+
+    long getProcessed() {
+      return processed;
+    }
+
+    @Override
+    public String toString() {
+      long elapsedMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+      return deleted + " blobs, " + reclaimedBytes + " bytes (" + reclaimedBytes * 1000 / elapsedMillis + " bytes/s)";
+    }
+  }
+
   private Stream<Path> getAttributeFilePaths() throws IOException {
     return getAttributeFilePaths(EMPTY);
   }
@@ -1136,6 +1357,22 @@ public class FileBlobStore
         throw new BlobStoreException(e, getId());
       }
     }
+
+    @Override
+    public FileChannel openFileChannel() {
+      Path contentPath = contentPath(getId());
+      try {
+        checkExists(contentPath, getId());
+        return FileChannel.open(contentPath, StandardOpenOption.READ);
+      }
+      catch (BlobStoreException e) {
+        markStale();
+        throw e;
+      }
+      catch (Exception e) {
+        throw new BlobStoreException(e, getId());
+      }
+    }
   }
 
   private interface BlobIngester
@@ -1148,6 +1385,16 @@ public class FileBlobStore
     this.liveBlobs = liveBlobs;
   }
 
+  @VisibleForTesting
+  void setCompactThreads(final int compactThreads) {
+    this.compactThreads = compactThreads;
+  }
+
+  @VisibleForTesting
+  void setAttributesCache(final FileBlobAttributesCache attributesCache) {
+    this.attributesCache = attributesCache;
+  }
+
   @Override
   public Stream<BlobId> getBlobIdStream() {
     try {
@@ -1306,6 +1553,28 @@ public class FileBlobStore
       log.error("Unable to set BlobAttributes for blob id: {}, exception: {}",
           blobId, e.getMessage(), log.isDebugEnabled() ? e : null);
     }
+    finally {
+      invalidateAttributes(blobId, attributePath(blobId));
+    }
+  }
+
+  /**
+   * Discards cached attributes while holding the blob's lock, which {@link #get} also holds while loading them, so a
+   * read that started before the attributes were stored cannot put its stale copy back into the cache afterwards.
+   */
+  private void invalidateAttributes(final BlobId blobId, final Path attributePath) {
+    LoadingCache<BlobId, FileBlob> blobs = liveBlobs;
+    if (blobs == null) {
+      attributesCache.invalidate(attributePath);
+      return;
+    }
+    Lock lock = blobs.getUnchecked(blobId).lock();
+    try {
+      attributesCache.invalidate(attributePath);
+    }
+    finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -1322,6 +1591,8 @@ public class FileBlobStore
   @Override
   protected void deleteCopiedAttributes(final BlobId blobId, final String softDeletedLocation) {
     log.trace("deleteCopiedAttributes for blobId: {}, softDeletedLocation: {}", blobId, softDeletedLocation);
-    fileOperations.deleteQuietly(attributePath(createBlobIdForTimePath(blobId, softDeletedLocation)));
+    Path copiedAttributePath = attributePath(createBlobIdForTimePath(blobId, softDeletedLocation));
+    fileOperations.deleteQuietly(copiedAttributePath);
+    attributesCache.invalidate(copiedAttributePath);
   }
 }
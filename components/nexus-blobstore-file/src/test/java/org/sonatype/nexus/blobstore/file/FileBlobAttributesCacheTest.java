@@ -0,0 +1,120 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.blobstore.api.BlobMetrics;
+
+import com.google.common.collect.ImmutableMap;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FileBlobAttributesCacheTest
+    extends TestSupport
+{
+  private static final Path STORE = Paths.get("/blobs/default/content");
+
+  private static final Path ATTRIBUTES = STORE.resolve("vol-01/chap-01/a.properties");
+
+  private static final Path OTHER_ATTRIBUTES = Paths.get("/blobs/other/content/vol-01/chap-01/a.properties");
+
+  @Mock
+  private Callable<FileBlobAttributes> loader;
+
+  private final FileBlobAttributes attributes = new FileBlobAttributes(ATTRIBUTES,
+      ImmutableMap.of("BlobStore.blob-name", "foo.jar"), new BlobMetrics(new DateTime(), "sha1", 1L));
+
+  private FileBlobAttributesCache underTest = new FileBlobAttributesCache(1024 * 1024);
+
+  @Test
+  public void cachedAttributesAreNotReloaded() throws Exception {
+    when(loader.call()).thenReturn(attributes);
+
+    assertThat(underTest.get(ATTRIBUTES, loader), is(sameInstance(attributes)));
+    assertThat(underTest.get(ATTRIBUTES, loader), is(sameInstance(attributes)));
+
+    verify(loader).call();
+    assertThat(underTest.getHitCount(), is(1L));
+    assertThat(underTest.getMissCount(), is(1L));
+    assertThat(underTest.getHitRate(), is(0.5));
+  }
+
+  @Test
+  public void missingAttributesAreNotCached() throws Exception {
+    assertThat(underTest.get(ATTRIBUTES, loader), is(nullValue()));
+    assertThat(underTest.get(ATTRIBUTES, loader), is(nullValue()));
+
+    verify(loader, times(2)).call();
+    assertThat(underTest.getSize(), is(0L));
+  }
+
+  @Test
+  public void invalidatedAttributesAreReloaded() throws Exception {
+    when(loader.call()).thenReturn(attributes);
+
+    underTest.get(ATTRIBUTES, loader);
+    underTest.invalidate(ATTRIBUTES);
+    underTest.get(ATTRIBUTES, loader);
+
+    verify(loader, times(2)).call();
+  }
+
+  @Test
+  public void invalidateAllOnlyDiscardsAttributesBelowDirectory() throws Exception {
+    when(loader.call()).thenReturn(attributes);
+
+    underTest.get(ATTRIBUTES, loader);
+    underTest.get(OTHER_ATTRIBUTES, loader);
+    underTest.invalidateAll(STORE);
+
+    assertThat(underTest.getSize(), is(1L));
+    underTest.get(OTHER_ATTRIBUTES, loader);
+    verify(loader, times(2)).call();
+  }
+
+  @Test
+  public void cacheIsBoundedByWeight() throws Exception {
+    underTest = new FileBlobAttributesCache(FileBlobAttributesCache.weigh(ATTRIBUTES, attributes) - 1);
+    when(loader.call()).thenReturn(attributes);
+
+    underTest.get(ATTRIBUTES, loader);
+
+    assertThat(underTest.getSize(), is(0L));
+    assertThat(underTest.getEvictionCount(), is(1L));
+  }
+
+  @Test
+  public void zeroWeightDisablesCache() throws Exception {
+    underTest = new FileBlobAttributesCache(0);
+    when(loader.call()).thenReturn(attributes);
+
+    underTest.get(ATTRIBUTES, loader);
+    underTest.get(ATTRIBUTES, loader);
+
+    verify(loader, times(2)).call();
+    assertThat(underTest.getSize(), is(0L));
+  }
+}
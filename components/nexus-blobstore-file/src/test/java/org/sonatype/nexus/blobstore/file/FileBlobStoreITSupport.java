@@ -170,7 +170,8 @@ public abstract class FileBlobStoreITSupport
     config.setName(name);
     config.attributes(FileBlobStore.CONFIG_KEY).set(FileBlobStore.PATH_KEY, blobStoreDirectory.toString());
     FileBlobStore blobstore = new FileBlobStore(blobIdResolver, fileOperations, applicationDirectories, metricsStore,
-        nodeAccess, dryRunPrefix, reconciliationLogger, 0L, blobStoreQuotaUsageChecker, index);
+        nodeAccess, dryRunPrefix, reconciliationLogger, 0L, blobStoreQuotaUsageChecker, index,
+        new FileBlobAttributesCache(1024 * 1024));
     blobstore.init(config);
     blobstore.start();
     return blobstore;
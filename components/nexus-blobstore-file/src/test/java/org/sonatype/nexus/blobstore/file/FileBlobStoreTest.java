@@ -317,6 +317,47 @@ public class FileBlobStoreTest
     verify(blobStoreUsageChecker, never()).test(any(), any(), any());
   }
 
+  @Test
+  public void testDoCompact_RebuildMetadataNeeded_Parallel() throws Exception {
+    when(fileOperations.delete(any())).thenReturn(true);
+    when(nodeAccess.isOldestNode()).thenReturn(true);
+    underTest.setCompactThreads(4);
+    underTest.doStart();
+
+    write(fullPath.resolve("e27f83a9-dc18-4818-b4ca-ae8a9cb813c7.properties"),
+        deletedBlobStoreProperties);
+
+    setRebuildMetadataToTrue();
+
+    underTest.doCompact(blobStoreUsageChecker);
+
+    checkDeletionsIndex(true);
+
+    verify(blobStoreUsageChecker, atLeastOnce()).test(any(), any(), any());
+    verify(fileOperations, atLeastOnce()).delete(any());
+    assertThat(Files.exists(underTest.getAbsoluteBlobDir().resolve(CompactionCheckpoint.FILENAME)), is(false));
+  }
+
+  @Test
+  public void testDoCompact_RebuildMetadataNeeded_ResumesFromCheckpoint() throws Exception {
+    when(nodeAccess.isOldestNode()).thenReturn(true);
+    underTest.doStart();
+
+    write(fullPath.resolve("e27f83a9-dc18-4818-b4ca-ae8a9cb813c7.properties"),
+        deletedBlobStoreProperties);
+
+    setRebuildMetadataToTrue();
+    CompactionCheckpoint checkpoint = new CompactionCheckpoint(underTest.getAbsoluteBlobDir());
+    checkpoint.start();
+    checkpoint.markCompleted("vol-03/chap-44");
+
+    underTest.doCompact(blobStoreUsageChecker);
+
+    verify(blobStoreUsageChecker, never()).test(any(), any(), any());
+    verify(fileOperations, never()).delete(any());
+    assertThat(Files.exists(underTest.getAbsoluteBlobDir().resolve(CompactionCheckpoint.FILENAME)), is(false));
+  }
+
   @Test
   public void testDoCompact_clearsDirectPathEmptyDirectories() throws Exception {
     when(fileOperations.delete(any())).thenReturn(true);
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import javax.cache.Cache;
@@ -52,6 +53,7 @@ import org.sonatype.nexus.blobstore.api.PaginatedResult;
 import org.sonatype.nexus.blobstore.api.RawObjectAccess;
 import org.sonatype.nexus.blobstore.api.UnimplementedRawObjectAccess;
 import org.sonatype.nexus.blobstore.api.metrics.BlobStoreMetricsService;
+import org.sonatype.nexus.blobstore.group.internal.BlobStoreGroupLocator;
 import org.sonatype.nexus.blobstore.group.internal.BlobStoreGroupMetrics;
 import org.sonatype.nexus.blobstore.group.internal.WriteToFirstMemberFillPolicy;
 import org.sonatype.nexus.blobstore.metrics.MonitoringBlobStoreMetrics;
@@ -110,6 +112,8 @@ public class BlobStoreGroup
 
   private Time blobIdCacheTimeout;
 
+  private final BlobStoreGroupLocator locator;
+
   private Supplier<List<BlobStore>> members;
 
   @VisibleForTesting
@@ -120,17 +124,29 @@ public class BlobStoreGroup
   // cache of located blobs that have not been soft deleted
   private Cache<BlobId, String> locatedBlobs;
 
+  public BlobStoreGroup(
+      final BlobStoreManager blobStoreManager,
+      final Map<String, Provider<FillPolicy>> fillPolicyProviders,
+      final Provider<CacheHelper> cacheHelperProvider,
+      final Time blobIdCacheTimeout)
+  {
+    this(blobStoreManager, fillPolicyProviders, cacheHelperProvider, blobIdCacheTimeout,
+        new BlobStoreGroupLocator(null, false, 0));
+  }
+
   @Inject
   public BlobStoreGroup(
       final BlobStoreManager blobStoreManager,
       final Map<String, Provider<FillPolicy>> fillPolicyProviders,
       final Provider<CacheHelper> cacheHelperProvider,
-      @Named("${nexus.blobstore.group.blobId.cache.timeToLive:-2d}") final Time blobIdCacheTimeout)
+      @Named("${nexus.blobstore.group.blobId.cache.timeToLive:-2d}") final Time blobIdCacheTimeout,
+      final BlobStoreGroupLocator locator)
   {
     this.blobStoreManager = checkNotNull(blobStoreManager);
     this.fillPolicyProviders = checkNotNull(fillPolicyProviders);
     this.cacheHelperProvider = checkNotNull(cacheHelperProvider);
     this.blobIdCacheTimeout = checkNotNull(blobIdCacheTimeout);
+    this.locator = checkNotNull(locator);
   }
 
   @Override
@@ -203,8 +219,17 @@ public class BlobStoreGroup
     if (result == null) {
       throw new BlobStoreException("Unable to find a member Blob Store of '" + this + "' for create", null);
     }
-    Blob blob = createBlobFunction.create(result);
-    locatedBlobs.put(blob.getId(), result.getBlobStoreConfiguration().getName());
+    Blob blob;
+    fillPolicy.writeStarted(result);
+    try {
+      blob = createBlobFunction.create(result);
+    }
+    finally {
+      fillPolicy.writeFinished(result);
+    }
+    String memberName = result.getBlobStoreConfiguration().getName();
+    locatedBlobs.put(blob.getId(), memberName);
+    locator.record(getGroupName(), blob.getId(), memberName);
     return blob;
   }
 
@@ -235,7 +260,9 @@ public class BlobStoreGroup
     BlobStore target = locate(blobId)
         .orElseThrow(() -> new BlobStoreException("Unable to find blob", blobId));
     Blob blob = target.copy(blobId, headers);
-    locatedBlobs.put(blob.getId(), target.getBlobStoreConfiguration().getName());
+    String memberName = target.getBlobStoreConfiguration().getName();
+    locatedBlobs.put(blob.getId(), memberName);
+    locator.record(getGroupName(), blob.getId(), memberName);
     return blob;
   }
 
@@ -256,9 +283,8 @@ public class BlobStoreGroup
   public Blob get(final BlobId blobId, final boolean includeDeleted) {
     if (includeDeleted) {
       // check directly without using cache
-      return members.get()
+      return probe(blobId, (BlobStore member) -> member.exists(blobId))
           .stream()
-          .filter((BlobStore member) -> member.exists(blobId))
           .map((BlobStore member) -> member.get(blobId, true))
           .filter(Objects::nonNull)
           .findAny()
@@ -275,10 +301,9 @@ public class BlobStoreGroup
   @Guarded(by = STARTED)
   public boolean delete(final BlobId blobId, final String reason) {
     locatedBlobs.remove(blobId);
-    List<BlobStore> locations = members.get()
-        .stream()
-        .filter((BlobStore member) -> member.exists(blobId))
-        .collect(toList());
+    // soft deleted blobs are hard deleted by member compaction, which bypasses the group
+    locator.forget(getGroupName(), blobId);
+    List<BlobStore> locations = locator.probeAll(members.get(), (BlobStore member) -> member.exists(blobId));
 
     if (!locations.isEmpty()) {
       return locations.stream()
@@ -293,10 +318,8 @@ public class BlobStoreGroup
   @Guarded(by = STARTED)
   public boolean deleteHard(final BlobId blobId) {
     locatedBlobs.remove(blobId);
-    List<BlobStore> locations = members.get()
-        .stream()
-        .filter((BlobStore member) -> member.exists(blobId))
-        .collect(toList());
+    locator.forget(getGroupName(), blobId);
+    List<BlobStore> locations = locator.probeAll(members.get(), (BlobStore member) -> member.exists(blobId));
 
     if (!locations.isEmpty()) {
       return locations.stream()
@@ -432,29 +455,23 @@ public class BlobStoreGroup
 
   @Override
   public boolean exists(final BlobId blobId) {
-    return members.get()
-        .stream()
-        .anyMatch((BlobStore member) -> member.exists(blobId));
+    return probe(blobId, (BlobStore member) -> member.exists(blobId)).isPresent();
   }
 
   @Override
   public boolean bytesExists(final BlobId blobId) {
-    return members.get()
-        .stream()
-        .anyMatch((BlobStore member) -> member.bytesExists(blobId));
+    return probe(blobId, (BlobStore member) -> member.bytesExists(blobId)).isPresent();
   }
 
   @Override
   public boolean isBlobEmpty(final BlobId blobId) {
-    return members.get()
-        .stream()
-        .anyMatch((BlobStore member) -> member.isBlobEmpty(blobId));
+    return probe(blobId, (BlobStore member) -> member.isBlobEmpty(blobId)).isPresent();
   }
 
   @Override
   @Guarded(by = {NEW, STOPPED, FAILED, SHUTDOWN})
   public void remove() {
-    // no-op
+    locator.forgetAll(getGroupName());
   }
 
   @Override
@@ -542,11 +559,26 @@ public class BlobStoreGroup
       return Optional.ofNullable(blobStoreManager.get(blobStoreName));
     }
 
+    BlobStore recorded = recordedMember(blobId);
+    if (recorded != null) {
+      String memberName = recorded.getBlobStoreConfiguration().getName();
+      if (!recorded.exists(blobId)) {
+        log.trace("{} is no longer in recorded member {}", blobId, memberName);
+        locator.forget(getGroupName(), blobId);
+      }
+      else if (recorded.isWritable()) {
+        log.trace("{} location was recorded as {}", blobId, memberName);
+        locatedBlobs.put(blobId, memberName);
+        return Optional.of(recorded);
+      }
+    }
+
     BlobStore blobStore = search(blobId);
     if (blobStore != null && blobStore.isWritable()) {
       String memberName = blobStore.getBlobStoreConfiguration().getName();
       log.trace("Caching {} in member {}", blobId, memberName);
       locatedBlobs.put(blobId, memberName);
+      locator.record(getGroupName(), blobId, memberName);
     }
 
     return Optional.ofNullable(blobStore);
@@ -554,12 +586,51 @@ public class BlobStoreGroup
 
   private BlobStore search(BlobId blobId) {
     log.trace("Searching for {} in {}", blobId, members);
-    return members.get()
+    List<BlobStore> candidates = members.get()
         .stream()
         .sorted(Comparator.comparing(BlobStore::isWritable).reversed())
-        .filter((BlobStore member) -> member.exists(blobId))
-        .findAny()
+        .collect(toList());
+    return locator.probe(candidates, (BlobStore member) -> member.exists(blobId));
+  }
+
+  /**
+   * Returns the member which passes the test, trying the member the blob was recorded in before probing the others.
+   */
+  private Optional<BlobStore> probe(final BlobId blobId, final Predicate<BlobStore> test) {
+    BlobStore recorded = recordedMember(blobId);
+    if (recorded != null && test.test(recorded)) {
+      return Optional.of(recorded);
+    }
+    List<BlobStore> candidates = members.get()
+        .stream()
+        .filter((BlobStore member) -> member != recorded)
+        .collect(toList());
+    return Optional.ofNullable(locator.probe(candidates, test));
+  }
+
+  /**
+   * Returns the current member the blob was recorded in, if any. Records of members which have since left the group
+   * are forgotten.
+   */
+  @Nullable
+  private BlobStore recordedMember(final BlobId blobId) {
+    String memberName = locator.recordedMember(getGroupName(), blobId);
+    if (memberName == null) {
+      return null;
+    }
+    BlobStore recorded = members.get()
+        .stream()
+        .filter((BlobStore member) -> memberName.equals(member.getBlobStoreConfiguration().getName()))
+        .findFirst()
         .orElse(null);
+    if (recorded == null) {
+      locator.forget(getGroupName(), blobId);
+    }
+    return recorded;
+  }
+
+  private String getGroupName() {
+    return blobStoreConfiguration.getName();
   }
 
   @Override
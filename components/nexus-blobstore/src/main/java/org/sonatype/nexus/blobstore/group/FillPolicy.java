@@ -33,4 +33,18 @@ public interface FillPolicy
    */
   @Nullable
   BlobStore chooseBlobStore(BlobStoreGroup blobStoreGroup, Map<String, String> headers);
+
+  /**
+   * Called before a new blob is written to the member chosen by {@link #chooseBlobStore}.
+   */
+  default void writeStarted(BlobStore blobStore) {
+    // no-op by default
+  }
+
+  /**
+   * Called once a write started with {@link #writeStarted} has finished, successfully or not.
+   */
+  default void writeFinished(BlobStore blobStore) {
+    // no-op by default
+  }
 }
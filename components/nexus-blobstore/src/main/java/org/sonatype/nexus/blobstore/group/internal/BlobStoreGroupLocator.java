@@ -0,0 +1,251 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreException;
+import org.sonatype.nexus.blobstore.group.store.LocatedBlobsStore;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.codahale.metrics.annotation.Gauge;
+import com.google.common.base.Throwables;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Finds the members of blob store groups which hold a blob.
+ *
+ * When {@code nexus.blobstore.group.locatedBlobs.persistent} is enabled the member each blob was written to is
+ * recorded in the {@link LocatedBlobsStore}, so a lookup is a single query instead of probing members. Members which
+ * still have to be probed are probed concurrently when {@code nexus.blobstore.group.probe.threads} is greater than
+ * zero.
+ */
+@Named
+@Singleton
+public class BlobStoreGroupLocator
+    extends ComponentSupport
+{
+  private final LocatedBlobsStore locatedBlobsStore;
+
+  private final ThreadPoolExecutor probeExecutor;
+
+  private final AtomicLong indexHits = new AtomicLong();
+
+  private final AtomicLong indexMisses = new AtomicLong();
+
+  private final AtomicLong probes = new AtomicLong();
+
+  private final AtomicLong memberProbes = new AtomicLong();
+
+  @Inject
+  public BlobStoreGroupLocator(
+      @Nullable final LocatedBlobsStore locatedBlobsStore,
+      @Named("${nexus.blobstore.group.locatedBlobs.persistent:-false}") final boolean persistent,
+      @Named("${nexus.blobstore.group.probe.threads:-0}") final int probeThreads)
+  {
+    this.locatedBlobsStore = persistent ? locatedBlobsStore : null;
+    if (probeThreads > 0) {
+      this.probeExecutor = new ThreadPoolExecutor(
+          probeThreads, // core-size
+          probeThreads, // max-size
+          60L, // keep-alive
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          new NexusThreadFactory("blobstore-group-probe", "blobstore-group-probe"));
+      this.probeExecutor.allowCoreThreadTimeOut(true);
+    }
+    else {
+      this.probeExecutor = null;
+    }
+  }
+
+  /**
+   * Returns {@code true} if blob locations are recorded in the {@link LocatedBlobsStore}.
+   */
+  public boolean isPersistent() {
+    return locatedBlobsStore != null;
+  }
+
+  /**
+   * Returns the name of the member the blob was recorded in, or {@code null} if it is unknown.
+   */
+  @Nullable
+  public String recordedMember(final String groupName, final BlobId blobId) {
+    if (locatedBlobsStore == null) {
+      return null;
+    }
+    String memberName = locatedBlobsStore.getMember(groupName, blobId);
+    (memberName != null ? indexHits : indexMisses).incrementAndGet();
+    return memberName;
+  }
+
+  public void record(final String groupName, final BlobId blobId, final String memberName) {
+    if (locatedBlobsStore != null) {
+      locatedBlobsStore.setMember(groupName, memberName, singletonList(blobId));
+    }
+  }
+
+  public void forget(final String groupName, final BlobId blobId) {
+    if (locatedBlobsStore != null) {
+      locatedBlobsStore.deleteRecord(groupName, blobId);
+    }
+  }
+
+  /**
+   * Forgets the records of all blobs of the group, used when the group is removed.
+   */
+  public void forgetAll(final String groupName) {
+    if (locatedBlobsStore != null) {
+      locatedBlobsStore.deleteAllRecords(groupName);
+    }
+  }
+
+  /**
+   * Returns the first of the given members, in order, which passes the test; or {@code null} if none do.
+   */
+  @Nullable
+  public BlobStore probe(final List<BlobStore> members, final Predicate<BlobStore> test) {
+    probes.incrementAndGet();
+    if (probeExecutor == null || members.size() < 2) {
+      return members.stream().filter(member -> test(member, test)).findFirst().orElse(null);
+    }
+    List<Boolean> results = probeConcurrently(members, test, true);
+    for (int i = 0; i < members.size(); i++) {
+      if (Boolean.TRUE.equals(results.get(i))) {
+        return members.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns all of the given members which pass the test.
+   */
+  public List<BlobStore> probeAll(final List<BlobStore> members, final Predicate<BlobStore> test) {
+    probes.incrementAndGet();
+    List<BlobStore> found = new ArrayList<>();
+    if (probeExecutor == null || members.size() < 2) {
+      members.stream().filter(member -> test(member, test)).forEach(found::add);
+      return found;
+    }
+    List<Boolean> results = probeConcurrently(members, test, false);
+    for (int i = 0; i < members.size(); i++) {
+      if (Boolean.TRUE.equals(results.get(i))) {
+        found.add(members.get(i));
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Tests the members concurrently, stopping early when {@code firstOnly} and the first member in order has passed
+   * or all members before a passing member have failed. Results of members which were not waited for are
+   * {@code null}.
+   */
+  private List<Boolean> probeConcurrently(
+      final List<BlobStore> members,
+      final Predicate<BlobStore> test,
+      final boolean firstOnly)
+  {
+    CompletionService<Integer> completionService = new ExecutorCompletionService<>(probeExecutor);
+    List<Boolean> results = new ArrayList<>(members.size());
+    List<Future<Integer>> futures = new ArrayList<>(members.size());
+    for (int i = 0; i < members.size(); i++) {
+      int index = i;
+      results.add(null);
+      futures.add(completionService.submit(() -> test(members.get(index), test) ? index : -index - 1));
+    }
+    try {
+      for (int remaining = members.size(); remaining > 0; remaining--) {
+        int outcome = completionService.take().get();
+        if (outcome >= 0) {
+          results.set(outcome, true);
+        }
+        else {
+          results.set(-outcome - 1, false);
+        }
+        if (firstOnly && firstPassingIsKnown(results)) {
+          break;
+        }
+      }
+      return results;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BlobStoreException("Interrupted probing blob store group members", e, null);
+    }
+    catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new BlobStoreException("Failed probing blob store group members", e.getCause(), null);
+    }
+    finally {
+      futures.forEach(future -> future.cancel(false));
+    }
+  }
+
+  private static boolean firstPassingIsKnown(final List<Boolean> results) {
+    for (Boolean result : results) {
+      if (result == null) {
+        return false;
+      }
+      if (result) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean test(final BlobStore member, final Predicate<BlobStore> test) {
+    memberProbes.incrementAndGet();
+    return test.test(member);
+  }
+
+  @Gauge(name = "nexus.blobstore.group.locatedBlobs.hits")
+  public long getIndexHits() {
+    return indexHits.get();
+  }
+
+  @Gauge(name = "nexus.blobstore.group.locatedBlobs.misses")
+  public long getIndexMisses() {
+    return indexMisses.get();
+  }
+
+  @Gauge(name = "nexus.blobstore.group.probes")
+  public long getProbes() {
+    return probes.get();
+  }
+
+  @Gauge(name = "nexus.blobstore.group.memberProbes")
+  public long getMemberProbes() {
+    return memberProbes.get();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.group.store.LocatedBlobsStore;
+import org.sonatype.nexus.blobstore.group.store.internal.LocatedBlobsDAO;
+import org.sonatype.nexus.datastore.ConfigStoreSupport;
+import org.sonatype.nexus.datastore.api.DataSessionSupplier;
+import org.sonatype.nexus.transaction.Transactional;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Implementation of {@link LocatedBlobsStore}
+ */
+@Named("mybatis")
+@Singleton
+public class LocatedBlobsStoreImpl
+    extends ConfigStoreSupport<LocatedBlobsDAO>
+    implements LocatedBlobsStore
+{
+  private static final int DELETE_BATCH_SIZE = 1000;
+
+  @Inject
+  public LocatedBlobsStoreImpl(final DataSessionSupplier sessionSupplier) {
+    super(sessionSupplier);
+  }
+
+  @Nullable
+  @Transactional
+  @Override
+  public String getMember(final String groupName, final BlobId blobId) {
+    return dao().getMember(groupName, blobId.asUniqueString());
+  }
+
+  @Transactional
+  @Override
+  public void setMember(final String groupName, final String memberName, final Collection<BlobId> blobIds) {
+    if (!blobIds.isEmpty()) {
+      dao().setMember(groupName, memberName, blobIds.stream().map(BlobId::asUniqueString).collect(toList()));
+    }
+  }
+
+  @Transactional
+  @Override
+  public void deleteRecord(final String groupName, final BlobId blobId) {
+    dao().deleteRecord(groupName, blobId.asUniqueString());
+  }
+
+  @Override
+  public void deleteAllRecords(final String groupName) {
+    while (doDeleteAllRecords(groupName) != 0) {
+      // keep deleting in batches
+    }
+  }
+
+  @Transactional
+  public int doDeleteAllRecords(final String groupName) {
+    return dao().deleteAllRecords(groupName, DELETE_BATCH_SIZE);
+  }
+}
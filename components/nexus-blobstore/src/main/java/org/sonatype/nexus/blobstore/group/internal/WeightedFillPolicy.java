@@ -0,0 +1,331 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.goodies.common.Time;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreMetrics;
+import org.sonatype.nexus.blobstore.api.OperationMetrics;
+import org.sonatype.nexus.blobstore.api.OperationType;
+import org.sonatype.nexus.blobstore.group.BlobStoreGroup;
+import org.sonatype.nexus.blobstore.group.FillPolicy;
+import org.sonatype.nexus.blobstore.quota.BlobStoreQuotaResult;
+import org.sonatype.nexus.blobstore.quota.BlobStoreQuotaService;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.common.app.FeatureFlags.BLOBSTORE_SKIP_ON_SOFTQUOTA_VIOLATION;
+
+/**
+ * {@link FillPolicy} that spreads writes over member blob stores in proportion to their free space and upload
+ * latency, and away from members with many writes in flight.
+ *
+ * Free space, availability, soft quota violations and latency come from a snapshot refreshed at most every
+ * {@code nexus.blobstore.group.weighted.refreshInterval}, or as soon as a member without statistics is seen, so
+ * choosing a member costs no I/O.
+ */
+@Named(WeightedFillPolicy.TYPE)
+public class WeightedFillPolicy
+    extends ComponentSupport
+    implements FillPolicy
+{
+  public static final String TYPE = "weighted";
+
+  protected static final String NAME = "Weighted";
+
+  private final long refreshIntervalMillis;
+
+  private final BlobStoreQuotaService quotaService;
+
+  private final boolean skipOnSoftQuotaViolation;
+
+  private final Map<String, AtomicInteger> inFlightWrites = new ConcurrentHashMap<>();
+
+  private volatile Map<String, UploadTotals> uploadTotals = ImmutableMap.of();
+
+  @Nullable
+  private volatile Supplier<Map<String, MemberStats>> snapshot;
+
+  @Inject
+  public WeightedFillPolicy(
+      @Named("${nexus.blobstore.group.weighted.refreshInterval:-30s}") final Time refreshInterval,
+      final BlobStoreQuotaService quotaService,
+      @Named("${" + BLOBSTORE_SKIP_ON_SOFTQUOTA_VIOLATION + ":-false}") final boolean skipOnSoftQuotaViolation)
+  {
+    this.refreshIntervalMillis = checkNotNull(refreshInterval).toMillis();
+    this.quotaService = checkNotNull(quotaService);
+    this.skipOnSoftQuotaViolation = skipOnSoftQuotaViolation;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  @Nullable
+  public BlobStore chooseBlobStore(final BlobStoreGroup blobStoreGroup, final Map<String, String> headers) {
+    List<BlobStore> members = blobStoreGroup.getMembers();
+    if (members.isEmpty()) {
+      return null;
+    }
+
+    Supplier<Map<String, MemberStats>> current = snapshot(blobStoreGroup);
+    Map<String, MemberStats> stats = current.get();
+    if (hasMemberWithoutStats(members, stats)) {
+      // a member was added since the snapshot was taken
+      stats = refreshSnapshot(blobStoreGroup, current);
+    }
+
+    double[] weights = weights(members, stats);
+
+    double total = 0;
+    for (double weight : weights) {
+      total += weight;
+    }
+    if (total <= 0) {
+      return null;
+    }
+
+    double target = ThreadLocalRandom.current().nextDouble(total);
+    for (int i = 0; i < weights.length; i++) {
+      target -= weights[i];
+      if (target < 0 && weights[i] > 0) {
+        return members.get(i);
+      }
+    }
+    // rounding left the target at the very end of the range, fall back to the last candidate
+    for (int i = weights.length - 1; i >= 0; i--) {
+      if (weights[i] > 0) {
+        return members.get(i);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void writeStarted(final BlobStore blobStore) {
+    inFlightWrites.computeIfAbsent(name(blobStore), k -> new AtomicInteger()).incrementAndGet();
+  }
+
+  @Override
+  public void writeFinished(final BlobStore blobStore) {
+    AtomicInteger count = inFlightWrites.get(name(blobStore));
+    if (count != null) {
+      count.decrementAndGet();
+    }
+  }
+
+  /**
+   * Weighs each member: zero when it cannot be written to, otherwise its share of the most free space among members
+   * times the fastest upload latency relative to its own, divided by one plus its writes in flight.
+   */
+  @VisibleForTesting
+  double[] weights(final List<BlobStore> members, final Map<String, MemberStats> stats) {
+    long maxAvailable = 0;
+    double minLatency = Double.MAX_VALUE;
+    for (BlobStore member : members) {
+      MemberStats memberStats = stats.get(name(member));
+      if (memberStats != null && memberStats.available) {
+        if (!memberStats.unlimited) {
+          maxAvailable = Math.max(maxAvailable, memberStats.availableSpace);
+        }
+        if (memberStats.uploadLatency > 0) {
+          minLatency = Math.min(minLatency, memberStats.uploadLatency);
+        }
+      }
+    }
+
+    double[] weights = new double[members.size()];
+    for (int i = 0; i < weights.length; i++) {
+      BlobStore member = members.get(i);
+      MemberStats memberStats = stats.get(name(member));
+      if (memberStats == null || !memberStats.available || !member.isWritable()) {
+        continue;
+      }
+      double space = memberStats.unlimited || maxAvailable == 0
+          ? 1.0
+          : (double) memberStats.availableSpace / maxAvailable;
+      double latency = memberStats.uploadLatency > 0 ? minLatency / memberStats.uploadLatency : 1.0;
+      AtomicInteger inFlight = inFlightWrites.get(name(member));
+      weights[i] = space * latency / (1 + (inFlight != null ? Math.max(inFlight.get(), 0) : 0));
+    }
+    return weights;
+  }
+
+  private Supplier<Map<String, MemberStats>> snapshot(final BlobStoreGroup blobStoreGroup) {
+    Supplier<Map<String, MemberStats>> current = snapshot;
+    if (current == null) {
+      synchronized (this) {
+        current = snapshot;
+        if (current == null) {
+          current = Suppliers.memoizeWithExpiration(
+              () -> refresh(blobStoreGroup.getMembers()), refreshIntervalMillis, TimeUnit.MILLISECONDS);
+          snapshot = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Replaces the given stale snapshot, unless another thread already did.
+   */
+  private Map<String, MemberStats> refreshSnapshot(
+      final BlobStoreGroup blobStoreGroup,
+      final Supplier<Map<String, MemberStats>> stale)
+  {
+    synchronized (this) {
+      if (snapshot == stale) {
+        snapshot = null;
+      }
+    }
+    return snapshot(blobStoreGroup).get();
+  }
+
+  /**
+   * Takes a fresh snapshot of the members; upload latency is averaged over the uploads since the last snapshot, or
+   * carried over when there were none.
+   */
+  @VisibleForTesting
+  Map<String, MemberStats> refresh(final List<BlobStore> members) {
+    ImmutableMap.Builder<String, MemberStats> stats = ImmutableMap.builder();
+    ImmutableMap.Builder<String, UploadTotals> totals = ImmutableMap.builder();
+    Map<String, UploadTotals> previousTotals = uploadTotals;
+
+    for (BlobStore member : members) {
+      String name = name(member);
+      try {
+        boolean available = member.isStorageAvailable();
+        BlobStoreMetrics metrics = member.getMetrics();
+
+        UploadTotals previous = previousTotals.get(name);
+        UploadTotals current = uploadTotals(member, previous);
+        totals.put(name, current);
+
+        stats.put(name, new MemberStats(
+            available && !metrics.isUnavailable() && !(skipOnSoftQuotaViolation && hasQuotaViolation(member)),
+            metrics.isUnlimited(),
+            metrics.getAvailableSpace(),
+            current.latency));
+      }
+      catch (Exception e) {
+        log.warn("Unable to get statistics of blob store {}, not writing to it until the next refresh", name,
+            log.isDebugEnabled() ? e : null);
+        stats.put(name, new MemberStats(false, false, 0, 0));
+      }
+    }
+
+    uploadTotals = totals.build();
+    Map<String, MemberStats> snapshotStats = stats.build();
+    log.debug("Refreshed member statistics {}", snapshotStats);
+    return snapshotStats;
+  }
+
+  private boolean hasQuotaViolation(final BlobStore member) {
+    BlobStoreQuotaResult result = quotaService.checkQuota(member);
+    if (result != null && result.isViolation()) {
+      log.info("Skipping blobStore {} due to soft-quota violation until the next refresh", result.getBlobStoreName());
+      return true;
+    }
+    return false;
+  }
+
+  private static UploadTotals uploadTotals(final BlobStore member, @Nullable final UploadTotals previous) {
+    OperationMetrics uploads = member.getOperationMetricsByType().get(OperationType.UPLOAD);
+    if (uploads == null) {
+      return previous != null ? previous : new UploadTotals(0, 0, 0);
+    }
+    long requests = uploads.getSuccessfulRequests();
+    long time = uploads.getTimeOnRequests();
+    if (previous == null) {
+      return new UploadTotals(requests, time, requests > 0 ? (double) time / requests : 0);
+    }
+    long newRequests = requests - previous.requests;
+    if (newRequests <= 0) {
+      // no uploads since the last snapshot, or the metrics were cleared
+      return new UploadTotals(requests, time, previous.latency);
+    }
+    return new UploadTotals(requests, time, (double) (time - previous.time) / newRequests);
+  }
+
+  private static boolean hasMemberWithoutStats(final List<BlobStore> members, final Map<String, MemberStats> stats) {
+    for (BlobStore member : members) {
+      if (!stats.containsKey(name(member))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String name(final BlobStore blobStore) {
+    return blobStore.getBlobStoreConfiguration().getName();
+  }
+
+  @VisibleForTesting
+  static class MemberStats
+  {
+    final boolean available;
+
+    final boolean unlimited;
+
+    final long availableSpace;
+
+    final double uploadLatency;
+
+    MemberStats(final boolean available, final boolean unlimited, final long availableSpace, final double uploadLatency)
+    {
+      this.available = available;
+      this.unlimited = unlimited;
+      this.availableSpace = availableSpace;
+      this.uploadLatency = uploadLatency;
+    }
+
+    @Override
+    public String toString() {
+      return "{available=" + available + ", unlimited=" + unlimited + ", availableSpace=" + availableSpace +
+          ", uploadLatency=" + uploadLatency + '}';
+    }
+  }
+
+  private static class UploadTotals
+  {
+    final long requests;
+
+    final long time;
+
+    final double latency;
+
+    UploadTotals(final long requests, final long time, final double latency) {
+      this.requests = requests;
+      this.time = time;
+      this.latency = latency;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.store;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.blobstore.api.BlobId;
+
+/**
+ * Store recording which member of a blob store group each blob was written to.
+ */
+public interface LocatedBlobsStore
+{
+  /**
+   * Returns the name of the member the blob is recorded in, or {@code null} if it is not recorded
+   *
+   * @param groupName the blob store group name
+   * @param blobId the blob to look up
+   */
+  @Nullable
+  String getMember(String groupName, BlobId blobId);
+
+  /**
+   * Records the blobs as located in the given member, replacing any existing records
+   *
+   * @param groupName the blob store group name
+   * @param memberName the member blob store name
+   * @param blobIds the blobs to record
+   */
+  void setMember(String groupName, String memberName, Collection<BlobId> blobIds);
+
+  /**
+   * Delete the record of a single blob
+   *
+   * @param groupName the blob store group name
+   * @param blobId the blob to forget
+   */
+  void deleteRecord(String groupName, BlobId blobId);
+
+  /**
+   * Delete all records related to the given blob store group
+   *
+   * @param groupName the blob store group name
+   */
+  void deleteAllRecords(String groupName);
+}
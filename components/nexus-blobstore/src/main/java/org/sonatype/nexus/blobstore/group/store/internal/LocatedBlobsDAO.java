@@ -0,0 +1,67 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.store.internal;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.blobstore.group.store.LocatedBlobsStore;
+import org.sonatype.nexus.datastore.api.DataAccess;
+
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * {@link LocatedBlobsStore} DataAccess
+ */
+public interface LocatedBlobsDAO
+    extends DataAccess
+{
+  /**
+   * Returns the name of the member the blob is recorded in
+   *
+   * @param groupName the blob store group name
+   * @param blobId string representation of the blob id
+   */
+  @Nullable
+  String getMember(@Param("groupName") String groupName, @Param("blobId") String blobId);
+
+  /**
+   * Create or replace the records of the given blobs
+   *
+   * @param groupName the blob store group name
+   * @param memberName the member blob store name
+   * @param blobIds string representations of the blob ids
+   */
+  void setMember(
+      @Param("groupName") String groupName,
+      @Param("memberName") String memberName,
+      @Param("blobIds") Collection<String> blobIds);
+
+  /**
+   * Delete the record of a single blob
+   *
+   * @param groupName the blob store group name
+   * @param blobId string representation of the blob id
+   */
+  void deleteRecord(@Param("groupName") String groupName, @Param("blobId") String blobId);
+
+  /**
+   * Delete records related to the given blob store group
+   *
+   * @param groupName the blob store group name
+   * @param limit maximum amount of rows to be deleted
+   * @return numbers of deleted rows
+   */
+  int deleteAllRecords(@Param("groupName") String groupName, @Param("limit") int limit);
+}
@@ -25,7 +25,9 @@ import org.sonatype.nexus.blobstore.api.BlobId;
 import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration;
 import org.sonatype.nexus.blobstore.api.BlobStoreManager;
+import org.sonatype.nexus.blobstore.group.internal.BlobStoreGroupLocator;
 import org.sonatype.nexus.blobstore.group.internal.WriteToFirstMemberFillPolicy;
+import org.sonatype.nexus.blobstore.group.store.LocatedBlobsStore;
 import org.sonatype.nexus.cache.CacheHelper;
 
 import javax.cache.Cache;
@@ -44,6 +46,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
@@ -79,6 +82,11 @@ public class BlobStoreGroupTest
   @Mock
   private BlobStore two;
 
+  @Mock
+  private LocatedBlobsStore locatedBlobsStore;
+
+  private Map<String, Provider<FillPolicy>> fillPolicyFactories;
+
   private BlobStoreGroup blobStore;
 
   private final BlobStoreConfiguration config = new MockBlobStoreConfiguration();
@@ -94,7 +102,7 @@ public class BlobStoreGroupTest
     when(one.getBlobStoreConfiguration().getName()).thenReturn("one");
     when(two.getBlobStoreConfiguration().getName()).thenReturn("two");
 
-    Map<String, Provider<FillPolicy>> fillPolicyFactories = new HashMap<>();
+    fillPolicyFactories = new HashMap<>();
     fillPolicyFactories.put("writeToFirst", () -> writeToFirstMemberFillPolicy);
     fillPolicyFactories.put("test", () -> testFillPolicy);
 
@@ -373,4 +381,68 @@ public class BlobStoreGroupTest
     assertThat(locatedMember.get(), is(two));
     verify(cache, never()).put(any(), any());
   }
+
+  @Test
+  public void itWillForgetStaleRecordsAndSearchMembers() throws Exception {
+    BlobStoreGroup underTest = recordingGroup();
+    when(one.isWritable()).thenReturn(true);
+    when(two.isWritable()).thenReturn(true);
+
+    BlobId blobId = new BlobId("BLOB_ID_VALUE");
+    when(locatedBlobsStore.getMember("group", blobId)).thenReturn("one");
+    when(one.exists(blobId)).thenReturn(false);
+    when(two.exists(blobId)).thenReturn(true);
+
+    Optional<BlobStore> locatedMember = underTest.locate(blobId);
+
+    assertThat(locatedMember.get(), is(two));
+    verify(locatedBlobsStore).deleteRecord("group", blobId);
+    verify(locatedBlobsStore).setMember("group", "two", singletonList(blobId));
+  }
+
+  @Test
+  public void itWillForgetRecordsOfMembersWhichLeftTheGroup() throws Exception {
+    BlobStoreGroup underTest = recordingGroup();
+    when(one.isWritable()).thenReturn(true);
+
+    BlobId blobId = new BlobId("BLOB_ID_VALUE");
+    when(locatedBlobsStore.getMember("group", blobId)).thenReturn("removedMember");
+    when(one.exists(blobId)).thenReturn(true);
+
+    assertThat(underTest.locate(blobId).get(), is(one));
+    verify(locatedBlobsStore).deleteRecord("group", blobId);
+  }
+
+  @Test
+  public void itWillForgetRecordsOnSoftDelete() throws Exception {
+    BlobStoreGroup underTest = recordingGroup();
+
+    BlobId blobId = new BlobId("BLOB_ID_VALUE");
+    when(one.exists(blobId)).thenReturn(true);
+    when(one.delete(blobId, "reason")).thenReturn(true);
+
+    assertThat(underTest.delete(blobId, "reason"), is(true));
+    verify(locatedBlobsStore).deleteRecord("group", blobId);
+  }
+
+  @Test
+  public void itWillForgetAllRecordsWhenRemoved() throws Exception {
+    BlobStoreGroup underTest = recordingGroup();
+
+    underTest.remove();
+
+    verify(locatedBlobsStore).deleteAllRecords("group");
+  }
+
+  private BlobStoreGroup recordingGroup() throws Exception {
+    BlobStoreGroup underTest = new BlobStoreGroup(blobStoreManager, fillPolicyFactories, cacheHelperProvider,
+        new Time(2, TimeUnit.DAYS), new BlobStoreGroupLocator(locatedBlobsStore, true, 0));
+    config.setName("group");
+    config.setAttributes(buildAttributes(Arrays.asList("one", "two"), "test"));
+    underTest.init(config);
+    underTest.doStart();
+    when(blobStoreManager.get("one")).thenReturn(one);
+    when(blobStoreManager.get("two")).thenReturn(two);
+    return underTest;
+  }
 }
@@ -0,0 +1,129 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.group.store.LocatedBlobsStore;
+
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class BlobStoreGroupLocatorTest
+    extends TestSupport
+{
+  private static final BlobId BLOB_ID = new BlobId("blob");
+
+  @Mock
+  private LocatedBlobsStore locatedBlobsStore;
+
+  @Test
+  public void itWillNotUseTheStoreUnlessPersistent() {
+    BlobStoreGroupLocator underTest = new BlobStoreGroupLocator(locatedBlobsStore, false, 0);
+
+    underTest.record("group", BLOB_ID, "one");
+    assertThat(underTest.recordedMember("group", BLOB_ID), is(nullValue()));
+    underTest.forget("group", BLOB_ID);
+
+    verifyNoInteractions(locatedBlobsStore);
+  }
+
+  @Test
+  public void itWillRecordAndCountLookups() {
+    BlobStoreGroupLocator underTest = new BlobStoreGroupLocator(locatedBlobsStore, true, 0);
+    when(locatedBlobsStore.getMember("group", BLOB_ID)).thenReturn("one");
+
+    underTest.record("group", BLOB_ID, "one");
+    assertThat(underTest.recordedMember("group", BLOB_ID), is("one"));
+    assertThat(underTest.recordedMember("group", new BlobId("other")), is(nullValue()));
+    underTest.forget("group", BLOB_ID);
+
+    verify(locatedBlobsStore).setMember("group", "one", singletonList(BLOB_ID));
+    verify(locatedBlobsStore).deleteRecord("group", BLOB_ID);
+    assertThat(underTest.getIndexHits(), is(1L));
+    assertThat(underTest.getIndexMisses(), is(1L));
+  }
+
+  @Test
+  public void itWillProbeSequentiallyWithoutThreads() {
+    BlobStoreGroupLocator underTest = new BlobStoreGroupLocator(null, false, 0);
+    BlobStore one = mock(BlobStore.class);
+    BlobStore two = mock(BlobStore.class);
+    BlobStore three = mock(BlobStore.class);
+    when(two.exists(BLOB_ID)).thenReturn(true);
+    when(three.exists(BLOB_ID)).thenReturn(true);
+
+    assertThat(underTest.probe(Arrays.asList(one, two, three), member -> member.exists(BLOB_ID)),
+        is(sameInstance(two)));
+
+    verifyNoInteractions(three);
+    assertThat(underTest.getProbes(), is(1L));
+    assertThat(underTest.getMemberProbes(), is(2L));
+  }
+
+  @Test
+  public void itWillProbeConcurrentlyAndPreferEarlierMembers() {
+    BlobStoreGroupLocator underTest = new BlobStoreGroupLocator(null, false, 3);
+    BlobStore one = mock(BlobStore.class);
+    BlobStore two = mock(BlobStore.class);
+    BlobStore three = mock(BlobStore.class);
+    List<BlobStore> members = Arrays.asList(one, two, three);
+    CountDownLatch allProbing = new CountDownLatch(3);
+
+    BlobStore found = underTest.probe(members, member -> {
+      allProbing.countDown();
+      try {
+        // only completes if every member is probed at the same time
+        assertThat(allProbing.await(5, TimeUnit.SECONDS), is(true));
+      }
+      catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return member != one;
+    });
+
+    assertThat(found, is(sameInstance(two)));
+    assertThat(underTest.getMemberProbes(), is(3L));
+  }
+
+  @Test
+  public void itWillFindAllMatchingMembers() {
+    BlobStoreGroupLocator underTest = new BlobStoreGroupLocator(null, false, 2);
+    BlobStore one = mock(BlobStore.class);
+    BlobStore two = mock(BlobStore.class);
+    BlobStore three = mock(BlobStore.class);
+    when(one.exists(BLOB_ID)).thenReturn(true);
+    when(three.exists(BLOB_ID)).thenReturn(true);
+
+    assertThat(underTest.probeAll(Arrays.asList(one, two, three), member -> member.exists(BLOB_ID)),
+        contains(one, three));
+    assertThat(underTest.probe(Arrays.asList(one, two, three), member -> false), is(nullValue()));
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.goodies.common.Time;
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration;
+import org.sonatype.nexus.blobstore.api.BlobStoreMetrics;
+import org.sonatype.nexus.blobstore.api.OperationMetrics;
+import org.sonatype.nexus.blobstore.api.OperationType;
+import org.sonatype.nexus.blobstore.group.BlobStoreGroup;
+import org.sonatype.nexus.blobstore.group.internal.WeightedFillPolicy.MemberStats;
+import org.sonatype.nexus.blobstore.quota.BlobStoreQuotaResult;
+import org.sonatype.nexus.blobstore.quota.BlobStoreQuotaService;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WeightedFillPolicyTest
+    extends TestSupport
+{
+  @Mock
+  private BlobStoreQuotaService quotaService;
+
+  private WeightedFillPolicy underTest;
+
+  @Before
+  public void setup() {
+    underTest = new WeightedFillPolicy(Time.minutes(5), quotaService, true);
+  }
+
+  @Test
+  public void itWillOnlyChooseAvailableMembersAndCheckStorageOncePerRefresh() {
+    BlobStore full = mockMember("full", false, 0, new OperationMetrics());
+    BlobStore one = mockMember("one", true, 1000, new OperationMetrics());
+    BlobStoreGroup blobStoreGroup = mock(BlobStoreGroup.class);
+    when(blobStoreGroup.getMembers()).thenReturn(Arrays.asList(full, one));
+
+    for (int i = 0; i < 50; i++) {
+      assertThat(underTest.chooseBlobStore(blobStoreGroup, Collections.emptyMap()), is(one));
+    }
+
+    verify(full, times(1)).isStorageAvailable();
+    verify(one, times(1)).isStorageAvailable();
+  }
+
+  @Test
+  public void itWillNotChooseMembersViolatingTheirSoftQuota() {
+    BlobStore overQuota = mockMember("overQuota", true, 1000, new OperationMetrics());
+    BlobStore one = mockMember("one", true, 1000, new OperationMetrics());
+    when(quotaService.checkQuota(overQuota)).thenReturn(new BlobStoreQuotaResult(true, "overQuota", "over quota"));
+    BlobStoreGroup blobStoreGroup = mock(BlobStoreGroup.class);
+    when(blobStoreGroup.getMembers()).thenReturn(Arrays.asList(overQuota, one));
+
+    for (int i = 0; i < 50; i++) {
+      assertThat(underTest.chooseBlobStore(blobStoreGroup, Collections.emptyMap()), is(one));
+    }
+  }
+
+  @Test
+  public void itWillRefreshWhenAMemberIsAdded() {
+    BlobStore one = mockMember("one", true, 1000, new OperationMetrics());
+    BlobStore added = mockMember("added", true, 1000, new OperationMetrics());
+    when(quotaService.checkQuota(one)).thenReturn(new BlobStoreQuotaResult(true, "one", "over quota"));
+    BlobStoreGroup blobStoreGroup = mock(BlobStoreGroup.class);
+    when(blobStoreGroup.getMembers()).thenReturn(Collections.singletonList(one));
+
+    assertNull(underTest.chooseBlobStore(blobStoreGroup, Collections.emptyMap()));
+
+    when(blobStoreGroup.getMembers()).thenReturn(Arrays.asList(one, added));
+
+    assertThat(underTest.chooseBlobStore(blobStoreGroup, Collections.emptyMap()), is(added));
+    assertThat(underTest.chooseBlobStore(blobStoreGroup, Collections.emptyMap()), is(added));
+    verify(added, times(1)).isStorageAvailable();
+  }
+
+  @Test
+  public void itWillReturnNullIfNoMembersAreAvailable() {
+    BlobStoreGroup blobStoreGroup = mock(BlobStoreGroup.class);
+    when(blobStoreGroup.getMembers()).thenReturn(
+        Collections.singletonList(mockMember("full", false, 0, new OperationMetrics())));
+
+    assertNull(underTest.chooseBlobStore(blobStoreGroup, Collections.emptyMap()));
+  }
+
+  @Test
+  public void itWillReturnNullIfTheGroupHasNoMember() {
+    BlobStoreGroup blobStoreGroup = mock(BlobStoreGroup.class);
+    when(blobStoreGroup.getMembers()).thenReturn(Collections.emptyList());
+
+    assertNull(underTest.chooseBlobStore(blobStoreGroup, Collections.emptyMap()));
+  }
+
+  @Test
+  public void weightsFollowFreeSpaceLatencyAndWritesInFlight() {
+    BlobStore roomy = mockMember("roomy", true, 1000, new OperationMetrics());
+    BlobStore nearlyFull = mockMember("nearlyFull", true, 100, new OperationMetrics());
+    BlobStore slow = mockMember("slow", true, 1000, new OperationMetrics());
+    BlobStore busy = mockMember("busy", true, 1000, new OperationMetrics());
+    List<BlobStore> members = Arrays.asList(roomy, nearlyFull, slow, busy);
+    Map<String, MemberStats> stats = ImmutableMap.of(
+        "roomy", new MemberStats(true, false, 1000, 10),
+        "nearlyFull", new MemberStats(true, false, 100, 10),
+        "slow", new MemberStats(true, false, 1000, 40),
+        "busy", new MemberStats(true, false, 1000, 10));
+
+    underTest.writeStarted(busy);
+    underTest.writeStarted(busy);
+    underTest.writeStarted(busy);
+    underTest.writeFinished(busy);
+
+    double[] weights = underTest.weights(members, stats);
+
+    assertThat(weights[0], closeTo(1.0, 0.001));
+    assertThat(weights[1], closeTo(0.1, 0.001));
+    assertThat(weights[2], closeTo(0.25, 0.001));
+    assertThat(weights[3], closeTo(1.0 / 3, 0.001));
+  }
+
+  @Test
+  public void latencyIsAveragedOverUploadsSinceTheLastRefresh() {
+    OperationMetrics uploads = new OperationMetrics();
+    uploads.setSuccessfulRequests(10);
+    uploads.setTimeOnRequests(100);
+    BlobStore member = mockMember("member", true, 1000, uploads);
+    List<BlobStore> members = Collections.singletonList(member);
+
+    assertThat(underTest.refresh(members).get("member").uploadLatency, closeTo(10, 0.001));
+
+    uploads.setSuccessfulRequests(20);
+    uploads.setTimeOnRequests(600);
+    assertThat(underTest.refresh(members).get("member").uploadLatency, closeTo(50, 0.001));
+
+    // no uploads in between keeps the last latency
+    assertThat(underTest.refresh(members).get("member").uploadLatency, closeTo(50, 0.001));
+  }
+
+  private static BlobStore mockMember(
+      final String name,
+      final boolean available,
+      final long availableSpace,
+      final OperationMetrics uploads)
+  {
+    BlobStore blobStore = mock(BlobStore.class);
+    when(blobStore.isStorageAvailable()).thenReturn(available);
+    when(blobStore.isWritable()).thenReturn(true);
+    BlobStoreConfiguration config = mock(BlobStoreConfiguration.class);
+    when(config.getName()).thenReturn(name);
+    when(blobStore.getBlobStoreConfiguration()).thenReturn(config);
+    BlobStoreMetrics metrics = mock(BlobStoreMetrics.class);
+    when(metrics.getAvailableSpace()).thenReturn(availableSpace);
+    when(blobStore.getMetrics()).thenReturn(metrics);
+    when(blobStore.getOperationMetricsByType()).thenReturn(ImmutableMap.of(OperationType.UPLOAD, uploads));
+    return blobStore;
+  }
+}
@@ -12,11 +12,13 @@
  */
 package org.sonatype.nexus.cleanup.internal.task;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.sonatype.nexus.cleanup.service.CleanupService;
 import org.sonatype.nexus.scheduling.TaskSupport;
+import org.sonatype.nexus.scheduling.spi.TaskResultStateStore;
 import org.sonatype.nexus.logging.task.TaskLogging;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -34,16 +36,32 @@ public class CleanupTask
 {
   private final CleanupService cleanupService;
 
-  @Inject
+  private final TaskResultStateStore taskResultStateStore;
+
   public CleanupTask(final CleanupService cleanupService) {
+    this(cleanupService, null);
+  }
+
+  @Inject
+  public CleanupTask(
+      final CleanupService cleanupService,
+      @Nullable final TaskResultStateStore taskResultStateStore)
+  {
     this.cleanupService = checkNotNull(cleanupService);
+    this.taskResultStateStore = taskResultStateStore;
   }
-  
+
   @Override
   protected Object execute() {
     log.info("Starting cleanup");
     
-    cleanupService.cleanup(this::isCanceled);
+    if (taskResultStateStore != null) {
+      updateProgress(taskResultStateStore, null);
+      cleanupService.cleanup(this::isCanceled, progress -> updateProgress(taskResultStateStore, progress));
+    }
+    else {
+      cleanupService.cleanup(this::isCanceled);
+    }
     
     if (isCanceled()) {
       log.info("Cleanup was cancelled before it could finish");
@@ -13,6 +13,8 @@
 package org.sonatype.nexus.cleanup.service;
 
 import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
 
 /**
  * Runs cleanup by looping through all repositories and evaluating their cleanup policies.
@@ -22,4 +24,11 @@ import java.util.function.BooleanSupplier;
 public interface CleanupService
 {
   void cleanup(BooleanSupplier cancelledCheck);
+
+  /**
+   * Runs cleanup, reporting progress messages to the given updater.
+   */
+  default void cleanup(final BooleanSupplier cancelledCheck, @Nullable final Consumer<String> progressUpdater) {
+    cleanup(cancelledCheck);
+  }
 }
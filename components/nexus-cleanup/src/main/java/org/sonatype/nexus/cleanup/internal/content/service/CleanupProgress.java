@@ -0,0 +1,71 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.repository.Repository;
+
+import com.google.common.base.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the progress of a cleanup run, logging the throughput of each repository and reporting how many repositories
+ * are done along with an estimate of the time remaining.
+ */
+class CleanupProgress
+{
+  private static final Logger log = LoggerFactory.getLogger(CleanupProgress.class);
+
+  private final Consumer<String> progressUpdater;
+
+  private final Stopwatch stopwatch = Stopwatch.createStarted();
+
+  private int total;
+
+  private int done;
+
+  private long deleted;
+
+  CleanupProgress(@Nullable final Consumer<String> progressUpdater) {
+    this.progressUpdater = progressUpdater;
+  }
+
+  synchronized void addTotal(final int count) {
+    total += count;
+  }
+
+  synchronized void repositoryDone(final Repository repository, final long deletedCount, final long elapsedMillis) {
+    done++;
+    deleted += deletedCount;
+
+    log.info("{} components cleaned up in repository {} in {} ms ({} components/s)",
+        deletedCount, repository.getName(), elapsedMillis, deletedCount * 1000 / Math.max(elapsedMillis, 1));
+
+    if (progressUpdater != null) {
+      progressUpdater.accept(getMessage());
+    }
+  }
+
+  synchronized String getMessage() {
+    String message = String.format("Cleaned up %d of %d repositories, %d components deleted", done, total, deleted);
+    if (done > 0 && done < total) {
+      long remainingSeconds = stopwatch.elapsed(TimeUnit.SECONDS) * (total - done) / done;
+      message += String.format(", about %d minutes remaining", TimeUnit.SECONDS.toMinutes(remainingSeconds) + 1);
+    }
+    return message;
+  }
+}
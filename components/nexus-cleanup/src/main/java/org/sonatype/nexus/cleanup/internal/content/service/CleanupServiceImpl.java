@@ -15,11 +15,22 @@ package org.sonatype.nexus.cleanup.internal.content.service;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
@@ -40,17 +51,29 @@ import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
 import org.sonatype.nexus.repository.task.DeletionProgress;
 import org.sonatype.nexus.repository.types.GroupType;
+import org.sonatype.nexus.scheduling.TaskInterruptedException;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 
 import com.google.common.base.Predicates;
+import com.google.common.base.Stopwatch;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.elasticsearch.search.SearchContextMissingException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Objects.nonNull;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.BLOB_STORE_NAME;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.STORAGE;
 import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.RETAIN_KEY;
 import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.RETAIN_SORT_BY_KEY;
 
 /**
+ * Runs cleanup policies against each repository.
+ *
+ * With {@code nexus.cleanup.parallelism} above one, repositories are cleaned up concurrently; at most
+ * {@code nexus.cleanup.blobStoreConcurrency} repositories backed by the same blob store are cleaned up at once, other
+ * repositories going ahead of them so one slow blob store does not hold up the rest.
+ *
  * @since 3.29
  */
 @Named
@@ -81,6 +104,22 @@ public class CleanupServiceImpl
 
   private final CleanupFeatureCheck cleanupFeatureCheck;
 
+  private final int parallelism;
+
+  private final int blobStoreConcurrency;
+
+  public CleanupServiceImpl(final RepositoryManager repositoryManager,
+                            final CleanupPolicyStorage cleanupPolicyStorage,
+                            final CleanupMethod cleanupMethod,
+                            final GroupType groupType,
+                            final int cleanupRetryLimit,
+                            final CleanupBrowseServiceFactory browseServiceFactory,
+                            @Nullable final CleanupFeatureCheck cleanupFeatureCheck)
+  {
+    this(repositoryManager, cleanupPolicyStorage, cleanupMethod, groupType, cleanupRetryLimit, browseServiceFactory,
+        cleanupFeatureCheck, 1, 1);
+  }
+
   @Inject
   public CleanupServiceImpl(final RepositoryManager repositoryManager,
                             final CleanupPolicyStorage cleanupPolicyStorage,
@@ -88,7 +127,9 @@ public class CleanupServiceImpl
                             final GroupType groupType,
                             @Named("${nexus.cleanup.retries:-3}") final int cleanupRetryLimit,
                             final CleanupBrowseServiceFactory browseServiceFactory,
-                            @Nullable final CleanupFeatureCheck cleanupFeatureCheck)
+                            @Nullable final CleanupFeatureCheck cleanupFeatureCheck,
+                            @Named("${nexus.cleanup.parallelism:-1}") final int parallelism,
+                            @Named("${nexus.cleanup.blobStoreConcurrency:-2}") final int blobStoreConcurrency)
   {
     this.repositoryManager = checkNotNull(repositoryManager);
     this.cleanupMethod = checkNotNull(cleanupMethod);
@@ -97,19 +138,126 @@ public class CleanupServiceImpl
     this.cleanupRetryLimit = cleanupRetryLimit;
     this.browseServiceFactory = checkNotNull(browseServiceFactory);
     this.cleanupFeatureCheck = cleanupFeatureCheck;
+    this.parallelism = Math.max(parallelism, 1);
+    this.blobStoreConcurrency = Math.max(blobStoreConcurrency, 1);
   }
 
   @Override
   public void cleanup(final BooleanSupplier cancelledCheck) {
+    cleanup(cancelledCheck, null);
+  }
+
+  @Override
+  public void cleanup(final BooleanSupplier cancelledCheck, @Nullable final Consumer<String> progressUpdater) {
+    if (parallelism > 1) {
+      cleanupConcurrently(cancelledCheck, new CleanupProgress(progressUpdater));
+      return;
+    }
+
+    CleanupProgress progress = new CleanupProgress(progressUpdater);
     AtomicLong totalDeletedCount = new AtomicLong(0L);
+    repositoryManager.browse().forEach(repository -> {
+      if (!repository.getType().equals(groupType)) {
+        progress.addTotal(1);
+      }
+    });
     repositoryManager.browse().forEach(repository -> {
       if (!cancelledCheck.getAsBoolean() && !repository.getType().equals(groupType)) {
-        totalDeletedCount.addAndGet(this.cleanup(repository, cancelledCheck));
+        Stopwatch sw = Stopwatch.createStarted();
+        long deleted = this.cleanup(repository, cancelledCheck);
+        totalDeletedCount.addAndGet(deleted);
+        progress.repositoryDone(repository, deleted, sw.elapsed(TimeUnit.MILLISECONDS));
       }
     });
     log.info("{} assets cleaned up across all repositories", totalDeletedCount.get());
   }
 
+  /**
+   * Cleans up repositories on a pool of {@code parallelism} threads, only starting a repository when fewer than
+   * {@code blobStoreConcurrency} repositories backed by the same blob store are being cleaned up.
+   */
+  private void cleanupConcurrently(final BooleanSupplier cancelledCheck, final CleanupProgress progress) {
+    LinkedList<Repository> pending = new LinkedList<>();
+    repositoryManager.browse().forEach(repository -> {
+      if (!repository.getType().equals(groupType)) {
+        pending.add(repository);
+      }
+    });
+    progress.addTotal(pending.size());
+
+    ExecutorService executor = NexusExecutorService.forCurrentSubject(
+        Executors.newFixedThreadPool(parallelism, new NexusThreadFactory("cleanup", "cleanup")));
+    CompletionService<Long> completionService = new ExecutorCompletionService<>(executor);
+    Map<Future<Long>, Repository> running = new HashMap<>();
+    Map<String, Integer> runningByBlobStore = new HashMap<>();
+    long totalDeletedCount = 0L;
+    try {
+      while (!pending.isEmpty() || !running.isEmpty()) {
+        if (cancelledCheck.getAsBoolean()) {
+          pending.clear();
+        }
+        for (Iterator<Repository> itr = pending.iterator(); itr.hasNext() && running.size() < parallelism; ) {
+          Repository repository = itr.next();
+          String blobStoreName = blobStoreName(repository);
+          if (runningByBlobStore.getOrDefault(blobStoreName, 0) < blobStoreConcurrency) {
+            itr.remove();
+            runningByBlobStore.merge(blobStoreName, 1, Integer::sum);
+            running.put(completionService.submit(() -> timedCleanup(repository, cancelledCheck, progress)), repository);
+          }
+        }
+        if (running.isEmpty()) {
+          break;
+        }
+
+        Future<Long> done = completionService.take();
+        Repository repository = running.remove(done);
+        runningByBlobStore.merge(blobStoreName(repository), -1, Integer::sum);
+        totalDeletedCount += getDeletedCount(repository, done);
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TaskInterruptedException("Cleanup was interrupted", true);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    log.info("{} assets cleaned up across all repositories", totalDeletedCount);
+  }
+
+  private Long timedCleanup(
+      final Repository repository,
+      final BooleanSupplier cancelledCheck,
+      final CleanupProgress progress)
+  {
+    Stopwatch sw = Stopwatch.createStarted();
+    Long deleted = cleanup(repository, cancelledCheck);
+    progress.repositoryDone(repository, deleted, sw.elapsed(TimeUnit.MILLISECONDS));
+    return deleted;
+  }
+
+  private long getDeletedCount(final Repository repository, final Future<Long> done) {
+    try {
+      return done.get();
+    }
+    catch (ExecutionException e) {
+      log.error("Failed to clean up repository {}", repository.getName(), e.getCause());
+      return 0L;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TaskInterruptedException("Cleanup was interrupted", true);
+    }
+  }
+
+  private static String blobStoreName(final Repository repository) {
+    return Optional.ofNullable(repository.getConfiguration().getAttributes())
+        .map(attributes -> attributes.get(STORAGE))
+        .map(storage -> storage.get(BLOB_STORE_NAME))
+        .map(Object::toString)
+        .orElse("");
+  }
+
   private Long cleanup(final Repository repository, final BooleanSupplier cancelledCheck) {
     AtomicLong deleted = new AtomicLong(0L);
     findPolicies(repository).forEach(policy -> {
@@ -13,7 +13,11 @@
 package org.sonatype.nexus.cleanup.internal.content.service;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
 
@@ -48,6 +52,10 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonMap;
 import static java.util.stream.Stream.empty;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assume.assumeFalse;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -341,6 +349,38 @@ public class CleanupServiceImplTest
     verify(cleanupMethod, times(3)).run(eq(repository2), argThat(streamContains(component3)), eq(cancelledCheck));
   }
 
+  @Test
+  public void cleanupRepositoriesConcurrentlyWithinBlobStoreLimit() throws Exception {
+    underTest = new CleanupServiceImpl(repositoryManager, cleanupPolicyStorage, cleanupMethod,
+        new GroupType(), RETRY_LIMIT, cleanupBrowseFactory, cleanupFeatureCheck, 4, 1);
+    setupBlobStore(repository1, "default");
+    setupBlobStore(repository2, "default");
+
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    when(cleanupMethod.run(any(), any(), any())).thenAnswer(invocation -> {
+      maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+      Thread.sleep(50);
+      active.decrementAndGet();
+      return deletionProgress;
+    });
+    List<String> progress = new CopyOnWriteArrayList<>();
+
+    underTest.cleanup(cancelledCheck, progress::add);
+
+    verify(cleanupMethod).run(eq(repository1), argThat(streamContains(component1,  component2)), eq(cancelledCheck));
+    verify(cleanupMethod).run(eq(repository2), argThat(streamContains(component3)), eq(cancelledCheck));
+    assertThat(maxActive.get(), is(1));
+    assertThat(progress, hasSize(2));
+    assertThat(progress.get(1), startsWith("Cleaned up 2 of 2 repositories"));
+  }
+
+  private void setupBlobStore(final Repository repository, final String blobStoreName) {
+    Map<String, Map<String, Object>> attributes = new HashMap<>(repository.getConfiguration().getAttributes());
+    attributes.put("storage", singletonMap("blobStoreName", blobStoreName));
+    when(repository.getConfiguration().getAttributes()).thenReturn(attributes);
+  }
+
   private void setupRepository(final Repository repository, final String... policyName) {
     Configuration repositoryConfig = mock(Configuration.class);
     when(repository.getConfiguration()).thenReturn(repositoryConfig);
@@ -28,4 +28,14 @@ public interface EventAware
   {
     // empty
   }
+
+  /**
+   * Marker for {@link Asynchronous} component which can take queued events in batches; when events are dispatched
+   * through per-subscriber queues several events are delivered in turn per scheduled delivery instead of one.
+   */
+  interface Batching
+      extends Asynchronous
+  {
+    // empty
+  }
 }
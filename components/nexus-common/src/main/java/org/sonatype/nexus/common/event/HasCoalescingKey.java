@@ -0,0 +1,27 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.event;
+
+/**
+ * Event mix-in for idempotent events which may be coalesced during asynchronous event delivery.
+ *
+ * When an event with the same key is still waiting to be delivered to a subscriber the new event is redundant and
+ * may be skipped; such events may also be dropped rather than delivered late when the subscriber is falling behind.
+ */
+public interface HasCoalescingKey
+{
+  /**
+   * @return key identifying equivalent events
+   */
+  String getCoalescingKey();
+}
@@ -53,11 +53,11 @@ public class MultiHashingInputStream
 
   @Override
   public int read() throws IOException {
-    waitForHashes();
+    beforeRead();
 
     int b = in.read();
     if (b != -1) {
-      submitHashing(hasher -> hasher.putByte((byte) b));
+      hash((byte) b);
       count++;
     }
     return b;
@@ -65,15 +65,11 @@ public class MultiHashingInputStream
 
   @Override
   public int read(@Nonnull final byte[] bytes, final int off, final int len) throws IOException {
-    waitForHashes();
+    beforeRead();
 
     int numRead = in.read(bytes, off, len);
     if (numRead != -1) {
-      // Create a copy of the read bytes in case the provided buffer is externally modified
-      byte[] copy = new byte[numRead];
-      System.arraycopy(bytes, off, copy, 0, numRead);
-
-      submitHashing(hasher -> hasher.putBytes(copy, 0, numRead));
+      hash(bytes, off, numRead);
       count += numRead;
     }
     return numRead;
@@ -119,6 +115,20 @@ public class MultiHashingInputStream
     return count;
   }
 
+  /**
+   * Hashes a byte which has been read.
+   */
+  protected void hash(final byte b) throws IOException {
+    submitHashing(hasher -> hasher.putByte(b));
+  }
+
+  /**
+   * Hashes bytes which have been read; the buffer may be modified by the caller once this returns.
+   */
+  protected void hash(final byte[] bytes, final int off, final int len) throws IOException {
+    submitHashing(hasher -> hasher.putBytes(bytes, off, len));
+  }
+
   protected void submitHashing(final Consumer<Hasher> runnable) {
     hashers.values().forEach(runnable::accept);
   }
@@ -126,4 +136,11 @@ public class MultiHashingInputStream
   protected void waitForHashes() throws IOException {
     // not required in this implementation
   }
+
+  /**
+   * Called before each read, by default waiting for the hashing of previous reads.
+   */
+  protected void beforeRead() throws IOException {
+    waitForHashes();
+  }
 }
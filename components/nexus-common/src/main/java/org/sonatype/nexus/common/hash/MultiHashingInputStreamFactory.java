@@ -17,12 +17,16 @@ import java.util.Optional;
 import java.util.concurrent.ForkJoinPool;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * When parallel is enabled (default on) and the {@link ForkJoinPool#commonPool()} isn't saturated provides
  * {@link ParallelMultiHashingInputStream} when disabled a {@link MultiHashingInputStream}
+ *
+ * When pipelined is enabled (default off) streams computing more than one hash are provided a
+ * {@link PipelinedMultiHashingInputStream} instead, unless all of its shared threads are busy.
  */
 public final class MultiHashingInputStreamFactory
 {
@@ -36,6 +40,10 @@ public final class MultiHashingInputStreamFactory
 
   private static final String THRESHOLD_SYS_PROP = "nexus.hashing.threshold";
 
+  private static final String PIPELINED_ENV_VAR = "NEXUS_HASHING_PIPELINED";
+
+  private static final String PIPELINED_SYS_PROP = "nexus.hashing.pipelined";
+
   /*
    * See belowThreshold()
    */
@@ -43,6 +51,8 @@ public final class MultiHashingInputStreamFactory
 
   private static boolean enabled;
 
+  private static boolean pipelined;
+
   static {
     enabled = Boolean.valueOf(Optional.ofNullable(System.getenv(ENABLED_ENV_VAR))
         .orElseGet(() -> System.getProperty(ENABLED_SYS_PROP, Boolean.TRUE.toString())));
@@ -50,9 +60,12 @@ public final class MultiHashingInputStreamFactory
     threshold = Integer.valueOf(Optional.ofNullable(System.getenv(THRESHOLD_ENV_VAR))
         .orElseGet(() -> System.getProperty(THRESHOLD_SYS_PROP, "-1")));
 
-    if (!enabled || threshold != -1) {
+    pipelined = Boolean.valueOf(Optional.ofNullable(System.getenv(PIPELINED_ENV_VAR))
+        .orElseGet(() -> System.getProperty(PIPELINED_SYS_PROP, Boolean.FALSE.toString())));
+
+    if (!enabled || threshold != -1 || pipelined) {
       // log only for non-default settings
-      log.info("Configured with enabled={} threshold={}", enabled, threshold);
+      log.info("Configured with enabled={} threshold={} pipelined={}", enabled, threshold, pipelined);
     }
   }
 
@@ -80,6 +93,26 @@ public final class MultiHashingInputStreamFactory
     enabled = false;
   }
 
+  /*
+   * Exists for use by Groovy scripting if necessary
+   */
+  @VisibleForTesting
+  public static void enablePipelined() {
+    log.info("Enabling pipelined input stream hashing");
+
+    pipelined = true;
+  }
+
+  /*
+   * Exists for use by Groovy scripting if necessary
+   */
+  @VisibleForTesting
+  public static void disablePipelined() {
+    log.info("Disabling pipelined input stream hashing");
+
+    pipelined = false;
+  }
+
   /*
    * Exists for use by Groovy scripting if necessary
    */
@@ -91,6 +124,9 @@ public final class MultiHashingInputStreamFactory
   }
 
   public static MultiHashingInputStream input(final Iterable<HashAlgorithm> algorithms, final InputStream inputStream) {
+    if (pipelined && Iterables.size(algorithms) > 1 && !PipelinedMultiHashingInputStream.isSaturated()) {
+      return new PipelinedMultiHashingInputStream(algorithms, inputStream);
+    }
     if (enabled && belowThreshold()) {
       return new ParallelMultiHashingInputStream(algorithms, inputStream);
     }
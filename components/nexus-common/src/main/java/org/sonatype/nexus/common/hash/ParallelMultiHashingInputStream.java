@@ -38,6 +38,15 @@ public class ParallelMultiHashingInputStream
     super(algorithms, inputStream);
   }
 
+  @Override
+  protected void hash(final byte[] bytes, final int off, final int len) throws IOException {
+    // Create a copy of the read bytes in case the provided buffer is externally modified
+    byte[] copy = new byte[len];
+    System.arraycopy(bytes, off, copy, 0, len);
+
+    submitHashing(hasher -> hasher.putBytes(copy, 0, len));
+  }
+
   @Override
   protected void submitHashing(final Consumer<Hasher> runnable) {
     hashingFutures = hashers.values()
@@ -0,0 +1,359 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.hash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A {@link MultiHashingInputStream} which hashes the data read from it asynchronously, one thread per algorithm.
+ *
+ * Data read is gathered into a small ring of pooled buffers; every algorithm consumes the ring in order on its own
+ * thread while the caller carries on reading, only waiting when the ring is full. Each algorithm thread keeps
+ * consuming for as long as data is arriving and is released once it has been idle for a short while, so abandoned
+ * streams do not hold on to threads.
+ *
+ * The algorithm threads come from a pool shared by all streams, bounded by {@code nexus.hashing.pipelined.threads}
+ * (default twice the number of processors). {@link MultiHashingInputStreamFactory} stops handing out pipelined
+ * streams while every thread is busy, so workers do not queue up behind each other.
+ *
+ * @see MultiHashingInputStream
+ */
+public class PipelinedMultiHashingInputStream
+    extends MultiHashingInputStream
+{
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int RING_SIZE = 4;
+
+  private static final int POOL_CAPACITY = 64;
+
+  private static final long LINGER_MILLIS = 10;
+
+  private static final String THREADS_ENV_VAR = "NEXUS_HASHING_PIPELINED_THREADS";
+
+  private static final String THREADS_SYS_PROP = "nexus.hashing.pipelined.threads";
+
+  private static final int THREADS = Math.max(1, Integer.parseInt(Optional.ofNullable(System.getenv(THREADS_ENV_VAR))
+      .orElseGet(() -> System.getProperty(THREADS_SYS_PROP,
+          Integer.toString(Runtime.getRuntime().availableProcessors() * 2)))));
+
+  private static final BlockingQueue<byte[]> bufferPool = new ArrayBlockingQueue<>(POOL_CAPACITY);
+
+  private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      THREADS, // core-size
+      THREADS, // max-size
+      60L, // keep-alive
+      TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(),
+      new ThreadFactoryBuilder().setNameFormat("multi-hashing-%d").setDaemon(true).build());
+
+  static {
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  private final Object lock = new Object();
+
+  private final Slot[] ring = new Slot[RING_SIZE];
+
+  private final Worker[] workers;
+
+  private long published;
+
+  // set once no more data will be published, so idle workers give their thread back straight away
+  private boolean finishing;
+
+  private volatile Throwable failure;
+
+  // slot being filled by the reading thread, not yet visible to the workers
+  private Slot current;
+
+  public PipelinedMultiHashingInputStream(final Iterable<HashAlgorithm> algorithms, final InputStream inputStream) {
+    super(algorithms, inputStream);
+    for (int i = 0; i < ring.length; i++) {
+      ring[i] = new Slot();
+    }
+    workers = hashers.values().stream().map(Worker::new).toArray(Worker[]::new);
+  }
+
+  /**
+   * Returns {@code true} while every thread of the shared pool is busy hashing.
+   */
+  static boolean isSaturated() {
+    return executor.getActiveCount() >= executor.getMaximumPoolSize();
+  }
+
+  @Override
+  protected void hash(final byte b) throws IOException {
+    Slot slot = currentSlot();
+    slot.buffer[slot.length++] = b;
+    if (slot.length == slot.buffer.length) {
+      publish();
+    }
+  }
+
+  @Override
+  protected void hash(final byte[] bytes, final int off, final int len) throws IOException {
+    int offset = off;
+    int remaining = len;
+    while (remaining > 0) {
+      Slot slot = currentSlot();
+      int n = Math.min(remaining, slot.buffer.length - slot.length);
+      System.arraycopy(bytes, offset, slot.buffer, slot.length, n);
+      slot.length += n;
+      offset += n;
+      remaining -= n;
+      if (slot.length == slot.buffer.length) {
+        publish();
+      }
+    }
+  }
+
+  @Override
+  protected void beforeRead() throws IOException {
+    checkFailure();
+  }
+
+  @Override
+  protected void waitForHashes() throws IOException {
+    if (current != null && current.length > 0) {
+      publish();
+    }
+    synchronized (lock) {
+      finishing = true;
+      lock.notifyAll();
+      while (!isDrained() && failure == null) {
+        await();
+      }
+    }
+    checkFailure();
+  }
+
+  @Override
+  public Map<HashAlgorithm, HashCode> hashes() {
+    try {
+      return super.hashes();
+    }
+    finally {
+      release();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (lock) {
+      finishing = true;
+      lock.notifyAll();
+    }
+    try {
+      super.close();
+    }
+    finally {
+      release();
+    }
+  }
+
+  /**
+   * Returns the slot being filled, waiting for the next slot in the ring to be consumed if there is none.
+   */
+  private Slot currentSlot() throws IOException {
+    if (current == null) {
+      Slot slot = ring[(int) (published % ring.length)];
+      synchronized (lock) {
+        while (slot.pending > 0 && failure == null) {
+          await();
+        }
+      }
+      checkFailure();
+      if (slot.buffer == null) {
+        slot.buffer = borrowBuffer();
+      }
+      slot.length = 0;
+      current = slot;
+    }
+    return current;
+  }
+
+  /**
+   * Hands the slot being filled over to the workers, starting any which are idle.
+   */
+  private void publish() {
+    Slot slot = current;
+    current = null;
+    Worker[] idle = new Worker[workers.length];
+    int idleCount = 0;
+    synchronized (lock) {
+      slot.pending = workers.length;
+      published++;
+      for (Worker worker : workers) {
+        if (!worker.running) {
+          worker.running = true;
+          idle[idleCount++] = worker;
+        }
+      }
+      lock.notifyAll();
+    }
+    for (int i = 0; i < idleCount; i++) {
+      executor.execute(idle[i]);
+    }
+  }
+
+  /**
+   * Returns the buffers to the pool once the workers are done with them.
+   */
+  private void release() {
+    synchronized (lock) {
+      if (!isDrained()) {
+        return;
+      }
+      current = null;
+      for (Slot slot : ring) {
+        if (slot.buffer != null) {
+          bufferPool.offer(slot.buffer);
+          slot.buffer = null;
+        }
+      }
+    }
+  }
+
+  private boolean allStarted() {
+    for (Worker worker : workers) {
+      if (worker.running && !worker.started) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isDrained() {
+    for (Slot slot : ring) {
+      if (slot.pending > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void await() throws InterruptedIOException {
+    try {
+      lock.wait();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for hashing");
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable cause = failure;
+    if (cause != null) {
+      throw new IOException("Failed to compute hashes", cause);
+    }
+  }
+
+  private static byte[] borrowBuffer() {
+    byte[] buffer = bufferPool.poll();
+    return buffer != null ? buffer : new byte[BUFFER_SIZE];
+  }
+
+  private static class Slot
+  {
+    private byte[] buffer;
+
+    private int length;
+
+    // number of workers still to consume this slot, guarded by the stream lock
+    private int pending;
+  }
+
+  /**
+   * Consumes the ring in order for one algorithm.
+   */
+  private class Worker
+      implements Runnable
+  {
+    private final Hasher hasher;
+
+    // guarded by the stream lock
+    private long cursor;
+
+    // guarded by the stream lock
+    private boolean running;
+
+    // guarded by the stream lock, false while the worker is queued for a pool thread
+    private boolean started;
+
+    private Worker(final Hasher hasher) {
+      this.hasher = hasher;
+    }
+
+    @Override
+    public void run() {
+      Slot slot;
+      while ((slot = next()) != null) {
+        try {
+          if (failure == null) {
+            hasher.putBytes(slot.buffer, 0, slot.length);
+          }
+        }
+        catch (Throwable e) { // NOSONAR
+          failure = e;
+        }
+        synchronized (lock) {
+          cursor++;
+          slot.pending--;
+          lock.notifyAll();
+        }
+      }
+    }
+
+    /**
+     * Returns the next slot to consume, or {@code null} once no data has arrived for a while or the stream is
+     * finishing. Does not linger while another worker of the stream is queued, as the pool may be waiting for this
+     * thread to run it.
+     */
+    private Slot next() {
+      synchronized (lock) {
+        started = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MILLIS);
+        long remaining;
+        while (cursor == published && !finishing && allStarted() && (remaining = deadline - System.nanoTime()) > 0) {
+          try {
+            TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+          }
+          catch (InterruptedException e) {
+            break;
+          }
+        }
+        if (cursor == published) {
+          running = false;
+          started = false;
+          return null;
+        }
+        return ring[(int) (cursor % ring.length)];
+      }
+    }
+  }
+}
@@ -13,6 +13,7 @@
 package org.sonatype.nexus.common.hash;
 
 import java.io.ByteArrayInputStream;
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.junit.Before;
@@ -27,6 +28,7 @@ public class MultiHashingInputStreamFactoryTest
   public void teardown() {
     MultiHashingInputStreamFactory.enableParallel();
     MultiHashingInputStreamFactory.setThreshold(-1);
+    MultiHashingInputStreamFactory.disablePipelined();
   }
 
   @Test
@@ -60,6 +62,18 @@ public class MultiHashingInputStreamFactoryTest
         is((Object) MultiHashingInputStream.class));
   }
 
+  @Test
+  public void testEnablePipelined() {
+    MultiHashingInputStreamFactory.enablePipelined();
+
+    assertThat(MultiHashingInputStreamFactory.input(Arrays.asList(HashAlgorithm.SHA1, HashAlgorithm.MD5), in())
+        .getClass(), is((Object) PipelinedMultiHashingInputStream.class));
+
+    // a single hash has nothing to pipeline
+    assertThat(MultiHashingInputStreamFactory.input(Collections.singletonList(HashAlgorithm.SHA1), in()).getClass(),
+        is((Object) ParallelMultiHashingInputStream.class));
+  }
+
   private static ByteArrayInputStream in() {
     return new ByteArrayInputStream(new byte[0]);
   }
@@ -0,0 +1,127 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.hash;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.hash.HashCode;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.sonatype.nexus.common.hash.HashAlgorithm.MD5;
+import static org.sonatype.nexus.common.hash.HashAlgorithm.SHA1;
+import static org.sonatype.nexus.common.hash.HashAlgorithm.SHA256;
+import static org.sonatype.nexus.common.hash.HashAlgorithm.SHA512;
+import static org.sonatype.nexus.common.hash.PipelinedMultiHashingInputStream.BUFFER_SIZE;
+
+public class PipelinedMultiHashingInputStreamTest
+{
+  private static final List<HashAlgorithm> ALGORITHMS = Arrays.asList(SHA1, SHA256, SHA512, MD5);
+
+  @Test
+  public void hashesAreAccurateForAllSizes() throws IOException {
+    for (int size : new int[]{0, 1, 1024, BUFFER_SIZE, BUFFER_SIZE + 1, BUFFER_SIZE * 10 + 17}) {
+      byte[] bytes = randomBytes(size);
+
+      PipelinedMultiHashingInputStream hashingStream = createAndUseHashingStream(bytes, 8192);
+
+      assertThat(hashingStream.count(), is(equalTo((long) size)));
+      assertHashes(hashingStream.hashes(), bytes);
+    }
+  }
+
+  @Test
+  public void hashesAreUnaffectedByReusingTheReadBuffer() throws IOException {
+    byte[] bytes = randomBytes(BUFFER_SIZE * 3);
+
+    PipelinedMultiHashingInputStream hashingStream = createAndUseHashingStream(bytes, BUFFER_SIZE * 2);
+
+    assertHashes(hashingStream.hashes(), bytes);
+  }
+
+  @Test
+  public void singleByteReadsAreHashed() throws IOException {
+    byte[] bytes = randomBytes(1000);
+
+    try (PipelinedMultiHashingInputStream hashingStream =
+        new PipelinedMultiHashingInputStream(ALGORITHMS, new ByteArrayInputStream(bytes))) {
+      while (hashingStream.read() != -1) {
+        // consume
+      }
+      assertThat(hashingStream.count(), is(equalTo(1000L)));
+      assertHashes(hashingStream.hashes(), bytes);
+    }
+  }
+
+  @Test
+  public void concurrentStreamsShareTheBoundedPool() throws Exception {
+    int streams = Runtime.getRuntime().availableProcessors() * 2 * ALGORITHMS.size() + 1;
+    ExecutorService callers = Executors.newFixedThreadPool(streams);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < streams; i++) {
+        byte[] bytes = randomBytes(BUFFER_SIZE * 4 + i);
+        results.add(callers.submit((Callable<Boolean>) () -> {
+          PipelinedMultiHashingInputStream hashingStream = createAndUseHashingStream(bytes, 8192);
+          assertHashes(hashingStream.hashes(), bytes);
+          return true;
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertThat(result.get(30, TimeUnit.SECONDS), is(true));
+      }
+    }
+    finally {
+      callers.shutdownNow();
+    }
+  }
+
+  private static PipelinedMultiHashingInputStream createAndUseHashingStream(
+      final byte[] bytes,
+      final int readSize) throws IOException
+  {
+    PipelinedMultiHashingInputStream hashingStream =
+        new PipelinedMultiHashingInputStream(ALGORITHMS, new ByteArrayInputStream(bytes));
+    byte[] buffer = new byte[readSize];
+    while (hashingStream.read(buffer, 0, buffer.length) != -1) {
+      // scribble over the buffer as a caller reusing it would
+      Arrays.fill(buffer, (byte) 0x5a);
+    }
+    return hashingStream;
+  }
+
+  private static void assertHashes(final Map<HashAlgorithm, HashCode> hashes, final byte[] bytes) {
+    for (HashAlgorithm algorithm : ALGORITHMS) {
+      assertThat(hashes.get(algorithm), is(equalTo(algorithm.function().hashBytes(bytes))));
+    }
+  }
+
+  private static byte[] randomBytes(final int size) {
+    byte[] bytes = new byte[size];
+    new Random(size).nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -43,7 +43,9 @@ import com.google.common.base.Stopwatch;
 import com.google.common.eventbus.Subscribe;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.client.methods.HttpUriRequest;
@@ -52,6 +54,7 @@ import org.apache.http.client.utils.URIUtils;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.ImmutableHttpProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -95,16 +98,29 @@ public class HttpClientManagerImpl
 
   private final DefaultsCustomizer defaultsCustomizer;
 
+  @Nullable
+  private final MultiplexedHttpClientFactory multiplexedHttpClientFactory;
+
   private final Mutex lock = new Mutex();
 
   private HttpClientConfiguration configuration;
 
+  public HttpClientManagerImpl(final EventManager eventManager,
+      final HttpClientConfigurationStore store,
+      final Provider<HttpClientConfiguration> defaults,
+      final SharedHttpClientConnectionManager sharedConnectionManager,
+      final DefaultsCustomizer defaultsCustomizer)
+  {
+    this(eventManager, store, defaults, sharedConnectionManager, defaultsCustomizer, null);
+  }
+
   @Inject
   public HttpClientManagerImpl(final EventManager eventManager,
       final HttpClientConfigurationStore store,
       @Named("initial") final Provider<HttpClientConfiguration> defaults,
       final SharedHttpClientConnectionManager sharedConnectionManager,
-      final DefaultsCustomizer defaultsCustomizer)
+      final DefaultsCustomizer defaultsCustomizer,
+      @Nullable final MultiplexedHttpClientFactory multiplexedHttpClientFactory)
   {
     this.eventManager = checkNotNull(eventManager);
 
@@ -116,6 +132,7 @@ public class HttpClientManagerImpl
 
     this.sharedConnectionManager = checkNotNull(sharedConnectionManager);
     this.defaultsCustomizer = checkNotNull(defaultsCustomizer);
+    this.multiplexedHttpClientFactory = multiplexedHttpClientFactory;
   }
 
   //
@@ -225,6 +242,30 @@ public class HttpClientManagerImpl
     return create(null);
   }
 
+  @Override
+  @Guarded(by = STARTED)
+  public CloseableHttpClient createMultiplexed(final HttpClientConfiguration configuration) {
+    Customizer customizer = new ConfigurationCustomizer(configuration);
+    if (multiplexedHttpClientFactory != null) {
+      // resolve the plan as the pooled client would, for the settings the multiplexed client shares with it
+      HttpClientPlan plan = httpClientPlan();
+      defaultsCustomizer.customize(plan);
+      new ConfigurationCustomizer(getConfigurationInternal()).customize(plan);
+      customizer.customize(plan);
+
+      // the multiplexed client bypasses the builder's interceptors, so pass it the outbound logging
+      ImmutableHttpProcessor outboundLogging = new ImmutableHttpProcessor(
+          new HttpRequestInterceptor[]{this::logOutboundRequest},
+          new HttpResponseInterceptor[]{this::logOutboundResponse});
+      CloseableHttpClient client =
+          multiplexedHttpClientFactory.create(plan, getConfigurationInternal(), configuration, outboundLogging);
+      if (client != null) {
+        return client;
+      }
+    }
+    return create(customizer);
+  }
+
   @Override
   @Guarded(by = STARTED)
   public HttpClientBuilder prepare(@Nullable final Customizer customizer) {
@@ -273,31 +314,29 @@ public class HttpClientManagerImpl
           }
         }
     );
-    builder.addInterceptorLast(
-        (HttpRequest httpRequest, HttpContext httpContext) ->
-        {
-          httpContext.setAttribute(CTX_REQ_STOPWATCH, Stopwatch.createStarted());
-          if (outboundLog.isDebugEnabled()) {
-            httpContext.setAttribute(CTX_REQ_URI, getRequestURI(httpContext));
-            outboundLog.debug("{} > {}", httpContext.getAttribute(CTX_REQ_URI), httpRequest.getRequestLine());
-          }
-        }
-    );
-    builder.addInterceptorLast(
-        (HttpResponse httpResponse, HttpContext httpContext) ->
-        {
-          URI requestURI = (URI) httpContext.getAttribute(CTX_REQ_URI);
-          if (requestURI != null) {
-            Stopwatch stopwatch = (Stopwatch) httpContext.getAttribute(CTX_REQ_STOPWATCH);
-            outboundLog.debug("{} < {} @ {}", requestURI, httpResponse.getStatusLine(), stopwatch);
-          }
-          printOutboundLog(httpResponse, httpContext);
-        }
-    );
+    builder.addInterceptorLast((HttpRequestInterceptor) this::logOutboundRequest);
+    builder.addInterceptorLast((HttpResponseInterceptor) this::logOutboundResponse);
 
     return builder;
   }
 
+  private void logOutboundRequest(final HttpRequest httpRequest, final HttpContext httpContext) {
+    httpContext.setAttribute(CTX_REQ_STOPWATCH, Stopwatch.createStarted());
+    if (outboundLog.isDebugEnabled()) {
+      httpContext.setAttribute(CTX_REQ_URI, getRequestURI(httpContext));
+      outboundLog.debug("{} > {}", httpContext.getAttribute(CTX_REQ_URI), httpRequest.getRequestLine());
+    }
+  }
+
+  private void logOutboundResponse(final HttpResponse httpResponse, final HttpContext httpContext) {
+    URI requestURI = (URI) httpContext.getAttribute(CTX_REQ_URI);
+    if (requestURI != null) {
+      Stopwatch stopwatch = (Stopwatch) httpContext.getAttribute(CTX_REQ_STOPWATCH);
+      outboundLog.debug("{} < {} @ {}", requestURI, httpResponse.getStatusLine(), stopwatch);
+    }
+    printOutboundLog(httpResponse, httpContext);
+  }
+
   private void printOutboundLog(final HttpResponse httpResponse, final HttpContext httpContext) {
     SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss Z");
 
@@ -0,0 +1,626 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.httpclient;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+
+import org.sonatype.nexus.internal.httpclient.MultiplexedHttpClientFactory.HostMetrics;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.RedirectException;
+import org.apache.http.client.RedirectStrategy;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.apache.http.HttpHeaders.AUTHORIZATION;
+import static org.apache.http.HttpHeaders.CONTENT_ENCODING;
+import static org.apache.http.HttpHeaders.CONTENT_LENGTH;
+import static org.apache.http.HttpHeaders.CONTENT_MD5;
+import static org.apache.http.HttpHeaders.CONTENT_TYPE;
+import static org.apache.http.HttpHeaders.USER_AGENT;
+
+/**
+ * {@link CloseableHttpClient} sending requests through the JDK HTTP client, which multiplexes concurrent requests to
+ * the same host over a single HTTP/2 connection, falling back to HTTP/1.1 where the remote does not support HTTP/2.
+ *
+ * Applies the same plan as the pooled client: default headers and user agent, timeouts, credentials, trust store,
+ * retries of idempotent requests, content decompression and redirects through the configured
+ * {@link RedirectStrategy}. Each request and response, including redirects, also goes through the given
+ * {@link HttpProcessor}, which carries the outbound request logging of the pooled client. The socket timeout bounds
+ * both the wait for the response headers and each read of the response body, a body which stalls for longer is
+ * aborted.
+ *
+ * @see MultiplexedHttpClientFactory
+ */
+class MultiplexedHttpClient
+    extends CloseableHttpClient
+{
+  private static final Logger log = LoggerFactory.getLogger(MultiplexedHttpClient.class);
+
+  private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+
+  // headers managed by the JDK client, or not allowed over HTTP/2
+  private static final Set<String> RESTRICTED_HEADERS = Set.of(
+      "connection", "content-length", "expect", "host", "upgrade", "keep-alive", "proxy-connection",
+      "transfer-encoding", "te");
+
+  private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "PUT", "DELETE", "OPTIONS", "TRACE");
+
+  // dropped on close, as the JDK client only releases its connections and selector thread once unreachable
+  private volatile HttpClient client;
+
+  private final MultiplexedHttpClientFactory factory;
+
+  private final RequestConfig requestConfig;
+
+  private final Map<String, String> headers;
+
+  private final Map<String, Object> attributes;
+
+  private final CredentialsProvider credentialsProvider;
+
+  private final HttpProcessor httpProcessor;
+
+  private final String userAgent;
+
+  private final String preemptiveAuthorization;
+
+  private final RedirectStrategy redirectStrategy;
+
+  private final boolean contentCompression;
+
+  private final int retries;
+
+  private final boolean cleartext;
+
+  private final ScheduledExecutorService idleTimer;
+
+  MultiplexedHttpClient(
+      final HttpClient client,
+      final MultiplexedHttpClientFactory factory,
+      final RequestConfig requestConfig,
+      final Map<String, String> headers,
+      final Map<String, Object> attributes,
+      final CredentialsProvider credentialsProvider,
+      final HttpProcessor httpProcessor,
+      @Nullable final String userAgent,
+      @Nullable final String preemptiveAuthorization,
+      final RedirectStrategy redirectStrategy,
+      final boolean contentCompression,
+      final int retries,
+      final boolean cleartext,
+      final ScheduledExecutorService idleTimer)
+  {
+    this.client = checkNotNull(client);
+    this.factory = checkNotNull(factory);
+    this.requestConfig = checkNotNull(requestConfig);
+    this.headers = Map.copyOf(headers);
+    this.attributes = Map.copyOf(attributes);
+    this.credentialsProvider = checkNotNull(credentialsProvider);
+    this.httpProcessor = checkNotNull(httpProcessor);
+    this.userAgent = userAgent;
+    this.preemptiveAuthorization = preemptiveAuthorization;
+    this.redirectStrategy = checkNotNull(redirectStrategy);
+    this.contentCompression = contentCompression;
+    this.retries = retries;
+    this.cleartext = cleartext;
+    this.idleTimer = checkNotNull(idleTimer);
+  }
+
+  @Override
+  protected CloseableHttpResponse doExecute(
+      final HttpHost target,
+      final HttpRequest request,
+      @Nullable final HttpContext context) throws IOException
+  {
+    HttpClientContext clientContext = HttpClientContext.adapt(context != null ? context : new BasicHttpContext());
+    attributes.forEach((key, value) -> {
+      // only set context attribute if not already set, to allow per request overrides
+      if (clientContext.getAttribute(key) == null) {
+        clientContext.setAttribute(key, value);
+      }
+    });
+    if (clientContext.getAttribute(HttpClientContext.REQUEST_CONFIG) == null) {
+      clientContext.setRequestConfig(requestConfig);
+    }
+    if (clientContext.getAttribute(HttpClientContext.CREDS_PROVIDER) == null) {
+      clientContext.setCredentialsProvider(credentialsProvider);
+    }
+    RequestConfig config = clientContext.getRequestConfig();
+
+    HttpRequest current = request;
+    HttpHost currentTarget = target;
+    for (int redirects = 0; ; redirects++) {
+      clientContext.setAttribute(HttpCoreContext.HTTP_TARGET_HOST, currentTarget);
+      clientContext.setAttribute(HttpCoreContext.HTTP_REQUEST, current);
+      try {
+        httpProcessor.process(current, clientContext);
+      }
+      catch (HttpException e) {
+        throw new ClientProtocolException(e);
+      }
+      CloseableHttpResponse response = executeWithRetries(currentTarget, current, config);
+      clientContext.setAttribute(HttpCoreContext.HTTP_RESPONSE, response);
+      boolean redirected = false;
+      try {
+        httpProcessor.process(response, clientContext);
+        if (config.isRedirectsEnabled() && redirectStrategy.isRedirected(current, response, clientContext)) {
+          if (redirects >= config.getMaxRedirects()) {
+            throw new RedirectException("Maximum redirects (" + config.getMaxRedirects() + ") exceeded");
+          }
+          HttpUriRequest redirect = redirectStrategy.getRedirect(current, response, clientContext);
+          if (!redirect.headerIterator().hasNext()) {
+            redirect.setHeaders(request.getAllHeaders());
+          }
+          currentTarget = URIUtils.extractHost(redirect.getURI());
+          current = redirect;
+          redirected = true;
+        }
+      }
+      catch (HttpException e) {
+        response.close();
+        throw new ClientProtocolException(e);
+      }
+      catch (IOException | RuntimeException e) {
+        response.close();
+        throw e;
+      }
+      if (!redirected) {
+        return response;
+      }
+      response.close();
+      log.debug("Redirecting to {}", currentTarget);
+    }
+  }
+
+  private CloseableHttpResponse executeWithRetries(
+      final HttpHost target,
+      final HttpRequest request,
+      final RequestConfig config) throws IOException
+  {
+    for (int attempt = 0; ; attempt++) {
+      try {
+        return send(target, request, config);
+      }
+      catch (IOException e) {
+        if (attempt >= retries || !isRetriable(request, e)) {
+          throw e;
+        }
+        log.debug("Retrying {} {} after {}", request.getRequestLine().getMethod(), target, e.toString());
+      }
+    }
+  }
+
+  private CloseableHttpResponse send(
+      final HttpHost target,
+      final HttpRequest request,
+      final RequestConfig config) throws IOException
+  {
+    HttpClient current = client;
+    if (current == null) {
+      throw new IllegalStateException("Client closed");
+    }
+    URI uri = requestUri(target, request);
+    String method = request.getRequestLine().getMethod();
+
+    java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(uri);
+    if (!cleartext && "http".equalsIgnoreCase(uri.getScheme())) {
+      // avoid h2c upgrade requests which some plain HTTP remotes reject
+      builder.version(Version.HTTP_1_1);
+    }
+    if (config.getSocketTimeout() > 0) {
+      // only bounds the wait for the response headers, the body is bounded by StreamInputStream
+      builder.timeout(Duration.ofMillis(config.getSocketTimeout()));
+    }
+    for (Header header : request.getAllHeaders()) {
+      if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase(Locale.ENGLISH))) {
+        builder.header(header.getName(), header.getValue());
+      }
+    }
+    headers.forEach(builder::header);
+    if (userAgent != null && !request.containsHeader(USER_AGENT)) {
+      builder.header(USER_AGENT, userAgent);
+    }
+    if (preemptiveAuthorization != null && !request.containsHeader(AUTHORIZATION)) {
+      builder.header(AUTHORIZATION, preemptiveAuthorization);
+    }
+    if (contentCompression && !request.containsHeader(ACCEPT_ENCODING)) {
+      builder.header(ACCEPT_ENCODING, "gzip,deflate");
+    }
+    builder.method(method, bodyPublisher(request, builder));
+
+    HostMetrics metrics = factory.hostMetrics(uri.getHost());
+    metrics.streamStarted();
+    java.net.http.HttpResponse<InputStream> remote;
+    try {
+      remote = current.send(builder.build(), BodyHandlers.ofInputStream());
+    }
+    catch (InterruptedException e) {
+      metrics.streamFinished();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted sending " + method + " " + uri);
+    }
+    catch (IOException | RuntimeException e) {
+      metrics.streamFinished();
+      throw e;
+    }
+    if (remote.version() == Version.HTTP_2) {
+      metrics.http2Stream(this);
+    }
+    return response(method, remote, metrics, config.getSocketTimeout());
+  }
+
+  private static BodyPublisher bodyPublisher(
+      final HttpRequest request,
+      final java.net.http.HttpRequest.Builder builder)
+  {
+    if (!(request instanceof HttpEntityEnclosingRequest)) {
+      return BodyPublishers.noBody();
+    }
+    HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+    if (entity == null) {
+      return BodyPublishers.noBody();
+    }
+    if (entity.getContentType() != null && !request.containsHeader(CONTENT_TYPE)) {
+      builder.header(CONTENT_TYPE, entity.getContentType().getValue());
+    }
+    BodyPublisher content = BodyPublishers.ofInputStream(() -> {
+      try {
+        return entity.getContent();
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    long length = entity.getContentLength();
+    return length >= 0 ? BodyPublishers.fromPublisher(content, length) : content;
+  }
+
+  private CloseableHttpResponse response(
+      final String method,
+      final java.net.http.HttpResponse<InputStream> remote,
+      final HostMetrics metrics,
+      final int socketTimeout) throws IOException
+  {
+    int status = remote.statusCode();
+    ProtocolVersion version = remote.version() == Version.HTTP_2 ? HTTP_2 : HttpVersion.HTTP_1_1;
+    Response response = new Response(new BasicStatusLine(version, status,
+        EnglishReasonPhraseCatalog.INSTANCE.getReason(status, Locale.ENGLISH)));
+    remote.headers().map().forEach((name, values) -> {
+      if (!name.startsWith(":")) {
+        values.forEach(value -> response.addHeader(name, value));
+      }
+    });
+
+    InputStream body = new StreamInputStream(remote.body(), metrics, idleTimer, socketTimeout);
+    if ("HEAD".equals(method) || status == HttpStatus.SC_NO_CONTENT || status == HttpStatus.SC_NOT_MODIFIED) {
+      body.close();
+      return response;
+    }
+
+    long length = remote.headers().firstValueAsLong(CONTENT_LENGTH).orElse(-1);
+    Header contentEncoding = response.getFirstHeader(CONTENT_ENCODING);
+    if (contentCompression && contentEncoding != null) {
+      String encoding = contentEncoding.getValue().toLowerCase(Locale.ENGLISH);
+      if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+        body = new GZIPInputStream(body);
+      }
+      else if ("deflate".equals(encoding)) {
+        body = new InflaterInputStream(body);
+      }
+      if (body instanceof InflaterInputStream) {
+        response.removeHeaders(CONTENT_ENCODING);
+        response.removeHeaders(CONTENT_LENGTH);
+        response.removeHeaders(CONTENT_MD5);
+        length = -1;
+      }
+    }
+
+    BasicHttpEntity entity = new BasicHttpEntity();
+    entity.setContent(body);
+    entity.setContentLength(length);
+    entity.setContentType(response.getFirstHeader(CONTENT_TYPE));
+    response.setEntity(entity);
+    return response;
+  }
+
+  private static URI requestUri(final HttpHost target, final HttpRequest request) throws ClientProtocolException {
+    try {
+      URI uri = request instanceof HttpUriRequest
+          ? ((HttpUriRequest) request).getURI()
+          : URI.create(request.getRequestLine().getUri());
+      return uri.isAbsolute() ? uri : URIUtils.resolve(URI.create(target.toURI()), uri);
+    }
+    catch (IllegalArgumentException e) {
+      throw new ClientProtocolException(e);
+    }
+  }
+
+  private static boolean isRetriable(final HttpRequest request, final IOException e) {
+    if (e instanceof InterruptedIOException || e instanceof HttpTimeoutException || e instanceof UnknownHostException
+        || e instanceof ConnectException || e instanceof SSLException) {
+      return false;
+    }
+    if (!IDEMPOTENT_METHODS.contains(request.getRequestLine().getMethod())) {
+      return false;
+    }
+    if (request instanceof HttpEntityEnclosingRequest) {
+      HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+      return entity == null || entity.isRepeatable();
+    }
+    return true;
+  }
+
+  /**
+   * Releases the JDK client, which has no means to be closed on Java 17; its idle connections and selector thread go
+   * once it is garbage collected, while responses already received can still be read.
+   */
+  @Override
+  public void close() {
+    client = null;
+    factory.closed(this);
+  }
+
+  /**
+   * @deprecated not supported by this client
+   */
+  @Deprecated
+  @Override
+  public HttpParams getParams() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @deprecated not supported by this client
+   */
+  @Deprecated
+  @Override
+  public ClientConnectionManager getConnectionManager() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "userAgent='" + userAgent + '\'' +
+        ", retries=" + retries +
+        '}';
+  }
+
+  /**
+   * Response whose entity is the remote stream; closing it releases the stream.
+   */
+  private static class Response
+      extends BasicHttpResponse
+      implements CloseableHttpResponse
+  {
+    Response(final BasicStatusLine statusLine) {
+      super(statusLine);
+    }
+
+    @Override
+    public void close() throws IOException {
+      HttpEntity entity = getEntity();
+      if (entity != null && entity.isStreaming()) {
+        entity.getContent().close();
+      }
+    }
+  }
+
+  /**
+   * Remote response body which ends the stream in the host metrics once read or closed, and which is aborted once a
+   * read has waited longer than the socket timeout for data.
+   */
+  private static class StreamInputStream
+      extends FilterInputStream
+  {
+    private final HostMetrics metrics;
+
+    private final ScheduledExecutorService idleTimer;
+
+    private final long idleTimeoutNanos;
+
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    // thread blocked reading, guarded by this
+    private Thread reader;
+
+    // guarded by this
+    private long readStarted;
+
+    // guarded by this
+    private ScheduledFuture<?> idleCheck;
+
+    // guarded by this
+    private boolean timedOut;
+
+    StreamInputStream(
+        final InputStream in,
+        final HostMetrics metrics,
+        final ScheduledExecutorService idleTimer,
+        final int socketTimeout)
+    {
+      super(in);
+      this.metrics = metrics;
+      this.idleTimer = idleTimer;
+      this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(socketTimeout);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = timed(super::read);
+      if (b < 0) {
+        finish();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int off, final int len) throws IOException {
+      int n = timed(() -> super.read(bytes, off, len));
+      if (n < 0) {
+        finish();
+      }
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      }
+      finally {
+        finish();
+      }
+    }
+
+    private int timed(final Read read) throws IOException {
+      if (idleTimeoutNanos <= 0) {
+        return read.read();
+      }
+      beginRead();
+      try {
+        return read.read();
+      }
+      catch (IOException e) {
+        throw isTimedOut() ? readTimedOut(e) : e;
+      }
+      finally {
+        endRead();
+      }
+    }
+
+    private synchronized void beginRead() throws SocketTimeoutException {
+      if (timedOut) {
+        throw readTimedOut(null);
+      }
+      reader = Thread.currentThread();
+      readStarted = System.nanoTime();
+      if (idleCheck == null) {
+        idleCheck = idleTimer.schedule(this::checkIdle, idleTimeoutNanos, TimeUnit.NANOSECONDS);
+      }
+    }
+
+    private synchronized void endRead() {
+      reader = null;
+      if (timedOut) {
+        // clear the interrupt which unblocked the read
+        Thread.interrupted();
+      }
+    }
+
+    private synchronized boolean isTimedOut() {
+      return timedOut;
+    }
+
+    /**
+     * Aborts the stream if the current read has been waiting for longer than the timeout, otherwise checks again
+     * once it could have.
+     */
+    private synchronized void checkIdle() {
+      idleCheck = null;
+      if (reader == null || finished.get()) {
+        return;
+      }
+      long idle = System.nanoTime() - readStarted;
+      if (idle < idleTimeoutNanos) {
+        idleCheck = idleTimer.schedule(this::checkIdle, idleTimeoutNanos - idle, TimeUnit.NANOSECONDS);
+        return;
+      }
+      log.debug("Aborting response stream idle for {} ms", TimeUnit.NANOSECONDS.toMillis(idle));
+      timedOut = true;
+      try {
+        in.close();
+      }
+      catch (IOException | RuntimeException e) {
+        log.trace("Failed to close response stream", e);
+      }
+      reader.interrupt();
+      finish();
+    }
+
+    private static SocketTimeoutException readTimedOut(@Nullable final IOException cause) {
+      SocketTimeoutException e = new SocketTimeoutException("Read timed out");
+      if (cause != null) {
+        e.initCause(cause);
+      }
+      return e;
+    }
+
+    private void finish() {
+      if (finished.compareAndSet(false, true)) {
+        metrics.streamFinished();
+      }
+    }
+  }
+
+  private interface Read
+  {
+    int read() throws IOException;
+  }
+}
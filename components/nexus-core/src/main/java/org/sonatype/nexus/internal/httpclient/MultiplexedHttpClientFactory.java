@@ -0,0 +1,341 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.httpclient;
+
+import java.net.CookieManager;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.net.ssl.SSLContext;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.httpclient.HttpClientPlan;
+import org.sonatype.nexus.httpclient.SSLContextSelector;
+import org.sonatype.nexus.httpclient.config.AuthenticationConfiguration;
+import org.sonatype.nexus.httpclient.config.ConnectionConfiguration;
+import org.sonatype.nexus.httpclient.config.HttpClientConfiguration;
+import org.sonatype.nexus.httpclient.config.NtlmAuthenticationConfiguration;
+import org.sonatype.nexus.httpclient.config.ProxyConfiguration;
+import org.sonatype.nexus.httpclient.config.ProxyServerConfiguration;
+import org.sonatype.nexus.httpclient.config.UsernameAuthenticationConfiguration;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.RedirectStrategy;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultRedirectStrategy;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * Creates {@link MultiplexedHttpClient}s, which multiplex concurrent requests to the same host over a single HTTP/2
+ * connection where the remote supports it, and keeps per-host stream metrics for them.
+ *
+ * Only configurations the multiplexed transport can honour are supported; clients using an outbound proxy, NTLM
+ * authentication, username authentication which is not preemptive (the remote may challenge for DIGEST, which the
+ * JDK client does not answer) or a custom authentication strategy are left to the pooled HTTP/1.1 client.
+ *
+ * The JDK client cannot be closed on Java 17, its connections and selector thread are released once it is no longer
+ * referenced, so closed clients drop their reference to it and in-flight responses can still be read.
+ *
+ * @see HttpClientManagerImpl#createMultiplexed(HttpClientConfiguration)
+ */
+@Named
+@Singleton
+public class MultiplexedHttpClientFactory
+    extends ComponentSupport
+{
+  private final List<SSLContextSelector> sslContextSelectors;
+
+  private final DefaultsCustomizer defaultsCustomizer;
+
+  private final boolean cleartext;
+
+  private final ExecutorService executor;
+
+  private final ScheduledExecutorService idleTimer;
+
+  private final ConcurrentMap<String, HostMetrics> hostMetrics = new ConcurrentHashMap<>();
+
+  private MetricRegistry metricRegistry;
+
+  @Inject
+  public MultiplexedHttpClientFactory(
+      final List<SSLContextSelector> sslContextSelectors,
+      final DefaultsCustomizer defaultsCustomizer,
+      @Named("${nexus.httpclient.http2.cleartext:-false}") final boolean cleartext)
+  {
+    this.sslContextSelectors = checkNotNull(sslContextSelectors);
+    this.defaultsCustomizer = checkNotNull(defaultsCustomizer);
+    this.cleartext = cleartext;
+    this.executor = Executors.newCachedThreadPool(new NexusThreadFactory("httpclient-http2", "httpclient-http2"));
+    this.idleTimer = Executors.newSingleThreadScheduledExecutor(
+        new NexusThreadFactory("httpclient-http2-idle", "httpclient-http2"));
+  }
+
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  /**
+   * Creates a multiplexed client from the given plan, which has had the global and instance configurations applied,
+   * or returns {@code null} if the configuration is not supported.
+   */
+  @Nullable
+  public CloseableHttpClient create(
+      final HttpClientPlan plan,
+      final HttpClientConfiguration global,
+      final HttpClientConfiguration instance)
+  {
+    return create(plan, global, instance,
+        new ImmutableHttpProcessor(new HttpRequestInterceptor[0], new HttpResponseInterceptor[0]));
+  }
+
+  /**
+   * Creates a multiplexed client as {@link #create(HttpClientPlan, HttpClientConfiguration, HttpClientConfiguration)}
+   * does, whose requests and responses also go through the given processor, such as the outbound request logging the
+   * pooled client installs as interceptors.
+   */
+  @Nullable
+  public CloseableHttpClient create(
+      final HttpClientPlan plan,
+      final HttpClientConfiguration global,
+      final HttpClientConfiguration instance,
+      final HttpProcessor httpProcessor)
+  {
+    String unsupported = unsupported(global, instance);
+    if (unsupported != null) {
+      log.debug("Using HTTP/1.1 client, multiplexing does not support {}", unsupported);
+      return null;
+    }
+
+    RequestConfig requestConfig = plan.getRequest().build();
+    HttpClient.Builder builder = HttpClient.newBuilder()
+        .version(Version.HTTP_2)
+        .followRedirects(Redirect.NEVER)
+        .executor(executor)
+        .sslContext(selectSslContext(plan));
+    if (requestConfig.getConnectTimeout() > 0) {
+      builder.connectTimeout(Duration.ofMillis(requestConfig.getConnectTimeout()));
+    }
+    if (requestConfig.getCookieSpec() != null && !CookieSpecs.IGNORE_COOKIES.equals(requestConfig.getCookieSpec())) {
+      builder.cookieHandler(new CookieManager());
+    }
+
+    // only preemptive username authentication gets this far, see unsupported
+    Credentials credentials = plan.getCredentials().getCredentials(AuthScope.ANY);
+    String preemptiveAuthorization = null;
+    if (credentials != null && credentials.getUserPrincipal() != null) {
+      String username = credentials.getUserPrincipal().getName();
+      String password = credentials.getPassword() != null ? credentials.getPassword() : "";
+      preemptiveAuthorization = "Basic " +
+          Base64.getEncoder().encodeToString((username + ":" + password).getBytes(ISO_8859_1));
+    }
+
+    RedirectStrategy redirectStrategy = firstNonNull(instance.getRedirectStrategy(), global.getRedirectStrategy());
+
+    return new MultiplexedHttpClient(
+        builder.build(),
+        this,
+        requestConfig,
+        plan.getHeaders(),
+        plan.getAttributes(),
+        plan.getCredentials(),
+        httpProcessor,
+        plan.getUserAgent(),
+        preemptiveAuthorization,
+        redirectStrategy != null ? redirectStrategy : DefaultRedirectStrategy.INSTANCE,
+        !Boolean.TRUE.equals(firstNonNull(instance.getDisableContentCompression(),
+            global.getDisableContentCompression())),
+        retries(global, instance),
+        cleartext,
+        idleTimer);
+  }
+
+  /**
+   * Returns the metrics of the given host, or {@code null} if no requests have been made to it.
+   */
+  @Nullable
+  public HostMetrics getHostMetrics(final String host) {
+    return hostMetrics.get(host);
+  }
+
+  HostMetrics hostMetrics(final String host) {
+    return hostMetrics.computeIfAbsent(host, this::newHostMetrics);
+  }
+
+  /**
+   * Forgets a client which has been closed.
+   */
+  void closed(final MultiplexedHttpClient client) {
+    hostMetrics.values().forEach(metrics -> metrics.clients.remove(client));
+  }
+
+  private HostMetrics newHostMetrics(final String host) {
+    HostMetrics metrics = new HostMetrics();
+    if (metricRegistry != null) {
+      String prefix = MetricRegistry.name("nexus.httpclient.http2", host);
+      metricRegistry.register(MetricRegistry.name(prefix, "activeStreams"), (Gauge<Integer>) metrics::getActiveStreams);
+      metricRegistry.register(MetricRegistry.name(prefix, "streams"), (Gauge<Long>) metrics::getStreams);
+      metricRegistry.register(MetricRegistry.name(prefix, "http2Streams"), (Gauge<Long>) metrics::getHttp2Streams);
+      metricRegistry.register(MetricRegistry.name(prefix, "clients"), (Gauge<Integer>) metrics::getClients);
+    }
+    return metrics;
+  }
+
+  private SSLContext selectSslContext(final HttpClientPlan plan) {
+    HttpContext context = new BasicHttpContext();
+    plan.getAttributes().forEach(context::setAttribute);
+    for (SSLContextSelector selector : sslContextSelectors) {
+      SSLContext sslContext = selector.select(context);
+      if (sslContext != null) {
+        return sslContext;
+      }
+    }
+    try {
+      return SSLContext.getDefault();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private int retries(final HttpClientConfiguration global, final HttpClientConfiguration instance) {
+    Integer retries = null;
+    for (HttpClientConfiguration configuration : List.of(global, instance)) {
+      ConnectionConfiguration connection = configuration.getConnection();
+      if (connection != null && connection.getRetries() != null) {
+        retries = connection.getRetries();
+      }
+    }
+    return retries != null ? retries : defaultsCustomizer.getRetryCount();
+  }
+
+  @Nullable
+  private static String unsupported(final HttpClientConfiguration global, final HttpClientConfiguration instance) {
+    for (HttpClientConfiguration configuration : List.of(global, instance)) {
+      if (hasProxy(configuration.getProxy())) {
+        return "proxy servers";
+      }
+      if (configuration.getAuthenticationStrategy() != null) {
+        return "authentication strategies";
+      }
+    }
+    AuthenticationConfiguration authentication = firstNonNull(instance.getAuthentication(),
+        global.getAuthentication());
+    if (authentication instanceof NtlmAuthenticationConfiguration) {
+      return "NTLM authentication";
+    }
+    if (authentication instanceof UsernameAuthenticationConfiguration && !authentication.isPreemptive()) {
+      return "DIGEST authentication";
+    }
+    return null;
+  }
+
+  private static boolean hasProxy(@Nullable final ProxyConfiguration proxy) {
+    return proxy != null && (isEnabled(proxy.getHttp()) || isEnabled(proxy.getHttps()));
+  }
+
+  private static boolean isEnabled(@Nullable final ProxyServerConfiguration server) {
+    return server != null && server.isEnabled();
+  }
+
+  @Nullable
+  private static <T> T firstNonNull(@Nullable final T first, @Nullable final T second) {
+    return first != null ? first : second;
+  }
+
+  /**
+   * Stream metrics of a remote host.
+   */
+  public static class HostMetrics
+  {
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    private final AtomicLong streams = new AtomicLong();
+
+    private final AtomicLong http2Streams = new AtomicLong();
+
+    private final Set<MultiplexedHttpClient> clients = ConcurrentHashMap.newKeySet();
+
+    void streamStarted() {
+      activeStreams.incrementAndGet();
+      streams.incrementAndGet();
+    }
+
+    void streamFinished() {
+      activeStreams.decrementAndGet();
+    }
+
+    void http2Stream(final MultiplexedHttpClient client) {
+      http2Streams.incrementAndGet();
+      clients.add(client);
+    }
+
+    /**
+     * Requests in flight, including those whose response is still being read.
+     */
+    public int getActiveStreams() {
+      return activeStreams.get();
+    }
+
+    public long getStreams() {
+      return streams.get();
+    }
+
+    /**
+     * Requests which were multiplexed over HTTP/2, the rest having fallen back to HTTP/1.1.
+     */
+    public long getHttp2Streams() {
+      return http2Streams.get();
+    }
+
+    /**
+     * Open clients which have multiplexed requests to the host over HTTP/2.
+     */
+    public int getClients() {
+      return clients.size();
+    }
+  }
+}
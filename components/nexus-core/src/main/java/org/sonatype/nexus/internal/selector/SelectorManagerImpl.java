@@ -64,6 +64,7 @@ import org.sonatype.nexus.selector.SelectorManager;
 import org.sonatype.nexus.selector.SelectorSqlBuilder;
 import org.sonatype.nexus.selector.VariableSource;
 
+import com.codahale.metrics.annotation.Timed;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -263,6 +264,7 @@ public class SelectorManagerImpl
 
   @Override
   @Guarded(by = STARTED)
+  @Timed
   public boolean evaluate(
       final SelectorConfiguration selectorConfiguration,
       final VariableSource variableSource) throws SelectorEvaluationException
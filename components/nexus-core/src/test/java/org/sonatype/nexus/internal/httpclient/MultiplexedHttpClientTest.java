@@ -0,0 +1,266 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.httpclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.httpclient.HttpClientPlan;
+import org.sonatype.nexus.httpclient.config.ProxyConfiguration;
+import org.sonatype.nexus.httpclient.config.ProxyServerConfiguration;
+import org.sonatype.nexus.httpclient.config.UsernameAuthenticationConfiguration;
+import org.sonatype.nexus.internal.httpclient.MultiplexedHttpClientFactory.HostMetrics;
+
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.util.EntityUtils;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link MultiplexedHttpClient} against a local cleartext HTTP/2 server.
+ */
+public class MultiplexedHttpClientTest
+    extends TestSupport
+{
+  private static final String CONTENT = "multiplexed content";
+
+  @Mock
+  private DefaultsCustomizer defaultsCustomizer;
+
+  private final CountDownLatch released = new CountDownLatch(1);
+
+  private Server server;
+
+  private String baseUrl;
+
+  private MultiplexedHttpClientFactory underTest;
+
+  private CloseableHttpClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new Server();
+    HttpConfiguration httpConfiguration = new HttpConfiguration();
+    ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(httpConfiguration),
+        new HTTP2CServerConnectionFactory(httpConfiguration));
+    connector.setPort(0);
+    server.addConnector(connector);
+    server.setHandler(new AbstractHandler()
+    {
+      @Override
+      public void handle(
+          final String target,
+          final Request baseRequest,
+          final HttpServletRequest request,
+          final HttpServletResponse response) throws IOException
+      {
+        baseRequest.setHandled(true);
+        if ("/redirect".equals(target)) {
+          response.sendRedirect("/content");
+        }
+        else if ("/content".equals(target)) {
+          response.setContentType("text/plain");
+          response.getOutputStream().write(CONTENT.getBytes(UTF_8));
+        }
+        else if ("/stall".equals(target)) {
+          response.setContentType("text/plain");
+          response.getOutputStream().write(CONTENT.getBytes(UTF_8));
+          response.flushBuffer();
+          try {
+            released.await(30, TimeUnit.SECONDS);
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        else {
+          response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+      }
+    });
+    server.start();
+    baseUrl = "http://localhost:" + connector.getLocalPort();
+
+    when(defaultsCustomizer.getRetryCount()).thenReturn(0);
+    underTest = new MultiplexedHttpClientFactory(Collections.emptyList(), defaultsCustomizer, true);
+    client = underTest.create(new HttpClientPlan(), new TestHttpClientConfiguration(),
+        new TestHttpClientConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    released.countDown();
+    if (client != null) {
+      client.close();
+    }
+    server.stop();
+  }
+
+  @Test
+  public void requestsAreMultiplexedOverHttp2() throws Exception {
+    assertThat(client, notNullValue());
+    assertThat(get("/content"), is(CONTENT));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(() -> get("/content")));
+      }
+      for (Future<String> result : results) {
+        assertThat(result.get(10, TimeUnit.SECONDS), is(CONTENT));
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    HostMetrics metrics = underTest.getHostMetrics("localhost");
+    assertThat(metrics, notNullValue());
+    assertThat(metrics.getStreams(), is(9L));
+    assertThat(metrics.getHttp2Streams(), is(9L));
+    assertThat(metrics.getActiveStreams(), is(0));
+    assertThat(metrics.getClients(), is(1));
+
+    client.close();
+    client = null;
+    assertThat(metrics.getClients(), is(0));
+  }
+
+  @Test
+  public void redirectsAreFollowed() throws Exception {
+    assertThat(get("/redirect"), is(CONTENT));
+  }
+
+  @Test
+  public void processorSeesEachRequestAndResponse() throws Exception {
+    List<String> requests = new ArrayList<>();
+    List<Integer> statuses = new ArrayList<>();
+    client.close();
+    HttpRequestInterceptor requestInterceptor =
+        (request, context) -> requests.add(request.getRequestLine().getUri());
+    HttpResponseInterceptor responseInterceptor =
+        (response, context) -> statuses.add(response.getStatusLine().getStatusCode());
+    client = underTest.create(new HttpClientPlan(), new TestHttpClientConfiguration(),
+        new TestHttpClientConfiguration(), new ImmutableHttpProcessor(new HttpRequestInterceptor[]{requestInterceptor},
+            new HttpResponseInterceptor[]{responseInterceptor}));
+
+    assertThat(get("/redirect"), is(CONTENT));
+    assertThat(requests, contains(baseUrl + "/redirect", baseUrl + "/content"));
+    assertThat(statuses, contains(HttpServletResponse.SC_FOUND, HttpServletResponse.SC_OK));
+  }
+
+  @Test
+  public void missingContentIsReported() throws Exception {
+    try (CloseableHttpResponse response = client.execute(new HttpGet(baseUrl + "/missing"))) {
+      assertThat(response.getStatusLine().getStatusCode(), is(HttpServletResponse.SC_NOT_FOUND));
+      EntityUtils.consume(response.getEntity());
+    }
+  }
+
+  @Test
+  public void stalledResponseBodyTimesOut() throws Exception {
+    HttpClientPlan plan = new HttpClientPlan();
+    plan.getRequest().setSocketTimeout(500);
+    client.close();
+    client = underTest.create(plan, new TestHttpClientConfiguration(), new TestHttpClientConfiguration());
+
+    try (CloseableHttpResponse response = client.execute(new HttpGet(baseUrl + "/stall"))) {
+      assertThat(response.getStatusLine().getStatusCode(), is(HttpServletResponse.SC_OK));
+      long start = System.nanoTime();
+      try (InputStream body = response.getEntity().getContent()) {
+        byte[] buffer = new byte[1024];
+        while (body.read(buffer) != -1) {
+          // consume until the remote stalls
+        }
+        fail("Expected the stalled body to time out");
+      }
+      catch (SocketTimeoutException e) {
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), lessThan(10L));
+      }
+    }
+    assertThat(underTest.getHostMetrics("localhost").getActiveStreams(), is(0));
+  }
+
+  @Test
+  public void usernameAuthenticationIsOnlySupportedPreemptively() {
+    UsernameAuthenticationConfiguration authentication = new UsernameAuthenticationConfiguration();
+    authentication.setUsername("user");
+    TestHttpClientConfiguration instance = new TestHttpClientConfiguration();
+    instance.setAuthentication(authentication);
+
+    assertThat(underTest.create(new HttpClientPlan(), new TestHttpClientConfiguration(), instance), nullValue());
+
+    authentication.setPreemptive(true);
+    assertThat(underTest.create(new HttpClientPlan(), new TestHttpClientConfiguration(), instance), notNullValue());
+  }
+
+  @Test
+  public void proxyServersAreNotSupported() {
+    ProxyServerConfiguration http = new ProxyServerConfiguration();
+    http.setEnabled(true);
+    http.setHost("proxy");
+    http.setPort(8080);
+    ProxyConfiguration proxy = new ProxyConfiguration();
+    proxy.setHttp(http);
+
+    assertThat(underTest.create(new HttpClientPlan(), new TestHttpClientConfiguration(proxy),
+        new TestHttpClientConfiguration()), nullValue());
+  }
+
+  private String get(final String path) throws IOException {
+    try (CloseableHttpResponse response = client.execute(new HttpGet(baseUrl + path))) {
+      assertThat(response.getStatusLine().getStatusCode(), is(HttpServletResponse.SC_OK));
+      assertThat(response.getStatusLine().getProtocolVersion(), is(new HttpVersion(2, 0)));
+      return EntityUtils.toString(response.getEntity(), UTF_8);
+    }
+  }
+}
@@ -15,6 +15,7 @@ package org.sonatype.nexus.httpclient;
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.httpclient.HttpClientPlan.Customizer;
+import org.sonatype.nexus.httpclient.config.ConfigurationCustomizer;
 import org.sonatype.nexus.httpclient.config.HttpClientConfiguration;
 
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -49,6 +50,15 @@ public interface HttpClientManager
    */
   CloseableHttpClient create();
 
+  /**
+   * Create customized HTTP-client which multiplexes concurrent requests to the same host over HTTP/2 connections
+   * where possible; by default, or when the configuration cannot be honoured that way, the same as
+   * {@link #create(Customizer)} with a {@link ConfigurationCustomizer}.
+   */
+  default CloseableHttpClient createMultiplexed(final HttpClientConfiguration configuration) {
+    return create(new ConfigurationCustomizer(configuration));
+  }
+
   /**
    * Create customized HTTP-client builder.
    *
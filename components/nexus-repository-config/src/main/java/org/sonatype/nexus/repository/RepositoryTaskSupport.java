@@ -98,8 +98,11 @@ public abstract class RepositoryTaskSupport
     return null;
   }
 
+  /**
+   * Returns the repositories this task is configured to run against.
+   */
   @Nonnull
-  private Iterable<Repository> findRepositories() {
+  protected Iterable<Repository> findRepositories() {
     final String repositoryName = getRepositoryField();
     checkArgument(!Strings.isNullOrEmpty(repositoryName));
     if (ALL_REPOSITORIES.equals(repositoryName)) {
@@ -15,13 +15,11 @@ package org.sonatype.nexus.repository.content.browse;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -48,8 +46,9 @@ import org.sonatype.nexus.repository.content.event.asset.AssetUploadedEvent;
 import org.sonatype.nexus.repository.content.event.component.ComponentDeletedEvent;
 import org.sonatype.nexus.repository.content.event.component.ComponentPurgedEvent;
 import org.sonatype.nexus.repository.content.store.ContentStoreEvent;
+import org.sonatype.nexus.repository.content.utils.CoalescingBuffer;
 
-import com.google.common.collect.ArrayListMultimap;
+import com.codahale.metrics.annotation.Gauge;
 import com.google.common.collect.Multimap;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
@@ -57,6 +56,7 @@ import com.google.common.eventbus.Subscribe;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Integer.parseInt;
+import static java.util.stream.Collectors.toList;
 import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_ENABLED;
 import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
@@ -102,9 +102,7 @@ public class BrowseEventHandler
 
   private final FlushEventReceiver flushEventReceiver = new FlushEventReceiver();
 
-  private final Map<String, Repository> pendingAssets = new ConcurrentHashMap<>();
-
-  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final CoalescingBuffer<String, Repository> pendingAssets;
 
   private final Set<Repository> repositoriesToTrim = ConcurrentHashMap.newKeySet();
 
@@ -141,6 +139,7 @@ public class BrowseEventHandler
     this.eventManager = checkNotNull(eventManager);
     checkArgument(flushOnCount > 0, FLUSH_ON_COUNT_KEY + " must be positive");
     this.flushOnCount = flushOnCount;
+    this.pendingAssets = new CoalescingBuffer<>(flushOnCount);
     checkArgument(flushOnSeconds > 0, FLUSH_ON_SECONDS_KEY + " must be positive");
     this.flushOnSeconds = flushOnSeconds;
     this.noPurgeDelay = noPurgeDelay;
@@ -213,6 +212,31 @@ public class BrowseEventHandler
     }
   }
 
+  @Gauge(name = "nexus.browse.eventHandler.requests.received")
+  public long receivedRequests() {
+    return pendingAssets.getReceivedCount();
+  }
+
+  @Gauge(name = "nexus.browse.eventHandler.requests.coalesced")
+  public long coalescedRequests() {
+    return pendingAssets.getCoalescedCount();
+  }
+
+  @Gauge(name = "nexus.browse.eventHandler.requests.flushed")
+  public long flushedRequests() {
+    return pendingAssets.getDrainedCount();
+  }
+
+  @Gauge(name = "nexus.browse.eventHandler.batches.flushed")
+  public long flushedBatches() {
+    return pendingAssets.getBatchCount();
+  }
+
+  @Gauge(name = "nexus.browse.eventHandler.requests.pending")
+  public int pendingRequestCount() {
+    return pendingAssets.getPendingCount();
+  }
+
   /**
    * Marks asset as requiring updating in its browse tree.
    */
@@ -222,14 +246,11 @@ public class BrowseEventHandler
       log.debug("Missing repository for event {}", event);
       return;
     }
-    // bump count if this is the first time we've seen this request key in this batch
-    if (pendingAssets.put(requestKey(event), repository.get()) == null) {
-      pendingCount.getAndIncrement();
-    }
+    pendingAssets.put(requestKey(event), repository.get());
 
-    // if there are lots of pending requests then reduce count by a page and
+    // if there are lots of pending requests then reserve a page and
     // trigger an asynchronous flush event (which will actually do the work)
-    if (pendingCount.getAndUpdate(c -> c >= flushOnCount ? c - flushOnCount : c) >= flushOnCount) {
+    if (pendingAssets.reservePage()) {
       eventManager.post(new FlushEvent());
     }
   }
@@ -290,7 +311,7 @@ public class BrowseEventHandler
    * Used by scheduled flush task to poll for work.
    */
   void pollBrowseUpdateRequests() {
-    if (pendingCount.get() > 0) {
+    if (pendingAssets.hasUnreserved()) {
       flushPageOfAssets();
     }
 
@@ -301,23 +322,16 @@ public class BrowseEventHandler
    * Grabs a page of assets and updates the browse tree.
    */
   void flushPageOfAssets() {
-    Multimap<Repository, EntityId> requestsByRepository = ArrayListMultimap.create();
-
-    // only allow one thread to remove entries at a time while still allowing other threads to add entries
+    // only allow one thread to update browse trees at a time while still allowing other threads to add entries
     synchronized (flushMutex) {
 
       // remove page of assets and invert it to get mapping from repository to assets
-      Iterator<Entry<String, Repository>> itr = pendingAssets.entrySet().iterator();
-      for (int i = 0; i < flushOnCount && itr.hasNext(); i++) {
-        Entry<String, Repository> entry = itr.next();
-
-        // these requests are scoped per-repository so it is safe to drop the format here
-        requestsByRepository.put(entry.getValue(), assetId(entry.getKey()));
-        itr.remove();
-      }
+      Multimap<Repository, String> requestsByRepository = pendingAssets.drainPage(null);
 
       // deliver requests to the relevant repositories
-      requestsByRepository.asMap().forEach((repository, assetIds) -> {
+      requestsByRepository.asMap().forEach((repository, requestKeys) -> {
+        // these requests are scoped per-repository so it is safe to drop the format here
+        List<EntityId> assetIds = requestKeys.stream().map(this::assetId).collect(toList());
         try {
           cooperation.on(() -> {
             repository.optionalFacet(BrowseFacet.class)
@@ -19,7 +19,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -37,6 +39,7 @@ import org.sonatype.nexus.repository.content.browse.store.BrowseNodeDAO;
 import org.sonatype.nexus.repository.content.browse.store.BrowseNodeData;
 import org.sonatype.nexus.repository.content.browse.store.BrowseNodeManager;
 import org.sonatype.nexus.repository.content.browse.store.BrowseNodeStore;
+import org.sonatype.nexus.repository.content.browse.store.BrowseNodeTree;
 import org.sonatype.nexus.repository.content.facet.ContentFacet;
 import org.sonatype.nexus.repository.content.facet.ContentFacetSupport;
 import org.sonatype.nexus.repository.content.fluent.FluentAsset;
@@ -49,8 +52,10 @@ import com.google.common.base.Stopwatch;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.max;
+import static java.util.stream.Collectors.toList;
 import static java.util.Map.Entry;
 import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
+import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
 import static org.sonatype.nexus.scheduling.CancelableHelper.checkCancellation;
 
@@ -80,23 +85,40 @@ public class BrowseFacetImpl
 
   private final int pageSize;
 
+  private final boolean bulkRebuild;
+
+  private final int bulkBatchSize;
+
   private String format;
 
   private BrowseNodeGenerator browseNodeGenerator;
 
   private BrowseNodeManager browseNodeManager;
 
+  public BrowseFacetImpl(
+      final Map<String, FormatStoreManager> formatStoreManagersByFormat,
+      final Map<String, BrowseNodeGenerator> browseNodeGeneratorsByFormat,
+      final PackageUrlService packageUrlService,
+      final int pageSize)
+  {
+    this(formatStoreManagersByFormat, browseNodeGeneratorsByFormat, packageUrlService, pageSize, false, pageSize);
+  }
+
   @Inject
   public BrowseFacetImpl(
       final Map<String, FormatStoreManager> formatStoreManagersByFormat,
       final Map<String, BrowseNodeGenerator> browseNodeGeneratorsByFormat,
       final PackageUrlService packageUrlService,
-      @Named("${nexus.browse.rebuild.pageSize:-1000}") final int pageSize)
+      @Named("${nexus.browse.rebuild.pageSize:-1000}") final int pageSize,
+      @Named("${nexus.browse.rebuild.bulk.enabled:-false}") final boolean bulkRebuild,
+      @Named("${nexus.browse.rebuild.bulk.batchSize:-1000}") final int bulkBatchSize)
   {
     this.formatStoreManagersByFormat = checkNotNull(formatStoreManagersByFormat);
     this.browseNodeGeneratorsByFormat = checkNotNull(browseNodeGeneratorsByFormat);
     this.packageUrlService = checkNotNull(packageUrlService);
     this.pageSize = max(pageSize, 1);
+    this.bulkRebuild = bulkRebuild;
+    this.bulkBatchSize = max(bulkBatchSize, 1);
   }
 
   @Override
@@ -132,12 +154,19 @@ public class BrowseFacetImpl
 
     Map<Integer, Integer> componentsProcessed = newComponentCache();
 
-    assetIds.stream()
+    List<FluentAsset> assets = assetIds.stream()
         .map(lookup::find)
         .filter(Optional::isPresent)
         .map(Optional::get)
-        .filter(fluentAsset -> !browseNodeManager.hasAssetNode(fluentAsset))
-        .forEach(fluentAsset -> createBrowseNodes(fluentAsset, componentsProcessed));
+        .collect(toList());
+
+    // check the whole batch for existing nodes in one go
+    Set<Integer> assetsWithNodes = browseNodeManager.findAssetsWithNodes(assets);
+
+    assets.stream()
+        .filter(fluentAsset -> !assetsWithNodes.contains(internalAssetId(fluentAsset)))
+        .forEach(fluentAsset -> createBrowseNodes(fluentAsset, componentsProcessed,
+            browseNodeManager::createBrowseNodes));
   }
 
   @Guarded(by = STARTED)
@@ -149,6 +178,11 @@ public class BrowseFacetImpl
   @Guarded(by = STARTED)
   @Override
   public void rebuildBrowseNodes(final Consumer<String> progressUpdater) {
+    if (bulkRebuild) {
+      bulkRebuildBrowseNodes(progressUpdater);
+      return;
+    }
+
     log.info("Deleting browse nodes for repository {}", getRepository().getName());
 
     browseNodeManager.deleteBrowseNodes();
@@ -205,10 +239,64 @@ public class BrowseFacetImpl
     return Optional.ofNullable(browseNodeManager.getByRequestPath(requestPath));
   }
 
+  /**
+   * Rebuilds the browse nodes of the repository by computing the whole tree in memory, then loading it in batches
+   * and merging it into the existing nodes.
+   */
+  private void bulkRebuildBrowseNodes(final Consumer<String> progressUpdater) {
+    String repositoryName = getRepository().getName();
+    BrowseNodeTree tree = new BrowseNodeTree();
+    // browse nodes of uploads made during the rebuild come after this one and are kept
+    long lastNodeId = browseNodeManager.lastBrowseNodeId();
+
+    log.info("Computing browse nodes for repository {}", repositoryName);
+
+    if (!createAllBrowseNodes(progressUpdater, tree::add)) {
+      return;
+    }
+
+    log.info("Loading {} browse nodes for repository {}", tree.size(), repositoryName);
+
+    try {
+      ProgressLogIntervalHelper progressLogger = new ProgressLogIntervalHelper(log, 60);
+      Stopwatch sw = Stopwatch.createStarted();
+      long total = tree.size();
+
+      browseNodeManager.replaceBrowseNodes(tree, lastNodeId, bulkBatchSize, processed -> {
+        long elapsed = max(sw.elapsed(TimeUnit.MILLISECONDS), 1);
+        String phase = processed <= total ? "Loaded" : "Merged";
+        long nodes = processed <= total ? processed : processed - total;
+        progressLogger.info("{} {} / {} {} browse nodes in {} ms ({} nodes/s)",
+            phase, nodes, total, repositoryName, elapsed, processed * 1000 / elapsed);
+        if (progressUpdater != null) {
+          progressUpdater.accept(String.format("%s %d / %d browse nodes", phase, nodes, total));
+        }
+        checkCancellation();
+      });
+
+      progressLogger.flush(); // ensure the final progress message is flushed
+    }
+    catch (Exception e) {
+      log.error("Unable to load rebuilt browse nodes for repository {}", repositoryName, e);
+    }
+  }
+
   /**
    * Create browse nodes for every asset and their components in the repository.
    */
   private void createAllBrowseNodes(final Consumer<String> progressUpdater) {
+    createAllBrowseNodes(progressUpdater, browseNodeManager::createBrowseNodes);
+  }
+
+  /**
+   * Create browse nodes for every asset and their components in the repository using the given node creator.
+   *
+   * @return {@code true} if all assets were processed
+   */
+  private boolean createAllBrowseNodes(
+      final Consumer<String> progressUpdater,
+      final BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator)
+  {
     String repositoryName = getRepository().getName();
     try {
       FluentAssets assets = getRepository().facet(ContentFacet.class).assets();
@@ -224,7 +312,7 @@ public class BrowseFacetImpl
 
         Continuation<FluentAsset> page = assets.browse(pageSize, null);
         while (!page.isEmpty()) {
-          page.forEach(fluentAsset -> createBrowseNodes(fluentAsset, processedComponents));
+          page.forEach(fluentAsset -> createBrowseNodes(fluentAsset, processedComponents, nodeCreator));
           processed += page.size();
 
           long elapsed = sw.elapsed(TimeUnit.MILLISECONDS);
@@ -247,9 +335,11 @@ public class BrowseFacetImpl
 
         progressLogger.flush(); // ensure the final progress message is flushed
       }
+      return true;
     }
     catch (Exception e) {
       log.error("Unable to rebuild browse nodes for repository {}", repositoryName, e);
+      return false;
     }
   }
 
@@ -257,23 +347,31 @@ public class BrowseFacetImpl
    * Create browse nodes for an asset and it's component. Using a cache of component ids to limit component
    * nodes being recreated
    */
-  private void createBrowseNodes(final FluentAsset asset, final Map<Integer, Integer> componentsProcessed) {
+  private void createBrowseNodes(
+      final FluentAsset asset,
+      final Map<Integer, Integer> componentsProcessed,
+      final BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator)
+  {
     if (browseNodeGenerator.hasMultipleAssetsPerComponent()) {
-      createAssetBrowseNodes(asset);
-      asset.component().ifPresent(component -> createComponentBrowseNodes(asset, component, componentsProcessed));
+      createAssetBrowseNodes(asset, nodeCreator);
+      asset.component().ifPresent(
+          component -> createComponentBrowseNodes(asset, component, componentsProcessed, nodeCreator));
     }
     else {
-      createCombinedAssetAndComponentBrowseNodes(asset);
+      createCombinedAssetAndComponentBrowseNodes(asset, nodeCreator);
     }
   }
 
   /**
    * Create browse nodes for each segment in an asset's path, assigning the asset to the final node
    */
-  private void createAssetBrowseNodes(final FluentAsset asset) {
+  private void createAssetBrowseNodes(
+      final FluentAsset asset,
+      final BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator)
+  {
     List<BrowsePath> assetPaths = browseNodeGenerator.computeAssetPaths(asset);
     if (!assetPaths.isEmpty()) {
-      browseNodeManager.createBrowseNodes(assetPaths, node -> node.setAsset(asset));
+      nodeCreator.accept(assetPaths, node -> node.setAsset(asset));
     }
   }
 
@@ -284,14 +382,15 @@ public class BrowseFacetImpl
   private void createComponentBrowseNodes(
       final FluentAsset asset,
       final Component component,
-      final Map<Integer, Integer> componentsProcessed)
+      final Map<Integer, Integer> componentsProcessed,
+      final BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator)
   {
     Integer internalComponentId = internalComponentId(component);
     // null will be returned when adding a key that isn't already in the cache
     if (componentsProcessed.put(internalComponentId, internalComponentId) == null) {
       List<BrowsePath> componentPaths = browseNodeGenerator.computeComponentPaths(asset);
       if (!componentPaths.isEmpty()) {
-        browseNodeManager.createBrowseNodes(componentPaths, node -> {
+        nodeCreator.accept(componentPaths, node -> {
           node.setComponent(component);
           findPackageUrl(component).map(PackageUrl::toString).ifPresent(node::setPackageUrl);
         });
@@ -302,10 +401,13 @@ public class BrowseFacetImpl
   /**
    * Create browse nodes for each segment in the asset's path, and assign the asset and component to the final node
    */
-  private void createCombinedAssetAndComponentBrowseNodes(final FluentAsset asset) {
+  private void createCombinedAssetAndComponentBrowseNodes(
+      final FluentAsset asset,
+      final BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator)
+  {
     List<BrowsePath> assetPaths = browseNodeGenerator.computeAssetPaths(asset);
     if (!assetPaths.isEmpty()) {
-      browseNodeManager.createBrowseNodes(assetPaths, node -> {
+      nodeCreator.accept(assetPaths, node -> {
         node.setAsset(asset);
         asset.component().ifPresent(component -> {
           node.setComponent(component);
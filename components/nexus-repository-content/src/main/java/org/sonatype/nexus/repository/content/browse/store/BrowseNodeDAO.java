@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.repository.content.browse.store;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -65,6 +66,11 @@ public interface BrowseNodeDAO
    */
   boolean hasAssetNode(@Param("assetId") int assetId);
 
+  /**
+   * Which of these assets already have a browse node?
+   */
+  List<Integer> findAssetsWithNodes(@Param("assetIds") Collection<Integer> assetIds);
+
   /**
    * Merges the given browse node with the tree of nodes in the content data store.
    *
@@ -89,6 +95,103 @@ public interface BrowseNodeDAO
    */
   boolean deleteBrowseNodes(@Param("repositoryId") int repositoryId, @Param("limit") int limit);
 
+  /**
+   * Inserts rebuilt browse nodes at the given level of the tree into the shadow table.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param depth the level of the nodes in the tree, {@code 0} being the top level
+   * @param first the ordinal of the first node within its level
+   * @param nodes the nodes to insert
+   */
+  void insertRebuiltBrowseNodes(
+      @Param("repositoryId") int repositoryId,
+      @Param("depth") int depth,
+      @Param("first") int first,
+      @Param("nodes") List<BrowseNodeTree.Node> nodes);
+
+  /**
+   * Returns the id of the most recently created browse node in the given repository, {@code 0} if there is none.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   */
+  long lastBrowseNodeId(@Param("repositoryId") int repositoryId);
+
+  /**
+   * Counts the rebuilt browse nodes at the given level of the tree whose parent is missing.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param depth the level of the nodes in the tree, {@code 0} being the top level
+   */
+  int countOrphanedRebuiltBrowseNodes(@Param("repositoryId") int repositoryId, @Param("depth") int depth);
+
+  /**
+   * Clears assets from browse nodes created up to the given id, which the batch of rebuilt nodes assigns to another
+   * request path.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param depth the level of the nodes in the tree, {@code 0} being the top level
+   * @param from the ordinal of the first rebuilt node in the batch
+   * @param to the ordinal after the last rebuilt node in the batch
+   * @param lastNodeId the id of the last browse node created before the rebuild started
+   */
+  void releaseRebuiltBrowseNodeAssets(
+      @Param("repositoryId") int repositoryId,
+      @Param("depth") int depth,
+      @Param("from") int from,
+      @Param("to") int to,
+      @Param("lastNodeId") long lastNodeId);
+
+  /**
+   * Updates browse nodes created up to the given id from the batch of rebuilt nodes with the same request path.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param depth the level of the nodes in the tree, {@code 0} being the top level
+   * @param from the ordinal of the first rebuilt node in the batch
+   * @param to the ordinal after the last rebuilt node in the batch
+   * @param lastNodeId the id of the last browse node created before the rebuild started
+   */
+  void updateRebuiltBrowseNodes(
+      @Param("repositoryId") int repositoryId,
+      @Param("depth") int depth,
+      @Param("from") int from,
+      @Param("to") int to,
+      @Param("lastNodeId") long lastNodeId);
+
+  /**
+   * Copies the batch of rebuilt browse nodes which have no browse node with the same request path yet, linking them
+   * to their parents. Nodes whose parent is missing are skipped.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param depth the level of the nodes in the tree, {@code 0} being the top level
+   * @param from the ordinal of the first rebuilt node in the batch
+   * @param to the ordinal after the last rebuilt node in the batch
+   */
+  void copyRebuiltBrowseNodes(
+      @Param("repositoryId") int repositoryId,
+      @Param("depth") int depth,
+      @Param("from") int from,
+      @Param("to") int to);
+
+  /**
+   * Deletes browse nodes created up to the given id which are not part of the rebuilt tree and have no children.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param lastNodeId the id of the last browse node created before the rebuild started
+   * @param limit when positive limits the number of browse nodes deleted per-call
+   * @return {@code true} if any browse nodes were deleted
+   */
+  boolean deleteStaleBrowseNodes(
+      @Param("repositoryId") int repositoryId,
+      @Param("lastNodeId") long lastNodeId,
+      @Param("limit") int limit);
+
+  /**
+   * Deletes all rebuilt browse nodes in the given repository from the shadow table.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   */
+  void deleteRebuiltBrowseNodes(@Param("repositoryId") int repositoryId);
+
   /**
    * Deletes a browse node by its asset internal id and path.
    *
@@ -12,9 +12,12 @@
  */
 package org.sonatype.nexus.repository.content.browse.store;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -26,7 +29,12 @@ import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.transaction.Transactional;
 
+import com.google.common.collect.Lists;
+
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Math.min;
+import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.toList;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
 
@@ -81,6 +89,16 @@ public class BrowseNodeManager
     return browseNodeStore.hasAssetNode(internalAssetId(asset));
   }
 
+  /**
+   * Which of these assets already have a browse node? Returns their internal ids, using a single query.
+   */
+  public Set<Integer> findAssetsWithNodes(final Collection<? extends Asset> assets) {
+    if (assets.isEmpty()) {
+      return emptySet();
+    }
+    return browseNodeStore.findAssetsWithNodes(assets.stream().map(asset -> internalAssetId(asset)).collect(toList()));
+  }
+
   /**
    * Creates browse nodes for the path, applying a final step to the last node.
    */
@@ -139,6 +157,63 @@ public class BrowseNodeManager
     browseNodeStore.deleteBrowseNodes(repositoryId);
   }
 
+  /**
+   * Returns the id of the most recently created browse node of the repository, {@code 0} if there is none.
+   */
+  public long lastBrowseNodeId() {
+    return browseNodeStore.lastBrowseNodeId(repositoryId);
+  }
+
+  /**
+   * Replaces the browse nodes associated with the repository with the given tree. Nodes are inserted into a shadow
+   * table in batches, then merged in batches so the existing nodes remain browsable throughout. Nodes created after
+   * the rebuild started are kept, nodes created before it which are not part of the tree are deleted at the end.
+   *
+   * @param tree the rebuilt tree of browse nodes
+   * @param lastNodeId the id of the last browse node created before the rebuild started
+   * @param batchSize the number of nodes inserted or merged per transaction
+   * @param progress receives the number of nodes loaded and then merged so far after each batch, reaching twice the
+   *                 size of the tree at the end
+   */
+  public void replaceBrowseNodes(
+      final BrowseNodeTree tree,
+      final long lastNodeId,
+      final int batchSize,
+      final LongConsumer progress)
+  {
+    browseNodeStore.deleteRebuiltBrowseNodes(repositoryId);
+    try {
+      long processed = 0;
+      for (int depth = 0; depth < tree.depth(); depth++) {
+        int first = 0;
+        for (List<BrowseNodeTree.Node> batch : Lists.partition(tree.level(depth), batchSize)) {
+          browseNodeStore.insertRebuiltBrowseNodes(repositoryId, depth, first, batch);
+          first += batch.size();
+          processed += batch.size();
+          progress.accept(processed);
+        }
+      }
+      for (int depth = 0; depth < tree.depth(); depth++) {
+        int orphaned = browseNodeStore.countOrphanedRebuiltBrowseNodes(repositoryId, depth);
+        if (orphaned > 0) {
+          log.warn("Skipping {} rebuilt browse nodes at depth {} in repository {} whose parent node is missing",
+              orphaned, depth, repositoryId);
+        }
+        int size = tree.level(depth).size();
+        for (int from = 0; from < size; from += batchSize) {
+          int to = min(from + batchSize, size);
+          browseNodeStore.mergeRebuiltBrowseNodes(repositoryId, depth, from, to, lastNodeId);
+          processed += to - from;
+          progress.accept(processed);
+        }
+      }
+      browseNodeStore.deleteStaleBrowseNodes(repositoryId, lastNodeId);
+    }
+    finally {
+      browseNodeStore.deleteRebuiltBrowseNodes(repositoryId);
+    }
+  }
+
   /**
    * Deletes a browse node based on internal asset Id and node path.
    */
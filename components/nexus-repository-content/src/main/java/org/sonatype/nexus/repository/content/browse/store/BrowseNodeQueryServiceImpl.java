@@ -14,6 +14,7 @@ package org.sonatype.nexus.repository.content.browse.store;
 
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -184,13 +185,14 @@ public class BrowseNodeQueryServiceImpl
         .map(facet -> facet.getByDisplayPath(displayPath, maxNodes, contentFilter, filterParams))
         .orElse(ImmutableList.of());
 
-    if (hasJexl) {
-      // additional filtering that we couldn't do in SQL
+    if (hasJexl && !nodes.isEmpty()) {
+      // additional filtering that we couldn't do in SQL, checked for the whole page at once
       String repositoryName = repository.getName();
       String format = repository.getFormat().getValue();
-      nodes = nodes.stream()
-          .filter(node -> contentAuthHelper.checkPathPermissionsJexlOnly(node.getPath(), format, repositoryName))
-          .collect(toList());
+      List<String> paths = nodes.stream().map(BrowseNode::getPath).collect(toList());
+      BitSet permitted = contentAuthHelper.checkPathPermissionsJexlOnly(paths, format, repositoryName);
+      List<BrowseNode> candidates = nodes;
+      nodes = permitted.stream().mapToObj(candidates::get).collect(toList());
     }
 
     return nodes;
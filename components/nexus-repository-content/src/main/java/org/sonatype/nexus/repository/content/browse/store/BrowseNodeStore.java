@@ -12,8 +12,11 @@
  */
 package org.sonatype.nexus.repository.content.browse.store;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -80,6 +83,14 @@ public class BrowseNodeStore<T extends BrowseNodeDAO>
     return dao().hasAssetNode(assetId);
   }
 
+  /**
+   * Which of these assets already have a browse node?
+   */
+  @Transactional
+  public Set<Integer> findAssetsWithNodes(final Collection<Integer> assetIds) {
+    return new HashSet<>(dao().findAssetsWithNodes(assetIds));
+  }
+
   /**
    * Merges the given browse node with the tree of nodes in the content data store.
    *
@@ -126,6 +137,98 @@ public class BrowseNodeStore<T extends BrowseNodeDAO>
     return deleted;
   }
 
+  /**
+   * Inserts rebuilt browse nodes at the given level of the tree into the shadow table.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param depth the level of the nodes in the tree, {@code 0} being the top level
+   * @param first the ordinal of the first node within its level
+   * @param nodes the nodes to insert
+   */
+  @Transactional
+  public void insertRebuiltBrowseNodes(
+      final int repositoryId,
+      final int depth,
+      final int first,
+      final List<BrowseNodeTree.Node> nodes)
+  {
+    dao().insertRebuiltBrowseNodes(repositoryId, depth, first, nodes);
+  }
+
+  /**
+   * Returns the id of the most recently created browse node in the given repository, {@code 0} if there is none.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   */
+  @Transactional
+  public long lastBrowseNodeId(final int repositoryId) {
+    return dao().lastBrowseNodeId(repositoryId);
+  }
+
+  /**
+   * Counts the rebuilt browse nodes at the given level of the tree whose parent is missing.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param depth the level of the nodes in the tree, {@code 0} being the top level
+   */
+  @Transactional
+  public int countOrphanedRebuiltBrowseNodes(final int repositoryId, final int depth) {
+    return dao().countOrphanedRebuiltBrowseNodes(repositoryId, depth);
+  }
+
+  /**
+   * Merges a batch of rebuilt browse nodes into the browse nodes of the given repository. Nodes created before the
+   * rebuild started are updated to match the rebuilt tree, missing nodes are added. Nodes created since are left as
+   * they are, so browse nodes of concurrent uploads are kept.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param depth the level of the nodes in the tree, {@code 0} being the top level
+   * @param from the ordinal of the first rebuilt node in the batch
+   * @param to the ordinal after the last rebuilt node in the batch
+   * @param lastNodeId the id of the last browse node created before the rebuild started
+   */
+  @Transactional
+  public void mergeRebuiltBrowseNodes(
+      final int repositoryId,
+      final int depth,
+      final int from,
+      final int to,
+      final long lastNodeId)
+  {
+    dao().releaseRebuiltBrowseNodeAssets(repositoryId, depth, from, to, lastNodeId);
+    dao().updateRebuiltBrowseNodes(repositoryId, depth, from, to, lastNodeId);
+    dao().copyRebuiltBrowseNodes(repositoryId, depth, from, to);
+  }
+
+  /**
+   * Deletes browse nodes created before the rebuild started which are not part of the rebuilt tree.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param lastNodeId the id of the last browse node created before the rebuild started
+   * @return {@code true} if any browse nodes were deleted
+   */
+  @Transactional
+  public boolean deleteStaleBrowseNodes(final int repositoryId, final long lastNodeId) {
+    log.debug("Deleting stale browse nodes in repository {}", repositoryId);
+    boolean deleted = false;
+    while (dao().deleteStaleBrowseNodes(repositoryId, lastNodeId, deleteBatchSize())) {
+      commitChangesSoFar();
+      deleted = true;
+    }
+    log.debug("Deleted stale browse nodes in repository {}", repositoryId);
+    return deleted;
+  }
+
+  /**
+   * Deletes all rebuilt browse nodes in the given repository from the shadow table.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   */
+  @Transactional
+  public void deleteRebuiltBrowseNodes(final int repositoryId) {
+    dao().deleteRebuiltBrowseNodes(repositoryId);
+  }
+
   /**
    * Deletes a browse node based on its internal asset Id and node path.
    *
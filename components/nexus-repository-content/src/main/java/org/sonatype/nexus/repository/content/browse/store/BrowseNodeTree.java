@@ -0,0 +1,203 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.browse.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.repository.browse.node.BrowsePath;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * In-memory tree of the browse nodes of a repository, used to rebuild them in bulk.
+ *
+ * Paths are merged the same way {@link BrowseNodeDAO#mergeBrowseNode} merges them in the database, so parent segments
+ * shared by many assets are only held (and later inserted) once. Nodes are kept per level so they can be loaded parent
+ * level first, with each node referring to its parent by request path.
+ */
+public class BrowseNodeTree
+    extends ComponentSupport
+{
+  private final Node root = new Node(null, "", "");
+
+  private final List<List<Node>> levels = new ArrayList<>();
+
+  private final Map<String, Node> nodesByPath = new HashMap<>();
+
+  private final Map<String, String> names = new HashMap<>();
+
+  private int size;
+
+  /**
+   * Adds nodes for the path, applying a final step to the last node.
+   *
+   * @see BrowseNodeManager#createBrowseNodes
+   */
+  public void add(final List<BrowsePath> paths, final Consumer<BrowseNodeData> finalStep) {
+    Node parent = root;
+    for (int i = 0; i < paths.size(); i++) {
+      BrowsePath path = paths.get(i);
+      BrowseNodeData step = null;
+      if (i == paths.size() - 1) {
+        step = new BrowseNodeData();
+        step.setRequestPath(path.getRequestPath());
+        step.setDisplayName(path.getDisplayName());
+        finalStep.accept(step);
+      }
+      parent = merge(parent, i, path, step);
+      if (parent == null) {
+        log.warn("Duplicate request path for browse node found (name = {}, path = {}), all paths = [{}]",
+            path.getDisplayName(),
+            path.getRequestPath(),
+            paths.stream()
+                .map(p -> "(" + p.getDisplayName() + ", " + p.getRequestPath() + ")")
+                .collect(Collectors.joining(", ")));
+        return;
+      }
+    }
+  }
+
+  /**
+   * Total number of nodes in the tree.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Number of levels in the tree.
+   */
+  public int depth() {
+    return levels.size();
+  }
+
+  /**
+   * Nodes at the given level, {@code 0} being the top level.
+   */
+  public List<Node> level(final int depth) {
+    return depth < levels.size() ? levels.get(depth) : emptyList();
+  }
+
+  @Nullable
+  private Node merge(final Node parent, final int depth, final BrowsePath path, @Nullable final BrowseNodeData step) {
+    String displayName = names.computeIfAbsent(path.getDisplayName(), name -> name);
+    String requestPath = path.getRequestPath();
+
+    Node node = parent.children != null ? parent.children.get(displayName) : null;
+    if (node == null) {
+      if (nodesByPath.containsKey(requestPath)) {
+        return null;
+      }
+      node = new Node(parent, displayName, requestPath);
+      if (parent.children == null) {
+        parent.children = new HashMap<>();
+      }
+      parent.children.put(displayName, node);
+      nodesByPath.put(requestPath, node);
+      while (levels.size() <= depth) {
+        levels.add(new ArrayList<>());
+      }
+      levels.get(depth).add(node);
+      size++;
+    }
+    else if (requestPath.endsWith("/") && !requestPath.equals(node.requestPath)) {
+      // same as the database merge: folder paths replace the existing request path
+      if (nodesByPath.containsKey(requestPath)) {
+        return null;
+      }
+      nodesByPath.remove(node.requestPath);
+      nodesByPath.put(requestPath, node);
+      node.requestPath = requestPath;
+    }
+
+    if (step != null) {
+      if (step.dbComponentId != null) {
+        node.componentId = step.dbComponentId;
+        node.packageUrl = step.getPackageUrl();
+      }
+      if (step.dbAssetId != null) {
+        node.assetId = step.dbAssetId;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Browse node held by the tree.
+   */
+  public static final class Node
+  {
+    @Nullable
+    private final Node parent;
+
+    private final String displayName;
+
+    private String requestPath;
+
+    @Nullable
+    private Integer componentId;
+
+    @Nullable
+    private Integer assetId;
+
+    @Nullable
+    private String packageUrl;
+
+    @Nullable
+    private Map<String, Node> children;
+
+    private Node(@Nullable final Node parent, final String displayName, final String requestPath) {
+      this.parent = parent;
+      this.displayName = displayName;
+      this.requestPath = requestPath;
+    }
+
+    /**
+     * Request path of the parent node, {@code null} for top level nodes.
+     */
+    @Nullable
+    public String getParentPath() {
+      return parent != null && parent.parent != null ? parent.requestPath : null;
+    }
+
+    public String getDisplayName() {
+      return displayName;
+    }
+
+    public String getRequestPath() {
+      return requestPath;
+    }
+
+    @Nullable
+    public Integer getComponentId() {
+      return componentId;
+    }
+
+    @Nullable
+    public Integer getAssetId() {
+      return assetId;
+    }
+
+    @Nullable
+    public String getPackageUrl() {
+      return packageUrl;
+    }
+  }
+}
@@ -12,8 +12,12 @@
  */
 package org.sonatype.nexus.repository.content.event.asset;
 
+import org.sonatype.nexus.common.event.HasCoalescingKey;
 import org.sonatype.nexus.repository.content.Asset;
 
+import static org.sonatype.nexus.repository.content.store.InternalIds.contentRepositoryId;
+import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
+
 /**
  * Event sent whenever an {@link Asset}'s LastDownloaded time changes.
  *
@@ -21,11 +25,20 @@ import org.sonatype.nexus.repository.content.Asset;
  */
 public class AssetDownloadedEvent
     extends AssetUpdatedEvent
+    implements HasCoalescingKey
 {
   public AssetDownloadedEvent(final Asset asset) {
     super(asset);
   }
 
+  /**
+   * Downloads of the same asset only differ in their timestamp, so a pending event makes later ones redundant.
+   */
+  @Override
+  public String getCoalescingKey() {
+    return contentRepositoryId(this) + ":" + internalAssetId(getAsset());
+  }
+
   @Override
   public String toString() {
     return "AssetDownloadedEvent{} " + super.toString();
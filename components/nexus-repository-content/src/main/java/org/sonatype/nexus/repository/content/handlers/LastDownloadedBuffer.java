@@ -0,0 +1,263 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.handlers;
+
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.common.scheduling.PeriodicJobService;
+import org.sonatype.nexus.common.scheduling.PeriodicJobService.PeriodicJob;
+import org.sonatype.nexus.common.time.UTC;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.facet.ContentFacet;
+import org.sonatype.nexus.repository.content.facet.ContentFacetSupport;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.content.store.AssetStore;
+
+import com.codahale.metrics.annotation.Gauge;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.TASKS;
+import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
+
+/**
+ * Buffers updates of asset last downloaded times so they can be written behind the request in batches.
+ *
+ * Downloads of the same asset are coalesced while they wait, keeping the latest time. A scheduled task periodically
+ * writes the pending times of each repository as multi-row updates; anything still pending is written on shutdown,
+ * which happens in the TASKS phase so repositories are still available.
+ * Once {@code nexus.lastDownloaded.writeBehind.maxPending} assets are pending, further downloads are not buffered and
+ * callers update the asset themselves.
+ *
+ * @see LastDownloadedHandler
+ */
+@ManagedLifecycle(phase = TASKS)
+@Named
+@Singleton
+public class LastDownloadedBuffer
+    extends LifecycleSupport
+{
+  private final PeriodicJobService periodicJobService;
+
+  private final LastDownloadedAttributeHandler lastDownloadedAttributeHandler;
+
+  private final boolean enabled;
+
+  private final int flushOnSeconds;
+
+  private final int maxPending;
+
+  private final int batchSize;
+
+  private final Map<String, PendingDownload> pending = new ConcurrentHashMap<>();
+
+  private final Object flushMutex = new Object();
+
+  private final LongAdder bufferedCount = new LongAdder();
+
+  private final LongAdder coalescedCount = new LongAdder();
+
+  private final LongAdder rejectedCount = new LongAdder();
+
+  private final LongAdder flushedCount = new LongAdder();
+
+  private final LongAdder batchCount = new LongAdder();
+
+  private final LongAdder failedCount = new LongAdder();
+
+  private volatile boolean accepting;
+
+  private PeriodicJob flushTask;
+
+  @Inject
+  public LastDownloadedBuffer(
+      final PeriodicJobService periodicJobService,
+      final LastDownloadedAttributeHandler lastDownloadedAttributeHandler,
+      @Named("${nexus.lastDownloaded.writeBehind.enabled:-false}") final boolean enabled,
+      @Named("${nexus.lastDownloaded.writeBehind.flushOnSeconds:-2}") final int flushOnSeconds,
+      @Named("${nexus.lastDownloaded.writeBehind.maxPending:-10000}") final int maxPending,
+      @Named("${nexus.lastDownloaded.writeBehind.batchSize:-500}") final int batchSize)
+  {
+    checkArgument(flushOnSeconds > 0, "Flush period must be positive");
+    checkArgument(maxPending > 0, "Maximum pending must be positive");
+    checkArgument(batchSize > 0, "Batch size must be positive");
+    this.periodicJobService = checkNotNull(periodicJobService);
+    this.lastDownloadedAttributeHandler = checkNotNull(lastDownloadedAttributeHandler);
+    this.enabled = enabled;
+    this.flushOnSeconds = flushOnSeconds;
+    this.maxPending = maxPending;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (enabled) {
+      periodicJobService.startUsing();
+      flushTask = periodicJobService.schedule(this::flush, flushOnSeconds);
+      accepting = true;
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (enabled) {
+      accepting = false;
+      flushTask.cancel();
+      periodicJobService.stopUsing();
+      flush();
+    }
+  }
+
+  /**
+   * Buffers the download of the given asset.
+   *
+   * @return {@code false} if the download was not buffered and the caller should update the asset itself
+   */
+  public boolean offer(final FluentAsset asset) {
+    if (!accepting) {
+      return false;
+    }
+    String key = asset.repository().getName() + ':' + internalAssetId(asset);
+    if (pending.size() >= maxPending && !pending.containsKey(key)) {
+      rejectedCount.increment();
+      return false;
+    }
+    if (pending.put(key, new PendingDownload(asset, UTC.now())) == null) {
+      bufferedCount.increment();
+    }
+    else {
+      coalescedCount.increment();
+    }
+    return true;
+  }
+
+  @Gauge(name = "nexus.lastDownloaded.writeBehind.buffered")
+  public long getBufferedCount() {
+    return bufferedCount.sum();
+  }
+
+  @Gauge(name = "nexus.lastDownloaded.writeBehind.coalesced")
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+
+  @Gauge(name = "nexus.lastDownloaded.writeBehind.rejected")
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  @Gauge(name = "nexus.lastDownloaded.writeBehind.flushed")
+  public long getFlushedCount() {
+    return flushedCount.sum();
+  }
+
+  @Gauge(name = "nexus.lastDownloaded.writeBehind.batches")
+  public long getBatchCount() {
+    return batchCount.sum();
+  }
+
+  @Gauge(name = "nexus.lastDownloaded.writeBehind.failed")
+  public long getFailedCount() {
+    return failedCount.sum();
+  }
+
+  @Gauge(name = "nexus.lastDownloaded.writeBehind.pending")
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Writes all pending downloads, grouped by repository.
+   */
+  @VisibleForTesting
+  void flush() {
+    // only allow one thread to write at a time while still allowing other threads to add downloads
+    synchronized (flushMutex) {
+      Map<Repository, Map<FluentAsset, OffsetDateTime>> byRepository = new HashMap<>();
+      for (Entry<String, PendingDownload> entry : pending.entrySet()) {
+        PendingDownload download = entry.getValue();
+        // a download which replaced this one while draining stays pending for the next flush
+        pending.remove(entry.getKey(), download);
+        byRepository.computeIfAbsent(download.asset.repository(), repository -> new LinkedHashMap<>())
+            .put(download.asset, download.time);
+      }
+      byRepository.forEach(this::flush);
+    }
+  }
+
+  private void flush(final Repository repository, final Map<FluentAsset, OffsetDateTime> downloads) {
+    for (List<FluentAsset> assets : Iterables.partition(downloads.keySet(), batchSize)) {
+      try {
+        Optional<AssetStore<?>> assetStore = assetStore(repository);
+        if (assetStore.isPresent()) {
+          Map<FluentAsset, OffsetDateTime> batch = new LinkedHashMap<>();
+          assets.forEach(asset -> batch.put(asset, downloads.get(asset)));
+          assetStore.get().markAllAsDownloaded(batch);
+        }
+        else {
+          assets.forEach(FluentAsset::markAsDownloaded);
+        }
+        flushedCount.add(assets.size());
+        batchCount.increment();
+      }
+      catch (RuntimeException e) {
+        failedCount.add(assets.size());
+        log.warn("Failed to update last downloaded time of {} assets in {}", assets.size(), repository.getName(),
+            log.isDebugEnabled() ? e : null);
+        continue;
+      }
+      for (FluentAsset asset : assets) {
+        try {
+          lastDownloadedAttributeHandler.writeLastDownloadedAttribute(asset);
+        }
+        catch (RuntimeException e) {
+          log.debug("Failed to write last downloaded attribute of {}", asset.path(), e);
+        }
+      }
+    }
+  }
+
+  private static Optional<AssetStore<?>> assetStore(final Repository repository) {
+    return repository.optionalFacet(ContentFacet.class)
+        .filter(ContentFacetSupport.class::isInstance)
+        .map(facet -> ((ContentFacetSupport) facet).stores().assetStore);
+  }
+
+  private static class PendingDownload
+  {
+    private final FluentAsset asset;
+
+    private final OffsetDateTime time;
+
+    PendingDownload(final FluentAsset asset, final OffsetDateTime time) {
+      this.asset = asset;
+      this.time = time;
+    }
+  }
+}
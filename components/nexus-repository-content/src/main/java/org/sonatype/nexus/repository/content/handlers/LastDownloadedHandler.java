@@ -14,6 +14,7 @@ package org.sonatype.nexus.repository.content.handlers;
 
 import java.time.OffsetDateTime;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -25,6 +26,7 @@ import org.sonatype.nexus.common.time.UTC;
 import org.sonatype.nexus.repository.capability.GlobalRepositorySettings;
 import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.proxy.ProxyFacetSupport;
 import org.sonatype.nexus.repository.view.Content;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Response;
@@ -35,7 +37,7 @@ import static org.sonatype.nexus.repository.http.HttpMethods.GET;
 import static org.sonatype.nexus.repository.http.HttpMethods.HEAD;
 
 /**
- * Updates the asset last downloaded time.
+ * Updates the asset last downloaded time, behind the request when a {@link LastDownloadedBuffer} takes the update.
  *
  * @since 3.24
  */
@@ -49,9 +51,20 @@ public class LastDownloadedHandler
 
   private LastDownloadedAttributeHandler lastDownloadedAttributeHandler;
 
-  @Inject
+  @Nullable
+  private final LastDownloadedBuffer lastDownloadedBuffer;
+
   public LastDownloadedHandler(final GlobalRepositorySettings globalSettings) {
+    this(globalSettings, null);
+  }
+
+  @Inject
+  public LastDownloadedHandler(
+      final GlobalRepositorySettings globalSettings,
+      @Nullable final LastDownloadedBuffer lastDownloadedBuffer)
+  {
     this.globalSettings = checkNotNull(globalSettings);
+    this.lastDownloadedBuffer = lastDownloadedBuffer;
   }
 
   @Inject
@@ -77,15 +90,34 @@ public class LastDownloadedHandler
   }
 
   protected void maybeUpdateLastDownloaded(final AttributesMap attributes) {
-    maybeUpdateLastDownloaded(attributes.get(Asset.class));
+    Asset asset = attributes.get(Asset.class);
+    Object stored = attributes.get(ProxyFacetSupport.STREAM_THROUGH_STORED);
+    if (asset == null && stored instanceof CompletionStage) {
+      // streamed through to the client, the asset only exists once the download has been stored
+      ((CompletionStage<?>) stored).thenAccept(content -> {
+        try {
+          if (content instanceof Content) {
+            maybeUpdateLastDownloaded(((Content) content).getAttributes().get(Asset.class));
+          }
+        }
+        catch (Exception e) {
+          log.error("Failed to update last downloaded time of streamed download", e);
+        }
+      });
+    }
+    else {
+      maybeUpdateLastDownloaded(asset);
+    }
   }
 
   protected void maybeUpdateLastDownloaded(@Nullable final Asset asset) {
     if (asset != null && !isNextUpdateInFuture(asset.lastDownloaded())) {
       if (asset instanceof FluentAsset) {
         FluentAsset fluentAsset = (FluentAsset) asset;
-        fluentAsset.markAsDownloaded();
-        lastDownloadedAttributeHandler.writeLastDownloadedAttribute(fluentAsset);
+        if (lastDownloadedBuffer == null || !lastDownloadedBuffer.offer(fluentAsset)) {
+          fluentAsset.markAsDownloaded();
+          lastDownloadedAttributeHandler.writeLastDownloadedAttribute(fluentAsset);
+        }
       }
       else {
         log.debug("Cannot mark read-only asset {} as downloaded", asset.path());
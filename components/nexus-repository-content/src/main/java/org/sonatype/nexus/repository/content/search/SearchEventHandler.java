@@ -12,18 +12,13 @@
  */
 package org.sonatype.nexus.repository.content.search;
 
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.OptionalInt;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
 import javax.inject.Named;
@@ -46,12 +41,12 @@ import org.sonatype.nexus.repository.content.event.component.ComponentUpdatedEve
 import org.sonatype.nexus.repository.content.facet.ContentFacet;
 import org.sonatype.nexus.repository.content.store.InternalIds;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.content.utils.CoalescingBuffer;
 import org.sonatype.nexus.repository.upload.UploadManager.UIUploadEvent;
 import org.sonatype.nexus.thread.NexusThreadFactory;
 
 import com.codahale.metrics.annotation.Gauge;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
@@ -109,16 +104,12 @@ public abstract class SearchEventHandler
 
   private final boolean noPurgeDelay;
 
-  private final Map<String, String> pendingRequests = new ConcurrentHashMap<>();
-
-  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final CoalescingBuffer<String, String> pendingRequests;
 
   private final int poolSize;
 
   protected ThreadPoolExecutor threadPoolExecutor;
 
-  private Object flushMutex = new Object();
-
   private PeriodicJob flushTask;
 
   private boolean processEvents = true;
@@ -135,6 +126,7 @@ public abstract class SearchEventHandler
     this.periodicJobService = checkNotNull(periodicJobService);
     checkArgument(flushOnCount > 0, FLUSH_ON_COUNT_KEY + " must be positive");
     this.flushOnCount = flushOnCount;
+    this.pendingRequests = new CoalescingBuffer<>(flushOnCount);
     checkArgument(flushOnSeconds > 0, FLUSH_ON_SECONDS_KEY + " must be positive");
     this.flushOnSeconds = flushOnSeconds;
     this.noPurgeDelay = noPurgeDelay;
@@ -179,6 +171,31 @@ public abstract class SearchEventHandler
     return threadPoolExecutor.getQueue().size();
   }
 
+  @Gauge(name = "nexus.search.eventHandler.requests.received")
+  public long receivedRequests() {
+    return pendingRequests.getReceivedCount();
+  }
+
+  @Gauge(name = "nexus.search.eventHandler.requests.coalesced")
+  public long coalescedRequests() {
+    return pendingRequests.getCoalescedCount();
+  }
+
+  @Gauge(name = "nexus.search.eventHandler.requests.flushed")
+  public long flushedRequests() {
+    return pendingRequests.getDrainedCount();
+  }
+
+  @Gauge(name = "nexus.search.eventHandler.batches.flushed")
+  public long flushedBatches() {
+    return pendingRequests.getBatchCount();
+  }
+
+  @Gauge(name = "nexus.search.eventHandler.requests.pending")
+  public int pendingRequestCount() {
+    return pendingRequests.getPendingCount();
+  }
+
   /**
    * Allow event processing to be disabled.
    *
@@ -351,16 +368,13 @@ public abstract class SearchEventHandler
   }
 
   private void markComponentAsPending(final String requestKey, final String repoTag) {
-    // bump count if this is the first time we've seen this request key in this batch
-    if (pendingRequests.put(requestKey, repoTag) == null) {
-      pendingCount.getAndIncrement();
-    }
+    pendingRequests.put(requestKey, repoTag);
   }
 
   private boolean maybeTriggerAsyncFlush() {
     // if there are lots of pending requests then reduce count by a page and
     // trigger an asynchronous flush event (which will actually do the work)
-    if (pendingCount.getAndUpdate(c -> c >= flushOnCount ? c - flushOnCount : c) >= flushOnCount) {
+    if (pendingRequests.reservePage()) {
       threadPoolExecutor.execute(() -> flushPageOfComponents(null));
       return true;
     }
@@ -381,7 +395,7 @@ public abstract class SearchEventHandler
    * Used by scheduled flush task to poll for work.
    */
   void pollSearchUpdateRequest() {
-    if (pendingCount.get() > 0) {
+    if (pendingRequests.hasUnreserved()) {
       flushPageOfComponents(null);
     }
   }
@@ -392,31 +406,21 @@ public abstract class SearchEventHandler
    * @param requestType optional request type to filter on
    */
   void flushPageOfComponents(@Nullable final RequestType requestType) {
-    Multimap<String, EntityId> requestsByRepository = ArrayListMultimap.create();
-
-    // only allow one thread to remove entries at a time while still allowing other threads to add entries
-    synchronized (flushMutex) {
-
-      // remove page and invert it to get mapping from repository to components
-      Iterator<Entry<String, String>> itr = pendingRequests.entrySet().iterator();
-      for (int i = 0; i < flushOnCount && itr.hasNext(); i++) {
-        Entry<String, String> entry = itr.next();
-
-        if (requestType == null || entry.getValue().startsWith(requestType.name())) {
-          // requests are scoped per-repository so it's safe to drop the format here
-          requestsByRepository.put(entry.getValue(), componentId(entry.getKey()));
-          itr.remove();
-        }
-      }
-    }
+    // remove page and invert it to get mapping from repository to components
+    Multimap<String, String> requestsByRepository = pendingRequests.drainPage(
+        requestType == null ? null : repoTag -> repoTag.startsWith(requestType.name()));
 
     // deliver index/purge requests to the relevant repositories
     requestsByRepository.asMap()
         .forEach(
-            (repoTag, componentIds) -> ofNullable(repositoryManager.get(repositoryName(repoTag))).ifPresent(
+            (repoTag, requestKeys) -> ofNullable(repositoryManager.get(repositoryName(repoTag))).ifPresent(
                 repository -> repository.optionalFacet(SearchFacet.class)
                     .ifPresent(
                         searchFacet -> {
+                          // requests are scoped per-repository so it's safe to drop the format here
+                          List<EntityId> componentIds = requestKeys.stream()
+                              .map(SearchEventHandler::componentId)
+                              .collect(toList());
                           if (repoTag.startsWith(INDEX.name())) {
                             searchFacet.index(componentIds);
                           }
@@ -12,10 +12,20 @@
  */
 package org.sonatype.nexus.repository.content.search.elasticsearch;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 import java.util.stream.Stream;
 
 import javax.inject.Inject;
@@ -33,17 +43,22 @@ import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.content.fluent.FluentComponents;
 import org.sonatype.nexus.repository.content.search.SearchFacet;
 import org.sonatype.nexus.repository.search.index.ElasticSearchIndexService;
+import org.sonatype.nexus.repository.search.index.RebuildIndexExecutor;
+import org.sonatype.nexus.repository.search.index.RebuildIndexThrottle;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.max;
+import static java.util.stream.Collectors.toList;
 import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
 import static org.sonatype.nexus.repository.content.store.InternalIds.toExternalId;
 import static org.sonatype.nexus.repository.search.index.SearchConstants.FORMAT;
+import static org.sonatype.nexus.repository.search.index.SearchConstants.ID;
 import static org.sonatype.nexus.repository.search.index.SearchConstants.REPOSITORY_NAME;
 import static org.sonatype.nexus.scheduling.CancelableHelper.checkCancellation;
 
@@ -65,6 +80,12 @@ public class SearchFacetImpl
 
   private final boolean bulkProcessing;
 
+  private final RebuildIndexThrottle rebuildIndexThrottle;
+
+  private final RebuildIndexExecutor rebuildIndexExecutor;
+
+  private final int pagesInFlight;
+
   private SearchDocumentProducer searchDocumentProducer;
 
   private Map<String, Object> repositoryFields;
@@ -73,12 +94,18 @@ public class SearchFacetImpl
   public SearchFacetImpl(final ElasticSearchIndexService elasticSearchIndexService,
                          final Map<String, SearchDocumentProducer> searchDocumentProducersByFormat,
                          @Named("${nexus.elasticsearch.reindex.pageSize:-1000}") final int pageSize,
-                         @Named("${nexus.elasticsearch.bulkProcessing:-true}") final boolean bulkProcessing)
+                         @Named("${nexus.elasticsearch.bulkProcessing:-true}") final boolean bulkProcessing,
+                         final RebuildIndexThrottle rebuildIndexThrottle,
+                         final RebuildIndexExecutor rebuildIndexExecutor,
+                         @Named("${nexus.elasticsearch.reindex.pagesInFlight:-4}") final int pagesInFlight)
   {
     this.elasticSearchIndexService = checkNotNull(elasticSearchIndexService);
     this.searchDocumentProducersByFormat = checkNotNull(searchDocumentProducersByFormat);
     this.pageSize = max(pageSize, 1);
     this.bulkProcessing = bulkProcessing;
+    this.rebuildIndexThrottle = checkNotNull(rebuildIndexThrottle);
+    this.rebuildIndexExecutor = checkNotNull(rebuildIndexExecutor);
+    this.pagesInFlight = max(pagesInFlight, 1);
   }
 
   @Override
@@ -159,21 +186,25 @@ public class SearchFacetImpl
         ProgressLogIntervalHelper progressLogger = new ProgressLogIntervalHelper(log, 60);
         Stopwatch sw = Stopwatch.createStarted();
 
-        long processed = 0;
-
-        Continuation<FluentComponent> page = components.browse(pageSize, null);
-        while (!page.isEmpty()) {
+        AtomicLong processed = new AtomicLong();
+        IntConsumer progress = count -> progressLogger.info("Indexed {} / {} {} components in {} ms",
+            processed.addAndGet(count), total, repositoryName, sw.elapsed(TimeUnit.MILLISECONDS));
 
-          elasticSearchIndexService.bulkPut(getRepository(), page, this::identifier, this::document);
-          processed += page.size();
+        if (rebuildIndexExecutor.isEnabled()) {
+          pipelineComponentIndex(components, progress);
+        }
+        else {
+          Continuation<FluentComponent> page = components.browse(pageSize, null);
+          while (!page.isEmpty()) {
+            rebuildIndexThrottle.acquire(page.size());
 
-          long elapsed = sw.elapsed(TimeUnit.MILLISECONDS);
-          progressLogger.info("Indexed {} / {} {} components in {} ms",
-              processed, total, repositoryName, elapsed);
+            elasticSearchIndexService.bulkPut(getRepository(), page, this::identifier, this::document);
+            progress.accept(page.size());
 
-          checkCancellation();
+            checkCancellation();
 
-          page = components.browse(pageSize, page.nextContinuationToken());
+            page = components.browse(pageSize, page.nextContinuationToken());
+          }
         }
 
         progressLogger.flush(); // ensure the final progress message is flushed
@@ -184,6 +215,69 @@ public class SearchFacetImpl
     }
   }
 
+  /**
+   * Pipelines the rebuild: pages are read on the calling thread and their search documents are produced on the shared
+   * {@link RebuildIndexExecutor}, then submitted for bulk indexing on the calling thread in page order. At most
+   * {@code pagesInFlight} pages are read ahead of submission.
+   */
+  private void pipelineComponentIndex(final FluentComponents components, final IntConsumer progress) {
+    Repository repository = getRepository();
+    Deque<CompletableFuture<List<Entry<String, String>>>> inFlight = new ArrayDeque<>();
+    try {
+      Continuation<FluentComponent> page = components.browse(pageSize, null);
+      while (!page.isEmpty()) {
+        rebuildIndexThrottle.acquire(page.size());
+
+        Continuation<FluentComponent> current = page;
+        inFlight.add(rebuildIndexExecutor.produce(() -> documents(current)));
+        if (inFlight.size() >= pagesInFlight) {
+          submitDocuments(repository, inFlight.remove(), progress);
+        }
+
+        checkCancellation();
+
+        page = components.browse(pageSize, page.nextContinuationToken());
+      }
+
+      while (!inFlight.isEmpty()) {
+        submitDocuments(repository, inFlight.remove(), progress);
+      }
+    }
+    finally {
+      // stop producing pages that will not be submitted after a failure or cancellation
+      inFlight.forEach(documents -> documents.cancel(false));
+    }
+  }
+
+  /**
+   * Waits for the documents of a page to be produced and submits them for bulk indexing.
+   */
+  private void submitDocuments(
+      final Repository repository,
+      final CompletableFuture<List<Entry<String, String>>> produced,
+      final IntConsumer progress)
+  {
+    List<Entry<String, String>> documents;
+    try {
+      documents = produced.join();
+    }
+    catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+    elasticSearchIndexService.bulkPut(repository, documents, Entry::getKey, Entry::getValue);
+    progress.accept(documents.size());
+  }
+
+  /**
+   * Produces the identifiers and JSON documents for the given components in the repository's index.
+   */
+  private List<Entry<String, String>> documents(final Collection<FluentComponent> components) {
+    return components.stream()
+        .<Entry<String, String>>map(component -> new SimpleImmutableEntry<>(identifier(component), document(component)))
+        .collect(toList());
+  }
+
   /**
    * Looks for the {@link SearchDocumentProducer} to use for the given repository format.
    */
@@ -211,11 +305,14 @@ public class SearchFacetImpl
   }
 
   /**
-   * Returns the JSON document for the given component in the repository's index.
+   * Returns the JSON document for the given component in the repository's index. The document carries its identifier
+   * qualified by the repository name, unique across all indexes, so searches can page in order of it.
    */
   private String document(final FluentComponent component) {
     try {
-      return searchDocumentProducer.getDocument(component, repositoryFields);
+      Map<String, Object> commonFields = new HashMap<>(repositoryFields);
+      commonFields.put(ID, getRepository().getName() + '/' + identifier(component));
+      return searchDocumentProducer.getDocument(component, commonFields);
     }
     catch (Exception e) {
       if (log.isDebugEnabled()) {
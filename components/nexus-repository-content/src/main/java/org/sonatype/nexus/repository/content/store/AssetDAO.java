@@ -271,6 +271,13 @@ public interface AssetDAO
    */
   void markAsDownloaded(Asset asset);
 
+  /**
+   * Updates the last downloaded times of several assets in the content data store.
+   *
+   * @param lastDownloaded the last downloaded time of each asset, keyed by internal asset id
+   */
+  void markAllAsDownloaded(@Param("lastDownloaded") Map<Integer, OffsetDateTime> lastDownloaded);
+
   /**
    * Deletes an asset from the content data store.
    *
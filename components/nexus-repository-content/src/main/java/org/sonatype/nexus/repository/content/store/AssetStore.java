@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -393,6 +394,21 @@ public class AssetStore<T extends AssetDAO>
     postCommitEvent(() -> new AssetDownloadedEvent(asset));
   }
 
+  /**
+   * Updates the last downloaded times of the given assets in the content data store in one go.
+   *
+   * @param lastDownloaded the last downloaded time of each asset
+   */
+  @Transactional
+  public void markAllAsDownloaded(final Map<? extends Asset, OffsetDateTime> lastDownloaded) {
+    // update rows in id order so concurrent batches lock them in the same order
+    Map<Integer, OffsetDateTime> byAssetId = new TreeMap<>();
+    lastDownloaded.forEach((asset, time) -> byAssetId.put(InternalIds.internalAssetId(asset), time));
+    dao().markAllAsDownloaded(byAssetId);
+
+    lastDownloaded.keySet().forEach(asset -> postCommitEvent(() -> new AssetDownloadedEvent(asset)));
+  }
+
   /**
    * Deletes an asset from the content data store.
    *
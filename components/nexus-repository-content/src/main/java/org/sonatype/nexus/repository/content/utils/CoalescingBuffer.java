@@ -0,0 +1,153 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Coalesces requests from content events so they can be handled in batches.
+ *
+ * Requests are keyed by entity, the latest request for an entity replaces any earlier request which has not yet been
+ * drained. Pages of requests are drained grouped by their target (typically the repository) so each target can be
+ * updated in one go.
+ *
+ * Event handlers drain pages periodically as well as whenever a full page has built up, which is reported by
+ * {@link #reservePage()}.
+ */
+public class CoalescingBuffer<K, T>
+{
+  private final int pageSize;
+
+  private final Map<K, T> pending = new ConcurrentHashMap<>();
+
+  private final AtomicInteger unreservedCount = new AtomicInteger();
+
+  private final Object drainMutex = new Object();
+
+  private final LongAdder receivedCount = new LongAdder();
+
+  private final LongAdder coalescedCount = new LongAdder();
+
+  private final LongAdder drainedCount = new LongAdder();
+
+  private final LongAdder batchCount = new LongAdder();
+
+  public CoalescingBuffer(final int pageSize) {
+    checkArgument(pageSize > 0, "Page size must be positive");
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Buffers a request for the given entity key against its target.
+   */
+  public void put(final K key, final T target) {
+    receivedCount.increment();
+    // bump count if this is the first time we've seen this key in this batch
+    if (pending.put(key, target) == null) {
+      unreservedCount.getAndIncrement();
+    }
+    else {
+      coalescedCount.increment();
+    }
+  }
+
+  /**
+   * Reserves a page of requests for draining if enough have built up.
+   *
+   * @return {@code true} if a page was reserved and the caller should trigger a drain
+   */
+  public boolean reservePage() {
+    return unreservedCount.getAndUpdate(c -> c >= pageSize ? c - pageSize : c) >= pageSize;
+  }
+
+  /**
+   * Are there requests which have not been reserved by {@link #reservePage()}?
+   */
+  public boolean hasUnreserved() {
+    return unreservedCount.get() > 0;
+  }
+
+  /**
+   * Removes a page of requests, grouped by target.
+   *
+   * @param filter optional filter on the targets of the requests to remove
+   */
+  public Multimap<T, K> drainPage(@Nullable final Predicate<T> filter) {
+    Multimap<T, K> page = ArrayListMultimap.create();
+
+    // only allow one thread to remove entries at a time while still allowing other threads to add entries
+    synchronized (drainMutex) {
+      Iterator<Entry<K, T>> itr = pending.entrySet().iterator();
+      for (int i = 0; i < pageSize && itr.hasNext(); i++) {
+        Entry<K, T> entry = itr.next();
+        if (filter == null || filter.test(entry.getValue())) {
+          page.put(entry.getValue(), entry.getKey());
+          itr.remove();
+        }
+      }
+    }
+
+    drainedCount.add(page.size());
+    batchCount.add(page.keySet().size());
+
+    return page;
+  }
+
+  /**
+   * @return number of requests received
+   */
+  public long getReceivedCount() {
+    return receivedCount.sum();
+  }
+
+  /**
+   * @return number of requests which replaced an earlier request for the same entity
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+
+  /**
+   * @return number of requests drained
+   */
+  public long getDrainedCount() {
+    return drainedCount.sum();
+  }
+
+  /**
+   * @return number of per-target batches drained
+   */
+  public long getBatchCount() {
+    return batchCount.sum();
+  }
+
+  /**
+   * @return number of requests waiting to be drained
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+}
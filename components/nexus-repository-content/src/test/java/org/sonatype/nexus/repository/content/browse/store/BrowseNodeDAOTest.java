@@ -19,6 +19,7 @@ import org.sonatype.nexus.common.app.VersionComparator;
 import org.sonatype.nexus.datastore.api.DataSession;
 import org.sonatype.nexus.repository.browse.node.BrowseNode;
 import org.sonatype.nexus.repository.browse.node.BrowseNodeComparator;
+import org.sonatype.nexus.repository.browse.node.BrowsePath;
 import org.sonatype.nexus.repository.browse.node.DefaultBrowseNodeComparator;
 import org.sonatype.nexus.repository.content.browse.store.example.TestBrowseNodeDAO;
 import org.sonatype.nexus.repository.content.store.AssetDAO;
@@ -40,6 +41,7 @@ import org.junit.Test;
 import static com.google.common.collect.ImmutableList.of;
 import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
@@ -364,6 +366,93 @@ public class BrowseNodeDAOTest
     }
   }
 
+  @Test
+  public void testFindAssetsWithNodes() {
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      BrowseNodeDAO dao = session.access(TestBrowseNodeDAO.class);
+
+      List<Integer> assetIds = dao.findAssetsWithNodes(asList(internalAssetId(asset1), Integer.MAX_VALUE));
+      assertThat(assetIds, contains(internalAssetId(asset1)));
+    }
+  }
+
+  @Test
+  public void testRebuiltBrowseNodesAreMergedIn() {
+    BrowseNodeTree tree = new BrowseNodeTree();
+    tree.add(asList(new BrowsePath("beta", "/b/"), new BrowsePath("two", "/b/2")),
+        node -> node.dbComponentId = internalComponentId(component2));
+    tree.add(asList(new BrowsePath("x", "/x/"), new BrowsePath("y", "/x/y")),
+        node -> node.dbAssetId = internalAssetId(asset1));
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      BrowseNodeDAO dao = session.access(TestBrowseNodeDAO.class);
+
+      long lastNodeId = dao.lastBrowseNodeId(1);
+
+      // uploaded while the rebuild is running
+      BrowseNodeData delta = createNode(null, "delta", "/d");
+      dao.mergeBrowseNode(delta);
+
+      for (int depth = 0; depth < tree.depth(); depth++) {
+        dao.insertRebuiltBrowseNodes(1, depth, 0, tree.level(depth));
+      }
+
+      // existing nodes are untouched until the rebuilt nodes are merged in
+      assertThat(getListing(dao).size(), is(4));
+
+      for (int depth = 0; depth < tree.depth(); depth++) {
+        assertThat(dao.countOrphanedRebuiltBrowseNodes(1, depth), is(0));
+        int size = tree.level(depth).size();
+        dao.releaseRebuiltBrowseNodeAssets(1, depth, 0, size, lastNodeId);
+        dao.updateRebuiltBrowseNodes(1, depth, 0, size, lastNodeId);
+        dao.copyRebuiltBrowseNodes(1, depth, 0, size);
+      }
+      while (dao.deleteStaleBrowseNodes(1, lastNodeId, 0)) {
+        // stale nodes are deleted a level at a time
+      }
+      dao.deleteRebuiltBrowseNodes(1);
+
+      List<BrowseNode> listing = getListing(dao);
+      assertThat(listing.size(), is(3));
+      assertThat(listing.get(0), sameNode(beta));
+      assertThat(listing.get(1), sameNode(delta));
+      assertThat(listing.get(2).getPath(), is("/x/"));
+
+      listing = getListing(dao, "beta");
+      assertThat(listing.size(), is(1));
+      assertThat(listing.get(0), sameNode(betaTwo));
+
+      listing = getListing(dao, "x");
+      assertThat(listing.size(), is(1));
+      assertThat(listing.get(0).getPath(), is("/x/y"));
+      assertThat(listing.get(0).getAssetId(), is(toExternalId(internalAssetId(asset1))));
+      assertThat(listing.get(0).isLeaf(), is(true));
+
+      assertThat(dao.getByRequestPath(1, "/g/1/a"), empty());
+    }
+  }
+
+  @Test
+  public void testOrphanedRebuiltBrowseNodesAreSkipped() {
+    BrowseNodeTree tree = new BrowseNodeTree();
+    tree.add(asList(new BrowsePath("z", "/z/"), new BrowsePath("y", "/z/y")), node -> { });
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      BrowseNodeDAO dao = session.access(TestBrowseNodeDAO.class);
+
+      // the parent level is never loaded
+      dao.insertRebuiltBrowseNodes(1, 1, 0, tree.level(1));
+
+      assertThat(dao.countOrphanedRebuiltBrowseNodes(1, 1), is(1));
+
+      dao.copyRebuiltBrowseNodes(1, 1, 0, 1);
+      dao.deleteRebuiltBrowseNodes(1);
+
+      assertThat(dao.getByRequestPath(1, "/z/y"), empty());
+      assertThat(getListing(dao).size(), is(3));
+    }
+  }
+
   @Test
   public void testDeleteByAssetIdAndPath() {
     assumeTrue(isPostgreSQL());
@@ -0,0 +1,103 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.browse.store;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.browse.node.BrowsePath;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Test {@link BrowseNodeTree}.
+ */
+public class BrowseNodeTreeTest
+    extends TestSupport
+{
+  private BrowseNodeTree underTest;
+
+  @Before
+  public void setUp() {
+    underTest = new BrowseNodeTree();
+  }
+
+  @Test
+  public void sharedParentSegmentsAreHeldOnce() {
+    underTest.add(paths("org/", "org/foo/", "org/foo/a.jar"), node -> node.dbAssetId = 1);
+    underTest.add(paths("org/", "org/foo/", "org/foo/b.jar"), node -> node.dbAssetId = 2);
+    underTest.add(paths("org/", "org/bar/"), node -> node.dbComponentId = 3);
+
+    assertThat(underTest.size(), is(5));
+    assertThat(underTest.depth(), is(3));
+    assertThat(requestPaths(underTest.level(0)), contains("org/"));
+    assertThat(requestPaths(underTest.level(1)), contains("org/foo/", "org/bar/"));
+    assertThat(requestPaths(underTest.level(2)), contains("org/foo/a.jar", "org/foo/b.jar"));
+
+    BrowseNodeTree.Node top = underTest.level(0).get(0);
+    assertThat(top.getParentPath(), is(nullValue()));
+    assertThat(top.getAssetId(), is(nullValue()));
+
+    BrowseNodeTree.Node bar = underTest.level(1).get(1);
+    assertThat(bar.getParentPath(), is("org/"));
+    assertThat(bar.getComponentId(), is(3));
+
+    BrowseNodeTree.Node b = underTest.level(2).get(1);
+    assertThat(b.getParentPath(), is("org/foo/"));
+    assertThat(b.getAssetId(), is(2));
+  }
+
+  @Test
+  public void mergedNodesKeepFolderPathsAndAttachments() {
+    underTest.add(asList(new BrowsePath("foo", "foo")), node -> node.dbAssetId = 1);
+    underTest.add(asList(new BrowsePath("foo", "foo/")), node -> {
+      node.dbComponentId = 2;
+      node.setPackageUrl("pkg:generic/foo");
+    });
+
+    assertThat(underTest.size(), is(1));
+    BrowseNodeTree.Node foo = underTest.level(0).get(0);
+    assertThat(foo.getRequestPath(), is("foo/"));
+    assertThat(foo.getAssetId(), is(1));
+    assertThat(foo.getComponentId(), is(2));
+    assertThat(foo.getPackageUrl(), is("pkg:generic/foo"));
+  }
+
+  @Test
+  public void duplicateRequestPathsAreSkipped() {
+    underTest.add(asList(new BrowsePath("foo", "x/")), node -> { });
+    underTest.add(asList(new BrowsePath("bar", "x/"), new BrowsePath("baz", "x/baz")), node -> node.dbAssetId = 1);
+
+    assertThat(underTest.size(), is(1));
+    assertThat(underTest.depth(), is(1));
+  }
+
+  private static List<BrowsePath> paths(final String... requestPaths) {
+    return Stream.of(requestPaths)
+        .map(path -> new BrowsePath(path.replaceAll(".*/(?=[^/]+/?$)", "").replace("/", ""), path))
+        .collect(toList());
+  }
+
+  private static List<String> requestPaths(final List<BrowseNodeTree.Node> nodes) {
+    return nodes.stream().map(BrowseNodeTree.Node::getRequestPath).collect(toList());
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.handlers;
+
+import java.util.Optional;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.scheduling.PeriodicJobService;
+import org.sonatype.nexus.common.scheduling.PeriodicJobService.PeriodicJob;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.facet.ContentFacet;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.content.store.AssetData;
+import org.sonatype.nexus.repository.content.store.WrappedContent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class LastDownloadedBufferTest
+    extends TestSupport
+{
+  @Mock
+  private PeriodicJobService periodicJobService;
+
+  @Mock
+  private PeriodicJob flushTask;
+
+  @Mock
+  private LastDownloadedAttributeHandler lastDownloadedAttributeHandler;
+
+  @Mock
+  private Repository repository;
+
+  private LastDownloadedBuffer underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(periodicJobService.schedule(any(Runnable.class), anyInt())).thenReturn(flushTask);
+    when(repository.getName()).thenReturn("maven-central");
+    when(repository.optionalFacet(ContentFacet.class)).thenReturn(Optional.empty());
+
+    underTest = new LastDownloadedBuffer(periodicJobService, lastDownloadedAttributeHandler, true, 2, 2, 10);
+  }
+
+  @Test
+  public void disabledDoesNotBuffer() throws Exception {
+    underTest = new LastDownloadedBuffer(periodicJobService, lastDownloadedAttributeHandler, false, 2, 2, 10);
+    underTest.start();
+
+    assertThat(underTest.offer(asset(1)), is(false));
+    verify(periodicJobService, never()).schedule(any(Runnable.class), anyInt());
+  }
+
+  @Test
+  public void downloadsOfSameAssetAreCoalesced() throws Exception {
+    underTest.start();
+    FluentAsset asset = asset(1);
+
+    assertThat(underTest.offer(asset), is(true));
+    assertThat(underTest.offer(asset(1)), is(true));
+
+    assertThat(underTest.getPendingCount(), is(1));
+    assertThat(underTest.getBufferedCount(), is(1L));
+    assertThat(underTest.getCoalescedCount(), is(1L));
+  }
+
+  @Test
+  public void fullBufferRejectsNewAssets() throws Exception {
+    underTest.start();
+
+    assertThat(underTest.offer(asset(1)), is(true));
+    assertThat(underTest.offer(asset(2)), is(true));
+    assertThat(underTest.offer(asset(3)), is(false));
+    assertThat(underTest.offer(asset(2)), is(true));
+
+    assertThat(underTest.getRejectedCount(), is(1L));
+  }
+
+  @Test
+  public void flushWritesPendingDownloads() throws Exception {
+    underTest.start();
+    FluentAsset asset1 = asset(1);
+    FluentAsset asset2 = asset(2);
+    underTest.offer(asset1);
+    underTest.offer(asset2);
+
+    underTest.flush();
+
+    verify(asset1).markAsDownloaded();
+    verify(asset2).markAsDownloaded();
+    verify(lastDownloadedAttributeHandler).writeLastDownloadedAttribute(asset1);
+    verify(lastDownloadedAttributeHandler).writeLastDownloadedAttribute(asset2);
+    assertThat(underTest.getPendingCount(), is(0));
+    assertThat(underTest.getFlushedCount(), is(2L));
+    assertThat(underTest.getBatchCount(), is(1L));
+
+    underTest.flush();
+
+    verify(asset1, times(1)).markAsDownloaded();
+  }
+
+  @Test
+  public void stopFlushesPendingDownloads() throws Exception {
+    underTest.start();
+    FluentAsset asset = asset(1);
+    underTest.offer(asset);
+
+    underTest.stop();
+
+    verify(flushTask).cancel();
+    verify(asset).markAsDownloaded();
+    assertThat(underTest.offer(asset(2)), is(false));
+  }
+
+  private FluentAsset asset(final int assetId) {
+    AssetData assetData = new AssetData();
+    assetData.setAssetId(assetId);
+    FluentAsset asset = mock(FluentAsset.class, withSettings().extraInterfaces(WrappedContent.class));
+    doReturn(assetData).when((WrappedContent<?>) asset).unwrap();
+    when(asset.repository()).thenReturn(repository);
+    return asset;
+  }
+}
@@ -12,6 +12,8 @@
  */
 package org.sonatype.nexus.repository.content.handlers;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.sonatype.goodies.testsupport.TestSupport;
 import org.sonatype.nexus.common.collect.AttributesMap;
 import org.sonatype.nexus.common.time.UTC;
@@ -19,6 +21,7 @@ import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.capability.GlobalRepositorySettings;
 import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.proxy.ProxyFacetSupport;
 import org.sonatype.nexus.repository.view.Content;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Request;
@@ -73,6 +76,9 @@ public class LastDownloadedHandlerTest
   @Mock
   private LastDownloadedAttributeHandler lastDownloadedAttributeHandler;
 
+  @Mock
+  private LastDownloadedBuffer lastDownloadedBuffer;
+
   private AttributesMap attributes;
 
   private LastDownloadedHandler underTest;
@@ -116,6 +122,33 @@ public class LastDownloadedHandlerTest
     assertThat(handledResponse, is(equalTo(response)));
   }
 
+  @Test
+  public void shouldLeaveUpdateToBufferWhenBuffered() throws Exception {
+    when(lastDownloadedBuffer.offer(asset)).thenReturn(true);
+    underTest = new LastDownloadedHandler(globalSettings, lastDownloadedBuffer);
+    underTest.injectExtraDependencies(lastDownloadedAttributeHandler);
+
+    Response handledResponse = underTest.handle(context);
+
+    verify(lastDownloadedBuffer).offer(asset);
+    verify(asset, never()).markAsDownloaded();
+    verify(lastDownloadedAttributeHandler, never()).writeLastDownloadedAttribute(asset);
+
+    assertThat(handledResponse, is(equalTo(response)));
+  }
+
+  @Test
+  public void shouldMarkAssetAsDownloadedWhenNotBuffered() throws Exception {
+    when(lastDownloadedBuffer.offer(asset)).thenReturn(false);
+    underTest = new LastDownloadedHandler(globalSettings, lastDownloadedBuffer);
+    underTest.injectExtraDependencies(lastDownloadedAttributeHandler);
+
+    underTest.handle(context);
+
+    verify(asset).markAsDownloaded();
+    verify(lastDownloadedAttributeHandler).writeLastDownloadedAttribute(asset);
+  }
+
   @Test
   public void shouldNotMarkAssetAsDownloadedOnFailure() throws Exception {
     when(response.getStatus()).thenReturn(new Status(false, 500));
@@ -157,6 +190,22 @@ public class LastDownloadedHandlerTest
     testNoExceptionThrownAndVerifySaveNotCalled();
   }
 
+  @Test
+  public void shouldMarkStreamedThroughAssetOnceStored() throws Exception {
+    attributes.remove(Asset.class);
+    CompletableFuture<Content> stored = new CompletableFuture<>();
+    attributes.set(ProxyFacetSupport.STREAM_THROUGH_STORED, stored);
+
+    underTest.handle(context);
+    verify(asset, never()).markAsDownloaded();
+
+    Content storedContent = new Content(new StringPayload("stored", null));
+    storedContent.getAttributes().set(Asset.class, asset);
+    stored.complete(storedContent);
+
+    verify(asset).markAsDownloaded();
+  }
+
   @Test
   public void shouldIgnoreStringContent() throws Exception {
     when(response.getPayload()).thenReturn(new StringPayload("message", null));
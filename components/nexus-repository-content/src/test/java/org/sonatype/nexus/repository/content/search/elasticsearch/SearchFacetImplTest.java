@@ -0,0 +1,218 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.search.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.entity.Continuation;
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.facet.ContentFacet;
+import org.sonatype.nexus.repository.content.fluent.FluentComponent;
+import org.sonatype.nexus.repository.content.fluent.FluentComponents;
+import org.sonatype.nexus.repository.content.fluent.internal.FluentComponentImpl;
+import org.sonatype.nexus.repository.content.store.ComponentData;
+import org.sonatype.nexus.repository.search.index.ElasticSearchIndexService;
+import org.sonatype.nexus.repository.search.index.RebuildIndexExecutor;
+import org.sonatype.nexus.repository.search.index.RebuildIndexThrottle;
+import org.sonatype.nexus.scheduling.CancelableHelper;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SearchFacetImplTest
+    extends TestSupport
+{
+  private static final int PAGE_SIZE = 2;
+
+  private static final int PAGES = 4;
+
+  @Mock
+  private Subject subject;
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private Format format;
+
+  @Mock
+  private ContentFacet contentFacet;
+
+  @Mock
+  private FluentComponents components;
+
+  @Mock
+  private ElasticSearchIndexService elasticSearchIndexService;
+
+  @Mock
+  private SearchDocumentProducer searchDocumentProducer;
+
+  private final List<String> submitted = Collections.synchronizedList(new ArrayList<>());
+
+  private RebuildIndexExecutor rebuildIndexExecutor;
+
+  private SearchFacetImpl underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(subject.associateWith(any(Callable.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(subject.associateWith(any(Runnable.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+
+    when(format.getValue()).thenReturn("test");
+    when(repository.getName()).thenReturn("test-repo");
+    when(repository.getFormat()).thenReturn(format);
+    when(repository.facet(ContentFacet.class)).thenReturn(contentFacet);
+    when(contentFacet.components()).thenReturn(components);
+    when(components.count()).thenReturn(PAGE_SIZE * PAGES);
+
+    when(searchDocumentProducer.getDocument(any(FluentComponent.class), anyMap()))
+        .thenAnswer(invocation -> "doc-" + invocation.<FluentComponent>getArgument(0).name());
+    doAnswer(invocation -> {
+      Function<Object, String> document = invocation.getArgument(3);
+      for (Object item : invocation.<Iterable<?>>getArgument(1)) {
+        submitted.add(document.apply(item));
+      }
+      return Collections.emptyList();
+    }).when(elasticSearchIndexService).bulkPut(eq(repository), any(), any(), any());
+
+    rebuildIndexExecutor = new RebuildIndexExecutor(2);
+    rebuildIndexExecutor.start();
+
+    underTest = new SearchFacetImpl(elasticSearchIndexService, ImmutableMap.of("default", searchDocumentProducer),
+        PAGE_SIZE, true, new RebuildIndexThrottle(0), rebuildIndexExecutor, 2);
+    underTest.attach(repository);
+    underTest.init();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    rebuildIndexExecutor.stop();
+    CancelableHelper.remove();
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  public void pagesAreSubmittedInOrder() {
+    pages(0);
+
+    // the first page is only produced once the second page has been produced
+    CountDownLatch secondPageProduced = new CountDownLatch(1);
+    when(searchDocumentProducer.getDocument(any(FluentComponent.class), anyMap())).thenAnswer(invocation -> {
+      String name = invocation.<FluentComponent>getArgument(0).name();
+      if ("1".equals(name)) {
+        secondPageProduced.await(5, TimeUnit.SECONDS);
+      }
+      else if ("4".equals(name)) {
+        secondPageProduced.countDown();
+      }
+      return "doc-" + name;
+    });
+
+    underTest.rebuildIndex();
+
+    assertThat(submitted, contains("doc-1", "doc-2", "doc-3", "doc-4", "doc-5", "doc-6", "doc-7", "doc-8"));
+  }
+
+  @Test
+  public void failureToProduceAPageStopsTheRebuild() {
+    pages(5);
+
+    underTest.rebuildIndex();
+
+    assertThat(submitted, contains("doc-1", "doc-2", "doc-3", "doc-4"));
+    verify(components, never()).browse(PAGE_SIZE, "4");
+  }
+
+  @Test
+  public void cancellationStopsTheRebuild() {
+    pages(0);
+
+    AtomicBoolean canceled = new AtomicBoolean();
+    CancelableHelper.set(canceled);
+    doAnswer(invocation -> {
+      canceled.set(true);
+      return Collections.emptyList();
+    }).when(elasticSearchIndexService).bulkPut(eq(repository), any(), any(), any());
+
+    underTest.rebuildIndex();
+
+    verify(components, never()).browse(PAGE_SIZE, "2");
+  }
+
+  /**
+   * Pages through components named 1 to 8, where the component with the given name (if any) is detached.
+   */
+  private void pages(final int detached) {
+    for (int page = 0; page <= PAGES; page++) {
+      ContinuationArrayList<FluentComponent> content = new ContinuationArrayList<>(Integer.toString(page + 1));
+      for (int i = 1; page < PAGES && i <= PAGE_SIZE; i++) {
+        int id = page * PAGE_SIZE + i;
+        content.add(component(id, id != detached));
+      }
+      when(components.browse(PAGE_SIZE, page == 0 ? null : Integer.toString(page))).thenReturn(content);
+    }
+  }
+
+  private static FluentComponent component(final int id, final boolean attached) {
+    ComponentData componentData = new ComponentData();
+    if (attached) {
+      componentData.setComponentId(id);
+    }
+    FluentComponentImpl component = mock(FluentComponentImpl.class);
+    when(component.unwrap()).thenReturn(componentData);
+    when(component.name()).thenReturn(Integer.toString(id));
+    return component;
+  }
+
+  private static class ContinuationArrayList<E>
+      extends ArrayList<E>
+      implements Continuation<E>
+  {
+    private final String nextContinuationToken;
+
+    ContinuationArrayList(final String nextContinuationToken) {
+      this.nextContinuationToken = nextContinuationToken;
+    }
+
+    @Override
+    public String nextContinuationToken() {
+      return nextContinuationToken;
+    }
+  }
+}
@@ -19,7 +19,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import org.sonatype.nexus.blobstore.api.BlobRef;
@@ -952,6 +954,32 @@ public class AssetDAOTestSupport
     }
   }
 
+  public void testMarkAllAsDownloaded() {
+    AssetData asset1 = randomAsset(repositoryId);
+    AssetData asset2 = randomAsset(repositoryId);
+    AssetData asset3 = randomAsset(repositoryId);
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      AssetDAO dao = session.access(TestAssetDAO.class);
+      dao.createAsset(asset1, false);
+      dao.createAsset(asset2, false);
+      dao.createAsset(asset3, false);
+
+      OffsetDateTime dateTime1 = OffsetDateTime.now(ZoneOffset.UTC).minusDays(1);
+      OffsetDateTime dateTime2 = OffsetDateTime.now(ZoneOffset.UTC).minusHours(1);
+      Map<Integer, OffsetDateTime> lastDownloaded = new TreeMap<>();
+      lastDownloaded.put(asset1.assetId, dateTime1);
+      lastDownloaded.put(asset2.assetId, dateTime2);
+      dao.markAllAsDownloaded(lastDownloaded);
+
+      assertThat(dao.readAsset(asset1.assetId).get().lastDownloaded().map(t -> t.truncatedTo(ChronoUnit.SECONDS)),
+          is(Optional.of(dateTime1.truncatedTo(ChronoUnit.SECONDS))));
+      assertThat(dao.readAsset(asset2.assetId).get().lastDownloaded().map(t -> t.truncatedTo(ChronoUnit.SECONDS)),
+          is(Optional.of(dateTime2.truncatedTo(ChronoUnit.SECONDS))));
+      assertFalse(dao.readAsset(asset3.assetId).get().lastDownloaded().isPresent());
+    }
+  }
+
   public void testLastUpdated() {
     AssetData asset1 = randomAsset(repositoryId);
     ComponentData componentData = randomComponent(repositoryId);
@@ -96,6 +96,11 @@ public class UnversionedAssetDAOTest
     super.testSetLastDownloaded();
   }
 
+  @Test
+  public void testMarkAllAsDownloaded() {
+    super.testMarkAllAsDownloaded();
+  }
+
   @Test
   public void testLastUpdated() {
     super.testLastUpdated();
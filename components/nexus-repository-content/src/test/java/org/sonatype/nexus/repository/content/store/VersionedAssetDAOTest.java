@@ -99,6 +99,11 @@ public class VersionedAssetDAOTest
     super.testSetLastDownloaded();
   }
 
+  @Test
+  public void testMarkAllAsDownloaded() {
+    super.testMarkAllAsDownloaded();
+  }
+
   @Test
   public void testLastUpdated() {
     super.testLastUpdated();
@@ -0,0 +1,79 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.utils;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import com.google.common.collect.Multimap;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+public class CoalescingBufferTest
+    extends TestSupport
+{
+  private final CoalescingBuffer<String, String> underTest = new CoalescingBuffer<>(3);
+
+  @Test
+  public void latestRequestForAnEntityWins() {
+    underTest.put("1", "INDEX:repo");
+    underTest.put("1", "PURGE:repo");
+    underTest.put("2", "INDEX:repo");
+
+    Multimap<String, String> page = underTest.drainPage(null);
+
+    assertThat(page.get("PURGE:repo"), containsInAnyOrder("1"));
+    assertThat(page.get("INDEX:repo"), containsInAnyOrder("2"));
+    assertThat(underTest.getReceivedCount(), is(3L));
+    assertThat(underTest.getCoalescedCount(), is(1L));
+    assertThat(underTest.getDrainedCount(), is(2L));
+    assertThat(underTest.getBatchCount(), is(2L));
+    assertThat(underTest.getPendingCount(), is(0));
+  }
+
+  @Test
+  public void pageIsReservedOnceEnoughRequestsBuildUp() {
+    underTest.put("1", "repo");
+    underTest.put("2", "repo");
+    assertThat(underTest.reservePage(), is(false));
+
+    underTest.put("2", "repo");
+    assertThat(underTest.reservePage(), is(false));
+
+    underTest.put("3", "repo");
+    assertThat(underTest.reservePage(), is(true));
+    assertThat(underTest.hasUnreserved(), is(false));
+
+    underTest.put("4", "repo");
+    assertThat(underTest.hasUnreserved(), is(true));
+  }
+
+  @Test
+  public void drainsOnePageOfMatchingTargets() {
+    underTest.put("1", "INDEX:a");
+    underTest.put("2", "PURGE:a");
+    underTest.put("3", "PURGE:b");
+
+    Multimap<String, String> page = underTest.drainPage(target -> target.startsWith("PURGE"));
+
+    assertThat(page.keySet(), containsInAnyOrder("PURGE:a", "PURGE:b"));
+    assertThat(underTest.getPendingCount(), is(1));
+
+    for (int i = 10; i < 20; i++) {
+      underTest.put(Integer.toString(i), "INDEX:a");
+    }
+    assertThat(underTest.drainPage(null).size(), is(3));
+  }
+}
@@ -14,6 +14,7 @@ package org.sonatype.nexus.repository.cache;
 
 import java.util.Set;
 import javax.annotation.Nonnull;
+import javax.inject.Inject;
 
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.repository.http.HttpMethods;
@@ -26,6 +27,7 @@ import org.sonatype.nexus.repository.view.Handler;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.Status;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableSet;
 
 import static org.sonatype.nexus.repository.replication.PullReplicationSupport.IS_REPLICATION_REQUEST;
@@ -35,6 +37,9 @@ import static org.sonatype.nexus.repository.replication.PullReplicationSupport.I
  * When context invocation returns 404, it caches the 404 status to avoid future invocations (if cached status is
  * present).
  *
+ * Hits and misses are recorded per repository as {@code hits} and {@code misses} meters named by
+ * {@link #metricName(String, String)}.
+ *
  * @since 3.0
  */
 public class NegativeCacheHandler
@@ -43,6 +48,20 @@ public class NegativeCacheHandler
 {
   private static final Set<String> NFC_CACHEABLE_ACTIONS = ImmutableSet.of(HttpMethods.GET, HttpMethods.HEAD);
 
+  private MetricRegistry metricRegistry;
+
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  /**
+   * Returns the name of a negative cache metric of the given repository.
+   */
+  public static String metricName(final String repositoryName, final String metric) {
+    return MetricRegistry.name(NegativeCacheHandler.class, repositoryName, metric);
+  }
+
   @Nonnull
   @Override
   public Response handle(@Nonnull final Context context) throws Exception {
@@ -69,6 +88,7 @@ public class NegativeCacheHandler
     Response response;
     Status status = negativeCache.get(key);
     if (status == null) {
+      mark(context, "misses");
       response = context.proceed();
 
       if (isNotFound(response) && !isRemoteBlocked(context)) {
@@ -81,6 +101,7 @@ public class NegativeCacheHandler
       }
     }
     else {
+      mark(context, "hits");
       response = buildResponse(status, context);
 
       log.debug("Found {} in negative cache, returning {}", key, response);
@@ -94,6 +115,12 @@ public class NegativeCacheHandler
         .build();
   }
 
+  private void mark(final Context context, final String metric) {
+    if (metricRegistry != null) {
+      metricRegistry.meter(metricName(context.getRepository().getName(), metric)).mark();
+    }
+  }
+
   private boolean isNotFound(final Response response) {
     return HttpStatus.NOT_FOUND == response.getStatus().getCode();
   }
@@ -12,8 +12,10 @@
  */
 package org.sonatype.nexus.repository.cache.internal;
 
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
 import javax.cache.Cache;
 import javax.cache.Cache.Entry;
 import javax.cache.expiry.CreatedExpiryPolicy;
@@ -28,13 +30,17 @@ import org.sonatype.nexus.cache.CacheHelper;
 import org.sonatype.nexus.common.stateguard.Guarded;
 import org.sonatype.nexus.repository.FacetSupport;
 import org.sonatype.nexus.repository.cache.NegativeCacheFacet;
+import org.sonatype.nexus.repository.cache.NegativeCacheHandler;
 import org.sonatype.nexus.repository.cache.NegativeCacheKey;
 import org.sonatype.nexus.repository.config.Configuration;
 import org.sonatype.nexus.repository.config.ConfigurationFacet;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Status;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
@@ -42,6 +48,10 @@ import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
 /**
  * Default {@link NegativeCacheFacet} implementation.
  *
+ * Entries are kept in a JCache by default. When {@code nexus.negativeCache.prefixIndex.enabled} is set they are kept
+ * in a local {@link PrefixIndexedNegativeCache} instead, which bounds the number of entries per repository and lets
+ * {@link #invalidateSubset(NegativeCacheKey)} visit only the affected paths.
+ *
  * @since 3.0
  */
 @Named
@@ -67,11 +77,20 @@ public class NegativeCacheFacetImpl
     @Min(0)
     public Integer timeToLive = Time.hours(24).toMinutesI();
 
+    /**
+     * Maximum number of entries, only applies to the prefix-indexed cache. Defaults to
+     * {@code nexus.negativeCache.prefixIndex.maxEntries} when not set.
+     */
+    @Nullable
+    @Min(1)
+    public Integer maxEntries;
+
     @Override
     public String toString() {
       return getClass().getSimpleName() + "{" +
           "enabled=" + enabled +
           ", timeToLive=" + timeToLive +
+          ", maxEntries=" + maxEntries +
           '}';
     }
   }
@@ -80,9 +99,28 @@ public class NegativeCacheFacetImpl
 
   private Cache<NegativeCacheKey, Status> cache;
 
+  private PrefixIndexedNegativeCache index;
+
+  private final boolean prefixIndexEnabled;
+
+  private final int defaultMaxEntries;
+
+  private MetricRegistry metricRegistry;
+
   @Inject
-  public NegativeCacheFacetImpl(final CacheHelper cacheHelper) {
+  public NegativeCacheFacetImpl(
+      final CacheHelper cacheHelper,
+      @Named("${nexus.negativeCache.prefixIndex.enabled:-false}") final boolean prefixIndexEnabled,
+      @Named("${nexus.negativeCache.prefixIndex.maxEntries:-100000}") final int defaultMaxEntries)
+  {
     this.cacheHelper = checkNotNull(cacheHelper);
+    this.prefixIndexEnabled = prefixIndexEnabled;
+    this.defaultMaxEntries = defaultMaxEntries;
+  }
+
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
   }
 
   @Override
@@ -113,7 +151,8 @@ public class NegativeCacheFacetImpl
 
     // re-create cache if enabled or cache settings changed
     if (config.enabled) {
-      if (!previous.enabled || !config.timeToLive.equals(previous.timeToLive)) {
+      if (!previous.enabled || !config.timeToLive.equals(previous.timeToLive) ||
+          !Objects.equals(config.maxEntries, previous.maxEntries)) {
         maybeDestroyCache();
         maybeCreateCache();
       }
@@ -132,11 +171,23 @@ public class NegativeCacheFacetImpl
 
   @Override
   protected void doDestroy() throws Exception {
+    removeMetrics();
+    if (metricRegistry != null) {
+      // hit and miss meters are created on demand by NegativeCacheHandler
+      String repositoryName = getRepository().getName();
+      metricRegistry.remove(NegativeCacheHandler.metricName(repositoryName, "hits"));
+      metricRegistry.remove(NegativeCacheHandler.metricName(repositoryName, "misses"));
+    }
     cache = null;
+    index = null;
     config = null;
   }
 
   private void maybeCreateCache() {
+    if (prefixIndexEnabled) {
+      maybeCreateIndex();
+      return;
+    }
     if (cache == null) {
       log.debug("Creating negative-cache for: {}", getRepository());
       cache = cacheHelper.maybeCreateCache(getCacheName(), NegativeCacheKey.class, Status.class,
@@ -145,7 +196,38 @@ public class NegativeCacheFacetImpl
     }
   }
 
+  private void maybeCreateIndex() {
+    if (index == null) {
+      int maxEntries = config.maxEntries != null ? config.maxEntries : defaultMaxEntries;
+      log.debug("Creating prefix-indexed negative-cache for: {} with maxEntries: {}", getRepository(), maxEntries);
+      PrefixIndexedNegativeCache created =
+          new PrefixIndexedNegativeCache(maxEntries, TimeUnit.MINUTES.toNanos(config.timeToLive), Ticker.systemTicker());
+      if (metricRegistry != null) {
+        String repositoryName = getRepository().getName();
+        removeMetrics();
+        metricRegistry.register(NegativeCacheHandler.metricName(repositoryName, "size"), (Gauge<Integer>) created::size);
+        metricRegistry.register(NegativeCacheHandler.metricName(repositoryName, "evictions"),
+            (Gauge<Long>) created::getEvictionCount);
+      }
+      index = created;
+    }
+  }
+
+  private void removeMetrics() {
+    if (metricRegistry != null) {
+      String repositoryName = getRepository().getName();
+      metricRegistry.remove(NegativeCacheHandler.metricName(repositoryName, "size"));
+      metricRegistry.remove(NegativeCacheHandler.metricName(repositoryName, "evictions"));
+    }
+  }
+
   private void maybeDestroyCache() {
+    if (prefixIndexEnabled) {
+      log.debug("Destroying prefix-indexed negative-cache for: {}", getRepository());
+      removeMetrics();
+      index = null;
+      return;
+    }
     log.debug("Destroying negative-cache for: {}", getRepository());
     cacheHelper.maybeDestroyCache(getCacheName());
     cache = null;
@@ -155,6 +237,9 @@ public class NegativeCacheFacetImpl
   @Guarded(by = STARTED)
   public Status get(final NegativeCacheKey key) {
     checkNotNull(key);
+    if (index != null) {
+      return index.get(key);
+    }
     if (cache != null) {
       return cache.get(key);
     }
@@ -166,7 +251,11 @@ public class NegativeCacheFacetImpl
   public void put(final NegativeCacheKey key, final Status status) {
     checkNotNull(key);
     checkNotNull(status);
-    if (cache != null) {
+    if (index != null) {
+      log.debug("Adding {}={} to negative-cache of {}", key, status, getRepository());
+      index.put(key, status);
+    }
+    else if (cache != null) {
       log.debug("Adding {}={} to negative-cache of {}", key, status, getRepository());
       cache.put(key, status);
     }
@@ -176,14 +265,21 @@ public class NegativeCacheFacetImpl
   @Guarded(by = STARTED)
   public void invalidate(final NegativeCacheKey key) {
     checkNotNull(key);
-    if (cache != null && cache.remove(key)) {
+    if (index != null && index.invalidate(key)) {
+      log.debug("Removing {} from negative-cache of {}", key, getRepository());
+    }
+    else if (cache != null && cache.remove(key)) {
       log.debug("Removing {} from negative-cache of {}", key, getRepository());
     }
   }
 
   @Override
   public void invalidateSubset(final NegativeCacheKey key) {
-    if (cache != null) {
+    if (index != null) {
+      int removed = index.invalidateSubset(key);
+      log.debug("Removed {} entries under {} from negative-cache of {}", removed, key, getRepository());
+    }
+    else if (cache != null) {
       invalidate(key);
       for (final Entry<NegativeCacheKey, Status> entry : cache) {
         if (!key.equals(entry.getKey()) && key.isParentOf(entry.getKey())) {
@@ -196,7 +292,11 @@ public class NegativeCacheFacetImpl
   @Override
   @Guarded(by = STARTED)
   public void invalidate() {
-    if (cache != null) {
+    if (index != null) {
+      log.debug("Removing all from negative-cache of {}", getRepository());
+      index.invalidateAll();
+    }
+    else if (cache != null) {
       log.debug("Removing all from negative-cache of {}", getRepository());
       cache.removeAll();
     }
@@ -0,0 +1,253 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.cache.internal;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.repository.cache.NegativeCacheKey;
+import org.sonatype.nexus.repository.view.Status;
+
+import com.google.common.base.Ticker;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Local negative cache store which keeps {@link PathNegativeCacheKey}s in a sorted map so that
+ * {@link #invalidateSubset(NegativeCacheKey)} only visits the entries below the given path instead of the whole cache.
+ *
+ * Entries expire a fixed time after creation; once more than {@code maxEntries} entries are held the oldest entries are
+ * evicted first.
+ */
+class PrefixIndexedNegativeCache
+{
+  private final ConcurrentNavigableMap<String, CacheEntry> pathEntries = new ConcurrentSkipListMap<>();
+
+  private final ConcurrentMap<NegativeCacheKey, CacheEntry> otherEntries = new ConcurrentHashMap<>();
+
+  /**
+   * Entries in creation order, which is also expiry order since every entry has the same time-to-live.
+   * May hold entries which have since been replaced or invalidated, these are skipped when reached.
+   */
+  private final Queue<CacheEntry> creationOrder = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final AtomicInteger queued = new AtomicInteger();
+
+  private final AtomicBoolean compacting = new AtomicBoolean();
+
+  private final LongAdder evictions = new LongAdder();
+
+  private final int maxEntries;
+
+  private final long timeToLiveNanos;
+
+  private final Ticker ticker;
+
+  PrefixIndexedNegativeCache(final int maxEntries, final long timeToLiveNanos, final Ticker ticker) {
+    checkArgument(maxEntries > 0, "maxEntries must be positive");
+    checkArgument(timeToLiveNanos >= 0, "timeToLive must not be negative");
+    this.maxEntries = maxEntries;
+    this.timeToLiveNanos = timeToLiveNanos;
+    this.ticker = checkNotNull(ticker);
+  }
+
+  @Nullable
+  Status get(final NegativeCacheKey key) {
+    CacheEntry entry = lookup(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.isExpiredAt(ticker.read())) {
+      remove(entry);
+      return null;
+    }
+    return entry.status;
+  }
+
+  void put(final NegativeCacheKey key, final Status status) {
+    CacheEntry entry = new CacheEntry(key, status, ticker.read() + timeToLiveNanos);
+    CacheEntry previous = isIndexed(key) ? pathEntries.put(path(key), entry) : otherEntries.put(key, entry);
+    if (previous == null) {
+      size.incrementAndGet();
+    }
+    creationOrder.add(entry);
+    queued.incrementAndGet();
+    evict();
+  }
+
+  boolean invalidate(final NegativeCacheKey key) {
+    CacheEntry removed = isIndexed(key) ? pathEntries.remove(path(key)) : otherEntries.remove(key);
+    if (removed != null) {
+      size.decrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Removes the given key and every key it is a parent of, returning the number of entries removed.
+   */
+  int invalidateSubset(final NegativeCacheKey key) {
+    int removed = invalidate(key) ? 1 : 0;
+    if (isIndexed(key)) {
+      String prefix = path(key);
+      if (prefix.endsWith("/")) {
+        for (CacheEntry entry : pathEntries.subMap(prefix, true, upperBound(prefix), false).values()) {
+          if (remove(entry)) {
+            removed++;
+          }
+        }
+      }
+    }
+    else {
+      for (CacheEntry entry : otherEntries.values()) {
+        if (key.isParentOf(entry.key) && remove(entry)) {
+          removed++;
+        }
+      }
+      for (CacheEntry entry : pathEntries.values()) {
+        if (key.isParentOf(entry.key) && remove(entry)) {
+          removed++;
+        }
+      }
+    }
+    return removed;
+  }
+
+  void invalidateAll() {
+    pathEntries.clear();
+    otherEntries.clear();
+    creationOrder.clear();
+    size.set(0);
+    queued.set(0);
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Drops expired entries from the head of the creation queue, then the oldest live entries until the cache is back
+   * within {@code maxEntries}.
+   */
+  private void evict() {
+    long now = ticker.read();
+    CacheEntry head;
+    while ((head = creationOrder.peek()) != null) {
+      boolean current = isCurrent(head);
+      boolean expired = head.isExpiredAt(now);
+      boolean overCapacity = size.get() > maxEntries;
+      if (current && !expired && !overCapacity) {
+        break;
+      }
+      if (!creationOrder.remove(head)) {
+        // another thread took it, look at the new head
+        continue;
+      }
+      queued.decrementAndGet();
+      if (current && remove(head) && !expired) {
+        evictions.increment();
+      }
+    }
+
+    // replaced or invalidated entries only leave the queue once they reach its head, prune them if they pile up
+    if (queued.get() > 2 * maxEntries && compacting.compareAndSet(false, true)) {
+      try {
+        Iterator<CacheEntry> entries = creationOrder.iterator();
+        while (entries.hasNext()) {
+          if (!isCurrent(entries.next())) {
+            entries.remove();
+            queued.decrementAndGet();
+          }
+        }
+      }
+      finally {
+        compacting.set(false);
+      }
+    }
+  }
+
+  @Nullable
+  private CacheEntry lookup(final NegativeCacheKey key) {
+    return isIndexed(key) ? pathEntries.get(path(key)) : otherEntries.get(key);
+  }
+
+  private boolean isCurrent(final CacheEntry entry) {
+    return lookup(entry.key) == entry;
+  }
+
+  /**
+   * Removes the given entry only if it is still the one mapped to its key.
+   */
+  private boolean remove(final CacheEntry entry) {
+    boolean removed = isIndexed(entry.key)
+        ? pathEntries.remove(path(entry.key), entry)
+        : otherEntries.remove(entry.key, entry);
+    if (removed) {
+      size.decrementAndGet();
+    }
+    return removed;
+  }
+
+  private static boolean isIndexed(final NegativeCacheKey key) {
+    return key.getClass() == PathNegativeCacheKey.class;
+  }
+
+  private static String path(final NegativeCacheKey key) {
+    return ((PathNegativeCacheKey) key).getPath();
+  }
+
+  /**
+   * Returns the smallest string greater than every string starting with the given prefix.
+   */
+  private static String upperBound(final String prefix) {
+    char last = prefix.charAt(prefix.length() - 1);
+    return prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+  }
+
+  private static class CacheEntry
+  {
+    private final NegativeCacheKey key;
+
+    private final Status status;
+
+    private final long expiresAt;
+
+    CacheEntry(final NegativeCacheKey key, final Status status, final long expiresAt) {
+      this.key = key;
+      this.status = status;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpiredAt(final long now) {
+      return now - expiresAt >= 0;
+    }
+  }
+}
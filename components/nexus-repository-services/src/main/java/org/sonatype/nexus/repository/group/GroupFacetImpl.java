@@ -67,6 +67,11 @@ public class GroupFacetImpl
 
   public static final String CONFIG_KEY = "group";
 
+  /**
+   * Name of the {@link Config#memberNames} attribute.
+   */
+  public static final String MEMBER_NAMES_KEY = "memberNames";
+
   private final RepositoryCacheInvalidationService repositoryCacheInvalidationService;
 
   public static class Config
@@ -140,7 +145,7 @@ public class GroupFacetImpl
       Repository repository = repositoryManager.get(memberName);
       if (repository.getName().equals(repositoryName) ||
           (groupType.equals(repository.getType()) && containsGroup(repository, repositoryName, checkedGroups))) {
-        return constraintViolationFactory.createViolation(CONFIG_KEY + ".memberNames",
+        return constraintViolationFactory.createViolation(CONFIG_KEY + "." + MEMBER_NAMES_KEY,
             "Group '" + repository.getName() + "' has a member repository '" + repositoryName +
                 "' and cannot be added to this list.");
       }
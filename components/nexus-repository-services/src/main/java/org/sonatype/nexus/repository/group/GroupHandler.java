@@ -12,18 +12,28 @@
  */
 package org.sonatype.nexus.repository.group;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.collect.AttributesMap;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.http.HttpResponses;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Handler;
+import org.sonatype.nexus.repository.view.Headers;
+import org.sonatype.nexus.repository.view.Parameters;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.ViewFacet;
@@ -37,6 +47,7 @@ import static org.sonatype.nexus.repository.http.HttpMethods.GET;
 import static org.sonatype.nexus.repository.http.HttpMethods.HEAD;
 import static org.sonatype.nexus.repository.proxy.ProxyFacetSupport.BYPASS_HTTP_ERRORS_HEADER_NAME;
 import static org.sonatype.nexus.repository.proxy.ProxyFacetSupport.BYPASS_HTTP_ERRORS_HEADER_VALUE;
+import static org.sonatype.nexus.repository.view.ViewUtils.copyLocalContextAttributes;
 
 /**
  * Group handler.
@@ -62,7 +73,8 @@ public class GroupHandler
   @VisibleForTesting
   public static class DispatchedRepositories
   {
-    private final Set<String> dispatched = Sets.newLinkedHashSet();
+    // members of a group may be dispatched concurrently, see GroupMemberDispatcher
+    private final Set<String> dispatched = Collections.synchronizedSet(Sets.newLinkedHashSet());
 
     public void add(final Repository repository) {
       dispatched.add(repository.getName());
@@ -83,10 +95,21 @@ public class GroupHandler
      * @return Unmodifiable {@link Set} of Dispatched repository names.
      */
     public Set<String> getDispatched() {
-      return unmodifiableSet(dispatched);
+      synchronized (dispatched) {
+        return unmodifiableSet(new LinkedHashSet<>(dispatched));
+      }
     }
   }
 
+  @Inject
+  @Nullable
+  private GroupMemberDispatcher memberDispatcher;
+
+  @VisibleForTesting
+  public void setMemberDispatcher(@Nullable final GroupMemberDispatcher memberDispatcher) {
+    this.memberDispatcher = memberDispatcher;
+  }
+
   @Nonnull
   @Override
   public Response handle(@Nonnull final Context context) throws Exception {
@@ -118,7 +141,8 @@ public class GroupHandler
 
   /**
    * Returns the first OK response from member repositories or {@link HttpResponses#notFound()} if none of the members
-   * responded with OK.
+   * responded with OK. Members are probed concurrently when a {@link GroupMemberDispatcher} accepts them, still
+   * returning the response of the first member in member order which responded with OK.
    */
   protected Response getFirst(
       @Nonnull final Context context,
@@ -126,6 +150,18 @@ public class GroupHandler
       @Nonnull final DispatchedRepositories dispatched) throws Exception
   {
     final Request request = context.getRequest();
+    if (memberDispatcher != null) {
+      List<Repository> undispatched = undispatched(members, dispatched);
+      if (memberDispatcher.acceptsProbe(undispatched)) {
+        // track all members up front, nested groups probed concurrently must skip them
+        undispatched.forEach(dispatched::add);
+        Map<Repository, Context> contexts = memberContexts(undispatched, request, context);
+        Response response = memberDispatcher.probe(undispatched, member -> dispatchMember(member, contexts.get(member)),
+            this::isValidResponse);
+        return response != null ? response : notFoundResponse(context);
+      }
+    }
+
     for (Repository member : members) {
       log.trace("Trying member: {}", member);
       // track repositories we have dispatched to, prevent circular dispatch for nested groups
@@ -146,7 +182,8 @@ public class GroupHandler
   }
 
   /**
-   * Returns all responses from all members as a linked map, where order is group member order.
+   * Returns all responses from all members as a linked map, where order is group member order. Members are dispatched
+   * concurrently when a {@link GroupMemberDispatcher} accepts them.
    */
   protected LinkedHashMap<Repository, Response> getAll(
       @Nonnull final Context context,
@@ -174,6 +211,16 @@ public class GroupHandler
       @Nonnull final Iterable<Repository> members,
       @Nonnull final DispatchedRepositories dispatched) throws Exception
   {
+    if (memberDispatcher != null) {
+      List<Repository> undispatched = undispatched(members, dispatched);
+      if (memberDispatcher.accepts(undispatched)) {
+        // track all members up front, nested groups dispatched concurrently must skip them
+        undispatched.forEach(dispatched::add);
+        Map<Repository, Context> contexts = memberContexts(undispatched, request, context);
+        return memberDispatcher.dispatch(undispatched, member -> dispatchMember(member, contexts.get(member)));
+      }
+    }
+
     final LinkedHashMap<Repository, Response> responses = Maps.newLinkedHashMap();
     for (Repository member : members) {
       log.trace("Trying member: {}", member);
@@ -193,6 +240,56 @@ public class GroupHandler
     return responses;
   }
 
+  private static List<Repository> undispatched(
+      final Iterable<Repository> members,
+      final DispatchedRepositories dispatched)
+  {
+    List<Repository> undispatched = new ArrayList<>();
+    for (Repository member : members) {
+      if (!dispatched.contains(member)) {
+        undispatched.add(member);
+      }
+    }
+    return undispatched;
+  }
+
+  /**
+   * Copies the request and context for each member dispatched concurrently, so members don't modify each other's
+   * request headers, parameters or attributes. Attribute values themselves are shared, which keeps the thread-safe
+   * {@link DispatchedRepositories} common to all members.
+   */
+  private static Map<Repository, Context> memberContexts(
+      final List<Repository> members,
+      final Request request,
+      final Context context)
+  {
+    Map<Repository, Context> contexts = new HashMap<>();
+    for (Repository member : members) {
+      Headers headers = new Headers();
+      request.getHeaders().names().forEach(name -> headers.set(name, request.getHeaders().getAll(name)));
+      Parameters parameters = new Parameters();
+      request.getParameters().names().forEach(name -> parameters.set(name, request.getParameters().getAll(name)));
+
+      Request memberRequest = new Request.Builder()
+          .copy(request)
+          .attributes(new AttributesMap(new HashMap<>(request.getAttributes().backing())))
+          .headers(headers)
+          .parameters(parameters)
+          .build();
+      Context memberContext = new Context(context.getRepository(), memberRequest);
+      copyLocalContextAttributes(context, memberContext);
+      contexts.put(member, memberContext);
+    }
+    return contexts;
+  }
+
+  private Response dispatchMember(final Repository member, final Context context) throws Exception {
+    log.trace("Trying member: {}", member);
+    final Response response = member.facet(ViewFacet.class).dispatch(context.getRequest(), context);
+    log.trace("Member {} response {}", member, response.getStatus());
+    return response;
+  }
+
   /**
    * Returns standard 404 with no message. Override for format specific messaging.
    */
@@ -0,0 +1,393 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.common.app.BaseUrlHolder;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.common.event.EventAware;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.config.Configuration;
+import org.sonatype.nexus.repository.manager.RepositoryDeletedEvent;
+import org.sonatype.nexus.repository.manager.RepositoryUpdatedEvent;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Gauge;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Collections.emptySet;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
+
+/**
+ * Dispatches a group request to its members concurrently, so fetching from all members takes as long as the slowest
+ * member rather than the sum of all of them.
+ *
+ * Fetching from all members is only done concurrently when {@code nexus.group.parallel.enabled} is set, probing for the
+ * first member with the content only when {@code nexus.group.parallel.probe.enabled} is set. When all threads are busy
+ * members are dispatched on the calling thread. Responses which are not handed back to the caller are closed.
+ *
+ * The latency of each member is recorded as a {@code latency} timer named by {@link #metricName(String, String)}. The
+ * timer is removed when the member is deleted or removed from a group, and registered again on its next dispatch.
+ *
+ * @see GroupHandler#getAll
+ * @see GroupHandler#getFirst
+ */
+@Named
+@Singleton
+@ManagedLifecycle(phase = SERVICES)
+public class GroupMemberDispatcher
+    extends LifecycleSupport
+    implements EventAware
+{
+  /**
+   * Dispatches the group request to a single member.
+   */
+  @FunctionalInterface
+  public interface MemberCall
+  {
+    Response dispatch(Repository member) throws Exception;
+  }
+
+  private final boolean enabled;
+
+  private final boolean probeEnabled;
+
+  private final int probeConcurrency;
+
+  private final int threads;
+
+  private final Map<String, Timer> latencies = new ConcurrentHashMap<>();
+
+  private ThreadPoolExecutor threadPoolExecutor;
+
+  private volatile ExecutorService executor;
+
+  private MetricRegistry metricRegistry;
+
+  @Inject
+  public GroupMemberDispatcher(
+      @Named("${nexus.group.parallel.enabled:-false}") final boolean enabled,
+      @Named("${nexus.group.parallel.probe.enabled:-false}") final boolean probeEnabled,
+      @Named("${nexus.group.parallel.probe.concurrency:-4}") final int probeConcurrency,
+      @Named("${nexus.group.parallel.threads:-100}") final int threads)
+  {
+    checkArgument(threads > 0, "Thread count must be greater than zero");
+    checkArgument(probeConcurrency > 0, "Probe concurrency must be greater than zero");
+    this.enabled = enabled;
+    this.probeEnabled = probeEnabled;
+    this.probeConcurrency = probeConcurrency;
+    this.threads = threads;
+  }
+
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (enabled || probeEnabled) {
+      threadPoolExecutor = new ThreadPoolExecutor(
+          0, // core-size
+          threads, // max-size
+          60L, // keep-alive
+          TimeUnit.SECONDS,
+          new SynchronousQueue<>(), // no queueing, busy pool means dispatch inline
+          new NexusThreadFactory("group-member-dispatch", "group-member-dispatch"),
+          new CallerRunsPolicy());
+      executor = NexusExecutorService.forCurrentSubject(threadPoolExecutor);
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (executor != null) {
+      executor = null;
+      threadPoolExecutor.shutdown();
+      if (!threadPoolExecutor.awaitTermination(60L, TimeUnit.SECONDS)) {
+        log.warn("Group member dispatches still running after shutdown");
+      }
+      threadPoolExecutor = null;
+    }
+  }
+
+  /**
+   * Returns the name of a metric of the given member repository.
+   */
+  public static String metricName(final String repositoryName, final String metric) {
+    return MetricRegistry.name(GroupMemberDispatcher.class, repositoryName, metric);
+  }
+
+  /**
+   * Returns {@code true} if the given members should be dispatched concurrently.
+   */
+  public boolean accepts(final List<Repository> members) {
+    return enabled && executor != null && members.size() > 1;
+  }
+
+  /**
+   * Returns {@code true} if the given members should be probed concurrently.
+   */
+  public boolean acceptsProbe(final List<Repository> members) {
+    return probeEnabled && executor != null && members.size() > 1;
+  }
+
+  /**
+   * Dispatches to all members, returning their responses in member order. Waits for all members before failing with
+   * the exception of the first member in order which failed, closing the responses of the other members.
+   */
+  public LinkedHashMap<Repository, Response> dispatch(
+      final List<Repository> members,
+      final MemberCall call) throws Exception
+  {
+    List<CompletableFuture<Response>> futures = new ArrayList<>(members.size());
+    try {
+      for (Repository member : members) {
+        futures.add(submit(member, call));
+      }
+    }
+    catch (RuntimeException e) {
+      futures.forEach(this::discard);
+      throw e;
+    }
+
+    LinkedHashMap<Repository, Response> responses = new LinkedHashMap<>();
+    Exception failure = null;
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        responses.put(members.get(i), futures.get(i).get());
+      }
+      catch (InterruptedException e) {
+        futures.forEach(this::discard);
+        Thread.currentThread().interrupt();
+        throw e;
+      }
+      catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+      }
+    }
+    if (failure != null) {
+      responses.values().forEach(this::close);
+      throw failure;
+    }
+    return responses;
+  }
+
+  /**
+   * Probes the members concurrently, at most {@code nexus.group.parallel.probe.concurrency} at a time, returning the
+   * response of the first member in member order which is a hit, or {@code null} if none is. Lookups of later members
+   * which have not started are cancelled once a hit is found, those already running are left to finish; responses
+   * other than the hit are closed.
+   */
+  @Nullable
+  public Response probe(
+      final List<Repository> members,
+      final MemberCall call,
+      final Predicate<Response> isHit) throws Exception
+  {
+    List<CompletableFuture<Response>> futures = new ArrayList<>(members.size());
+    int current = 0;
+    try {
+      while (current < members.size()) {
+        while (futures.size() < members.size() && futures.size() - current < probeConcurrency) {
+          futures.add(submit(members.get(futures.size()), call));
+        }
+        Response response = await(futures.get(current));
+        if (isHit.test(response)) {
+          return response;
+        }
+        close(response);
+        current++;
+      }
+      return null;
+    }
+    finally {
+      for (int i = current + 1; i < futures.size(); i++) {
+        discard(futures.get(i));
+      }
+    }
+  }
+
+  private static Response await(final CompletableFuture<Response> future) throws Exception {
+    try {
+      return future.get();
+    }
+    catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  /**
+   * Dispatches to the member, skipping the dispatch if the returned future is cancelled before it starts and closing
+   * the response if it is cancelled while the dispatch is running.
+   */
+  private CompletableFuture<Response> submit(final Repository member, final MemberCall call) {
+    Timer latency = latency(member);
+    CompletableFuture<Response> result = new CompletableFuture<>();
+    Runnable task = () -> {
+      if (result.isDone()) {
+        return;
+      }
+      long start = System.nanoTime();
+      try {
+        Response response = call.dispatch(member);
+        if (!result.complete(response)) {
+          close(response);
+        }
+      }
+      catch (Throwable e) { // NOSONAR
+        // errors must fail the future too, or the group request would wait for it forever
+        result.completeExceptionally(e);
+        if (e instanceof Error) {
+          throw (Error) e;
+        }
+      }
+      finally {
+        if (latency != null) {
+          latency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+      }
+    };
+
+    ExecutorService current = executor;
+    if (current == null) {
+      throw new RejectedExecutionException("Group member dispatcher is not running");
+    }
+    current.execute(withBaseUrl(task));
+    return result;
+  }
+
+  /**
+   * Cancels the dispatch without interrupting it, closing its response if it has already completed.
+   */
+  private void discard(final CompletableFuture<Response> future) {
+    if (!future.cancel(false) && !future.isCompletedExceptionally()) {
+      close(future.getNow(null));
+    }
+  }
+
+  private void close(@Nullable final Response response) {
+    if (response != null && response.getPayload() != null) {
+      try {
+        response.getPayload().close();
+      }
+      catch (IOException e) {
+        log.debug("Failed to close discarded member response", e);
+      }
+    }
+  }
+
+  @Nullable
+  private Timer latency(final Repository member) {
+    if (metricRegistry == null) {
+      return null;
+    }
+    return latencies.computeIfAbsent(member.getName(),
+        name -> metricRegistry.timer(metricName(name, "latency")));
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final RepositoryDeletedEvent event) {
+    Repository repository = event.getRepository();
+    removeLatency(repository.getName());
+    memberNames(repository.getConfiguration()).forEach(this::removeLatency);
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final RepositoryUpdatedEvent event) {
+    Set<String> removed = new HashSet<>(memberNames(event.getOldConfiguration()));
+    removed.removeAll(memberNames(event.getRepository().getConfiguration()));
+    removed.forEach(this::removeLatency);
+  }
+
+  private void removeLatency(final String memberName) {
+    if (latencies.remove(memberName) != null && metricRegistry != null) {
+      metricRegistry.remove(metricName(memberName, "latency"));
+    }
+  }
+
+  private static Collection<String> memberNames(@Nullable final Configuration configuration) {
+    if (configuration == null || !configuration.getAttributes().containsKey(GroupFacetImpl.CONFIG_KEY)) {
+      return emptySet();
+    }
+    Collection<String> memberNames = configuration.attributes(GroupFacetImpl.CONFIG_KEY)
+        .get(GroupFacetImpl.MEMBER_NAMES_KEY, new TypeToken<Collection<String>>()
+        {
+        });
+    return memberNames != null ? memberNames : emptySet();
+  }
+
+  /**
+   * Carries the base URL of the calling thread over to the dispatching thread, leaving it untouched when the task ends
+   * up running on the calling thread.
+   */
+  private static Runnable withBaseUrl(final Runnable task) {
+    if (!BaseUrlHolder.isSet()) {
+      return task;
+    }
+    String baseUrl = BaseUrlHolder.get();
+    String relativePath = BaseUrlHolder.getRelativePath();
+    return () -> {
+      if (BaseUrlHolder.isSet()) {
+        task.run();
+      }
+      else {
+        BaseUrlHolder.with(baseUrl, relativePath, () -> {
+          task.run();
+          return null;
+        });
+      }
+    };
+  }
+
+  @Gauge(name = "nexus.group.parallel.active")
+  public int getActiveCount() {
+    ThreadPoolExecutor current = threadPoolExecutor;
+    return current != null ? current.getActiveCount() : 0;
+  }
+}
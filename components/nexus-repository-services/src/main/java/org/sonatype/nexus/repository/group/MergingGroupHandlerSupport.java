@@ -13,6 +13,7 @@
 package org.sonatype.nexus.repository.group;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Collection;
@@ -38,6 +39,10 @@ import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Headers;
 import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.payloads.BlobPayload;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+import org.sonatype.nexus.repository.view.payloads.PathPayload;
+import org.sonatype.nexus.repository.view.payloads.StringPayload;
 
 import com.google.common.collect.Iterables;
 import com.google.common.hash.HashFunction;
@@ -90,10 +95,30 @@ public abstract class MergingGroupHandlerSupport
         .build(getClass());
   }
 
+  /**
+   * Fetches from the members and merges their responses under cooperation keyed by {@link #cooperationKey}, so one
+   * fetch and merge serves all concurrent requests for the same metadata. The response is shared by all of them, so
+   * its payload must be readable more than once.
+   */
   @Override
   protected Response doGet(
       @Nonnull final Context context,
       @Nonnull final DispatchedRepositories dispatched) throws Exception
+  {
+    try {
+      return cooperation.on(() -> shareable(fetchAndMerge(context, dispatched)))
+          .checkFunction(() -> getCached(context).map(HttpResponses::ok))
+          .cooperate(context.getRepository().getName() + ":" + context.getRequest().getAction(),
+              cooperationKey(context));
+    }
+    catch (MemberDispatchException e) {
+      throw e.getCause();
+    }
+  }
+
+  private Response fetchAndMerge(
+      final Context context,
+      final DispatchedRepositories dispatched) throws IOException
   {
     GroupFacet groupFacet = context.getRepository().facet(GroupFacet.class);
 
@@ -112,6 +137,12 @@ public abstract class MergingGroupHandlerSupport
           // LinkedHashMap so that we maintain the order of the member responses.
           .collect(Collectors.toMap(Entry::getKey, Entry::getValue, throwingMerger(), LinkedHashMap::new));
     }
+    catch (IOException | RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new MemberDispatchException(e);
+    }
     finally {
       // Restore range headers for processing by earlier handlers.
       headers.set(HttpHeaders.RANGE, rangeheader);
@@ -130,6 +161,31 @@ public abstract class MergingGroupHandlerSupport
         .orElseGet(HttpResponses::notFound);
   }
 
+  /**
+   * Buffers payloads which may only be read once, such as a member's response streamed from a remote, so every request
+   * sharing the response through the cooperation can read it. Stored and in-memory payloads are returned as is.
+   */
+  private static Response shareable(final Response response) throws IOException {
+    Payload payload = response.getPayload();
+    Payload source = payload instanceof Content ? ((Content) payload).getPayload() : payload;
+    if (source == null || source instanceof BlobPayload || source instanceof BytesPayload
+        || source instanceof PathPayload || source instanceof StringPayload) {
+      return response;
+    }
+    byte[] bytes;
+    try (InputStream in = payload.openInputStream()) {
+      bytes = in.readAllBytes();
+    }
+    finally {
+      payload.close();
+    }
+    Payload buffered = new BytesPayload(bytes, payload.getContentType());
+    return new Response.Builder()
+        .copy(response)
+        .payload(payload instanceof Content ? new Content((Content) payload, buffered) : buffered)
+        .build();
+  }
+
   private Optional<Content> merge(
       final Context context,
       final Map<Repository, Response> successfulResponses) throws IOException
@@ -144,9 +200,23 @@ public abstract class MergingGroupHandlerSupport
       return existing;
     }
 
-    return cooperation.on(() -> merge(context, successfulResponses, optEtag))
-        .checkFunction(() -> Optional.of(getCached(context)))
-        .cooperate(context.getRepository().getName(), cooperationKey(context));
+    return merge(context, successfulResponses, optEtag);
+  }
+
+  /**
+   * Carries checked exceptions other than {@link IOException} from dispatching to members through the cooperation.
+   */
+  private static class MemberDispatchException
+      extends IOException
+  {
+    MemberDispatchException(final Exception cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized Exception getCause() {
+      return (Exception) super.getCause();
+    }
   }
 
   /**
@@ -13,6 +13,7 @@
 package org.sonatype.nexus.repository.proxy;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
@@ -20,6 +21,10 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -89,6 +94,12 @@ public abstract class ProxyFacetSupport
   public static final String PROXY_REMOTE_FETCH_SKIP_MARKER =
       "proxy.remote-fetch.skip";
 
+  /**
+   * Content attribute of a download streamed through to clients while it is stored, holding a
+   * {@link CompletableFuture} which completes with the stored content once it has been committed.
+   */
+  public static final String STREAM_THROUGH_STORED = "proxy.stream-through.stored";
+
   @VisibleForTesting
   static final String CONFIG_KEY = "proxy";
 
@@ -159,6 +170,11 @@ public abstract class ProxyFacetSupport
 
   private Cooperation2 proxyCooperation;
 
+  /**
+   * Downloads currently being streamed through to clients while they are stored, by request key.
+   */
+  private final ConcurrentMap<String, Content> streamingThrough = new ConcurrentHashMap<>();
+
   @Override
   public ProxyRepositoryConfiguration getConfiguration() {
     return config;
@@ -218,6 +234,10 @@ public abstract class ProxyFacetSupport
   @Nullable
   private GracePeriodInterceptor gracePeriodInterceptor;
 
+  @Inject
+  @Nullable
+  private StreamThroughExecutor streamThroughExecutor;
+
   @VisibleForTesting
   void buildCooperation() {
     buildCooperation(getRepository());
@@ -339,6 +359,11 @@ public abstract class ProxyFacetSupport
    * Attempt to retrieve from the remote using proxy co-operation
    */
   protected Content get(final Context context, @Nullable final Content staleContent) throws IOException {
+    Content inProgress = streamingThrough.get(getRequestKey(context));
+    if (inProgress != null) {
+      log.debug("Attaching to download of {} in progress", getUrl(context));
+      return inProgress;
+    }
     return proxyCooperation.on(() -> doGet(context, staleContent))
         .checkFunction(() -> {
           Content latestContent = maybeGetCachedContent(context);
@@ -374,10 +399,18 @@ public abstract class ProxyFacetSupport
       }
       remote = fetch(context, content);
       if (remote != null) {
-        content = store(context, remote);
-        if (remote.equals(content)) {
-          // remote wasn't stored; make reusable copy for cooperation
-          content = new TempContent(remote);
+        Content streaming = maybeStreamThrough(context, remote);
+        if (streaming != null) {
+          // remote is now owned by the background store
+          remote = null;
+          content = streaming;
+        }
+        else {
+          content = store(context, remote);
+          if (remote.equals(content)) {
+            // remote wasn't stored; make reusable copy for cooperation
+            content = new TempContent(remote);
+          }
         }
       }
     }
@@ -402,6 +435,85 @@ public abstract class ProxyFacetSupport
     return content;
   }
 
+  /**
+   * Whether the download for the given context may be streamed through to clients while it is stored.
+   *
+   * Streamed content is served as fetched and only carries the remote attributes, so formats should only allow this
+   * where {@link #store} puts the remote content as is. Handlers which need the stored asset can wait for the
+   * {@link #STREAM_THROUGH_STORED} attribute. Disabled by default.
+   */
+  protected boolean isStreamThroughSupported(final Context context) {
+    return false;
+  }
+
+  /**
+   * Stores large downloads in the background while returning content which streams the download to clients as it
+   * arrives; cooperating requests attach to the same download. Returns {@code null} to store before responding.
+   */
+  @Nullable
+  private Content maybeStreamThrough(final Context context, final Content remote) throws IOException {
+    if (streamThroughExecutor == null || !streamThroughExecutor.accepts(remote) || !isStreamThroughSupported(context)) {
+      return null;
+    }
+
+    String requestKey = getRequestKey(context);
+    ProxySpool spool = ProxySpool.create();
+    Content streaming = new Content(spool.payload(remote.getSize(), remote.getContentType()));
+    // own copy of the attributes, the remote ones are handed to store
+    remote.getAttributes().forEach(entry -> streaming.getAttributes().set(entry.getKey(), entry.getValue()));
+    CompletableFuture<Content> stored = new CompletableFuture<>();
+    streaming.getAttributes().set(STREAM_THROUGH_STORED, stored);
+    streamingThrough.put(requestKey, streaming);
+    try {
+      streamThroughExecutor.execute(
+          () -> storeStreamingThrough(context, remote, spool, requestKey, streaming, stored));
+    }
+    catch (RejectedExecutionException e) {
+      log.debug("No thread available to stream through {}, storing before responding", getUrl(context));
+      streamingThrough.remove(requestKey, streaming);
+      spool.fail(e);
+      return null;
+    }
+    return streaming;
+  }
+
+  private void storeStreamingThrough(
+      final Context context,
+      final Content remote,
+      final ProxySpool spool,
+      final String requestKey,
+      final Content streaming,
+      final CompletableFuture<Content> storedFuture)
+  {
+    downloading.set(TRUE);
+    try (InputStream remoteStream = remote.openInputStream()) {
+      ProxySpool.TeePayload teePayload =
+          spool.teePayload(remoteStream, remote.getSize(), remote.getContentType());
+      Content teeContent = new Content(remote, teePayload);
+      Content stored = store(context, teeContent);
+      // make sure the whole download reached the spool even if storing didn't need all of it
+      teePayload.drain();
+      spool.complete(teeContent.equals(stored) ? null : stored);
+      storedFuture.complete(stored);
+    }
+    catch (Exception e) { // NOSONAR report all failures to streaming clients
+      log.warn("Failed to store {} while streaming to clients, proxy repo {}", getUrl(context),
+          getRepository().getName(), e);
+      spool.fail(e);
+      storedFuture.completeExceptionally(e);
+    }
+    finally {
+      streamingThrough.remove(requestKey, streaming);
+      downloading.remove();
+      try {
+        Closeables.close(remote, true);
+      }
+      catch (IOException e) {
+        log.trace("Failed to close remote content", e);
+      }
+    }
+  }
+
   /**
    * Path + query parameters provide a unique enough request key for known formats. If a format needs to add more
    * context then they should customize this method.
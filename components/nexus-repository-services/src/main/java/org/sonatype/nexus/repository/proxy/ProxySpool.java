@@ -0,0 +1,367 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Local spool of a remote download which is being stored in the background while it is streamed to clients.
+ *
+ * The remote stream is teed into the spool as it is read by {@link ProxyFacetSupport#store}; any number of readers
+ * follow the spool as it grows. Readers only see the end of the stream once the content has been stored, and fail
+ * instead if storing fails, so a rejected download is never completed cleanly.
+ *
+ * The spool file is deleted once the download has finished and no readers remain open; readers opened after that are
+ * served from the stored content.
+ */
+class ProxySpool
+{
+  private static final Logger log = LoggerFactory.getLogger(ProxySpool.class);
+
+  private final Path file;
+
+  private final FileChannel writer;
+
+  private final Object lock = new Object();
+
+  private long written;
+
+  private boolean finished;
+
+  private Throwable failure;
+
+  private Content stored;
+
+  private int readers;
+
+  private boolean deleted;
+
+  private ProxySpool(final Path file, final FileChannel writer) {
+    this.file = checkNotNull(file);
+    this.writer = checkNotNull(writer);
+  }
+
+  static ProxySpool create() throws IOException {
+    Path file = Files.createTempFile("proxy-spool-", ".tmp");
+    try {
+      return new ProxySpool(file, FileChannel.open(file, WRITE));
+    }
+    catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a reusable payload which follows this spool.
+   */
+  Payload payload(final long size, @Nullable final String contentType) {
+    return new Payload()
+    {
+      @Override
+      public InputStream openInputStream() throws IOException {
+        return openStream();
+      }
+
+      @Override
+      public long getSize() {
+        return size;
+      }
+
+      @Nullable
+      @Override
+      public String getContentType() {
+        return contentType;
+      }
+    };
+  }
+
+  /**
+   * Returns a payload for storing the given remote stream which appends everything read from it to this spool.
+   */
+  TeePayload teePayload(final InputStream remote, final long size, @Nullable final String contentType) {
+    return new TeePayload(tee(remote), size, contentType);
+  }
+
+  private InputStream tee(final InputStream remote) {
+    return new FilterInputStream(remote)
+    {
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+          append(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+      }
+
+      @Override
+      public int read(final byte[] bytes, final int off, final int len) throws IOException {
+        int n = super.read(bytes, off, len);
+        if (n > 0) {
+          append(bytes, off, n);
+        }
+        return n;
+      }
+
+      @Override
+      public long skip(final long n) throws IOException {
+        // everything must pass through the spool
+        if (n <= 0) {
+          return 0;
+        }
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        int read = read(buffer, 0, buffer.length);
+        return Math.max(read, 0);
+      }
+
+      @Override
+      public void close() {
+        // remote is closed by the owner once the spool has finished
+      }
+    };
+  }
+
+  /**
+   * Marks the download as stored; readers see the end of the stream.
+   */
+  void complete(@Nullable final Content storedContent) {
+    finish(null, storedContent);
+  }
+
+  /**
+   * Marks the download as failed; readers fail with the given cause.
+   */
+  void fail(final Throwable cause) {
+    finish(checkNotNull(cause), null);
+  }
+
+  private void append(final byte[] bytes, final int off, final int len) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, off, len);
+    while (buffer.hasRemaining()) {
+      writer.write(buffer);
+    }
+    synchronized (lock) {
+      written += len;
+      lock.notifyAll();
+    }
+  }
+
+  private void finish(@Nullable final Throwable cause, @Nullable final Content storedContent) {
+    try {
+      writer.close();
+    }
+    catch (IOException e) {
+      log.debug("Failed to close spool {}", file, e);
+    }
+    synchronized (lock) {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      failure = cause;
+      stored = storedContent;
+      lock.notifyAll();
+      maybeDelete();
+    }
+  }
+
+  private InputStream openStream() throws IOException {
+    Content fallback;
+    synchronized (lock) {
+      if (failure != null) {
+        throw new IOException("Failed to download " + file, failure);
+      }
+      if (!deleted) {
+        readers++;
+        fallback = null;
+      }
+      else if (stored != null) {
+        fallback = stored;
+      }
+      else {
+        throw new IOException("Spool " + file + " is no longer available");
+      }
+    }
+    if (fallback != null) {
+      return fallback.openInputStream();
+    }
+    try {
+      return new Reader(FileChannel.open(file, READ));
+    }
+    catch (IOException e) {
+      release();
+      throw e;
+    }
+  }
+
+  private void release() {
+    synchronized (lock) {
+      readers--;
+      maybeDelete();
+    }
+  }
+
+  private void maybeDelete() {
+    if (finished && readers == 0 && !deleted) {
+      deleted = true;
+      try {
+        Files.deleteIfExists(file);
+      }
+      catch (IOException e) {
+        log.warn("Failed to delete spool {}", file, e);
+      }
+    }
+  }
+
+  /**
+   * Waits until there are bytes beyond the given position, returning how many or {@code -1} at the end of the stream.
+   */
+  private long awaitAvailable(final long position) throws IOException {
+    synchronized (lock) {
+      while (written <= position && !finished && failure == null) {
+        try {
+          lock.wait();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted waiting for " + file);
+        }
+      }
+      if (failure != null) {
+        throw new IOException("Failed to download " + file, failure);
+      }
+      return written > position ? written - position : -1;
+    }
+  }
+
+  /**
+   * Payload handing out the teed remote stream once; later opens read back the spool after pulling the rest of the
+   * download through, as spool readers would not see the end of the stream until storing has finished.
+   */
+  class TeePayload
+      implements Payload
+  {
+    private final InputStream tee;
+
+    private final long size;
+
+    private final String contentType;
+
+    private boolean opened;
+
+    private TeePayload(final InputStream tee, final long size, @Nullable final String contentType) {
+      this.tee = tee;
+      this.size = size;
+      this.contentType = contentType;
+    }
+
+    @Override
+    public synchronized InputStream openInputStream() throws IOException {
+      if (!opened) {
+        opened = true;
+        return tee;
+      }
+      drain();
+      return Files.newInputStream(file);
+    }
+
+    @Override
+    public long getSize() {
+      return size;
+    }
+
+    @Nullable
+    @Override
+    public String getContentType() {
+      return contentType;
+    }
+
+    /**
+     * Reads whatever remains of the remote stream into the spool.
+     */
+    void drain() throws IOException {
+      ByteStreams.exhaust(tee);
+    }
+  }
+
+  private class Reader
+      extends InputStream
+  {
+    private final FileChannel channel;
+
+    private long position;
+
+    private boolean closed;
+
+    Reader(final FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      int n = read(single, 0, 1);
+      return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int off, final int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      long available = awaitAvailable(position);
+      if (available < 0) {
+        return -1;
+      }
+      int n = channel.read(ByteBuffer.wrap(bytes, off, (int) Math.min(len, available)), position);
+      if (n > 0) {
+        position += n;
+      }
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        try {
+          channel.close();
+        }
+        finally {
+          release();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.codahale.metrics.annotation.Gauge;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
+
+/**
+ * Runs the background stores of proxy downloads which are streamed through to clients while being stored.
+ *
+ * Only downloads of a known size of at least {@code nexus.proxy.streamThrough.minimumSize} bytes are streamed
+ * through; when all threads are busy, or the executor has not been started, downloads are stored before responding as
+ * usual.
+ *
+ * @see ProxyFacetSupport
+ */
+@Named
+@Singleton
+@ManagedLifecycle(phase = SERVICES)
+public class StreamThroughExecutor
+    extends LifecycleSupport
+{
+  private final boolean enabled;
+
+  private final long minimumSize;
+
+  private final int threads;
+
+  private volatile ThreadPoolExecutor threadPoolExecutor;
+
+  private volatile ExecutorService executor;
+
+  @Inject
+  public StreamThroughExecutor(
+      @Named("${nexus.proxy.streamThrough.enabled:-false}") final boolean enabled,
+      @Named("${nexus.proxy.streamThrough.minimumSize:-10485760}") final long minimumSize,
+      @Named("${nexus.proxy.streamThrough.threads:-50}") final int threads)
+  {
+    checkArgument(threads > 0, "Thread count must be greater than zero");
+    this.enabled = enabled;
+    this.minimumSize = minimumSize;
+    this.threads = threads;
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (enabled) {
+      threadPoolExecutor = new ThreadPoolExecutor(
+          0, // core-size
+          threads, // max-size
+          60L, // keep-alive
+          TimeUnit.SECONDS,
+          new SynchronousQueue<>(), // no queueing, busy pool means store inline
+          new NexusThreadFactory("proxy-stream-through", "proxy-stream-through"),
+          new AbortPolicy());
+      executor = NexusExecutorService.forCurrentSubject(threadPoolExecutor);
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    ExecutorService current = executor;
+    if (current != null) {
+      executor = null;
+      threadPoolExecutor = null;
+      // let stores in progress finish so streaming clients see the end of their downloads
+      current.shutdown();
+      if (!current.awaitTermination(60, TimeUnit.SECONDS)) {
+        log.warn("Stream-through stores did not finish within 60 seconds");
+      }
+    }
+  }
+
+  /**
+   * Returns {@code true} if the given remote payload should be streamed through.
+   */
+  public boolean accepts(final Payload remote) {
+    return executor != null && remote.getSize() != Payload.UNKNOWN_SIZE && remote.getSize() >= minimumSize;
+  }
+
+  /**
+   * @throws RejectedExecutionException if all threads are busy or the executor has been stopped
+   */
+  public void execute(final Runnable store) {
+    ExecutorService current = executor;
+    if (current == null) {
+      throw new RejectedExecutionException("Stream-through executor is not running");
+    }
+    current.execute(store);
+  }
+
+  @Gauge(name = "nexus.proxy.streamThrough.active")
+  public int getActiveCount() {
+    ThreadPoolExecutor current = threadPoolExecutor;
+    return current != null ? current.getActiveCount() : 0;
+  }
+}
@@ -26,6 +26,7 @@ import static java.lang.Integer.parseInt;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.sonatype.nexus.common.hash.HashAlgorithm.MD5;
+import static org.sonatype.nexus.repository.http.HttpStatus.BAD_REQUEST;
 import static org.sonatype.nexus.repository.http.HttpStatus.NOT_ACCEPTABLE;
 
 /**
@@ -36,12 +37,14 @@ import static org.sonatype.nexus.repository.http.HttpStatus.NOT_ACCEPTABLE;
 public class TokenEncoder
     extends ComponentSupport
 {
+  private static final String SEARCH_AFTER_PREFIX = "after:";
+
   public int decode(@Nullable final String continuationToken, final QueryBuilder query) {
     if (continuationToken == null) {
       return 0;
     }
     else {
-      String decoded = new String(Hex.decode(continuationToken), UTF_8);
+      String decoded = new String(decodeHex(continuationToken), UTF_8);
       String[] decodedParts = decoded.split(":");
       if (decodedParts.length != 2) {
         throw new WebApplicationException(format("Unable to parse token %s", continuationToken), NOT_ACCEPTABLE);
@@ -59,6 +62,52 @@ public class TokenEncoder
     return Hex.encode(format("%s:%s", Integer.toString(index), getHashCode(query)).getBytes(UTF_8));
   }
 
+  /**
+   * Returns {@code true} if the given token was encoded by {@link #encodeSearchAfter}.
+   */
+  public boolean isSearchAfter(@Nullable final String continuationToken) {
+    if (continuationToken == null) {
+      return false;
+    }
+    return new String(decodeHex(continuationToken), UTF_8).startsWith(SEARCH_AFTER_PREFIX);
+  }
+
+  /**
+   * Decodes the id of the last hit of the previous page from a token encoded by {@link #encodeSearchAfter}.
+   */
+  public String decodeSearchAfter(final String continuationToken, final QueryBuilder query) {
+    String decoded = new String(decodeHex(continuationToken), UTF_8);
+    String[] decodedParts = decoded.split(":");
+    if (decodedParts.length != 3 || !decoded.startsWith(SEARCH_AFTER_PREFIX)) {
+      throw new WebApplicationException(format("Unable to parse token %s", continuationToken), NOT_ACCEPTABLE);
+    }
+    if (!decodedParts[2].equals(getHashCode(query))) {
+      throw new WebApplicationException(
+          format("Continuation token %s does not match this query", continuationToken), NOT_ACCEPTABLE);
+    }
+    return new String(decodeHex(decodedParts[1]), UTF_8);
+  }
+
+  /**
+   * Encodes the id of the last hit of a page, to continue with the hits after it in id order.
+   */
+  public String encodeSearchAfter(final String lastId, final QueryBuilder query) {
+    String id = Hex.encode(lastId.getBytes(UTF_8));
+    return Hex.encode(format("%s%s:%s", SEARCH_AFTER_PREFIX, id, getHashCode(query)).getBytes(UTF_8));
+  }
+
+  /**
+   * Decodes the given hex, rejecting malformed tokens as a bad request rather than failing with a server error.
+   */
+  private static byte[] decodeHex(final String encoded) {
+    try {
+      return Hex.decode(encoded);
+    }
+    catch (IllegalArgumentException e) {
+      throw new WebApplicationException(format("Unable to parse token %s", encoded), BAD_REQUEST);
+    }
+  }
+
   private String getHashCode(final QueryBuilder query) {
     return MD5.function().hashString(query.toString(), UTF_8).toString();
   }
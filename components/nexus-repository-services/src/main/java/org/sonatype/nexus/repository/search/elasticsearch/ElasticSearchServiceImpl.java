@@ -26,9 +26,11 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.ws.rs.WebApplicationException;
 
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.common.text.Strings2;
@@ -48,7 +50,9 @@ import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.SearchHit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
 import static java.time.format.DateTimeFormatter.ofPattern;
+import static org.sonatype.nexus.repository.http.HttpStatus.NOT_ACCEPTABLE;
 import static org.sonatype.nexus.repository.search.index.SearchConstants.*;
 
 /**
@@ -74,25 +78,49 @@ public class ElasticSearchServiceImpl
 
   private final Set<ElasticSearchExtension> decorators;
 
-  @Inject
+  private final boolean searchAfterEnabled;
+
   public ElasticSearchServiceImpl(
       final ElasticSearchQueryService elasticSearchQueryService,
       final ElasticSearchIndexService elasticSearchIndexService,
       final ElasticSearchUtils elasticSearchUtils,
       final TokenEncoder tokenEncoder,
       final Set<ElasticSearchExtension> decorators)
+  {
+    this(elasticSearchQueryService, elasticSearchIndexService, elasticSearchUtils, tokenEncoder, decorators, false);
+  }
+
+  /**
+   * @param searchAfterEnabled whether to page with search_after cursors instead of from/size (default: false)
+   */
+  @Inject
+  public ElasticSearchServiceImpl(
+      final ElasticSearchQueryService elasticSearchQueryService,
+      final ElasticSearchIndexService elasticSearchIndexService,
+      final ElasticSearchUtils elasticSearchUtils,
+      final TokenEncoder tokenEncoder,
+      final Set<ElasticSearchExtension> decorators,
+      @Named("${nexus.search.searchAfter.enabled:-false}") final boolean searchAfterEnabled)
   {
     this.elasticSearchQueryService = checkNotNull(elasticSearchQueryService);
     this.elasticSearchIndexService = checkNotNull(elasticSearchIndexService);
     this.elasticSearchUtils = checkNotNull(elasticSearchUtils);
     this.tokenEncoder = checkNotNull(tokenEncoder);
     this.decorators = checkNotNull(decorators);
+    this.searchAfterEnabled = searchAfterEnabled;
   }
 
   @Override
   public SearchResponse search(final SearchRequest searchRequest) {
     QueryBuilder queryBuilder = elasticSearchUtils.buildQuery(searchRequest);
 
+    if (useSearchAfter(searchRequest)) {
+      SearchResponse response = searchAfter(searchRequest, queryBuilder);
+      if (response != null) {
+        return response;
+      }
+    }
+
     int from = Optional.ofNullable(searchRequest.getContinuationToken())
         .filter(Strings2::notBlank)
         .map(__ -> decodeFrom(searchRequest, queryBuilder))
@@ -103,6 +131,49 @@ public class ElasticSearchServiceImpl
     return convertSearchResponse(searchResponse, continuationToken(searchRequest, queryBuilder, searchResponse));
   }
 
+  /**
+   * Explicit offsets, explicit sorts and tokens issued before search_after was enabled keep paging with from/size.
+   */
+  private boolean useSearchAfter(final SearchRequest searchRequest) {
+    if (!searchAfterEnabled || searchRequest.getOffset() != null || searchRequest.getSortField() != null) {
+      return false;
+    }
+    String token = searchRequest.getContinuationToken();
+    return Strings2.isBlank(token) || tokenEncoder.isSearchAfter(token);
+  }
+
+  /**
+   * Pages in id order after the id in the continuation token, or returns {@code null} to page with from/size from the
+   * start if an index to search predates the id field.
+   */
+  @Nullable
+  private SearchResponse searchAfter(final SearchRequest searchRequest, final QueryBuilder queryBuilder) {
+    String lastId = Optional.ofNullable(searchRequest.getContinuationToken())
+        .filter(Strings2::notBlank)
+        .map(token -> tokenEncoder.decodeSearchAfter(token, queryBuilder))
+        .orElse(null);
+
+    org.elasticsearch.action.search.SearchResponse searchResponse =
+        elasticSearchQueryService.searchAfter(queryBuilder, lastId, searchRequest.getLimit());
+    if (searchResponse == null) {
+      if (lastId != null) {
+        // indexes only gain the id field, so a token issued in id order can no longer be continued
+        throw new WebApplicationException(
+            format("Continuation token %s can no longer be continued", searchRequest.getContinuationToken()),
+            NOT_ACCEPTABLE);
+      }
+      return null;
+    }
+
+    SearchHit[] hits = searchResponse.getHits().getHits();
+    String continuationToken = null;
+    if (hits.length > 0 && hits.length == searchRequest.getLimit()) {
+      String nextId = String.valueOf(hits[hits.length - 1].getSortValues()[0]);
+      continuationToken = tokenEncoder.encodeSearchAfter(nextId, queryBuilder);
+    }
+    return convertSearchResponse(searchResponse, continuationToken);
+  }
+
   @Override
   public Iterable<ComponentSearchResult> browse(final SearchRequest searchRequest) {
     Iterable<SearchHit> browse = elasticSearchQueryService.browse(elasticSearchUtils.buildQuery(searchRequest));
@@ -0,0 +1,91 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search.index;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import static java.lang.Math.max;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
+
+/**
+ * Produces search documents while rebuilding indexes, on a pool of {@code nexus.elasticsearch.reindex.producerThreads}
+ * threads shared by all repositories being rebuilt, so the number of threads stays the same however many are rebuilt
+ * concurrently.
+ *
+ * A thread count of {@code 0} (the default) disables the pool; indexes are then rebuilt sequentially.
+ */
+@Named
+@Singleton
+@ManagedLifecycle(phase = SERVICES)
+public class RebuildIndexExecutor
+    extends LifecycleSupport
+{
+  private final int threads;
+
+  private volatile ExecutorService executor;
+
+  @Inject
+  public RebuildIndexExecutor(@Named("${nexus.elasticsearch.reindex.producerThreads:-0}") final int threads) {
+    this.threads = max(threads, 0);
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (threads > 0) {
+      executor = NexusExecutorService.forCurrentSubject(
+          Executors.newFixedThreadPool(threads, new NexusThreadFactory("rebuild-index-producer", "rebuild-index")));
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    ExecutorService current = executor;
+    if (current != null) {
+      executor = null;
+      current.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns {@code true} if documents can be produced on the shared pool.
+   */
+  public boolean isEnabled() {
+    return executor != null;
+  }
+
+  /**
+   * Runs the given producer on the shared pool.
+   *
+   * @throws RejectedExecutionException if the pool is disabled or has been stopped
+   */
+  public <T> CompletableFuture<T> produce(final Supplier<T> producer) {
+    ExecutorService current = executor;
+    if (current == null) {
+      throw new RejectedExecutionException("Rebuild index executor is not running");
+    }
+    return CompletableFuture.supplyAsync(producer, current);
+  }
+}
@@ -12,17 +12,39 @@
  */
 package org.sonatype.nexus.repository.search.index;
 
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.sonatype.goodies.common.MultipleFailures;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.RepositoryTaskSupport;
 import org.sonatype.nexus.scheduling.Cancelable;
+import org.sonatype.nexus.scheduling.CancelableHelper;
+import org.sonatype.nexus.scheduling.TaskInterruptedException;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 
+import com.google.common.collect.Lists;
 import org.elasticsearch.ElasticsearchException;
 
+import static java.lang.Math.max;
+
 /**
  * Internal task to rebuild index of given repository.
  *
+ * When {@code nexus.elasticsearch.reindex.repositoryConcurrency} is greater than one, that many repositories are
+ * rebuilt at the same time.
+ *
  * @since 3.0
  */
 @Named
@@ -30,6 +52,89 @@ public class RebuildIndexTask
     extends RepositoryTaskSupport
     implements Cancelable
 {
+  private final int repositoryConcurrency;
+
+  public RebuildIndexTask() {
+    this(1);
+  }
+
+  @Inject
+  public RebuildIndexTask(
+      @Named("${nexus.elasticsearch.reindex.repositoryConcurrency:-1}") final int repositoryConcurrency)
+  {
+    this.repositoryConcurrency = max(repositoryConcurrency, 1);
+  }
+
+  @Override
+  protected Object execute() throws Exception {
+    if (repositoryConcurrency == 1) {
+      return super.execute();
+    }
+    List<Repository> repositories = Lists.newArrayList(findRepositories());
+    if (repositories.size() < 2) {
+      return super.execute();
+    }
+
+    // worker threads see this flag through CancelableHelper, raised when the task is canceled
+    AtomicBoolean canceled = new AtomicBoolean();
+    MultipleFailures failures = new MultipleFailures();
+    int threads = Math.min(repositoryConcurrency, repositories.size());
+    ExecutorService executor = NexusExecutorService.forCurrentSubject(
+        Executors.newFixedThreadPool(threads, new NexusThreadFactory("rebuild-index", "rebuild-index")));
+    try {
+      CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+      for (Repository repository : repositories) {
+        completionService.submit(() -> {
+          CancelableHelper.set(canceled);
+          try {
+            if (!canceled.get()) {
+              execute(repository);
+            }
+          }
+          catch (TaskInterruptedException e) { // NOSONAR
+            throw e;
+          }
+          catch (Exception e) {
+            log.error("Failed to run task '{}' on repository '{}'", getMessage(), repository.getName(), e);
+            throw e;
+          }
+          finally {
+            CancelableHelper.remove();
+          }
+          return null;
+        });
+      }
+
+      int remaining = repositories.size();
+      while (remaining > 0) {
+        Future<Void> done = completionService.poll(1, TimeUnit.SECONDS);
+        if (isCanceled()) {
+          canceled.set(true);
+        }
+        if (done == null) {
+          continue;
+        }
+        remaining--;
+        try {
+          done.get();
+        }
+        catch (ExecutionException e) {
+          if (e.getCause() instanceof TaskInterruptedException) {
+            throw (TaskInterruptedException) e.getCause();
+          }
+          failures.add(e.getCause());
+        }
+      }
+    }
+    finally {
+      canceled.set(true);
+      executor.shutdownNow();
+    }
+
+    failures.maybePropagate(String.format("Failed to run task '%s'", getMessage()));
+    return null;
+  }
+
   @Override
   protected void execute(final Repository repository) {
     try {
@@ -0,0 +1,53 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search.index;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Limits the rate at which search documents are submitted while rebuilding indexes, shared by all repositories being
+ * rebuilt so the overall load stays the same however many are rebuilt concurrently.
+ *
+ * A limit of {@code 0} (the default) means unlimited.
+ */
+@Named
+@Singleton
+public class RebuildIndexThrottle
+    extends ComponentSupport
+{
+  @Nullable
+  private final RateLimiter rateLimiter;
+
+  @Inject
+  public RebuildIndexThrottle(
+      @Named("${nexus.elasticsearch.reindex.documentsPerSecond:-0}") final double documentsPerSecond)
+  {
+    this.rateLimiter = documentsPerSecond > 0 ? RateLimiter.create(documentsPerSecond) : null;
+  }
+
+  /**
+   * Waits until the given number of documents may be submitted.
+   */
+  public void acquire(final int documents) {
+    if (rateLimiter != null && documents > 0) {
+      rateLimiter.acquire(documents);
+    }
+  }
+}
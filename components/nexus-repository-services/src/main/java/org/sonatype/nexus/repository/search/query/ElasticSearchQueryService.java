@@ -14,6 +14,8 @@ package org.sonatype.nexus.repository.search.query;
 
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.SearchHit;
@@ -36,6 +38,16 @@ public interface ElasticSearchQueryService
    */
   SearchResponse search(QueryBuilder query, int from, int size);
 
+  /**
+   * Search component metadata (paged) in order of their unique id, after the id of the last hit of the previous page.
+   * Every page costs the same, however deep, and is not limited by the result window.
+   *
+   * @param lastId id of the last hit of the previous page, {@code null} for the first page
+   * @return {@code null} if an index to search predates the id field, in which case page with from/size instead
+   */
+  @Nullable
+  SearchResponse searchAfter(QueryBuilder query, @Nullable String lastId, int size);
+
   /**
    * Search component metadata (aggregated).
    */
@@ -16,8 +16,11 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -50,6 +53,8 @@ import org.elasticsearch.action.search.SearchScrollRequestBuilder;
 import org.elasticsearch.action.search.ShardSearchFailure;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -62,11 +67,16 @@ import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.joining;
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
 import static org.elasticsearch.index.query.QueryBuilders.scriptQuery;
+import static org.elasticsearch.search.sort.SortBuilders.fieldSort;
+import static org.sonatype.nexus.repository.search.index.SearchConstants.ID;
 import static org.sonatype.nexus.repository.search.index.SearchConstants.TYPE;
 import static org.sonatype.nexus.repository.search.query.RepositoryQueryBuilder.repositoryQuery;
 import static org.sonatype.nexus.security.BreadActions.BROWSE;
@@ -97,8 +107,27 @@ public class ElasticSearchQueryServiceImpl
 
   private final boolean profile;
 
+  private final boolean searchAfterBrowse;
+
   private static final int MAX_ELASTIC_RESPONSE_SIZE = 10000;
 
+  private static final int BROWSE_PAGE_SIZE = 100;
+
+  /**
+   * Indexes known to map the id field, which is never removed from an index once mapped.
+   */
+  private final Set<String> idMappedIndexes = ConcurrentHashMap.newKeySet();
+
+  public ElasticSearchQueryServiceImpl(final Provider<Client> client,
+                                       final RepositoryManager repositoryManager,
+                                       final SecurityHelper securityHelper,
+                                       final SearchSubjectHelper searchSubjectHelper,
+                                       final IndexNamingPolicy indexNamingPolicy,
+                                       final boolean profile)
+  {
+    this(client, repositoryManager, securityHelper, searchSubjectHelper, indexNamingPolicy, profile, false);
+  }
+
   /**
    * @param client source for a {@link Client}
    * @param repositoryManager the repositoryManager
@@ -106,6 +135,7 @@ public class ElasticSearchQueryServiceImpl
    * @param searchSubjectHelper the searchSubjectHelper
    * @param indexNamingPolicy the index naming policy
    * @param profile whether or not to profile elasticsearch queries (default: false)
+   * @param searchAfterBrowse whether to browse in id order instead of with a scroll (default: false)
    */
   @Inject
   public ElasticSearchQueryServiceImpl(final Provider<Client> client,
@@ -113,7 +143,9 @@ public class ElasticSearchQueryServiceImpl
                                        final SecurityHelper securityHelper,
                                        final SearchSubjectHelper searchSubjectHelper,
                                        final IndexNamingPolicy indexNamingPolicy,
-                                       @Named("${nexus.elasticsearch.profile:-false}") final boolean profile)
+                                       @Named("${nexus.elasticsearch.profile:-false}") final boolean profile,
+                                       @Named("${nexus.search.searchAfter.enabled:-false}")
+                                       final boolean searchAfterBrowse)
   {
     this.client = checkNotNull(client);
     this.repositoryManager = checkNotNull(repositoryManager);
@@ -121,6 +153,7 @@ public class ElasticSearchQueryServiceImpl
     this.searchSubjectHelper = checkNotNull(searchSubjectHelper);
     this.indexNamingPolicy = checkNotNull(indexNamingPolicy);
     this.profile = profile;
+    this.searchAfterBrowse = searchAfterBrowse;
   }
 
   @Override
@@ -135,6 +168,9 @@ public class ElasticSearchQueryServiceImpl
       return emptyList();
     }
 
+    if (searchAfterBrowse && hasIdMapping(searchableIndexes)) {
+      return () -> new SearchAfterHitIterator(repoQuery, searchableIndexes);
+    }
     return () -> new SearchHitIterator(query, searchableIndexes, repoQuery.skipContentSelectors);
   }
 
@@ -160,6 +196,25 @@ public class ElasticSearchQueryServiceImpl
     }
   }
 
+  @Override
+  @Nullable
+  public SearchResponse searchAfter(final QueryBuilder query, @Nullable final String lastId, final int size) {
+    if (!validateQuery(query)) {
+      return EMPTY_SEARCH_RESPONSE;
+    }
+
+    RepositoryQueryBuilder repoQuery = repositoryQuery(query);
+    final String[] searchableIndexes = getSearchableIndexes(repoQuery);
+    if (searchableIndexes.length == 0) {
+      return EMPTY_SEARCH_RESPONSE;
+    }
+
+    if (!hasIdMapping(searchableIndexes)) {
+      return null;
+    }
+    return executeSearchAfter(repoQuery, searchableIndexes, lastId, size);
+  }
+
   @Override
   public SearchResponse search(final QueryBuilder query, final List<AggregationBuilder> aggregations) {
     if (!validateQuery(query)) {
@@ -219,6 +274,60 @@ public class ElasticSearchQueryServiceImpl
     return searchResponse;
   }
 
+  private SearchResponse executeSearchAfter(final RepositoryQueryBuilder repoQuery,
+                                            final String[] searchableIndexes,
+                                            @Nullable final String lastId,
+                                            final int size)
+  {
+    if (repoQuery.skipContentSelectors) {
+      return executeSearchAfter(repoQuery, searchableIndexes, lastId, size, null);
+    }
+
+    try (SubjectRegistration registration = searchSubjectHelper.register(securityHelper.subject())) {
+      QueryBuilder selectorFilter = scriptQuery(ContentAuthPluginScriptFactory.newScript(registration.getId()));
+      return executeSearchAfter(repoQuery, searchableIndexes, lastId, size, selectorFilter);
+    }
+  }
+
+  /**
+   * Sorts the hits by their unique id and continues after the given id with a range filter, so unlike from/size every
+   * page costs the same. Any sort of the query is ignored as the hits must be in id order to page this way.
+   */
+  private SearchResponse executeSearchAfter(final RepositoryQueryBuilder repoQuery,
+                                            final String[] searchableIndexes,
+                                            @Nullable final String lastId,
+                                            final int size,
+                                            @Nullable final QueryBuilder postFilter)
+  {
+    QueryBuilder query = repoQuery;
+    if (lastId != null) {
+      query = boolQuery().must(repoQuery).filter(rangeQuery(ID).gt(lastId));
+    }
+
+    SearchRequestBuilder searchRequestBuilder = client.get().prepareSearch(searchableIndexes)
+        .setTypes(TYPE)
+        .setQuery(query)
+        .setSize(size)
+        .addSort(fieldSort(ID).order(SortOrder.ASC))
+        .setProfile(profile);
+
+    if (postFilter != null) {
+      searchRequestBuilder.setPostFilter(postFilter);
+    }
+
+    if (repoQuery.timeout != null) {
+      searchRequestBuilder.setTimeout(repoQuery.timeout.getSeconds() + "s");
+    }
+
+    SearchResponse searchResponse = searchRequestBuilder.execute().actionGet();
+
+    if (profile) {
+      logProfileResults(searchResponse);
+    }
+
+    return searchResponse;
+  }
+
   private SearchResponse executeSearch(final RepositoryQueryBuilder repoQuery,
                                        final String[] searchableIndexes,
                                        final List<AggregationBuilder> aggregations,
@@ -339,6 +448,55 @@ public class ElasticSearchQueryServiceImpl
     return repo.optionalFacet(SearchIndexFacet.class).isPresent() && repo.getConfiguration().isOnline();
   }
 
+  /**
+   * Returns {@code true} if all the given indexes map the id field. Indexes created before it was added lack it until
+   * they are rebuilt, and sorting them on it would tie every hit.
+   */
+  private boolean hasIdMapping(final String[] indexes) {
+    String[] unknownIndexes = Arrays.stream(indexes)
+        .filter(index -> !idMappedIndexes.contains(index))
+        .toArray(String[]::new);
+    if (unknownIndexes.length == 0) {
+      return true;
+    }
+
+    ImmutableOpenMap<String, ImmutableOpenMap<String, MappingMetaData>> mappings = indicesAdminClient()
+        .prepareGetMappings(unknownIndexes)
+        .setTypes(TYPE)
+        .execute()
+        .actionGet()
+        .getMappings();
+
+    for (String index : unknownIndexes) {
+      ImmutableOpenMap<String, MappingMetaData> indexMappings = mappings.get(index);
+      MappingMetaData mapping = indexMappings != null ? indexMappings.get(TYPE) : null;
+      if (mapping == null || !mapsId(mapping)) {
+        log.debug("Index {} has no {} mapping, paging with from/size until it is rebuilt", index, ID);
+        return false;
+      }
+      idMappedIndexes.add(index);
+    }
+    return true;
+  }
+
+  private boolean mapsId(final MappingMetaData mapping) {
+    try {
+      Object properties = mapping.sourceAsMap().get("properties");
+      return properties instanceof Map && ((Map<?, ?>) properties).containsKey(ID);
+    }
+    catch (IOException e) {
+      log.debug("Unable to read mapping of type {}", mapping.type(), e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns the id of a hit paged in id order, its only sort value.
+   */
+  private static String lastId(final SearchHit hit) {
+    return String.valueOf(hit.getSortValues()[0]);
+  }
+
   private IndicesAdminClient indicesAdminClient() {
     return client.get().admin().indices();
   }
@@ -450,4 +608,56 @@ public class ElasticSearchQueryServiceImpl
       }
     }
   }
+
+  /**
+   * Pages through hits in id order, which unlike a scroll keeps no search context open between pages so it cannot
+   * expire however slowly the hits are consumed.
+   */
+  private class SearchAfterHitIterator
+      implements Iterator<SearchHit>
+  {
+    private final RepositoryQueryBuilder repoQuery;
+
+    private final String[] searchableIndexes;
+
+    private Iterator<SearchHit> iterator;
+
+    private SearchHit lastHit;
+
+    private boolean noMoreHits = false;
+
+    SearchAfterHitIterator(final RepositoryQueryBuilder repoQuery, final String[] searchableIndexes) { // NOSONAR
+      this.repoQuery = repoQuery;
+      this.searchableIndexes = searchableIndexes;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (noMoreHits) {
+        return false;
+      }
+      if (iterator == null || !iterator.hasNext()) {
+        String lastId = lastHit != null ? lastId(lastHit) : null;
+        SearchHit[] hits =
+            executeSearchAfter(repoQuery, searchableIndexes, lastId, BROWSE_PAGE_SIZE).getHits().getHits();
+        iterator = Arrays.asList(hits).iterator();
+        noMoreHits = hits.length == 0;
+      }
+      return iterator.hasNext();
+    }
+
+    @Override
+    public SearchHit next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      lastHit = iterator.next();
+      return lastHit;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
 }
@@ -12,6 +12,8 @@
  */
 package org.sonatype.nexus.repository.security;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.Set;
 
 import org.sonatype.nexus.selector.VariableSource;
@@ -85,4 +87,40 @@ public interface ContentPermissionChecker
                            String repositoryFormat,
                            VariableSource variableSource,
                            String... actions);
+
+  /**
+   * Checks a page of items from the given repository at once, returning the positions of the items for which either
+   * the view permission or the content selector permission is permitted for any of the actions.
+   */
+  default BitSet permittedAnyOf(final String repositoryName,
+                                final String repositoryFormat,
+                                final List<VariableSource> variableSources,
+                                final String... actions)
+  {
+    BitSet permitted = new BitSet(variableSources.size());
+    for (int i = 0; i < variableSources.size(); i++) {
+      if (isPermittedAnyOf(repositoryName, repositoryFormat, variableSources.get(i), actions)) {
+        permitted.set(i);
+      }
+    }
+    return permitted;
+  }
+
+  /**
+   * Checks a page of items from the given repository at once, returning the positions of the items for which either
+   * the view permission or a JEXL content selector permission is permitted for any of the actions.
+   */
+  default BitSet permittedJexlOnlyAnyOf(final String repositoryName,
+                                        final String repositoryFormat,
+                                        final List<VariableSource> variableSources,
+                                        final String... actions)
+  {
+    BitSet permitted = new BitSet(variableSources.size());
+    for (int i = 0; i < variableSources.size(); i++) {
+      if (isPermittedJexlOnlyAnyOf(repositoryName, repositoryFormat, variableSources.get(i), actions)) {
+        permitted.set(i);
+      }
+    }
+    return permitted;
+  }
 }
@@ -14,10 +14,14 @@
 package org.sonatype.nexus.repository.security.internal;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -36,6 +40,7 @@ import com.google.common.annotations.VisibleForTesting;
 import org.apache.shiro.authz.Permission;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
 
 /**
  * @since 3.1
@@ -50,28 +55,63 @@ public class ContentPermissionCheckerImpl
 
   private final SelectorManager selectorManager;
 
-  @Inject
+  @Nullable
+  private final RepositoryViewPermissionIndex permissionIndex;
+
   public ContentPermissionCheckerImpl(final SecurityHelper securityHelper,
                                       final SelectorManager selectorManager) {
+    this(securityHelper, selectorManager, null);
+  }
+
+  @Inject
+  public ContentPermissionCheckerImpl(final SecurityHelper securityHelper,
+                                      final SelectorManager selectorManager,
+                                      @Nullable final RepositoryViewPermissionIndex permissionIndex) {
     this.securityHelper = checkNotNull(securityHelper);
     this.selectorManager = checkNotNull(selectorManager);
+    this.permissionIndex = permissionIndex;
   }
 
   @VisibleForTesting
   public boolean isViewPermitted(final String repositoryName, final String repositoryFormat, final String action) {
+    if (indexed(repositoryName, repositoryFormat, action)) {
+      return true;
+    }
     return securityHelper.anyPermitted(new RepositoryViewPermission(repositoryFormat, repositoryName, action));
   }
 
   @VisibleForTesting
   public boolean isViewPermitted(final String repositoryName, final String repositoryFormat, final String... actions) {
+    if (indexed(repositoryName, repositoryFormat, actions)) {
+      return true;
+    }
     return securityHelper.anyPermitted(permissionsFor(repositoryName, repositoryFormat, actions));
   }
 
   @VisibleForTesting
   public boolean isViewPermitted(final Set<String> repoNames, final String repositoryFormat, final String... actions) {
+    if (repoNames.stream().anyMatch(repoName -> indexed(repoName, repositoryFormat, actions))) {
+      return true;
+    }
     return securityHelper.anyPermitted(permissionsFor(repoNames, repositoryFormat, actions));
   }
 
+  /**
+   * Returns {@code true} if the compiled view permissions of the current subject grant any of the actions.
+   */
+  private boolean indexed(final String repositoryName, final String repositoryFormat, final String... actions) {
+    RepositoryViewPermissionIndex index = permissionIndex;
+    if (index == null) {
+      return false;
+    }
+    for (String action : actions) {
+      if (index.isPermitted(repositoryFormat, repositoryName, action)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private static RepositoryViewPermission[] permissionsFor(final String repositoryName, final String repositoryFormat, final String... actions) {
     return permissionsStreamFor(repositoryName, repositoryFormat, actions)
         .toArray(RepositoryViewPermission[]::new);
@@ -103,6 +143,9 @@ public class ContentPermissionCheckerImpl
 
   @VisibleForTesting
   public boolean isViewPermitted(final Set<String> repositoryNames, final String repositoryFormat, final String action) {
+    if (repositoryNames.stream().anyMatch(repoName -> indexed(repoName, repositoryFormat, action))) {
+      return true;
+    }
     RepositoryViewPermission[] perms = permissionsFor(repositoryNames, repositoryFormat, action);
     if (perms.length > 0) {
       return securityHelper.anyPermitted(perms);
@@ -310,4 +353,72 @@ public class ContentPermissionCheckerImpl
     return selectorManager.browse().stream()
         .anyMatch(config -> isContentPermittedAnyOf(repositoryNames, repositoryFormat, config, variableSource, actions));
   }
+
+  @Override
+  public BitSet permittedAnyOf(
+      final String repositoryName,
+      final String repositoryFormat,
+      final List<VariableSource> variableSources,
+      final String... actions)
+  {
+    return permittedAnyOf(repositoryName, repositoryFormat, variableSources, selectorManager::browse, actions);
+  }
+
+  @Override
+  public BitSet permittedJexlOnlyAnyOf(
+      final String repositoryName,
+      final String repositoryFormat,
+      final List<VariableSource> variableSources,
+      final String... actions)
+  {
+    return permittedAnyOf(repositoryName, repositoryFormat, variableSources, selectorManager::browseJexl, actions);
+  }
+
+  /**
+   * Checks the view permission and each selector permission once for the whole page, so only the selectors the
+   * subject holds are evaluated per item.
+   */
+  private BitSet permittedAnyOf(
+      final String repositoryName,
+      final String repositoryFormat,
+      final List<VariableSource> variableSources,
+      final Supplier<List<SelectorConfiguration>> selectors,
+      final String... actions)
+  {
+    BitSet permitted = new BitSet(variableSources.size());
+    if (variableSources.isEmpty()) {
+      return permitted;
+    }
+    if (isViewPermitted(repositoryName, repositoryFormat, actions)) {
+      permitted.set(0, variableSources.size());
+      return permitted;
+    }
+    List<SelectorConfiguration> granted = selectors.get().stream()
+        .filter(config -> securityHelper.anyPermitted(
+            contentPermissionsFor(repositoryName, repositoryFormat, config, actions)))
+        .collect(toList());
+    if (granted.isEmpty()) {
+      return permitted;
+    }
+    for (int i = 0; i < variableSources.size(); i++) {
+      VariableSource variableSource = variableSources.get(i);
+      for (SelectorConfiguration config : granted) {
+        if (evaluate(config, variableSource)) {
+          permitted.set(i);
+          break;
+        }
+      }
+    }
+    return permitted;
+  }
+
+  private boolean evaluate(final SelectorConfiguration selectorConfiguration, final VariableSource variableSource) {
+    try {
+      return selectorManager.evaluate(selectorConfiguration, variableSource);
+    }
+    catch (SelectorEvaluationException e) {
+      logMsgAndMaybeException(e);
+      return false;
+    }
+  }
 }
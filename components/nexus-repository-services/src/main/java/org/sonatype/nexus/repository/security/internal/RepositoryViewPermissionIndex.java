@@ -0,0 +1,304 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.security.internal;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.event.EventAware;
+import org.sonatype.nexus.common.event.EventHelper;
+import org.sonatype.nexus.distributed.event.service.api.common.AuthorizationChangedDistributedEvent;
+import org.sonatype.nexus.repository.security.RepositoryViewPermission;
+import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.nexus.security.SecuritySystem;
+import org.sonatype.nexus.security.UserPrincipalsExpired;
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
+import org.sonatype.nexus.security.authz.WildcardPermission2;
+import org.sonatype.nexus.security.internal.SecurityContributionChangedEvent;
+import org.sonatype.nexus.security.role.RoleIdentifier;
+import org.sonatype.nexus.security.user.User;
+import org.sonatype.nexus.security.user.UserEvent;
+import org.sonatype.nexus.security.user.UserRoleMappingEvent;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.RolePermissionResolver;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.Subject;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Per-subject index of the {@link RepositoryViewPermission}s granted through the subject's roles, compiled into a map
+ * keyed by format and repository so view checks are answered with a few hash lookups instead of testing every
+ * permission of every role.
+ *
+ * Compiled indexes are immutable and held in a generation which is swapped atomically whenever the authorization
+ * configuration changes; indexes compiled against an older generation are never published to the new one.
+ *
+ * The index only ever grants: a subject whose permissions are not (entirely) found through its roles is simply not
+ * matched, and callers fall back to the regular Shiro check.
+ */
+@Named
+@Singleton
+public class RepositoryViewPermissionIndex
+    extends ComponentSupport
+    implements EventAware
+{
+  private static final String WILDCARD = "*";
+
+  private static final Splitter PART_SPLITTER = Splitter.on(':').trimResults();
+
+  private static final Splitter SUBPART_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+  private final boolean enabled;
+
+  private final SecurityHelper securityHelper;
+
+  private final SecuritySystem securitySystem;
+
+  private final RolePermissionResolver rolePermissionResolver;
+
+  private final int maximumSize;
+
+  private final Duration expireAfter;
+
+  private volatile Cache<PrincipalCollection, CompiledIndex> generation;
+
+  @Inject
+  public RepositoryViewPermissionIndex(
+      @Named("${nexus.security.viewPermissionIndex.enabled:-false}") final boolean enabled,
+      @Named("${nexus.security.viewPermissionIndex.maximumSize:-10000}") final int maximumSize,
+      @Named("${nexus.security.viewPermissionIndex.expireAfter:-300s}") final Duration expireAfter,
+      final SecurityHelper securityHelper,
+      final SecuritySystem securitySystem,
+      final RolePermissionResolver rolePermissionResolver)
+  {
+    checkArgument(maximumSize > 0, "Maximum size must be greater than zero");
+    this.enabled = enabled;
+    this.maximumSize = maximumSize;
+    this.expireAfter = checkNotNull(expireAfter);
+    this.securityHelper = checkNotNull(securityHelper);
+    this.securitySystem = checkNotNull(securitySystem);
+    this.rolePermissionResolver = checkNotNull(rolePermissionResolver);
+    this.generation = newGeneration();
+  }
+
+  private Cache<PrincipalCollection, CompiledIndex> newGeneration() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfter.toMillis(), TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Returns {@code true} if the current subject is known to be granted the given view permission; {@code false} means
+   * the index cannot tell and the permission must be checked as usual.
+   */
+  public boolean isPermitted(final String format, final String repositoryName, final String action) {
+    if (!enabled) {
+      return false;
+    }
+    CompiledIndex index = currentIndex();
+    return index != null && index.implies(format, repositoryName, action);
+  }
+
+  @Nullable
+  private CompiledIndex currentIndex() {
+    Subject subject = securityHelper.subject();
+    PrincipalCollection principals = subject.getPrincipals();
+    if (principals == null || principals.isEmpty()) {
+      return null;
+    }
+    Cache<PrincipalCollection, CompiledIndex> current = generation;
+    try {
+      return current.get(principals, this::compileCurrentUser);
+    }
+    catch (ExecutionException | RuntimeException e) {
+      log.debug("Unable to compile view permissions of {}", principals.getPrimaryPrincipal(), e);
+      return null;
+    }
+  }
+
+  private CompiledIndex compileCurrentUser() throws Exception {
+    User user = securitySystem.currentUser();
+    if (user == null) {
+      return CompiledIndex.EMPTY;
+    }
+    List<Permission> permissions = new ArrayList<>();
+    for (RoleIdentifier role : user.getRoles()) {
+      permissions.addAll(rolePermissionResolver.resolvePermissionsInRole(role.getRoleId()));
+    }
+    return compile(permissions);
+  }
+
+  /**
+   * Compiles the view permissions implied by the given permissions; permissions which are not
+   * {@link WildcardPermission2}s or cannot imply a view permission are left out.
+   */
+  @VisibleForTesting
+  static CompiledIndex compile(final Collection<Permission> permissions) {
+    Map<String, Set<String>> grants = new HashMap<>();
+    for (Permission permission : permissions) {
+      if (!(permission instanceof WildcardPermission2)) {
+        continue;
+      }
+      List<Set<String>> parts = parts((WildcardPermission2) permission);
+      if (!matches(parts, 0, RepositoryViewPermission.SYSTEM) || !matches(parts, 1, RepositoryViewPermission.DOMAIN)) {
+        continue;
+      }
+      // trailing parts beyond those of a view permission must be wildcards for it to be implied
+      if (parts.stream().skip(5).anyMatch(part -> !part.contains(WILDCARD))) {
+        continue;
+      }
+      for (String format : part(parts, 2)) {
+        for (String repositoryName : part(parts, 3)) {
+          grants.computeIfAbsent(key(format, repositoryName), k -> new HashSet<>()).addAll(part(parts, 4));
+        }
+      }
+    }
+    ImmutableMap.Builder<String, Set<String>> builder = ImmutableMap.builder();
+    grants.forEach((key, actions) ->
+        builder.put(key, actions.contains(WILDCARD) ? ImmutableSet.of(WILDCARD) : ImmutableSet.copyOf(actions)));
+    return new CompiledIndex(builder.build());
+  }
+
+  /**
+   * Parts of the permission; {@link WildcardPermission2#toString()} joins them with the wildcard syntax.
+   */
+  private static List<Set<String>> parts(final WildcardPermission2 permission) {
+    List<Set<String>> parts = new ArrayList<>();
+    for (String part : PART_SPLITTER.split(permission.toString())) {
+      parts.add(ImmutableSet.copyOf(SUBPART_SPLITTER.split(part.toLowerCase())));
+    }
+    return parts;
+  }
+
+  private static boolean matches(final List<Set<String>> parts, final int index, final String value) {
+    return index >= parts.size() || parts.get(index).contains(WILDCARD) || parts.get(index).contains(value);
+  }
+
+  /**
+   * Sub-parts of the given part, collapsed to the wildcard when missing (implied) or containing it.
+   */
+  private static Set<String> part(final List<Set<String>> parts, final int index) {
+    if (index >= parts.size() || parts.get(index).contains(WILDCARD)) {
+      return ImmutableSet.of(WILDCARD);
+    }
+    return parts.get(index);
+  }
+
+  private static String key(final String format, final String repositoryName) {
+    return format + ':' + repositoryName;
+  }
+
+  private void invalidate() {
+    generation = newGeneration();
+    log.trace("View permission index invalidated");
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final AuthorizationConfigurationChanged event) {
+    invalidate();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final SecurityContributionChangedEvent event) {
+    invalidate();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final AuthorizationChangedDistributedEvent event) {
+    if (EventHelper.isReplicating()) {
+      invalidate();
+    }
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final UserEvent event) {
+    invalidate();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final UserRoleMappingEvent event) {
+    invalidate();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final UserPrincipalsExpired event) {
+    invalidate();
+  }
+
+  /**
+   * Immutable view permissions of a subject, keyed by format and repository with wildcard entries kept as-is.
+   */
+  @VisibleForTesting
+  static final class CompiledIndex
+  {
+    static final CompiledIndex EMPTY = new CompiledIndex(ImmutableMap.of());
+
+    private final Map<String, Set<String>> grants;
+
+    private CompiledIndex(final Map<String, Set<String>> grants) {
+      this.grants = grants;
+    }
+
+    boolean implies(final String format, final String repositoryName, final String action) {
+      if (grants.isEmpty()) {
+        return false;
+      }
+      String f = format.toLowerCase();
+      String r = repositoryName.toLowerCase();
+      String a = action.toLowerCase();
+      return grants(key(f, r), a) || grants(key(f, WILDCARD), a) || grants(key(WILDCARD, r), a)
+          || grants(key(WILDCARD, WILDCARD), a);
+    }
+
+    private boolean grants(final String key, final String action) {
+      Set<String> actions = grants.get(key);
+      return actions != null && (actions.contains(action) || actions.contains(WILDCARD));
+    }
+
+    int size() {
+      return grants.size();
+    }
+  }
+}
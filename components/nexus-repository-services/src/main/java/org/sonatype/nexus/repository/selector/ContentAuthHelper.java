@@ -12,6 +12,9 @@
  */
 package org.sonatype.nexus.repository.selector;
 
+import java.util.BitSet;
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -23,6 +26,7 @@ import org.sonatype.nexus.selector.VariableSource;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.toList;
 import static org.sonatype.nexus.security.BreadActions.BROWSE;
 import static org.sonatype.nexus.security.BreadActions.READ;
 
@@ -62,4 +66,26 @@ public class ContentAuthHelper
         repositoryName -> contentPermissionChecker.isPermittedJexlOnlyAnyOf(repositoryName, format, variableSource, BROWSE, READ));
   }
 
+  /**
+   * Page variant of {@link #checkPathPermissionsJexlOnly(String, String, String...)}, returning the positions of the
+   * permitted paths.
+   */
+  public BitSet checkPathPermissionsJexlOnly(
+      final List<String> paths,
+      final String format,
+      final String... repositoryNames)
+  {
+    List<VariableSource> variableSources = variableSources(paths, format);
+    BitSet permitted = new BitSet(paths.size());
+    for (String repositoryName : repositoryNames) {
+      permitted.or(
+          contentPermissionChecker.permittedJexlOnlyAnyOf(repositoryName, format, variableSources, BROWSE, READ));
+    }
+    return permitted;
+  }
+
+  private List<VariableSource> variableSources(final List<String> paths, final String format) {
+    VariableResolverAdapter variableResolverAdapter = variableResolverAdapterManager.get(format);
+    return paths.stream().map(path -> variableResolverAdapter.fromPath(path, format)).collect(toList());
+  }
 }
@@ -20,17 +20,20 @@ import org.sonatype.goodies.testsupport.TestSupport;
 import org.sonatype.nexus.cache.CacheHelper;
 import org.sonatype.nexus.common.event.EventManager;
 import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.cache.NegativeCacheHandler;
 import org.sonatype.nexus.repository.cache.NegativeCacheKey;
 import org.sonatype.nexus.repository.config.ConfigurationFacet;
 import org.sonatype.nexus.repository.http.HttpStatus;
 import org.sonatype.nexus.repository.view.Status;
 
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -66,7 +69,7 @@ public class NegativeCacheFacetImplTest
     cacheHelper = mock(CacheHelper.class);
     cache = mock(Cache.class);
     when(cacheHelper.maybeCreateCache(any(), any(), any(), any())).thenReturn(cache);
-    underTest = new NegativeCacheFacetImpl(cacheHelper);
+    underTest = new NegativeCacheFacetImpl(cacheHelper, false, 1000);
     underTest.installDependencies(mock(EventManager.class));
     key = mock(NegativeCacheKey.class);
     status = Status.failure(HttpStatus.NOT_FOUND, "404");
@@ -218,6 +221,26 @@ public class NegativeCacheFacetImplTest
     verify(cache).remove(key2);
   }
 
+  @Test
+  public void metricsAreRemovedOnDestroy() throws Exception {
+    MetricRegistry metricRegistry = new MetricRegistry();
+    underTest = new NegativeCacheFacetImpl(cacheHelper, true, 1000);
+    underTest.installDependencies(mock(EventManager.class));
+    underTest.setMetricRegistry(metricRegistry);
+    config.enabled = true;
+    underTest.attach(repository);
+    underTest.init();
+    underTest.start();
+    metricRegistry.meter(NegativeCacheHandler.metricName("test", "hits")).mark();
+    metricRegistry.meter(NegativeCacheHandler.metricName("test", "misses")).mark();
+    assertThat(metricRegistry.getNames().size(), is(4));
+
+    underTest.stop();
+    underTest.destroy();
+
+    assertThat(metricRegistry.getNames().isEmpty(), is(true));
+  }
+
   private static void mockIterable(
       Cache<NegativeCacheKey, Status> iterable,
       Cache.Entry<NegativeCacheKey, Status>... values)
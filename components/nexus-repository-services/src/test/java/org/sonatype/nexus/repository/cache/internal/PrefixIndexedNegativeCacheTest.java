@@ -0,0 +1,144 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.cache.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.http.HttpStatus;
+import org.sonatype.nexus.repository.view.Status;
+
+import com.google.common.base.Ticker;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PrefixIndexedNegativeCacheTest
+    extends TestSupport
+{
+  private static final Status NOT_FOUND = Status.failure(HttpStatus.NOT_FOUND, "404");
+
+  private long now;
+
+  private PrefixIndexedNegativeCache underTest;
+
+  @Before
+  public void setUp() {
+    Ticker ticker = new Ticker()
+    {
+      @Override
+      public long read() {
+        return now;
+      }
+    };
+    underTest = new PrefixIndexedNegativeCache(3, TimeUnit.MINUTES.toNanos(10), ticker);
+  }
+
+  @Test
+  public void putAndGet() {
+    underTest.put(key("/foo/bar.jar"), NOT_FOUND);
+
+    assertThat(underTest.get(key("/foo/bar.jar")), is(NOT_FOUND));
+    assertThat(underTest.get(key("/foo/baz.jar")), nullValue());
+    assertThat(underTest.get(new ValueNegativeCacheKey("/foo/bar.jar")), nullValue());
+  }
+
+  @Test
+  public void entriesExpireAfterTimeToLive() {
+    underTest.put(key("/foo/bar.jar"), NOT_FOUND);
+
+    now += TimeUnit.MINUTES.toNanos(9);
+    assertThat(underTest.get(key("/foo/bar.jar")), is(NOT_FOUND));
+
+    now += TimeUnit.MINUTES.toNanos(1);
+    assertThat(underTest.get(key("/foo/bar.jar")), nullValue());
+    assertThat(underTest.size(), is(0));
+    assertThat(underTest.getEvictionCount(), is(0L));
+  }
+
+  @Test
+  public void oldestEntriesAreEvictedOverCapacity() {
+    underTest.put(key("/a"), NOT_FOUND);
+    underTest.put(key("/b"), NOT_FOUND);
+    underTest.put(key("/c"), NOT_FOUND);
+    underTest.put(key("/d"), NOT_FOUND);
+
+    assertThat(underTest.size(), is(3));
+    assertThat(underTest.getEvictionCount(), is(1L));
+    assertThat(underTest.get(key("/a")), nullValue());
+    assertThat(underTest.get(key("/d")), is(NOT_FOUND));
+  }
+
+  @Test
+  public void replacedEntriesDoNotCountTwice() {
+    underTest.put(key("/a"), NOT_FOUND);
+    underTest.put(key("/a"), NOT_FOUND);
+    underTest.put(key("/b"), NOT_FOUND);
+    underTest.put(key("/c"), NOT_FOUND);
+
+    assertThat(underTest.size(), is(3));
+    assertThat(underTest.getEvictionCount(), is(0L));
+    assertThat(underTest.get(key("/a")), is(NOT_FOUND));
+  }
+
+  @Test
+  public void invalidateSubsetRemovesOnlyChildren() {
+    underTest = new PrefixIndexedNegativeCache(100, TimeUnit.MINUTES.toNanos(10), Ticker.systemTicker());
+    underTest.put(key("/foo/"), NOT_FOUND);
+    underTest.put(key("/foo/bar.jar"), NOT_FOUND);
+    underTest.put(key("/foo/and/more/bar.jar"), NOT_FOUND);
+    underTest.put(key("/foo0/bar.jar"), NOT_FOUND);
+    underTest.put(key("/foobar.jar"), NOT_FOUND);
+    underTest.put(key("/fo/bar.jar"), NOT_FOUND);
+
+    assertThat(underTest.invalidateSubset(key("/foo/")), is(3));
+
+    assertThat(underTest.get(key("/foo/")), nullValue());
+    assertThat(underTest.get(key("/foo/bar.jar")), nullValue());
+    assertThat(underTest.get(key("/foo/and/more/bar.jar")), nullValue());
+    assertThat(underTest.get(key("/foo0/bar.jar")), is(NOT_FOUND));
+    assertThat(underTest.get(key("/foobar.jar")), is(NOT_FOUND));
+    assertThat(underTest.get(key("/fo/bar.jar")), is(NOT_FOUND));
+    assertThat(underTest.size(), is(3));
+  }
+
+  @Test
+  public void invalidateSubsetOfNonDirectoryRemovesOnlyKey() {
+    underTest.put(key("/foo"), NOT_FOUND);
+    underTest.put(key("/foo/bar.jar"), NOT_FOUND);
+
+    assertThat(underTest.invalidateSubset(key("/foo")), is(1));
+
+    assertThat(underTest.get(key("/foo")), nullValue());
+    assertThat(underTest.get(key("/foo/bar.jar")), is(NOT_FOUND));
+  }
+
+  @Test
+  public void invalidateAll() {
+    underTest.put(key("/foo"), NOT_FOUND);
+    underTest.put(new ValueNegativeCacheKey("bar"), NOT_FOUND);
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.size(), is(0));
+    assertThat(underTest.get(key("/foo")), nullValue());
+    assertThat(underTest.get(new ValueNegativeCacheKey("bar")), nullValue());
+  }
+
+  private static PathNegativeCacheKey key(final String path) {
+    return new PathNegativeCacheKey(path);
+  }
+}
@@ -12,16 +12,33 @@
  */
 package org.sonatype.nexus.repository.group;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.collect.AttributesMap;
 import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.config.Configuration;
 import org.sonatype.nexus.repository.group.GroupHandler.DispatchedRepositories;
+import org.sonatype.nexus.repository.manager.RepositoryDeletedEvent;
 import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.Headers;
+import org.sonatype.nexus.repository.view.Parameters;
+import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.Status;
 import org.sonatype.nexus.repository.view.ViewFacet;
 
+import com.codahale.metrics.MetricRegistry;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -29,11 +46,21 @@ import org.mockito.Mock;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonatype.nexus.repository.group.GroupHandler.USE_DISPATCHED_RESPONSE;
+import static org.sonatype.nexus.repository.http.HttpMethods.GET;
 import static org.sonatype.nexus.repository.http.HttpResponses.forbidden;
 import static org.sonatype.nexus.repository.http.HttpResponses.notFound;
 import static org.sonatype.nexus.repository.http.HttpResponses.ok;
@@ -63,8 +90,16 @@ public class GroupHandlerTest
   @Mock
   private ViewFacet viewFacet2;
 
+  @Mock
+  private Repository group;
+
+  @Mock
+  private Subject subject;
+
   private GroupHandler underTest;
 
+  private GroupMemberDispatcher memberDispatcher;
+
   @Before
   public void setUp() throws Exception {
     underTest = new GroupHandler();
@@ -76,6 +111,14 @@ public class GroupHandlerTest
     when(proxy2.facet(ViewFacet.class)).thenReturn(viewFacet2);
   }
 
+  @After
+  public void tearDown() throws Exception {
+    if (memberDispatcher != null) {
+      memberDispatcher.stop();
+    }
+    ThreadContext.unbindSubject();
+  }
+
   @Test
   public void whenAllRepositoryReturnOkThenGroupReturnsOk() throws Exception {
     Response ok1 = ok();
@@ -152,6 +195,202 @@ public class GroupHandlerTest
     verify(viewFacet2, times(0)).dispatch(request, context);
   }
 
+  @Test
+  public void getAllDispatchesMembersConcurrently() throws Exception {
+    when(subject.associateWith(any(Runnable.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+    startMemberDispatcher(new GroupMemberDispatcher(true, false, 1, 2));
+
+    // each member only responds once both are being dispatched
+    CountDownLatch dispatching = new CountDownLatch(2);
+    Response ok1 = ok();
+    Response ok2 = ok();
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class)))
+        .thenAnswer(invocation -> awaitBoth(dispatching, ok1));
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class)))
+        .thenAnswer(invocation -> awaitBoth(dispatching, ok2));
+
+    DispatchedRepositories dispatched = new DispatchedRepositories();
+    LinkedHashMap<Repository, Response> responses = underTest.getAll(context, asList(proxy1, proxy2), dispatched);
+
+    assertThat(responses.keySet(), contains(proxy1, proxy2));
+    assertThat(responses.get(proxy1), is(ok1));
+    assertThat(responses.get(proxy2), is(ok2));
+    assertThat(dispatched.getDispatched(), contains("Proxy 1", "Proxy 2"));
+  }
+
+  @Test(timeout = 10000)
+  public void memberErrorsFailTheGroupRequest() throws Exception {
+    when(subject.associateWith(any(Runnable.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+    startMemberDispatcher(new GroupMemberDispatcher(true, false, 1, 2));
+
+    StackOverflowError error = new StackOverflowError();
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class))).thenThrow(error);
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class))).thenReturn(ok());
+
+    try {
+      underTest.getAll(context, asList(proxy1, proxy2), new DispatchedRepositories());
+      fail("Expected the member error to fail the request");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), is(sameInstance(error)));
+    }
+  }
+
+  @Test
+  public void getFirstProbesMembersConcurrentlyInMemberOrder() throws Exception {
+    when(subject.associateWith(any(Runnable.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+    startMemberDispatcher(new GroupMemberDispatcher(false, true, 2, 2));
+
+    // the later member hits while the earlier is still being dispatched, but only wins once the earlier misses
+    CountDownLatch dispatching = new CountDownLatch(2);
+    Response ok2 = ok();
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class)))
+        .thenAnswer(invocation -> awaitBoth(dispatching, notFound()));
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class)))
+        .thenAnswer(invocation -> awaitBoth(dispatching, ok2));
+
+    DispatchedRepositories dispatched = new DispatchedRepositories();
+    assertThat(underTest.getFirst(context, asList(proxy1, proxy2), dispatched), is(ok2));
+    assertThat(dispatched.getDispatched(), contains("Proxy 1", "Proxy 2"));
+  }
+
+  @Test
+  public void getFirstProbeClosesResponsesOfLaterMembersOnHitWithoutInterrupting() throws Exception {
+    when(subject.associateWith(any(Runnable.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+    startMemberDispatcher(new GroupMemberDispatcher(false, true, 2, 2));
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    Response ok1 = ok();
+    Payload laterPayload = mock(Payload.class);
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class))).thenAnswer(invocation -> {
+      started.await(5, TimeUnit.SECONDS);
+      return ok1;
+    });
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class))).thenAnswer(invocation -> {
+      started.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e) {
+        interrupted.set(true);
+      }
+      return ok(laterPayload);
+    });
+
+    assertThat(underTest.getFirst(context, asList(proxy1, proxy2), new DispatchedRepositories()), is(ok1));
+    release.countDown();
+
+    verify(laterPayload, timeout(5000)).close();
+    assertThat(interrupted.get(), is(false));
+  }
+
+  @Test
+  public void getFirstProbeClosesResponsesOfMissingMembers() throws Exception {
+    when(subject.associateWith(any(Runnable.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+    startMemberDispatcher(new GroupMemberDispatcher(false, true, 2, 2));
+
+    Payload missPayload = mock(Payload.class);
+    Response ok2 = ok();
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class)))
+        .thenReturn(new Response.Builder().status(Status.failure(NOT_FOUND)).payload(missPayload).build());
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class))).thenReturn(ok2);
+
+    assertThat(underTest.getFirst(context, asList(proxy1, proxy2), new DispatchedRepositories()), is(ok2));
+    verify(missPayload).close();
+  }
+
+  @Test
+  public void memberLatencyTimerIsRemovedWithTheMember() throws Exception {
+    when(subject.associateWith(any(Runnable.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+    MetricRegistry metricRegistry = new MetricRegistry();
+    GroupMemberDispatcher dispatcher = new GroupMemberDispatcher(true, false, 1, 2);
+    dispatcher.setMetricRegistry(metricRegistry);
+    startMemberDispatcher(dispatcher);
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class))).thenReturn(ok());
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class))).thenReturn(ok());
+
+    underTest.getAll(context, asList(proxy1, proxy2), new DispatchedRepositories());
+    assertThat(metricRegistry.getTimers().keySet(), containsInAnyOrder(
+        GroupMemberDispatcher.metricName("Proxy 1", "latency"),
+        GroupMemberDispatcher.metricName("Proxy 2", "latency")));
+
+    when(proxy1.getConfiguration()).thenReturn(mock(Configuration.class));
+    dispatcher.on(new RepositoryDeletedEvent(proxy1));
+
+    assertThat(metricRegistry.getTimers().keySet(), contains(GroupMemberDispatcher.metricName("Proxy 2", "latency")));
+  }
+
+  @Test
+  public void concurrentlyDispatchedMembersGetTheirOwnRequestAndContext() throws Exception {
+    when(subject.associateWith(any(Runnable.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+    startMemberDispatcher(new GroupMemberDispatcher(true, false, 1, 2));
+    request.getHeaders().set("X-Group", "group");
+    context.getAttributes().set("shared", "value");
+
+    List<Request> requests = new CopyOnWriteArrayList<>();
+    List<Context> contexts = new CopyOnWriteArrayList<>();
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class))).thenAnswer(invocation -> {
+      Request memberRequest = invocation.getArgument(0);
+      requests.add(memberRequest);
+      contexts.add(invocation.getArgument(1));
+      memberRequest.getHeaders().set("X-Member", "1");
+      memberRequest.getAttributes().set("member", "1");
+      return ok();
+    });
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class))).thenAnswer(invocation -> {
+      requests.add(invocation.getArgument(0));
+      contexts.add(invocation.getArgument(1));
+      return ok();
+    });
+
+    underTest.getAll(context, asList(proxy1, proxy2), new DispatchedRepositories());
+
+    assertThat(requests.get(0), is(not(sameInstance(requests.get(1)))));
+    assertThat(contexts.get(0), is(not(sameInstance(contexts.get(1)))));
+    for (int i = 0; i < 2; i++) {
+      assertThat(requests.get(i), is(not(sameInstance(request))));
+      assertThat(requests.get(i).getHeaders().get("X-Group"), is("group"));
+      assertThat(contexts.get(i).getAttributes().get("shared"), is("value"));
+    }
+    assertThat(request.getHeaders().get("X-Member"), is(nullValue()));
+    assertThat(request.getAttributes().get("member"), is(nullValue()));
+  }
+
+  private void startMemberDispatcher(final GroupMemberDispatcher dispatcher) throws Exception {
+    when(request.getAction()).thenReturn(GET);
+    when(request.getPath()).thenReturn("/path");
+    when(request.getAttributes()).thenReturn(new AttributesMap());
+    when(request.getHeaders()).thenReturn(new Headers());
+    when(request.getParameters()).thenReturn(new Parameters());
+    when(context.getRepository()).thenReturn(group);
+    when(context.getAttributes()).thenReturn(new AttributesMap());
+
+    memberDispatcher = dispatcher;
+    memberDispatcher.start();
+    underTest.setMemberDispatcher(memberDispatcher);
+  }
+
+  private static Response awaitBoth(final CountDownLatch dispatching, final Response response) throws Exception {
+    dispatching.countDown();
+    return dispatching.await(5, TimeUnit.SECONDS) ? response : notFound();
+  }
+
   private void setupDispatch(final Response response1, final Response response2) throws Exception {
     when(viewFacet1.dispatch(request, context)).thenReturn(response1);
     when(viewFacet2.dispatch(request, context)).thenReturn(response2);
@@ -0,0 +1,127 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+public class ProxySpoolTest
+    extends TestSupport
+{
+  private static final byte[] DATA = "some remote content which is streamed through".getBytes(UTF_8);
+
+  private ExecutorService executor;
+
+  private ProxySpool underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    executor = Executors.newCachedThreadPool();
+    underTest = ProxySpool.create();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void readersSeeTeedBytesAndEndOnlyAfterComplete() throws Exception {
+    Payload payload = underTest.payload(DATA.length, "text/plain");
+    Future<byte[]> first = executor.submit(() -> readAll(payload));
+    Future<byte[]> second = executor.submit(() -> readAll(payload));
+
+    ProxySpool.TeePayload teePayload = underTest.teePayload(new ByteArrayInputStream(DATA), DATA.length, null);
+    try (InputStream tee = teePayload.openInputStream()) {
+      assertThat(ByteStreams.toByteArray(tee), is(DATA));
+    }
+
+    Thread.sleep(100);
+    assertThat(first.isDone(), is(false));
+
+    underTest.complete(null);
+
+    assertThat(first.get(5, TimeUnit.SECONDS), is(DATA));
+    assertThat(second.get(5, TimeUnit.SECONDS), is(DATA));
+  }
+
+  @Test
+  public void readersFailWhenStoringFails() throws Exception {
+    Payload payload = underTest.payload(DATA.length, "text/plain");
+    Future<byte[]> reader = executor.submit(() -> readAll(payload));
+
+    underTest.teePayload(new ByteArrayInputStream(DATA), DATA.length, null).drain();
+    underTest.fail(new IOException("invalid content"));
+
+    try {
+      reader.get(5, TimeUnit.SECONDS);
+      fail("Expected failure");
+    }
+    catch (Exception e) {
+      assertThat(e.getCause() instanceof IOException, is(true));
+    }
+    try {
+      payload.openInputStream();
+      fail("Expected failure");
+    }
+    catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void teePayloadReopenReadsBackSpool() throws Exception {
+    ProxySpool.TeePayload teePayload = underTest.teePayload(new ByteArrayInputStream(DATA), DATA.length, null);
+    InputStream tee = teePayload.openInputStream();
+    assertThat(tee.read(new byte[4]), is(4));
+
+    try (InputStream reopened = teePayload.openInputStream()) {
+      assertThat(ByteStreams.toByteArray(reopened), is(DATA));
+    }
+    underTest.complete(null);
+  }
+
+  @Test
+  public void readersOpenedAfterCleanupUseStoredContent() throws Exception {
+    underTest.teePayload(new ByteArrayInputStream(DATA), DATA.length, null).drain();
+    underTest.complete(new Content(new BytesPayload(DATA, "text/plain")));
+
+    assertThat(readAll(underTest.payload(DATA.length, "text/plain")), is(DATA));
+  }
+
+  private static byte[] readAll(final Payload payload) throws IOException {
+    try (InputStream in = payload.openInputStream()) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.rest.internal.resources;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.junit.Test;
+
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.sonatype.nexus.repository.http.HttpStatus.BAD_REQUEST;
+
+public class TokenEncoderTest
+    extends TestSupport
+{
+  private final QueryBuilder query = termQuery("format", "maven2");
+
+  private final TokenEncoder underTest = new TokenEncoder();
+
+  @Test
+  public void offsetTokenRoundTrips() {
+    String token = underTest.encode(50, 50, query);
+
+    assertThat(underTest.isSearchAfter(token), is(false));
+    assertThat(underTest.decode(token, query), is(100));
+  }
+
+  @Test
+  public void searchAfterTokenRoundTrips() {
+    String token = underTest.encodeSearchAfter("maven-releases/1:abc", query);
+
+    assertThat(underTest.isSearchAfter(token), is(true));
+    assertThat(underTest.decodeSearchAfter(token, query), is("maven-releases/1:abc"));
+  }
+
+  @Test(expected = WebApplicationException.class)
+  public void searchAfterTokenMustMatchQuery() {
+    String token = underTest.encodeSearchAfter("maven-releases/abc", query);
+
+    underTest.decodeSearchAfter(token, termQuery("format", "npm"));
+  }
+
+  @Test(expected = WebApplicationException.class)
+  public void offsetTokenIsNotSearchAfterToken() {
+    underTest.decodeSearchAfter(underTest.encode(0, 50, query), query);
+  }
+
+  @Test
+  public void malformedTokenIsBadRequest() {
+    try {
+      underTest.isSearchAfter("not-a-hex-token");
+      fail("Expected malformed token to be rejected");
+    }
+    catch (WebApplicationException e) {
+      assertThat(e.getResponse().getStatus(), is(BAD_REQUEST));
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search.index;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.RepositoryTaskSupport;
+import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.types.GroupType;
+import org.sonatype.nexus.scheduling.TaskConfiguration;
+
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RebuildIndexTaskTest
+    extends TestSupport
+{
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  @Mock
+  private Subject subject;
+
+  @Before
+  public void setUp() {
+    when(subject.associateWith(any(Callable.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(subject.associateWith(any(Runnable.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  public void rebuildsRepositoriesConcurrently() throws Exception {
+    CountDownLatch started = new CountDownLatch(2);
+    SearchIndexFacet facet1 = awaitingFacet(started);
+    SearchIndexFacet facet2 = awaitingFacet(started);
+    when(repositoryManager.browse()).thenReturn(List.of(repository("repo1", facet1), repository("repo2", facet2)));
+
+    // each rebuild only completes once both have started
+    RebuildIndexTask underTest = task(2);
+    underTest.execute();
+
+    verify(facet1).rebuildIndex();
+    verify(facet2).rebuildIndex();
+  }
+
+  @Test
+  public void rebuildsRepositoriesSequentiallyByDefault() throws Exception {
+    SearchIndexFacet facet1 = mock(SearchIndexFacet.class);
+    SearchIndexFacet facet2 = mock(SearchIndexFacet.class);
+    when(repositoryManager.browse()).thenReturn(List.of(repository("repo1", facet1), repository("repo2", facet2)));
+
+    RebuildIndexTask underTest = task(1);
+    underTest.execute();
+
+    verify(facet1).rebuildIndex();
+    verify(facet2).rebuildIndex();
+  }
+
+  private RebuildIndexTask task(final int repositoryConcurrency) {
+    TaskConfiguration configuration = new TaskConfiguration();
+    configuration.setId("test");
+    configuration.setTypeId(RebuildIndexTaskDescriptor.TYPE_ID);
+    configuration.setString(RepositoryTaskSupport.REPOSITORY_NAME_FIELD_ID, RepositoryTaskSupport.ALL_REPOSITORIES);
+
+    RebuildIndexTask task = new RebuildIndexTask(repositoryConcurrency);
+    task.install(repositoryManager, new GroupType());
+    task.configure(configuration);
+    return task;
+  }
+
+  private static SearchIndexFacet awaitingFacet(final CountDownLatch started) {
+    SearchIndexFacet facet = mock(SearchIndexFacet.class);
+    doAnswer(invocation -> {
+      started.countDown();
+      if (!started.await(5, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("Repositories were not rebuilt concurrently");
+      }
+      return null;
+    }).when(facet).rebuildIndex();
+    return facet;
+  }
+
+  private static Repository repository(final String name, final SearchIndexFacet facet) {
+    Repository repository = mock(Repository.class);
+    when(repository.getName()).thenReturn(name);
+    when(repository.optionalFacet(SearchIndexFacet.class)).thenReturn(Optional.of(facet));
+    when(repository.facet(SearchIndexFacet.class)).thenReturn(facet);
+    return repository;
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.search.index.IndexNamingPolicy;
+import org.sonatype.nexus.security.SecurityHelper;
+
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import static java.util.Collections.singletonMap;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.repository.search.index.SearchConstants.ID;
+import static org.sonatype.nexus.repository.search.index.SearchConstants.TYPE;
+import static org.sonatype.nexus.repository.search.query.RepositoryQueryBuilder.unrestricted;
+
+public class ElasticSearchQueryServiceImplTest
+    extends TestSupport
+{
+  private static final String INDEX = "repository-index";
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  @Mock
+  private SecurityHelper securityHelper;
+
+  @Mock
+  private IndexNamingPolicy indexNamingPolicy;
+
+  @Mock
+  private ListenableActionFuture<SearchResponse> searchFuture;
+
+  private Client client;
+
+  private SearchRequestBuilder searchRequestBuilder;
+
+  private ElasticSearchQueryServiceImpl underTest;
+
+  @Before
+  public void setUp() {
+    client = mock(Client.class, RETURNS_DEEP_STUBS);
+    when(client.admin().indices().prepareValidateQuery().setQuery(any()).execute().actionGet().isValid())
+        .thenReturn(true);
+
+    searchRequestBuilder = mock(SearchRequestBuilder.class, RETURNS_SELF);
+    when(client.prepareSearch(INDEX)).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.execute()).thenReturn(searchFuture);
+
+    underTest = spy(new ElasticSearchQueryServiceImpl(() -> client, repositoryManager, securityHelper,
+        new SearchSubjectHelper(), indexNamingPolicy, false, true));
+    doReturn(new String[]{INDEX}).when(underTest).getSearchableIndexes(any());
+  }
+
+  @Test
+  public void browsePagesAfterTheLastIdOfEachPage() throws Exception {
+    mapProperties(singletonMap(ID, singletonMap("type", "string")));
+    SearchHit first = hit("repo/a");
+    SearchHit second = hit("repo/b");
+    SearchHit third = hit("repo/c");
+    when(searchFuture.actionGet()).thenReturn(page(first, second), page(third), page());
+
+    QueryBuilder query = unrestricted(termQuery("format", "maven2"));
+    List<SearchHit> hits = new ArrayList<>();
+    underTest.browse(query).forEach(hits::add);
+
+    assertThat(hits, contains(first, second, third));
+
+    ArgumentCaptor<QueryBuilder> queries = ArgumentCaptor.forClass(QueryBuilder.class);
+    verify(searchRequestBuilder, times(3)).setQuery(queries.capture());
+    assertThat(queries.getAllValues().get(0).toString(), not(containsString("range")));
+    assertThat(queries.getAllValues().get(1).toString(), containsString("\"repo/b\""));
+    assertThat(queries.getAllValues().get(2).toString(), containsString("\"repo/c\""));
+    verify(searchRequestBuilder, times(3)).execute();
+    verify(searchRequestBuilder, never()).setScroll(any(TimeValue.class));
+  }
+
+  @Test
+  public void browseScrollsIndexesWithoutIdMapping() throws Exception {
+    mapProperties(singletonMap("format", singletonMap("type", "string")));
+    when(searchFuture.actionGet()).thenReturn(page());
+
+    underTest.browse(unrestricted(termQuery("format", "maven2"))).forEach(hit -> { });
+
+    verify(searchRequestBuilder).setScroll(any(TimeValue.class));
+  }
+
+  @Test
+  public void searchAfterIsUnavailableForIndexesWithoutIdMapping() throws Exception {
+    mapProperties(singletonMap("format", singletonMap("type", "string")));
+
+    assertThat(underTest.searchAfter(unrestricted(termQuery("format", "maven2")), null, 10), nullValue());
+
+    verify(searchRequestBuilder, never()).execute();
+  }
+
+  private void mapProperties(final Map<String, Object> properties) throws Exception {
+    MappingMetaData mapping = mock(MappingMetaData.class);
+    when(mapping.sourceAsMap()).thenReturn(singletonMap("properties", properties));
+    ImmutableOpenMap<String, ImmutableOpenMap<String, MappingMetaData>> mappings =
+        ImmutableOpenMap.<String, ImmutableOpenMap<String, MappingMetaData>>builder()
+            .fPut(INDEX, ImmutableOpenMap.<String, MappingMetaData>builder().fPut(TYPE, mapping).build())
+            .build();
+    when(client.admin().indices().prepareGetMappings(INDEX).setTypes(TYPE).execute().actionGet().getMappings())
+        .thenReturn(mappings);
+  }
+
+  private static SearchHit hit(final String id) {
+    SearchHit hit = mock(SearchHit.class);
+    when(hit.getSortValues()).thenReturn(new Object[]{id});
+    return hit;
+  }
+
+  private static SearchResponse page(final SearchHit... hits) {
+    SearchHits searchHits = mock(SearchHits.class);
+    when(searchHits.getHits()).thenReturn(hits);
+    SearchResponse response = mock(SearchResponse.class);
+    when(response.getHits()).thenReturn(searchHits);
+    return response;
+  }
+}
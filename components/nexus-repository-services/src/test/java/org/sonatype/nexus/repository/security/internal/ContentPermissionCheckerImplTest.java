@@ -13,6 +13,7 @@
 package org.sonatype.nexus.repository.security.internal;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Set;
 
@@ -36,7 +37,9 @@ import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 public class ContentPermissionCheckerImplTest
@@ -85,6 +88,18 @@ public class ContentPermissionCheckerImplTest
         .anyPermitted(eq(new RepositoryViewPermission("repoFormat", "repoName", Arrays.asList(BreadActions.READ))));
   }
 
+  @Test
+  public void testIsViewPermitted_permittedByIndex() throws Exception {
+    RepositoryViewPermissionIndex permissionIndex = mock(RepositoryViewPermissionIndex.class);
+    when(permissionIndex.isPermitted("repoFormat", "repoName", BreadActions.READ)).thenReturn(true);
+    impl = new ContentPermissionCheckerImpl(securityHelper, selectorManager, permissionIndex);
+
+    assertThat(impl.isViewPermitted("repoName", "repoFormat", BreadActions.READ), is(true));
+    assertThat(impl.isViewPermitted("repoName", "repoFormat", BreadActions.BROWSE, BreadActions.READ), is(true));
+
+    verifyNoInteractions(securityHelper);
+  }
+
   @Test
   public void testIsContentPermitted_permitted() throws Exception {
     when(selectorManager.evaluate(any(), any())).thenReturn(true);
@@ -276,4 +291,39 @@ public class ContentPermissionCheckerImplTest
 
     assertThat(impl.isPermitted(Sets.newHashSet("repoName", "repoName2"), "repoFormat", BreadActions.READ, variableSource), is(false));
   }
+
+  @Test
+  public void testPermittedAnyOf_viewPermittedPermitsWholePage() throws Exception {
+    when(securityHelper
+        .anyPermitted(eq(new RepositoryViewPermission("repoFormat", "repoName", Arrays.asList(BreadActions.READ)))))
+        .thenReturn(true);
+
+    BitSet permitted = impl.permittedAnyOf("repoName", "repoFormat",
+        Arrays.asList(variableSource, variableSource, variableSource), BreadActions.READ);
+
+    assertThat(permitted.cardinality(), is(3));
+    verifyNoInteractions(selectorManager);
+  }
+
+  @Test
+  public void testPermittedAnyOf_selectorPermissionCheckedOncePerPage() throws Exception {
+    VariableSource otherSource = mock(VariableSource.class);
+    SelectorConfiguration notGranted = mock(SelectorConfiguration.class);
+    when(notGranted.getName()).thenReturn("notGranted");
+    when(selectorManager.browse()).thenReturn(Arrays.asList(notGranted, config));
+    when(securityHelper.anyPermitted(eq(new RepositoryContentSelectorPermission("selector", "repoFormat", "repoName",
+        Arrays.asList(BreadActions.READ))))).thenReturn(true);
+    when(selectorManager.evaluate(config, variableSource)).thenReturn(true);
+    when(selectorManager.evaluate(config, otherSource)).thenReturn(false);
+
+    BitSet permitted = impl.permittedAnyOf("repoName", "repoFormat",
+        Arrays.asList(variableSource, otherSource, variableSource), BreadActions.READ);
+
+    assertThat(permitted.get(0), is(true));
+    assertThat(permitted.get(1), is(false));
+    assertThat(permitted.get(2), is(true));
+    verify(securityHelper).anyPermitted(eq(new RepositoryContentSelectorPermission("selector", "repoFormat",
+        "repoName", Arrays.asList(BreadActions.READ))));
+    verify(selectorManager, never()).evaluate(eq(notGranted), any());
+  }
 }
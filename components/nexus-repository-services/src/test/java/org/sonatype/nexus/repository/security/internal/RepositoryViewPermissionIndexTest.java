@@ -0,0 +1,167 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.security.internal;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.security.RepositoryViewPermission;
+import org.sonatype.nexus.repository.security.internal.RepositoryViewPermissionIndex.CompiledIndex;
+import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.nexus.security.SecuritySystem;
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
+import org.sonatype.nexus.security.authz.WildcardPermission2;
+import org.sonatype.nexus.security.role.RoleIdentifier;
+import org.sonatype.nexus.security.user.User;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.authz.permission.RolePermissionResolver;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RepositoryViewPermissionIndexTest
+    extends TestSupport
+{
+  private static final List<String> FORMATS = Arrays.asList("maven2", "npm", "raw");
+
+  private static final List<String> REPOSITORIES = Arrays.asList("maven-central", "npm-proxy", "raw-hosted");
+
+  private static final List<String> ACTIONS = Arrays.asList("browse", "read", "edit", "add", "delete");
+
+  @Mock
+  private SecurityHelper securityHelper;
+
+  @Mock
+  private SecuritySystem securitySystem;
+
+  @Mock
+  private RolePermissionResolver rolePermissionResolver;
+
+  @Mock
+  private Subject subject;
+
+  private User user;
+
+  private RepositoryViewPermissionIndex underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    user = new User();
+    user.setUserId("jdoe");
+    user.setRoles(ImmutableSet.of(new RoleIdentifier("default", "developers")));
+    when(securityHelper.subject()).thenReturn(subject);
+    when(subject.getPrincipals()).thenReturn(new SimplePrincipalCollection("jdoe", "NexusAuthenticatingRealm"));
+    when(securitySystem.currentUser()).thenReturn(user);
+    when(rolePermissionResolver.resolvePermissionsInRole("developers")).thenReturn(Arrays.asList(
+        new RepositoryViewPermission("maven2", "maven-central", "read", "browse"),
+        new WildcardPermission2("nexus:repository-view:npm:*:*")));
+
+    underTest = new RepositoryViewPermissionIndex(true, 100, Duration.ofMinutes(5), securityHelper, securitySystem,
+        rolePermissionResolver);
+  }
+
+  @Test
+  public void compiledIndexAgreesWithWildcardImplication() {
+    List<Permission> granted = Arrays.asList(
+        new RepositoryViewPermission("maven2", "maven-central", "read", "browse"),
+        new RepositoryViewPermission("*", "raw-hosted", "edit"),
+        new WildcardPermission2("nexus:repository-view:npm:*:*"),
+        new WildcardPermission2("nexus:repository-view:raw,maven2:npm-proxy,raw-hosted:delete"),
+        new WildcardPermission2("nexus:repository-admin:*:*:*"),
+        new WildcardPermission2("nexus:repository-view:maven2:maven-central:add:extra"));
+
+    CompiledIndex index = RepositoryViewPermissionIndex.compile(granted);
+
+    for (String format : FORMATS) {
+      for (String repository : REPOSITORIES) {
+        for (String action : ACTIONS) {
+          RepositoryViewPermission required = new RepositoryViewPermission(format, repository, action);
+          boolean expected = granted.stream().anyMatch(permission -> permission.implies(required));
+          assertThat(format + ":" + repository + ":" + action, index.implies(format, repository, action),
+              is(expected));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void domainWildcardsGrantEveryView() {
+    assertThat(RepositoryViewPermissionIndex.compile(Arrays.asList(new WildcardPermission2("nexus:*")))
+        .implies("npm", "npm-proxy", "delete"), is(true));
+    assertThat(RepositoryViewPermissionIndex.compile(Arrays.asList(new WildcardPermission2("*")))
+        .implies("raw", "raw-hosted", "read"), is(true));
+  }
+
+  @Test
+  public void compilesOncePerSubject() throws Exception {
+    assertThat(underTest.isPermitted("maven2", "maven-central", "read"), is(true));
+    assertThat(underTest.isPermitted("npm", "npm-proxy", "delete"), is(true));
+    assertThat(underTest.isPermitted("maven2", "maven-central", "delete"), is(false));
+    assertThat(underTest.isPermitted("raw", "raw-hosted", "read"), is(false));
+
+    verify(securitySystem, times(1)).currentUser();
+  }
+
+  @Test
+  public void configurationChangeSwapsIndex() throws Exception {
+    assertThat(underTest.isPermitted("raw", "raw-hosted", "read"), is(false));
+
+    when(rolePermissionResolver.resolvePermissionsInRole("developers"))
+        .thenReturn(Arrays.asList(new RepositoryViewPermission("raw", "raw-hosted", "read")));
+    assertThat(underTest.isPermitted("raw", "raw-hosted", "read"), is(false));
+
+    underTest.on(new AuthorizationConfigurationChanged());
+
+    assertThat(underTest.isPermitted("raw", "raw-hosted", "read"), is(true));
+    verify(securitySystem, times(2)).currentUser();
+  }
+
+  @Test
+  public void disabledIndexGrantsNothing() throws Exception {
+    underTest = new RepositoryViewPermissionIndex(false, 100, Duration.ofMinutes(5), securityHelper, securitySystem,
+        rolePermissionResolver);
+
+    assertThat(underTest.isPermitted("maven2", "maven-central", "read"), is(false));
+  }
+
+  @Test
+  public void compiledIndexAgreesWithShiroPermissionChecks() {
+    List<Permission> granted = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      granted.add(new RepositoryViewPermission("maven2", "repository-" + i, "read", "browse"));
+    }
+    CompiledIndex index = RepositoryViewPermissionIndex.compile(granted);
+
+    for (String repository : asList("repository-0", "repository-999", "repository-1000")) {
+      for (String action : asList("read", "browse", "edit")) {
+        RepositoryViewPermission required = new RepositoryViewPermission("maven2", repository, action);
+        assertThat(repository + ":" + action, index.implies("maven2", repository, action),
+            is(granted.stream().anyMatch(permission -> permission.implies(required))));
+      }
+    }
+  }
+}
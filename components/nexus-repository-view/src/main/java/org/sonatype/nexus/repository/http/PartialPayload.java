@@ -17,6 +17,7 @@ import java.io.InputStream;
 
 import javax.annotation.Nullable;
 
+import org.sonatype.nexus.repository.view.FileRegion;
 import org.sonatype.nexus.repository.view.Payload;
 
 import com.google.common.collect.Range;
@@ -53,6 +54,13 @@ class PartialPayload
     return limit(payloadStream, partialSize);
   }
 
+  @Nullable
+  @Override
+  public FileRegion openFileRegion() throws IOException {
+    FileRegion region = payload.openFileRegion();
+    return region != null ? region.slice(rangeToSend.lowerEndpoint(), partialSize) : null;
+  }
+
   @Override
   public long getSize() {
     return partialSize;
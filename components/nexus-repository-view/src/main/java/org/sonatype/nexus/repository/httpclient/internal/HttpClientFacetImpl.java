@@ -89,6 +89,8 @@ public class HttpClientFacetImpl
 
   private final Map<String, TargetAuthenticationStrategy> authenticationStrategies;
 
+  private final boolean multiplexed;
+
   private String unencryptedPassword;
 
   @VisibleForTesting
@@ -114,7 +116,6 @@ public class HttpClientFacetImpl
   @VisibleForTesting
   BlockingHttpClient httpClient;
 
-  @Inject
   public HttpClientFacetImpl(
       final HttpClientManager httpClientManager,
       final Map<String, AutoBlockConfiguration> autoBlockConfiguration,
@@ -122,6 +123,20 @@ public class HttpClientFacetImpl
       final Map<String, NormalizationStrategy> normalizationStrategies,
       final Map<String, ContentCompressionStrategy> contentCompressionStrategies,
       final Map<String, TargetAuthenticationStrategy> authenticationStrategies)
+  {
+    this(httpClientManager, autoBlockConfiguration, redirectStrategy, normalizationStrategies,
+        contentCompressionStrategies, authenticationStrategies, false);
+  }
+
+  @Inject
+  public HttpClientFacetImpl(
+      final HttpClientManager httpClientManager,
+      final Map<String, AutoBlockConfiguration> autoBlockConfiguration,
+      final Map<String, RedirectStrategy> redirectStrategy,
+      final Map<String, NormalizationStrategy> normalizationStrategies,
+      final Map<String, ContentCompressionStrategy> contentCompressionStrategies,
+      final Map<String, TargetAuthenticationStrategy> authenticationStrategies,
+      @Named("${nexus.httpclient.http2.enabled:-false}") final boolean multiplexed)
   {
     this.httpClientManager = checkNotNull(httpClientManager);
     this.autoBlockConfiguration = checkNotNull(autoBlockConfiguration);
@@ -129,6 +144,7 @@ public class HttpClientFacetImpl
     this.normalizationStrategies = checkNotNull(normalizationStrategies);
     this.contentCompressionStrategies = checkNotNull(contentCompressionStrategies);
     this.authenticationStrategies = checkNotNull(authenticationStrategies);
+    this.multiplexed = multiplexed;
   }
 
   @VisibleForTesting
@@ -289,7 +305,9 @@ public class HttpClientFacetImpl
 
   private void createHttpClient() {
     HttpClientConfiguration delegateConfig = getHttpClientConfiguration(httpClientManager, config);
-    CloseableHttpClient delegate = httpClientManager.create(new ConfigurationCustomizer(delegateConfig));
+    CloseableHttpClient delegate = multiplexed
+        ? httpClientManager.createMultiplexed(delegateConfig)
+        : httpClientManager.create(new ConfigurationCustomizer(delegateConfig));
 
     boolean online = getRepository().getConfiguration().isOnline();
     // wrap delegate with auto-block aware client
@@ -101,6 +101,12 @@ public class Content
     payload.copy(inputStream, outputStream);
   }
 
+  @Nullable
+  @Override
+  public FileRegion openFileRegion() throws IOException {
+    return payload.openFileRegion();
+  }
+
   public Payload getPayload() {
     return payload;
   }
@@ -0,0 +1,116 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.WritableByteChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Region of a local file holding (part of) a {@link Payload}'s content, which can be written out without copying the
+ * content through the heap.
+ *
+ * @see Payload#openFileRegion()
+ */
+public class FileRegion
+    implements Closeable
+{
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+
+  private final long position;
+
+  private final long count;
+
+  public FileRegion(final FileChannel channel, final long position, final long count) {
+    checkArgument(position >= 0, "Position must not be negative");
+    checkArgument(count >= 0, "Count must not be negative");
+    this.channel = checkNotNull(channel);
+    this.position = position;
+    this.count = count;
+  }
+
+  public long getPosition() {
+    return position;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the part of this region starting at the given offset, sharing the same channel.
+   */
+  public FileRegion slice(final long offset, final long length) {
+    checkArgument(offset >= 0 && length >= 0 && offset + length <= count, "Slice is outside of region");
+    return new FileRegion(channel, position + offset, length);
+  }
+
+  /**
+   * Writes this region to the target; channels the JDK can transfer to directly are given the file via
+   * {@link FileChannel#transferTo}, others are written from a buffer reused for each chunk of the file.
+   */
+  public void writeTo(final WritableByteChannel target) throws IOException {
+    long end = position + count;
+    if (channel.size() < end) {
+      throw new EOFException("File is shorter than expected " + end + " bytes");
+    }
+
+    long offset = position;
+    if (target instanceof FileChannel || target instanceof NetworkChannel) {
+      while (offset < end) {
+        long transferred = channel.transferTo(offset, end - offset, target);
+        if (transferred <= 0) {
+          throw new EOFException("File ended at " + offset + " of " + end + " bytes");
+        }
+        offset += transferred;
+      }
+    }
+    else {
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, count));
+      while (offset < end) {
+        buffer.clear().limit((int) Math.min(buffer.capacity(), end - offset));
+        int read = channel.read(buffer, offset);
+        if (read < 0) {
+          throw new EOFException("File ended at " + offset + " of " + end + " bytes");
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          target.write(buffer);
+        }
+        offset += read;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "position=" + position +
+        ", count=" + count +
+        '}';
+  }
+}
@@ -60,4 +60,15 @@ public interface Payload
   default void copy(final InputStream input, final OutputStream output) throws IOException {
     ByteStreams.copy(input, output);
   }
+
+  /**
+   * Opens the region of a local file holding this payload's content, so it can be sent without being copied through
+   * the heap. Callers are required to close the region. By default there is no such file.
+   *
+   * @return {@code null} if the content is not held in a local file
+   */
+  @Nullable
+  default FileRegion openFileRegion() throws IOException {
+    return null;
+  }
 }
@@ -14,10 +14,12 @@ package org.sonatype.nexus.repository.view.payloads;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.blobstore.api.Blob;
+import org.sonatype.nexus.repository.view.FileRegion;
 import org.sonatype.nexus.repository.view.Payload;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -44,6 +46,13 @@ public class BlobPayload
     return blob.getInputStream();
   }
 
+  @Nullable
+  @Override
+  public FileRegion openFileRegion() {
+    FileChannel channel = blob.openFileChannel();
+    return channel != null ? new FileRegion(channel, 0, getSize()) : null;
+  }
+
   @Override
   public long getSize() {
     return blob.getMetrics().getContentSize();
@@ -16,12 +16,14 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
 import javax.annotation.Nullable;
 
+import org.sonatype.nexus.repository.view.FileRegion;
 import org.sonatype.nexus.repository.view.Payload;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -46,6 +48,12 @@ public class PathPayload
     return new BufferedInputStream(Files.newInputStream(path, StandardOpenOption.READ));
   }
 
+  @Override
+  public FileRegion openFileRegion() throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    return new FileRegion(channel, 0, channel.size());
+  }
+
   @Override
   public long getSize() {
     try {
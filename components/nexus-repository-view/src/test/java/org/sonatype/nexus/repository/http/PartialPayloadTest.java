@@ -12,10 +12,16 @@
  */
 package org.sonatype.nexus.repository.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.view.FileRegion;
 import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+import org.sonatype.nexus.repository.view.payloads.PathPayload;
 
 import com.google.common.collect.Range;
 import com.google.common.io.ByteStreams;
@@ -24,6 +30,7 @@ import org.junit.Test;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 /**
@@ -57,6 +64,26 @@ public class PartialPayloadTest
     assertThat(output, is(input));
   }
 
+  @Test
+  public void fileRegionIsSliced() throws IOException {
+    Path file = Files.write(util.createTempFile().toPath(), input);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    try (PartialPayload partial = new PartialPayload(new PathPayload(file, "n/a"), Range.closed(3L, 5L));
+         FileRegion region = partial.openFileRegion()) {
+      region.writeTo(Channels.newChannel(output));
+    }
+
+    assertThat(output.toByteArray(), is(Bytes.toArray(asList(3, 4, 5))));
+  }
+
+  @Test
+  public void noFileRegionWithoutFile() throws IOException {
+    try (PartialPayload partial = new PartialPayload(bytesPayload, Range.closed(3L, 5L))) {
+      assertThat(partial.openFileRegion(), is(nullValue()));
+    }
+  }
+
   private byte[] partial(final BytesPayload bytes, final Range<Long> closed) throws IOException {
     try (final PartialPayload partial = new PartialPayload(bytes, closed)) {
       return ByteStreams.toByteArray(partial.openInputStream());
@@ -0,0 +1,207 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.selector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.jexl3.JexlException;
+import org.apache.commons.jexl3.parser.ASTAndNode;
+import org.apache.commons.jexl3.parser.ASTEQNode;
+import org.apache.commons.jexl3.parser.ASTERNode;
+import org.apache.commons.jexl3.parser.ASTIdentifier;
+import org.apache.commons.jexl3.parser.ASTJexlScript;
+import org.apache.commons.jexl3.parser.ASTNENode;
+import org.apache.commons.jexl3.parser.ASTOrNode;
+import org.apache.commons.jexl3.parser.ASTReferenceExpression;
+import org.apache.commons.jexl3.parser.ASTSWNode;
+import org.apache.commons.jexl3.parser.ASTStringLiteral;
+import org.apache.commons.jexl3.parser.JexlNode;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * CSEL expression compiled into a tree of path/format comparisons with pre-compiled patterns, so it can be evaluated
+ * against a {@link VariableSource} without going through the JEXL interpreter. Compiled predicates are immutable and
+ * can be shared across threads.
+ *
+ * Evaluation is undecided when a variable does not resolve to a string, leaving JEXL to apply its own semantics.
+ */
+class CselPredicate
+{
+  private final Node root;
+
+  private final String[] variables;
+
+  private CselPredicate(final Node root, final String[] variables) {
+    this.root = checkNotNull(root);
+    this.variables = checkNotNull(variables);
+  }
+
+  /**
+   * Compiles the given CSEL script.
+   *
+   * @throws JexlException if the script uses anything that cannot be compiled
+   */
+  static CselPredicate compile(final ASTJexlScript script) {
+    if (script.jjtGetNumChildren() != 1) {
+      throw new JexlException(script, "Expected a single CSEL expression");
+    }
+    Compiler compiler = new Compiler();
+    Node root = (Node) script.jjtGetChild(0).jjtAccept(compiler, null);
+    return new CselPredicate(root, compiler.variables.toArray(new String[0]));
+  }
+
+  /**
+   * Returns whether the variables match, or {@code null} if that cannot be decided without JEXL.
+   */
+  @Nullable
+  Boolean evaluate(final VariableSource source) {
+    String[] values = new String[variables.length];
+    for (int i = 0; i < variables.length; i++) {
+      Object value = source.get(variables[i]).orElse(null);
+      if (!(value instanceof String)) {
+        return null;
+      }
+      values[i] = (String) value;
+    }
+    return root.test(values);
+  }
+
+  private interface Node
+  {
+    boolean test(String[] values);
+  }
+
+  /**
+   * Walks the script, building the predicate tree; variables are resolved once per evaluation into numbered slots.
+   */
+  private static class Compiler
+      extends ParserVisitorSupport
+  {
+    private final List<String> variables = new ArrayList<>();
+
+    @Override
+    protected Object doVisit(final JexlNode node, final Object data) {
+      throw new JexlException(node, "Expression not supported in compiled CSEL selector");
+    }
+
+    @Override
+    protected Object visit(final ASTOrNode node, final Object data) {
+      Node[] children = children(node);
+      return (Node) values -> {
+        for (Node child : children) {
+          if (child.test(values)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+
+    @Override
+    protected Object visit(final ASTAndNode node, final Object data) {
+      Node[] children = children(node);
+      return (Node) values -> {
+        for (Node child : children) {
+          if (!child.test(values)) {
+            return false;
+          }
+        }
+        return true;
+      };
+    }
+
+    @Override
+    protected Object visit(final ASTEQNode node, final Object data) {
+      return equalsNode(node);
+    }
+
+    @Override
+    protected Object visit(final ASTNENode node, final Object data) {
+      Node equals = equalsNode(node);
+      return (Node) values -> !equals.test(values);
+    }
+
+    /**
+     * Accept `variable =~ "regex"`, which must match the entire value.
+     */
+    @Override
+    protected Object visit(final ASTERNode node, final Object data) {
+      int slot = slot(node.jjtGetChild(LEFT));
+      Pattern pattern = Pattern.compile(literal(node.jjtGetChild(RIGHT)));
+      return (Node) values -> pattern.matcher(values[slot]).matches();
+    }
+
+    /**
+     * Accept `variable =^ "prefix"`.
+     */
+    @Override
+    protected Object visit(final ASTSWNode node, final Object data) {
+      int slot = slot(node.jjtGetChild(LEFT));
+      String prefix = literal(node.jjtGetChild(RIGHT));
+      return (Node) values -> values[slot].startsWith(prefix);
+    }
+
+    @Override
+    protected Object visit(final ASTReferenceExpression node, final Object data) {
+      if (node.jjtGetNumChildren() != 1) {
+        return doVisit(node, data);
+      }
+      return node.jjtGetChild(0).jjtAccept(this, data);
+    }
+
+    /**
+     * Equality against a literal on either side; literals are interned as they are mostly repeated format names.
+     */
+    private Node equalsNode(final JexlNode node) {
+      JexlNode left = node.jjtGetChild(LEFT);
+      JexlNode right = node.jjtGetChild(RIGHT);
+      boolean literalFirst = left instanceof ASTStringLiteral;
+      int slot = slot(literalFirst ? right : left);
+      String literal = literal(literalFirst ? left : right).intern();
+      return values -> literal.equals(values[slot]);
+    }
+
+    private Node[] children(final JexlNode node) {
+      Node[] children = new Node[node.jjtGetNumChildren()];
+      for (int i = 0; i < children.length; i++) {
+        children[i] = (Node) node.jjtGetChild(i).jjtAccept(this, null);
+      }
+      return children;
+    }
+
+    private int slot(final JexlNode node) {
+      if (!(node instanceof ASTIdentifier)) {
+        throw new JexlException(node, "Expected identifier");
+      }
+      String name = ((ASTIdentifier) node).getName();
+      int slot = variables.indexOf(name);
+      if (slot < 0) {
+        slot = variables.size();
+        variables.add(name);
+      }
+      return slot;
+    }
+
+    private static String literal(final JexlNode node) {
+      if (!(node instanceof ASTStringLiteral)) {
+        throw new JexlException(node, "Expected string literal");
+      }
+      return ((ASTStringLiteral) node).getLiteral();
+    }
+  }
+}
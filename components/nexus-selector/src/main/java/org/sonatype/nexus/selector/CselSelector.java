@@ -12,11 +12,19 @@
  */
 package org.sonatype.nexus.selector;
 
+import java.util.regex.PatternSyntaxException;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.jexl3.JexlException;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Subset of JEXL selectors that can also be represented as SQL.
  *
+ * When compiled, the expression is evaluated by a {@link CselPredicate} rather than the JEXL interpreter.
+ *
  * @since 3.6
  */
 public class CselSelector
@@ -26,10 +34,39 @@ public class CselSelector
 
   private final CselToSql cselToSql;
 
+  @Nullable
+  private final CselPredicate predicate;
+
   public CselSelector(final CselToSql cselToSql, final JexlExpression expression) {
+    this(cselToSql, expression, false);
+  }
+
+  public CselSelector(final CselToSql cselToSql, final JexlExpression expression, final boolean compile) {
     super(expression);
     this.cselToSql = checkNotNull(cselToSql);
+    this.predicate = compile ? compile(expression) : null;
+  }
 
+  @Nullable
+  private static CselPredicate compile(final JexlExpression expression) {
+    try {
+      return CselPredicate.compile(expression.getSyntaxTree());
+    }
+    catch (JexlException | PatternSyntaxException e) { // NOSONAR
+      // not compilable, leave it to JEXL
+      return null;
+    }
+  }
+
+  @Override
+  public boolean evaluate(final VariableSource source) {
+    if (predicate != null) {
+      Boolean result = predicate.evaluate(source);
+      if (result != null) {
+        return result;
+      }
+    }
+    return super.evaluate(source);
   }
 
   @Override
@@ -45,10 +45,21 @@ public class SelectorFactory
 
   private final CselToSql cselToSql;
 
-  @Inject
+  private final boolean compileCsel;
+
   public SelectorFactory(final ConstraintViolationFactory constraintViolationFactory, final CselToSql cselToSql) {
+    this(constraintViolationFactory, cselToSql, false);
+  }
+
+  @Inject
+  public SelectorFactory(
+      final ConstraintViolationFactory constraintViolationFactory,
+      final CselToSql cselToSql,
+      @Named("${nexus.selector.csel.compile.enabled:-false}") final boolean compileCsel)
+  {
     this.constraintViolationFactory = checkNotNull(constraintViolationFactory);
     this.cselToSql = checkNotNull(cselToSql);
+    this.compileCsel = compileCsel;
   }
 
   /**
@@ -89,7 +100,7 @@ public class SelectorFactory
       case JexlSelector.TYPE:
         return new JexlSelector(jexlEngine.buildExpression(expression, shouldTrimLeadingSlash));
       case CselSelector.TYPE:
-        return new CselSelector(cselToSql, jexlEngine.buildExpression(expression, shouldTrimLeadingSlash));
+        return new CselSelector(cselToSql, jexlEngine.buildExpression(expression, shouldTrimLeadingSlash), compileCsel);
       default:
         throw new IllegalArgumentException("Unknown selector type: " + type);
     }
@@ -0,0 +1,93 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.selector;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class CselSelectorTest
+    extends TestSupport
+{
+  private static final List<String> EXPRESSIONS = Arrays.asList(
+      "format == \"maven2\"",
+      "\"npm\" == format",
+      "format != \"maven2\"",
+      "path =^ \"/org/apache/\"",
+      "path =~ \".*\\\\.jar\"",
+      "path =~ \"/org/.*\" && format == \"maven2\"",
+      "format == \"npm\" || (path =^ \"/com/\" && path =~ \".*/1\\\\.0/.*\")",
+      "format == \"raw\" || format == \"npm\" || path =^ \"/org/sonatype/\"");
+
+  private static final List<VariableSource> SOURCES = Arrays.asList(
+      source("maven2", "/org/apache/maven/maven-core/3.0/maven-core-3.0.jar"),
+      source("maven2", "/com/example/app/1.0/app-1.0.pom"),
+      source("npm", "/lodash/-/lodash-4.17.21.tgz"),
+      source("raw", "/org/sonatype/readme.txt"));
+
+  private final JexlEngine engine = new JexlEngine();
+
+  @Mock
+  private CselToSql<SelectorSqlBuilder> cselToSql;
+
+  @Test
+  public void compiledEvaluationMatchesJexl() {
+    for (String expression : EXPRESSIONS) {
+      CselSelector interpreted = new CselSelector(cselToSql, engine.buildExpression(expression, false));
+      CselSelector compiled = new CselSelector(cselToSql, engine.buildExpression(expression, false), true);
+      for (VariableSource source : SOURCES) {
+        assertThat(expression + " against " + source.get("path"), compiled.evaluate(source),
+            is(interpreted.evaluate(source)));
+      }
+    }
+  }
+
+  @Test
+  public void everyCselExpressionIsCompiled() {
+    for (String expression : EXPRESSIONS) {
+      assertThat(expression, CselPredicate.compile(engine.parseExpression(expression)), is(notNullValue()));
+    }
+  }
+
+  @Test
+  public void unresolvedVariablesAreLeftToJexl() {
+    CselPredicate predicate = CselPredicate.compile(engine.parseExpression("path =^ \"/org/\""));
+    VariableSource source = ConstantVariableResolver.sourceFor("maven2", "format");
+
+    assertThat(predicate.evaluate(source), is(nullValue()));
+  }
+
+  @Test
+  public void unsupportedExpressionsFallBackToJexl() {
+    CselSelector selector = new CselSelector(cselToSql, engine.buildExpression("path =^ format", false), true);
+
+    assertThat(selector.evaluate(source("/org", "/org/apache")), is(true));
+    assertThat(selector.evaluate(source("/com", "/org/apache")), is(false));
+  }
+
+  private static VariableSource source(final String format, final String path) {
+    return new VariableSourceBuilder()
+        .addResolver(new ConstantVariableResolver(format, "format"))
+        .addResolver(new ConstantVariableResolver(path, "path"))
+        .build();
+  }
+}
@@ -0,0 +1,429 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.audit.internal;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.audit.AuditData;
+import org.sonatype.nexus.audit.AuditDataRecordedEvent;
+import org.sonatype.nexus.common.app.ApplicationDirectories;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.common.event.EventManager;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.codahale.metrics.annotation.Gauge;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
+import static org.sonatype.nexus.logging.task.TaskLoggingMarkers.AUDIT_LOG_ONLY;
+
+/**
+ * Writes audit records to the audit log and posts their {@link AuditDataRecordedEvent}s on a background thread.
+ *
+ * Records are handed over through a lock-free ring buffer; the writer drains up to
+ * {@code nexus.audit.async.batchSize} records at a time, serializes them as JSON lines into a single buffer and
+ * logs the batch as one message. When the buffer is full the {@code nexus.audit.async.overflow} policy applies:
+ * {@code block} waits for space, {@code drop} discards the record and {@code spill} appends it to a file under the
+ * work directory which the writer replays in batches once it has caught up. Once a record has been spilled later
+ * records are spilled too until the file has been replayed, so the audit log keeps the order records were offered in;
+ * their events are posted straight away. A replay interrupted by an unclean shutdown is repeated on the next start.
+ *
+ * While disabled or not started {@link #offer} refuses all records, so they are recorded synchronously as before.
+ */
+@Named
+@Singleton
+@ManagedLifecycle(phase = SERVICES)
+public class AsyncAuditWriter
+    extends LifecycleSupport
+{
+  public enum OverflowPolicy
+  {
+    BLOCK, DROP, SPILL
+  }
+
+  private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final Logger auditLogger = LoggerFactory.getLogger("auditlog");
+
+  private final EventManager eventManager;
+
+  private final ApplicationDirectories applicationDirectories;
+
+  private final boolean enabled;
+
+  private final int batchSize;
+
+  private final OverflowPolicy overflowPolicy;
+
+  private final AuditRingBuffer<Record> buffer;
+
+  private final Object spillLock = new Object();
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private final AtomicLong spilled = new AtomicLong();
+
+  private final AtomicLong written = new AtomicLong();
+
+  private volatile long lagMillis;
+
+  private volatile boolean running;
+
+  private volatile boolean idle;
+
+  private volatile boolean spillPending;
+
+  private Path spillFile;
+
+  private Path replayFile;
+
+  private Thread writerThread;
+
+  @Inject
+  public AsyncAuditWriter(
+      final EventManager eventManager,
+      final ApplicationDirectories applicationDirectories,
+      @Named("${nexus.audit.async.enabled:-false}") final boolean enabled,
+      @Named("${nexus.audit.async.bufferSize:-8192}") final int bufferSize,
+      @Named("${nexus.audit.async.batchSize:-512}") final int batchSize,
+      @Named("${nexus.audit.async.overflow:-block}") final String overflowPolicy)
+  {
+    checkArgument(batchSize > 0, "Batch size must be greater than zero");
+    this.eventManager = checkNotNull(eventManager);
+    this.applicationDirectories = checkNotNull(applicationDirectories);
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ENGLISH));
+    this.buffer = new AuditRingBuffer<>(bufferSize);
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (!enabled) {
+      return;
+    }
+    File auditDirectory = applicationDirectories.getWorkDirectory("audit");
+    spillFile = auditDirectory.toPath().resolve("audit-spill.json");
+    replayFile = auditDirectory.toPath().resolve("audit-replay.json");
+    // replay anything spilled before an unclean shutdown
+    spillPending = Files.exists(spillFile) || Files.exists(replayFile);
+
+    writerThread = new NexusThreadFactory("audit", "audit-writer").newThread(this::writeLoop);
+    writerThread.setDaemon(true);
+    running = true;
+    writerThread.start();
+    log.info("Writing audit records asynchronously, buffer size {}, overflow policy {}", buffer.capacity(),
+        overflowPolicy);
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (writerThread == null) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(writerThread);
+    writerThread.join(TimeUnit.SECONDS.toMillis(30));
+    if (writerThread.isAlive()) {
+      log.warn("Audit writer did not finish within 30 seconds, {} records pending", buffer.size());
+    }
+    else {
+      // pick up records offered while the writer was finishing
+      drain();
+    }
+    writerThread = null;
+  }
+
+  /**
+   * Hands the given record over to the writer, returning {@code false} if it must be recorded synchronously instead.
+   */
+  public boolean offer(final AuditData data, final AuditDTO dto) {
+    if (!running) {
+      return false;
+    }
+    // the record is written later, by which time the caller may have changed the attributes
+    if (dto.getAttributes() != null) {
+      dto.setAttributes(new LinkedHashMap<>(dto.getAttributes()));
+    }
+    Record record = new Record(data, dto, System.nanoTime());
+    if (overflowPolicy == OverflowPolicy.SPILL && spillPending) {
+      // keep behind the records already spilled, deciding under the lock as the writer may be starting their replay
+      boolean spill;
+      synchronized (spillLock) {
+        spill = spillPending || !buffer.offer(record);
+        if (spill && !appendSpill(record)) {
+          return false;
+        }
+      }
+      if (spill) {
+        return spilled(record);
+      }
+    }
+    else if (!buffer.offer(record)) {
+      switch (overflowPolicy) {
+        case DROP:
+          if (dropped.getAndIncrement() == 0) {
+            log.warn("Audit buffer is full, dropping audit records");
+          }
+          return true;
+        case SPILL:
+          return spill(record);
+        default:
+          if (!awaitSpace(record)) {
+            return false;
+          }
+      }
+    }
+    if (idle) {
+      LockSupport.unpark(writerThread);
+    }
+    return true;
+  }
+
+  private boolean awaitSpace(final Record record) {
+    do {
+      if (!running || Thread.currentThread().isInterrupted()) {
+        return false;
+      }
+      LockSupport.unpark(writerThread);
+      LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+    }
+    while (!buffer.offer(record));
+    return true;
+  }
+
+  private boolean spill(final Record record) {
+    synchronized (spillLock) {
+      if (!appendSpill(record)) {
+        return false;
+      }
+    }
+    return spilled(record);
+  }
+
+  /**
+   * Appends the record to the spill file, the caller holding the spill lock.
+   */
+  private boolean appendSpill(final Record record) {
+    try {
+      Files.write(spillFile, (record.dto.toString() + '\n').getBytes(UTF_8), CREATE, APPEND);
+      spillPending = true;
+      return true;
+    }
+    catch (IOException e) {
+      log.warn("Failed to spill audit record to {}", spillFile, e);
+      return false;
+    }
+  }
+
+  private boolean spilled(final Record record) {
+    spilled.incrementAndGet();
+    // the record is only logged later, but its event must not wait for the writer to catch up
+    eventManager.post(new AuditDataRecordedEvent(record.data));
+    return true;
+  }
+
+  private void writeLoop() {
+    List<Record> batch = new ArrayList<>(batchSize);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    while (running || !buffer.isEmpty()) {
+      try {
+        if (poll(batch) > 0) {
+          write(batch, bytes);
+        }
+        else if (spillPending) {
+          replaySpill();
+        }
+        else if (buffer.isEmpty()) {
+          idle = true;
+          // re-check after advertising idleness so an offer racing with us is not missed
+          if (running && buffer.isEmpty()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+          }
+          idle = false;
+        }
+        else {
+          // a producer has claimed a slot but not yet published it
+          Thread.yield();
+        }
+      }
+      catch (Exception e) {
+        log.warn("Failed to write audit records", e);
+      }
+      finally {
+        batch.clear();
+      }
+    }
+    try {
+      while (spillPending) {
+        replaySpill();
+      }
+    }
+    catch (Exception e) {
+      log.warn("Failed to write spilled audit records", e);
+    }
+  }
+
+  private void drain() throws IOException {
+    List<Record> batch = new ArrayList<>(batchSize);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    while (poll(batch) > 0) {
+      write(batch, bytes);
+      batch.clear();
+    }
+  }
+
+  private int poll(final List<Record> batch) {
+    Record record;
+    while (batch.size() < batchSize && (record = buffer.poll()) != null) {
+      batch.add(record);
+    }
+    return batch.size();
+  }
+
+  private void write(final List<Record> batch, final ByteArrayOutputStream bytes) throws IOException {
+    bytes.reset();
+    try (SequenceWriter writer = AuditDTO.LINES_WRITER.writeValues(bytes)) {
+      for (Record record : batch) {
+        writer.write(record.dto);
+      }
+    }
+    auditLogger.info(AUDIT_LOG_ONLY, bytes.toString(UTF_8));
+    lagMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batch.get(0).enqueued);
+    written.addAndGet(batch.size());
+
+    for (Record record : batch) {
+      try {
+        eventManager.post(new AuditDataRecordedEvent(record.data));
+      }
+      catch (Exception e) {
+        log.warn("Failed to post audit event", e);
+      }
+    }
+  }
+
+  /**
+   * Logs the spilled records in batches, moving the spill file aside first so records spilled meanwhile start a new
+   * one which is replayed next.
+   */
+  private void replaySpill() throws IOException {
+    if (!spillPending) {
+      return;
+    }
+    synchronized (spillLock) {
+      if (!Files.exists(replayFile) && Files.exists(spillFile)) {
+        Files.move(spillFile, replayFile);
+      }
+      // a replay left over from an unclean shutdown goes first
+      spillPending = Files.exists(spillFile);
+    }
+    if (!Files.exists(replayFile)) {
+      return;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(replayFile, UTF_8)) {
+      StringBuilder lines = new StringBuilder();
+      int count = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        if (count > 0) {
+          lines.append('\n');
+        }
+        lines.append(line);
+        if (++count == batchSize) {
+          auditLogger.info(AUDIT_LOG_ONLY, lines.toString());
+          lines.setLength(0);
+          count = 0;
+        }
+      }
+      if (count > 0) {
+        auditLogger.info(AUDIT_LOG_ONLY, lines.toString());
+      }
+    }
+    Files.delete(replayFile);
+  }
+
+  /**
+   * Records waiting in the buffer.
+   */
+  @Gauge(name = "nexus.audit.async.queued")
+  public int getQueued() {
+    return buffer.size();
+  }
+
+  /**
+   * Milliseconds the oldest record of the last batch spent in the buffer.
+   */
+  @Gauge(name = "nexus.audit.async.lag")
+  public long getLagMillis() {
+    return lagMillis;
+  }
+
+  @Gauge(name = "nexus.audit.async.written")
+  public long getWritten() {
+    return written.get();
+  }
+
+  @Gauge(name = "nexus.audit.async.dropped")
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  @Gauge(name = "nexus.audit.async.spilled")
+  public long getSpilled() {
+    return spilled.get();
+  }
+
+  private static class Record
+  {
+    private final AuditData data;
+
+    private final AuditDTO dto;
+
+    private final long enqueued;
+
+    private Record(final AuditData data, final AuditDTO dto, final long enqueued) {
+      this.data = data;
+      this.dto = dto;
+      this.enqueued = enqueued;
+    }
+  }
+}
@@ -21,6 +21,7 @@ import org.sonatype.nexus.audit.AuditData;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
@@ -54,6 +55,11 @@ public class AuditDTO
       .registerModule(new Jdk8Module())
       .registerModule(new JavaTimeModule());
 
+  /**
+   * Writes a sequence of records as JSON lines.
+   */
+  static final ObjectWriter LINES_WRITER = OBJECT_MAPPER.writer().withRootValueSeparator("\n");
+
   public AuditDTO() {
     // deserialization
   }
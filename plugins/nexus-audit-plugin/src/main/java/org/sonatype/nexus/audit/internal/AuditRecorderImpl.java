@@ -14,6 +14,7 @@ package org.sonatype.nexus.audit.internal;
 
 import java.util.Date;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -50,19 +51,31 @@ public class AuditRecorderImpl
 
   private final InitiatorProvider initiatorProvider;
 
+  private final AsyncAuditWriter asyncWriter;
+
   private final Logger auditLogger = LoggerFactory.getLogger("auditlog");
 
   private volatile boolean enabled = false;
 
-  @Inject
   public AuditRecorderImpl(
       final EventManager eventManager,
       final NodeAccess nodeAccess,
       final InitiatorProvider initiatorProvider)
+  {
+    this(eventManager, nodeAccess, initiatorProvider, null);
+  }
+
+  @Inject
+  public AuditRecorderImpl(
+      final EventManager eventManager,
+      final NodeAccess nodeAccess,
+      final InitiatorProvider initiatorProvider,
+      @Nullable final AsyncAuditWriter asyncWriter)
   {
     this.eventManager = eventManager;
     this.nodeAccess = nodeAccess;
     this.initiatorProvider = initiatorProvider;
+    this.asyncWriter = asyncWriter;
   }
 
   @Override
@@ -97,7 +110,13 @@ public class AuditRecorderImpl
       }
 
       try {
-        auditLogger.info(AUDIT_LOG_ONLY, new AuditDTO(data).toString());
+        // built on the calling thread, which it records
+        AuditDTO dto = new AuditDTO(data);
+        if (asyncWriter != null && asyncWriter.offer(data, dto)) {
+          return;
+        }
+
+        auditLogger.info(AUDIT_LOG_ONLY, dto.toString());
 
         eventManager.post(new AuditDataRecordedEvent(data));
       }
@@ -0,0 +1,111 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.audit.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer.
+ *
+ * Each slot carries a sequence number telling producers whether it is free for the current lap and the consumer
+ * whether it has been published, so neither side ever takes a lock.
+ */
+class AuditRingBuffer<E>
+{
+  private final int capacity;
+
+  private final int mask;
+
+  private final AtomicReferenceArray<E> elements;
+
+  private final AtomicLongArray sequences;
+
+  private final AtomicLong tail = new AtomicLong();
+
+  private final AtomicLong head = new AtomicLong();
+
+  AuditRingBuffer(final int requestedCapacity) {
+    checkArgument(requestedCapacity > 0, "Capacity must be greater than zero");
+    checkArgument(requestedCapacity <= 1 << 30, "Capacity is too large");
+    this.capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+    this.mask = capacity - 1;
+    this.elements = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Adds the element, returning {@code false} if the buffer is full. Safe to call from any thread.
+   */
+  boolean offer(final E element) {
+    long position = tail.get();
+    int index;
+    while (true) {
+      index = (int) (position & mask);
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          break;
+        }
+        position = tail.get();
+      }
+      else if (difference < 0) {
+        return false;
+      }
+      else {
+        position = tail.get();
+      }
+    }
+    elements.lazySet(index, element);
+    sequences.set(index, position + 1);
+    return true;
+  }
+
+  /**
+   * Removes the oldest element, returning {@code null} if none has been published. Only the consumer may call this.
+   */
+  @Nullable
+  E poll() {
+    long position = head.get();
+    int index = (int) (position & mask);
+    if (sequences.get(index) != position + 1) {
+      return null;
+    }
+    E element = elements.get(index);
+    elements.lazySet(index, null);
+    sequences.set(index, position + capacity);
+    head.set(position + 1);
+    return element;
+  }
+
+  boolean isEmpty() {
+    return size() == 0;
+  }
+
+  int size() {
+    long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(capacity, size));
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.audit.internal;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.audit.AuditData;
+import org.sonatype.nexus.audit.AuditDataRecordedEvent;
+import org.sonatype.nexus.common.app.ApplicationDirectories;
+import org.sonatype.nexus.common.event.EventManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class AsyncAuditWriterTest
+    extends TestSupport
+{
+  @Mock
+  private EventManager eventManager;
+
+  @Mock
+  private ApplicationDirectories applicationDirectories;
+
+  private File auditDirectory;
+
+  private CountDownLatch posting;
+
+  private CountDownLatch release;
+
+  private AsyncAuditWriter underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    auditDirectory = util.createTempDir();
+    when(applicationDirectories.getWorkDirectory("audit")).thenReturn(auditDirectory);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (release != null) {
+      release.countDown();
+    }
+    if (underTest != null) {
+      underTest.stop();
+    }
+  }
+
+  @Test
+  public void disabledWriterRefusesRecords() throws Exception {
+    underTest = new AsyncAuditWriter(eventManager, applicationDirectories, false, 16, 16, "block");
+    underTest.start();
+
+    assertThat(offer(), is(false));
+    verifyNoInteractions(eventManager);
+  }
+
+  @Test
+  public void recordsAreWrittenInTheBackground() throws Exception {
+    underTest = new AsyncAuditWriter(eventManager, applicationDirectories, true, 16, 4, "block");
+    underTest.start();
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(offer(), is(true));
+    }
+
+    verify(eventManager, timeout(5000).times(10)).post(any(AuditDataRecordedEvent.class));
+    assertThat(underTest.getWritten(), is(10L));
+    assertThat(underTest.getQueued(), is(0));
+  }
+
+  @Test
+  public void recordsAreDroppedWhenFull() throws Exception {
+    underTest = new AsyncAuditWriter(eventManager, applicationDirectories, true, 1, 1, "drop");
+    underTest.start();
+    blockWriter();
+
+    assertThat(offer(), is(true));
+    assertThat(offer(), is(true));
+
+    assertThat(underTest.getDropped(), is(1L));
+    release.countDown();
+    verify(eventManager, timeout(5000).times(2)).post(any(AuditDataRecordedEvent.class));
+  }
+
+  @Test
+  public void recordsAreSpilledWhenFullAndReplayed() throws Exception {
+    underTest = new AsyncAuditWriter(eventManager, applicationDirectories, true, 1, 1, "spill");
+    underTest.start();
+    blockWriter();
+
+    assertThat(offer(), is(true));
+    assertThat(offer(), is(true));
+
+    File spillFile = new File(auditDirectory, "audit-spill.json");
+    assertThat(underTest.getSpilled(), is(1L));
+    assertThat(spillFile.exists(), is(true));
+    // spilled records post their event straight away
+    verify(eventManager, times(2)).post(any(AuditDataRecordedEvent.class));
+
+    release.countDown();
+    verify(eventManager, timeout(5000).times(3)).post(any(AuditDataRecordedEvent.class));
+    long deadline = System.currentTimeMillis() + 5000;
+    while (spillFile.exists() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(spillFile.exists(), is(false));
+  }
+
+  @Test
+  public void spillLeftOverFromUncleanShutdownIsReplayedInBatches() throws Exception {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      AuditData data = new AuditData();
+      data.setDomain("foo");
+      data.setContext("record-" + i);
+      lines.add(new AuditDTO(data).toString());
+    }
+    File replayFile = new File(auditDirectory, "audit-replay.json");
+    File spillFile = new File(auditDirectory, "audit-spill.json");
+    Files.write(replayFile.toPath(), lines.subList(0, 5000), UTF_8);
+    Files.write(spillFile.toPath(), lines.subList(5000, 10000), UTF_8);
+
+    underTest = new AsyncAuditWriter(eventManager, applicationDirectories, true, 16, 16, "spill");
+    underTest.start();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while ((replayFile.exists() || spillFile.exists()) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(replayFile.exists(), is(false));
+    assertThat(spillFile.exists(), is(false));
+  }
+
+  @Test
+  public void attributesAreCopied() throws Exception {
+    underTest = new AsyncAuditWriter(eventManager, applicationDirectories, true, 16, 16, "block");
+    underTest.start();
+    blockWriter();
+
+    AuditData data = new AuditData();
+    data.getAttributes().put("name", "before");
+    AuditDTO dto = new AuditDTO(data);
+    assertThat(underTest.offer(data, dto), is(true));
+    data.getAttributes().put("name", "after");
+
+    assertThat(dto.getAttributes(), not(sameInstance(data.getAttributes())));
+    assertThat(dto.getAttributes().get("name"), is(equalTo("before")));
+  }
+
+  @Test
+  public void pendingRecordsAreWrittenOnStop() throws Exception {
+    underTest = new AsyncAuditWriter(eventManager, applicationDirectories, true, 16, 16, "block");
+    underTest.start();
+    blockWriter();
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(offer(), is(true));
+    }
+    release.countDown();
+    underTest.stop();
+    underTest = null;
+
+    verify(eventManager, times(6)).post(any(AuditDataRecordedEvent.class));
+  }
+
+  /**
+   * Offers a record and waits until the writer is stuck posting its event, leaving the buffer empty.
+   */
+  private void blockWriter() throws Exception {
+    posting = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+    AtomicBoolean first = new AtomicBoolean(true);
+    doAnswer(invocation -> {
+      if (first.getAndSet(false)) {
+        posting.countDown();
+        release.await(10, TimeUnit.SECONDS);
+      }
+      return null;
+    }).when(eventManager).post(any(AuditDataRecordedEvent.class));
+
+    assertThat(offer(), is(true));
+    assertThat(posting.await(5, TimeUnit.SECONDS), is(true));
+    assertThat(underTest.getQueued(), is(0));
+  }
+
+  private boolean offer() {
+    AuditData data = new AuditData();
+    data.setDomain("foo");
+    data.setType("bar");
+    data.setContext("baz");
+    return underTest.offer(data, new AuditDTO(data));
+  }
+}
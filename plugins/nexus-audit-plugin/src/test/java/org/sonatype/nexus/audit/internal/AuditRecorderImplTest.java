@@ -33,6 +33,8 @@ import java.util.UUID;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -54,6 +56,9 @@ public class AuditRecorderImplTest
   @Mock
   private InitiatorProvider initiatorProvider;
 
+  @Mock
+  private AsyncAuditWriter asyncWriter;
+
   @Captor
   private ArgumentCaptor<AuditDataRecordedEvent> eventCaptor;
 
@@ -127,4 +132,25 @@ public class AuditRecorderImplTest
 
     assertThat(eventCaptor.getValue(), notNullValue());
   }
+
+  @Test
+  public void testRecordHandedToAsyncWriter() {
+    when(asyncWriter.offer(any(AuditData.class), any(AuditDTO.class))).thenReturn(true);
+
+    AuditData data = makeAuditData();
+    underTest.record(data);
+
+    verify(asyncWriter).offer(same(data), any(AuditDTO.class));
+    verifyNoInteractions(eventManager);
+    assertThat(data.getInitiator(), is(INITIATOR));
+  }
+
+  @Test
+  public void testRecordWrittenSynchronouslyWhenAsyncWriterRefuses() {
+    when(asyncWriter.offer(any(AuditData.class), any(AuditDTO.class))).thenReturn(false);
+
+    underTest.record(makeAuditData());
+
+    verify(eventManager).post(any(AuditDataRecordedEvent.class));
+  }
 }
@@ -0,0 +1,89 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.audit.internal;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class AuditRingBufferTest
+    extends TestSupport
+{
+  @Test
+  public void capacityIsRoundedUpToPowerOfTwo() {
+    assertThat(new AuditRingBuffer<>(1).capacity(), is(1));
+    assertThat(new AuditRingBuffer<>(5).capacity(), is(8));
+    assertThat(new AuditRingBuffer<>(8).capacity(), is(8));
+  }
+
+  @Test
+  public void elementsArePolledInOrderAcrossLaps() {
+    AuditRingBuffer<Integer> underTest = new AuditRingBuffer<>(4);
+
+    for (int lap = 0; lap < 3; lap++) {
+      for (int i = 0; i < 4; i++) {
+        assertThat(underTest.offer(i), is(true));
+      }
+      assertThat(underTest.offer(4), is(false));
+      assertThat(underTest.size(), is(4));
+
+      for (int i = 0; i < 4; i++) {
+        assertThat(underTest.poll(), is(i));
+      }
+      assertThat(underTest.poll(), nullValue());
+      assertThat(underTest.isEmpty(), is(true));
+    }
+  }
+
+  @Test
+  public void concurrentProducersKeepTheirOrder() throws Exception {
+    AuditRingBuffer<int[]> underTest = new AuditRingBuffer<>(16);
+    int producers = 4;
+    int perProducer = 10_000;
+
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      threads[p] = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          int[] element = {producer, i};
+          while (!underTest.offer(element)) {
+            Thread.yield();
+          }
+        }
+      });
+      threads[p].start();
+    }
+
+    int[] next = new int[producers];
+    int received = 0;
+    while (received < producers * perProducer) {
+      int[] element = underTest.poll();
+      if (element == null) {
+        Thread.yield();
+        continue;
+      }
+      assertThat(element[1], is(next[element[0]]));
+      next[element[0]]++;
+      received++;
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(underTest.isEmpty(), is(true));
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.locatedblobs;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreManager;
+import org.sonatype.nexus.blobstore.common.BlobStoreTaskSupport;
+import org.sonatype.nexus.blobstore.group.BlobStoreGroup;
+import org.sonatype.nexus.blobstore.group.internal.BlobStoreGroupLocator;
+import org.sonatype.nexus.blobstore.group.store.LocatedBlobsStore;
+import org.sonatype.nexus.logging.task.ProgressLogIntervalHelper;
+import org.sonatype.nexus.logging.task.TaskLogging;
+import org.sonatype.nexus.scheduling.Cancelable;
+import org.sonatype.nexus.scheduling.CancelableHelper;
+
+import com.google.common.collect.Iterators;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.reverse;
+import static org.sonatype.nexus.logging.task.TaskLogType.TASK_LOG_ONLY;
+
+/**
+ * Rebuilds the record of which member of a blob store group each blob is stored in, used instead of probing members.
+ *
+ * Existing records are replaced rather than cleared first, so lookups keep using them while the task runs; records
+ * left pointing at a member which no longer holds the blob are forgotten by the group when it finds them stale.
+ */
+@Named
+@TaskLogging(TASK_LOG_ONLY)
+public class RebuildLocatedBlobsTask
+    extends BlobStoreTaskSupport
+    implements Cancelable
+{
+  private static final int LOGGING_INTERVAL = 60;
+
+  private static final int BATCH_SIZE = 1000;
+
+  private final LocatedBlobsStore locatedBlobsStore;
+
+  private final BlobStoreGroupLocator locator;
+
+  @Inject
+  public RebuildLocatedBlobsTask(
+      final BlobStoreManager blobStoreManager,
+      final LocatedBlobsStore locatedBlobsStore,
+      final BlobStoreGroupLocator locator)
+  {
+    super(blobStoreManager);
+    this.locatedBlobsStore = checkNotNull(locatedBlobsStore);
+    this.locator = checkNotNull(locator);
+  }
+
+  @Override
+  public String getMessage() {
+    return String.format("rebuild located blobs of blob store group '%s'", getBlobStoreField());
+  }
+
+  @Override
+  protected boolean appliesTo(final BlobStore blobStore) {
+    return blobStore.getBlobStoreConfiguration().getType().equals(BlobStoreGroup.TYPE);
+  }
+
+  @Override
+  protected void execute(final BlobStore blobStore) {
+    if (!locator.isPersistent()) {
+      log.warn("Located blobs are not recorded, set nexus.blobstore.group.locatedBlobs.persistent=true to use them");
+    }
+    String groupName = blobStore.getBlobStoreConfiguration().getName();
+
+    AtomicLong count = new AtomicLong();
+    try (ProgressLogIntervalHelper progressLogger = new ProgressLogIntervalHelper(log, LOGGING_INTERVAL)) {
+      for (BlobStore member : leastPreferredFirst(((BlobStoreGroup) blobStore).getMembers())) {
+        String memberName = member.getBlobStoreConfiguration().getName();
+        Iterator<List<BlobId>> batches = Iterators.partition(member.getBlobIdStream().iterator(), BATCH_SIZE);
+        while (batches.hasNext()) {
+          CancelableHelper.checkCancellation();
+          List<BlobId> batch = batches.next();
+          locatedBlobsStore.setMember(groupName, memberName, batch);
+          progressLogger.info("Recording blobs of blob store group '{}', member '{}' - blobs count : {}",
+              groupName, memberName, count.addAndGet(batch.size()));
+        }
+      }
+    }
+    log.info("Recorded {} blobs of blob store group '{}'", count, groupName);
+  }
+
+  /**
+   * Orders the members so that, as later records replace earlier ones, a blob held by several members ends up
+   * recorded in the member the group would find first: writable members before read-only ones, then in group order.
+   */
+  private static List<BlobStore> leastPreferredFirst(final List<BlobStore> members) {
+    List<BlobStore> ordered = new ArrayList<>(members);
+    ordered.sort(Comparator.comparing(BlobStore::isWritable).reversed());
+    reverse(ordered);
+    return ordered;
+  }
+}
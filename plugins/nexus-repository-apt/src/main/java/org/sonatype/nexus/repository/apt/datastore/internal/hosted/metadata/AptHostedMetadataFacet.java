@@ -17,17 +17,25 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -65,6 +73,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateFormatUtils;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Math.max;
+import static java.util.Collections.emptyList;
 import static org.apache.http.protocol.HttpDateGenerator.PATTERN_RFC1123;
 import static org.sonatype.nexus.common.hash.HashAlgorithm.MD5;
 import static org.sonatype.nexus.common.hash.HashAlgorithm.SHA256;
@@ -87,6 +97,10 @@ import static org.sonatype.nexus.repository.apt.internal.ReleaseName.RELEASE_GPG
 public class AptHostedMetadataFacet
     extends FacetSupport
 {
+  private static final List<String> INDEX_EXTENSIONS = Arrays.asList(StringUtils.EMPTY, GZ, BZ2);
+
+  private static final Comparator<Map<String, Object>> PACKAGE_ORDER =
+      Comparator.comparing(asset -> asset.get(P_PACKAGE_NAME).toString());
 
   private final ObjectMapper mapper;
 
@@ -94,6 +108,10 @@ public class AptHostedMetadataFacet
 
   private final Cooperation2Factory.Builder cooperationBuilder;
 
+  private final boolean incremental;
+
+  private final int compressionThreads;
+
   private Cooperation2 cooperation;
 
   @Inject
@@ -104,10 +122,15 @@ public class AptHostedMetadataFacet
       @Named("${nexus.apt.metadata.cooperation.enabled:-true}") final boolean cooperationEnabled,
       @Named("${nexus.apt.metadata.cooperation.majorTimeout:-0s}") final Duration majorTimeout,
       @Named("${nexus.apt.metadata.cooperation.minorTimeout:-30s}") final Duration minorTimeout,
-      @Named("${nexus.apt.metadata.cooperation.threadsPerKey:-100}") final int threadsPerKey)
+      @Named("${nexus.apt.metadata.cooperation.threadsPerKey:-100}") final int threadsPerKey,
+      @Named("${nexus.apt.metadata.incremental.enabled:-false}") final boolean incremental,
+      @Named("${nexus.apt.metadata.parallelCompression.enabled:-false}") final boolean parallelCompression,
+      @Named("${nexus.apt.metadata.parallelCompression.threads:-2}") final int compressionThreads)
   {
     this.mapper = checkNotNull(mapper);
     this.clock = checkNotNull(clock);
+    this.incremental = incremental;
+    this.compressionThreads = parallelCompression ? max(compressionThreads, 1) : 0;
     this.cooperationBuilder = checkNotNull(cooperationFactory).configure()
         .enabled(cooperationEnabled)
         .majorTimeout(majorTimeout)
@@ -163,12 +186,20 @@ public class AptHostedMetadataFacet
     AptContentFacet aptFacet = content();
     AptSigningFacet signingFacet = signing();
 
-    removeMetadataPerArchitecture();
+    // when incremental only the indexes of the architectures touched by the changes are rebuilt
+    Set<String> touchedArchitectures = incremental ? touchedArchitectures(changeList) : new HashSet<>();
+    Map<String, List<FluentAsset>> unchangedIndexes = new TreeMap<>();
+
+    if (touchedArchitectures.isEmpty()) {
+      removeMetadataPerArchitecture();
+    }
 
     StringBuilder sha256Builder = new StringBuilder();
     StringBuilder md5Builder = new StringBuilder();
     String releaseFile;
-    try (CompressingTempFileStore store = buildPackageIndexes(changeList)) {
+    try (CompressingTempFileStore store = touchedArchitectures.isEmpty()
+        ? buildPackageIndexes(changeList)
+        : buildPackageIndexes(changeList, touchedArchitectures, unchangedIndexes)) {
       for (Map.Entry<String, CompressingTempFileStore.FileMetadata> entry : store.getFiles().entrySet()) {
         FluentAsset metadataAsset = aptFacet.put(
             packageIndexName(entry.getKey(), StringUtils.EMPTY),
@@ -180,7 +211,7 @@ public class AptHostedMetadataFacet
 
         FluentAsset gzMetadataAsset = aptFacet.put(
             packageIndexName(entry.getKey(), GZ),
-            new StreamPayload(entry.getValue().gzSupplier(), entry.getValue().bzSize(), AptMimeTypes.GZIP)
+            new StreamPayload(entry.getValue().gzSupplier(), entry.getValue().gzSize(), AptMimeTypes.GZIP)
         );
         addSignatureItem(md5Builder, MD5, gzMetadataAsset, packageRelativeIndexName(entry.getKey(), GZ));
         addSignatureItem(sha256Builder, SHA256, gzMetadataAsset, packageRelativeIndexName(entry.getKey(), GZ));
@@ -193,9 +224,20 @@ public class AptHostedMetadataFacet
         addSignatureItem(sha256Builder, SHA256, bzMetadataAsset, packageRelativeIndexName(entry.getKey(), BZ2));
       }
 
+      for (Map.Entry<String, List<FluentAsset>> entry : unchangedIndexes.entrySet()) {
+        for (int i = 0; i < INDEX_EXTENSIONS.size(); i++) {
+          String filename = packageRelativeIndexName(entry.getKey(), INDEX_EXTENSIONS.get(i));
+          addSignatureItem(md5Builder, MD5, entry.getValue().get(i), filename);
+          addSignatureItem(sha256Builder, SHA256, entry.getValue().get(i), filename);
+        }
+      }
+
+      Set<String> architectures = new TreeSet<>(store.getFiles().keySet());
+      architectures.addAll(unchangedIndexes.keySet());
+
       releaseFile = buildReleaseFile(
           aptFacet.getDistribution(),
-          store.getFiles().keySet(),
+          unchangedIndexes.isEmpty() ? store.getFiles().keySet() : architectures,
           md5Builder.toString(),
           sha256Builder.toString()
       );
@@ -225,7 +267,7 @@ public class AptHostedMetadataFacet
   private CompressingTempFileStore buildPackageIndexes(final List<AssetChange> changes)
       throws IOException
   {
-    CompressingTempFileStore result = new CompressingTempFileStore();
+    CompressingTempFileStore result = new CompressingTempFileStore(compressionThreads);
     Map<String, Writer> streams = new HashMap<>();
     boolean ok = false;
     try {
@@ -237,6 +279,7 @@ public class AptHostedMetadataFacet
       final List<Map<String, Object>> packagesInfo = data()
           .browsePackagesMetadata()
           .map(this::deserialize)
+          .sorted(PACKAGE_ORDER)
           .collect(Collectors.toList());
 
       packagesInfo.stream().map(x -> x.get(P_ARCHITECTURE).toString())
@@ -278,6 +321,117 @@ public class AptHostedMetadataFacet
     return result;
   }
 
+  /**
+   * Builds the package indexes of the given architectures, streaming the package metadata and only holding the index
+   * sections of those architectures in memory. The existing indexes of the other architectures are collected so the
+   * release file can list them as they are; architectures found without existing indexes are built by a second pass.
+   */
+  private CompressingTempFileStore buildPackageIndexes(
+      final List<AssetChange> changes,
+      final Set<String> architectures,
+      final Map<String, List<FluentAsset>> unchangedIndexes) throws IOException
+  {
+    CompressingTempFileStore result = new CompressingTempFileStore(compressionThreads);
+    Map<String, Writer> streams = new HashMap<>();
+    boolean ok = false;
+    try {
+      // NOTE:  We exclude added assets as well to account for the case where we are replacing an asset
+      Set<String> excludeNames = changes.stream().map(c -> c.getAsset().path()).collect(Collectors.toSet());
+
+      for (String architecture : architectures) {
+        streams.put(architecture, result.openOutput(architecture));
+      }
+      Set<String> otherArchitectures = new HashSet<>();
+      writePackageIndexes(streams, excludeNames, otherArchitectures);
+
+      Map<String, Writer> missingStreams = new HashMap<>();
+      for (String architecture : otherArchitectures) {
+        List<FluentAsset> indexes = existingPackageIndexes(architecture);
+        if (indexes.isEmpty()) {
+          missingStreams.put(architecture, result.openOutput(architecture));
+        }
+        else {
+          unchangedIndexes.put(architecture, indexes);
+        }
+      }
+      if (!missingStreams.isEmpty()) {
+        log.debug("Building missing package indexes for {} at {}", missingStreams.keySet(), getRepository().getName());
+        streams.putAll(missingStreams);
+        writePackageIndexes(missingStreams, excludeNames, new HashSet<>());
+      }
+      ok = true;
+    }
+    finally {
+      for (Writer writer : streams.values()) {
+        IOUtils.closeQuietly(writer, null);
+      }
+
+      if (!ok) {
+        result.close();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Streams the package metadata, writing the index sections of the packages to the writer of their architecture in
+   * the same package order as a full rebuild and collecting the architectures without a writer. The metadata is stored
+   * by component and asset id rather than package name, so the packages of those architectures are sorted in memory;
+   * the sort is stable to keep every version of a package in browse order, as a full rebuild does.
+   */
+  private void writePackageIndexes(
+      final Map<String, Writer> streams,
+      final Set<String> excludeNames,
+      final Set<String> otherArchitectures) throws IOException
+  {
+    Map<String, List<Map<String, Object>>> packagesByArch = new HashMap<>();
+    try (Stream<String> packagesMetadata = data().browsePackagesMetadata()) {
+      Iterator<String> iterator = packagesMetadata.iterator();
+      while (iterator.hasNext()) {
+        Map<String, Object> asset = deserialize(iterator.next());
+        String arch = asset.get(P_ARCHITECTURE).toString();
+        if (!streams.containsKey(arch)) {
+          otherArchitectures.add(arch);
+        }
+        else if (!excludeNames.contains(asset.get(P_PACKAGE_NAME).toString())) {
+          packagesByArch.computeIfAbsent(arch, k -> new ArrayList<>()).add(asset);
+        }
+      }
+    }
+    for (Map.Entry<String, List<Map<String, Object>>> entry : packagesByArch.entrySet()) {
+      Writer outWriter = streams.get(entry.getKey());
+      List<Map<String, Object>> packages = entry.getValue();
+      packages.sort(PACKAGE_ORDER);
+      for (Map<String, Object> asset : packages) {
+        outWriter.write(asset.get(P_INDEX_SECTION).toString());
+        outWriter.write("\n\n");
+      }
+    }
+  }
+
+  /**
+   * Finds the existing plain, GZIP and BZ2 package indexes of the given architecture, or none if any are missing.
+   */
+  private List<FluentAsset> existingPackageIndexes(final String architecture) {
+    List<FluentAsset> indexes = new ArrayList<>();
+    for (String ext : INDEX_EXTENSIONS) {
+      Optional<FluentAsset> index = content().getAsset(packageIndexName(architecture, ext));
+      if (!index.isPresent() || !index.get().blob().isPresent()) {
+        return emptyList();
+      }
+      indexes.add(index.get());
+    }
+    return indexes;
+  }
+
+  private Set<String> touchedArchitectures(final List<AssetChange> changes) {
+    return changes.stream()
+        .filter(change -> change.getAsset().kind().equals(DEB))
+        .map(change -> getArchitecture(change.getAsset()))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+  }
+
   private void createMetadataFileWithData(
       final List<AssetChange> changes,
       final CompressingTempFileStore result,
@@ -12,7 +12,9 @@
  */
 package org.sonatype.nexus.repository.apt.internal.hosted;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
 import java.io.Writer;
@@ -22,10 +24,17 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
 
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.common.io.InputStreamSupplier;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.Maps;
@@ -36,6 +45,10 @@ import org.bouncycastle.util.io.TeeOutputStream;
 /**
  * Stores a set of temp files, automatically compressing each into a GZIP, BZ2 and plain format.
  *
+ * With parallel compression each output is written plain and then compressed into GZIP and BZ2 concurrently once it
+ * is closed, by a pool of threads owned by the store and shut down when it is closed; {@link #getFiles()} waits for
+ * the compression to finish.
+ *
  * @since 3.17
  */
 public class CompressingTempFileStore
@@ -44,6 +57,26 @@ public class CompressingTempFileStore
 {
   private final Map<String, FileHolder> holdersByKey = new HashMap<>();
 
+  private final Map<String, CompletableFuture<Void>> compressionsByKey = new HashMap<>();
+
+  @Nullable
+  private final ExecutorService compressionExecutor;
+
+  public CompressingTempFileStore() {
+    this(0);
+  }
+
+  /**
+   * @param compressionThreads the number of threads compressing closed outputs concurrently, {@code 0} to compress
+   *                           each output inline as it is written
+   */
+  public CompressingTempFileStore(final int compressionThreads) {
+    this.compressionExecutor = compressionThreads > 0
+        ? Executors.newFixedThreadPool(compressionThreads,
+            new NexusThreadFactory("apt-compress", "apt-metadata-compression"))
+        : null;
+  }
+
   public Writer openOutput(final String key) {
     try {
       if (holdersByKey.containsKey(key)) {
@@ -51,6 +84,21 @@ public class CompressingTempFileStore
       }
       FileHolder holder = new FileHolder();
       holdersByKey.put(key, holder);
+      if (compressionExecutor != null) {
+        return new OutputStreamWriter(new FilterOutputStream(holder.plainStream)
+        {
+          @Override
+          public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+          }
+
+          @Override
+          public void close() throws IOException {
+            super.close();
+            compressionsByKey.computeIfAbsent(key, k -> compress(holder));
+          }
+        }, Charsets.UTF_8);
+      }
       return new OutputStreamWriter(new TeeOutputStream(
           new TeeOutputStream(new GZIPOutputStream(Files.newOutputStream(holder.gzTempFile)),
               new BZip2CompressorOutputStream(Files.newOutputStream(holder.bzTempFile))),
@@ -62,10 +110,23 @@ public class CompressingTempFileStore
   }
 
   public Map<String, FileMetadata> getFiles() {
+    awaitCompression();
     return Maps.transformValues(holdersByKey, holder -> new FileMetadata(holder));
   }
 
   public void close() {
+    // let any compression still in progress finish before deleting its files
+    compressionsByKey.values().forEach(compression -> compression.exceptionally(e -> null).join());
+    if (compressionExecutor != null) {
+      compressionExecutor.shutdown();
+      try {
+        compressionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
     List<Path> notDeletedFiles = new LinkedList<>();
 
     for (FileHolder holder : holdersByKey.values()) {
@@ -78,6 +139,35 @@ public class CompressingTempFileStore
     }
   }
 
+  private CompletableFuture<Void> compress(final FileHolder holder) {
+    return CompletableFuture.allOf(
+        compress(holder.plainTempFile, () -> new GZIPOutputStream(holder.gzStream)),
+        compress(holder.plainTempFile, () -> new BZip2CompressorOutputStream(holder.bzStream)));
+  }
+
+  private CompletableFuture<Void> compress(final Path source, final CompressorFactory compressor) {
+    return CompletableFuture.runAsync(() -> {
+      try (OutputStream out = compressor.open()) {
+        Files.copy(source, out);
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, compressionExecutor);
+  }
+
+  private void awaitCompression() {
+    try {
+      compressionsByKey.values().forEach(CompletableFuture::join);
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw (UncheckedIOException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   private void deleteFile(final Path path, final List<Path> paths) {
     try {
       Files.deleteIfExists(path);
@@ -87,6 +177,12 @@ public class CompressingTempFileStore
     }
   }
 
+  @FunctionalInterface
+  private interface CompressorFactory
+  {
+    OutputStream open() throws IOException;
+  }
+
   public static class FileMetadata
   {
     private final FileHolder holder;
@@ -0,0 +1,210 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.apt.datastore.internal.hosted.metadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.common.cooperation2.datastore.DefaultCooperation2Factory;
+import org.sonatype.nexus.common.time.Clock;
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.apt.AptFormat;
+import org.sonatype.nexus.repository.apt.datastore.AptContentFacet;
+import org.sonatype.nexus.repository.apt.datastore.internal.data.AptKeyValueFacet;
+import org.sonatype.nexus.repository.apt.datastore.internal.hosted.AssetChange;
+import org.sonatype.nexus.repository.apt.internal.gpg.AptSigningFacet;
+import org.sonatype.nexus.repository.apt.internal.hosted.AssetAction;
+import org.sonatype.nexus.repository.content.AssetBlob;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.view.Payload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.repository.apt.internal.AptProperties.DEB;
+import static org.sonatype.nexus.repository.apt.internal.AptProperties.P_ARCHITECTURE;
+import static org.sonatype.nexus.repository.apt.internal.AptProperties.P_INDEX_SECTION;
+import static org.sonatype.nexus.repository.apt.internal.AptProperties.P_PACKAGE_NAME;
+
+public class AptHostedMetadataFacetTest
+    extends TestSupport
+{
+  private static final String DISTRIBUTION = "bionic";
+
+  private static final String PACKAGES = "dists/bionic/main/binary-%s/Packages%s";
+
+  private static final List<String> EXTENSIONS = Arrays.asList("", ".gz", ".bz2");
+
+  @Mock
+  private Clock clock;
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private Format format;
+
+  @Mock
+  private AptContentFacet content;
+
+  @Mock
+  private AptKeyValueFacet data;
+
+  @Mock
+  private AptSigningFacet signing;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private final List<String> packagesMetadata = new ArrayList<>();
+
+  private final Map<String, String> written = new HashMap<>();
+
+  private AptHostedMetadataFacet underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(clock.clusterTime()).thenReturn(OffsetDateTime.now());
+    when(format.getValue()).thenReturn(AptFormat.NAME);
+    when(repository.getName()).thenReturn("apt-hosted");
+    when(repository.getFormat()).thenReturn(format);
+    when(repository.facet(AptContentFacet.class)).thenReturn(content);
+    when(repository.facet(AptKeyValueFacet.class)).thenReturn(data);
+    when(repository.facet(AptSigningFacet.class)).thenReturn(signing);
+
+    when(content.getDistribution()).thenReturn(DISTRIBUTION);
+    when(content.put(anyString(), any(Payload.class))).thenAnswer(invocation -> {
+      String path = invocation.getArgument(0);
+      try (InputStream in = invocation.<Payload>getArgument(1).openInputStream()) {
+        written.put(path, new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+      }
+      return indexAsset("new-" + path);
+    });
+    when(data.browsePackagesMetadata()).thenAnswer(invocation -> packagesMetadata.stream());
+    when(signing.signInline(anyString())).thenReturn(new byte[0]);
+    when(signing.signExternal(anyString())).thenReturn(new byte[0]);
+
+    underTest = new AptHostedMetadataFacet(mapper, clock, new DefaultCooperation2Factory(), false, Duration.ZERO,
+        Duration.ofSeconds(30), 100, true, true, 2);
+    underTest.attach(repository);
+    underTest.init();
+  }
+
+  @Test
+  public void incrementalRebuildReusesIndexesOfOtherArchitectures() throws IOException {
+    addPackage("amd64", "zeta_1.0_amd64.deb");
+    addPackage("i386", "beta_1.0_i386.deb");
+    addPackage("amd64", "alpha_1.0_amd64.deb");
+    for (String ext : EXTENSIONS) {
+      String path = String.format(PACKAGES, "i386", ext);
+      when(content.getAsset(path)).thenReturn(Optional.of(indexAsset("old-" + path)));
+    }
+
+    underTest.rebuildMetadata(singletonList(new AssetChange(AssetAction.ADDED, debAsset("amd64"))));
+
+    for (String ext : EXTENSIONS) {
+      verify(content, never()).put(eq(String.format(PACKAGES, "i386", ext)), any(Payload.class));
+    }
+    assertThat(written.get(String.format(PACKAGES, "amd64", "")),
+        is(section("alpha_1.0_amd64.deb") + "\n\n" + section("zeta_1.0_amd64.deb") + "\n\n"));
+
+    String release = written.get("dists/bionic/Release");
+    assertThat(release, containsString("Architectures: amd64 i386"));
+    for (String ext : EXTENSIONS) {
+      String path = String.format(PACKAGES, "i386", ext);
+      assertThat(release, containsString("old-" + path + "-MD5 42 main/binary-i386/Packages" + ext));
+      assertThat(release, containsString("old-" + path + "-SHA256 42 main/binary-i386/Packages" + ext));
+    }
+  }
+
+  @Test
+  public void incrementalRebuildKeepsEveryVersionOfAPackage() throws IOException {
+    addPackage("amd64", "zeta", section("zeta") + "\nVersion: 2.0");
+    addPackage("amd64", "alpha", section("alpha") + "\nVersion: 1.0");
+    addPackage("amd64", "zeta", section("zeta") + "\nVersion: 1.0");
+
+    underTest.rebuildMetadata(singletonList(new AssetChange(AssetAction.ADDED, debAsset("amd64"))));
+
+    assertThat(written.get(String.format(PACKAGES, "amd64", "")),
+        is(section("alpha") + "\nVersion: 1.0\n\n" +
+            section("zeta") + "\nVersion: 2.0\n\n" +
+            section("zeta") + "\nVersion: 1.0\n\n"));
+  }
+
+  private void addPackage(final String architecture, final String name) throws IOException {
+    addPackage(architecture, name, section(name));
+  }
+
+  private void addPackage(final String architecture, final String name, final String indexSection)
+      throws IOException
+  {
+    packagesMetadata.add(mapper.writeValueAsString(ImmutableMap.of(
+        P_ARCHITECTURE, architecture,
+        P_PACKAGE_NAME, name,
+        P_INDEX_SECTION, indexSection)));
+  }
+
+  private static String section(final String name) {
+    return "Package: " + name;
+  }
+
+  private FluentAsset debAsset(final String architecture) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put(AptFormat.NAME, new HashMap<>(ImmutableMap.of(P_ARCHITECTURE, architecture)));
+
+    FluentAsset asset = mock(FluentAsset.class);
+    when(asset.kind()).thenReturn(DEB);
+    when(asset.path()).thenReturn("/pool/main/n/new/new_1.0_" + architecture + ".deb");
+    when(asset.repository()).thenReturn(repository);
+    when(asset.attributes()).thenReturn(new NestedAttributesMap("attributes", attributes));
+    return asset;
+  }
+
+  private static FluentAsset indexAsset(final String checksumPrefix) {
+    AssetBlob blob = mock(AssetBlob.class);
+    when(blob.checksums()).thenReturn(ImmutableMap.of(
+        "MD5", checksumPrefix + "-MD5",
+        "SHA256", checksumPrefix + "-SHA256"));
+    when(blob.blobSize()).thenReturn(42L);
+
+    FluentAsset asset = mock(FluentAsset.class);
+    when(asset.blob()).thenReturn(Optional.of(blob));
+    return asset;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.apt.internal.hosted;
+
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.zip.GZIPInputStream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import com.google.common.io.ByteStreams;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class CompressingTempFileStoreTest
+    extends TestSupport
+{
+  private static final String PACKAGES = "Package: foo\nArchitecture: amd64\n\nPackage: bar\nArchitecture: amd64\n\n";
+
+  @Test
+  public void parallelCompressionProducesAllFormats() throws Exception {
+    try (CompressingTempFileStore underTest = new CompressingTempFileStore(2)) {
+      try (Writer amd64 = underTest.openOutput("amd64"); Writer arm64 = underTest.openOutput("arm64")) {
+        amd64.write(PACKAGES);
+        arm64.write(PACKAGES.replace("amd64", "arm64"));
+      }
+
+      assertThat(underTest.getFiles().keySet(), containsInAnyOrder("amd64", "arm64"));
+
+      CompressingTempFileStore.FileMetadata amd64 = underTest.getFiles().get("amd64");
+      assertThat(amd64.plainSize(), is((long) PACKAGES.length()));
+      assertThat(amd64.gzSize(), greaterThan(0L));
+      assertThat(amd64.bzSize(), greaterThan(0L));
+
+      try (InputStream plain = amd64.plainSupplier().get();
+           InputStream gz = new GZIPInputStream(amd64.gzSupplier().get());
+           InputStream bz = new BZip2CompressorInputStream(amd64.bzSupplier().get())) {
+        assertThat(new String(ByteStreams.toByteArray(plain), UTF_8), is(PACKAGES));
+        assertThat(new String(ByteStreams.toByteArray(gz), UTF_8), is(PACKAGES));
+        assertThat(new String(ByteStreams.toByteArray(bz), UTF_8), is(PACKAGES));
+      }
+    }
+  }
+
+  @Test
+  public void compressionThreadsStopWhenClosed() throws Exception {
+    try (CompressingTempFileStore underTest = new CompressingTempFileStore(2)) {
+      try (Writer amd64 = underTest.openOutput("amd64")) {
+        amd64.write(PACKAGES);
+      }
+      underTest.getFiles();
+    }
+
+    assertThat(Thread.getAllStackTraces().keySet().stream()
+        .anyMatch(thread -> thread.getName().startsWith("apt-compress-")), is(false));
+  }
+
+  @Test
+  public void emptyOutputIsCompressed() throws Exception {
+    try (CompressingTempFileStore underTest = new CompressingTempFileStore(2)) {
+      underTest.openOutput("i386").close();
+
+      assertThat(underTest.getFiles().keySet(), contains("i386"));
+      try (InputStream gz = new GZIPInputStream(underTest.getFiles().get("i386").gzSupplier().get())) {
+        assertThat(ByteStreams.toByteArray(gz).length, is(0));
+      }
+    }
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.httpbridge.internal;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.http.HttpServletRequest;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.common.app.BaseUrlHolder;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.http.HttpMethods;
+import org.sonatype.nexus.repository.types.GroupType;
+import org.sonatype.nexus.repository.types.ProxyType;
+import org.sonatype.nexus.repository.view.Request;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.ViewFacet;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.codahale.metrics.annotation.Gauge;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
+
+/**
+ * Dispatches repository view requests which may need to fetch from a remote (GET/HEAD against proxy and group
+ * repositories) on a dedicated, bounded pool so {@link ViewServlet} can suspend the request and release the container
+ * thread while the upstream transfer is in progress.
+ *
+ * When the pool and its queue are saturated the request is dispatched on the calling thread instead.
+ */
+@Named
+@Singleton
+@ManagedLifecycle(phase = SERVICES)
+public class AsyncViewDispatcher
+    extends LifecycleSupport
+{
+  private final boolean enabled;
+
+  private final int threads;
+
+  private final int queueSize;
+
+  private final long timeoutMillis;
+
+  private ThreadPoolExecutor threadPoolExecutor;
+
+  private ExecutorService executor;
+
+  @Inject
+  public AsyncViewDispatcher(
+      @Named("${nexus.view.async.enabled:-false}") final boolean enabled,
+      @Named("${nexus.view.async.threads:-200}") final int threads,
+      @Named("${nexus.view.async.queueSize:-1000}") final int queueSize,
+      @Named("${nexus.view.async.timeout:-0s}") final Duration timeout)
+  {
+    checkArgument(threads > 0, "Thread count must be greater than zero");
+    checkArgument(queueSize >= 0, "Queue size must not be negative");
+    this.enabled = enabled;
+    this.threads = threads;
+    this.queueSize = queueSize;
+    this.timeoutMillis = timeout.toMillis();
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (enabled) {
+      threadPoolExecutor = new ThreadPoolExecutor(
+          threads, // core-size
+          threads, // max-size
+          60L, // keep-alive
+          TimeUnit.SECONDS,
+          queueSize > 0 ? new LinkedBlockingQueue<>(queueSize) : new SynchronousQueue<>(),
+          new NexusThreadFactory("view-dispatch", "view-dispatch"),
+          new ThreadPoolExecutor.AbortPolicy());
+      threadPoolExecutor.allowCoreThreadTimeOut(true);
+      executor = NexusExecutorService.forCurrentSubject(threadPoolExecutor);
+      log.info("Dispatching remote view requests asynchronously with {} threads", threads);
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+      threadPoolExecutor = null;
+    }
+  }
+
+  /**
+   * Returns {@code true} if the given request should be suspended and dispatched via {@link #dispatch}.
+   */
+  public boolean shouldDispatch(final HttpServletRequest httpRequest, final Repository repository) {
+    if (executor == null || !httpRequest.isAsyncSupported()) {
+      return false;
+    }
+    String method = httpRequest.getMethod();
+    if (!HttpMethods.GET.equals(method) && !HttpMethods.HEAD.equals(method)) {
+      return false;
+    }
+    String type = repository.getType().getValue();
+    return ProxyType.NAME.equals(type) || GroupType.NAME.equals(type);
+  }
+
+  /**
+   * Timeout to apply to the suspended request, {@code 0} meaning no timeout.
+   */
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  /**
+   * Dispatches the request to the view facet, completing with its response or failing with the dispatch exception.
+   *
+   * Cancelling the returned future skips the dispatch if it has not started yet; a dispatch which is already running
+   * is left to finish, so remote fetches are not interrupted half way, and its response is closed.
+   */
+  public CompletableFuture<Response> dispatch(final Request request, final ViewFacet facet) {
+    CompletableFuture<Response> result = new CompletableFuture<>();
+    Runnable task = () -> {
+      if (result.isDone()) {
+        log.debug("Async view dispatch of {} was cancelled before it started", request.getPath());
+        return;
+      }
+      try {
+        Response response = facet.dispatch(request);
+        if (!result.complete(response)) {
+          close(response);
+        }
+      }
+      catch (Exception e) {
+        result.completeExceptionally(e);
+      }
+    };
+
+    ExecutorService current = executor;
+    if (current != null) {
+      try {
+        current.execute(withBaseUrl(task));
+        return result;
+      }
+      catch (RejectedExecutionException e) {
+        log.debug("Async view dispatch saturated, dispatching {} on calling thread", request.getPath());
+      }
+    }
+
+    try {
+      task.run();
+    }
+    catch (RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  private void close(@Nullable final Response response) {
+    if (response != null && response.getPayload() != null) {
+      try {
+        response.getPayload().close();
+      }
+      catch (IOException e) {
+        log.debug("Failed to close discarded response", e);
+      }
+    }
+  }
+
+  /**
+   * Carries the base URL of the calling thread over to the dispatching thread.
+   */
+  private static Runnable withBaseUrl(final Runnable task) {
+    if (!BaseUrlHolder.isSet()) {
+      return task;
+    }
+    String baseUrl = BaseUrlHolder.get();
+    String relativePath = BaseUrlHolder.getRelativePath();
+    return () -> BaseUrlHolder.with(baseUrl, relativePath, () -> {
+      task.run();
+      return null;
+    });
+  }
+
+  @Gauge(name = "nexus.view.async.active")
+  public int getActiveCount() {
+    ThreadPoolExecutor current = threadPoolExecutor;
+    return current != null ? current.getActiveCount() : 0;
+  }
+
+  @Gauge(name = "nexus.view.async.queued")
+  public int getQueuedCount() {
+    ThreadPoolExecutor current = threadPoolExecutor;
+    return current != null ? current.getQueue().size() : 0;
+  }
+}
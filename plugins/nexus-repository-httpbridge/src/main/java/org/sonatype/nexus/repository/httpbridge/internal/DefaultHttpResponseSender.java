@@ -15,9 +15,12 @@ package org.sonatype.nexus.repository.httpbridge.internal;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.Map;
 
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.servlet.ServletException;
@@ -26,6 +29,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.repository.http.HttpMethods;
 import org.sonatype.nexus.repository.httpbridge.HttpResponseSender;
+import org.sonatype.nexus.repository.view.FileRegion;
 import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
@@ -34,6 +38,10 @@ import org.sonatype.nexus.repository.view.Status;
 /**
  * Default {@link HttpResponseSender}.
  *
+ * When {@code nexus.http.zeroCopy.enabled} is set, payloads held in local files are written from the file through
+ * {@link FileRegion}, straight to containers whose output stream is a {@link WritableByteChannel} and through a
+ * channel adapter otherwise.
+ *
  * @since 3.0
  */
 @Named
@@ -42,6 +50,17 @@ public class DefaultHttpResponseSender
     extends ComponentSupport
     implements HttpResponseSender
 {
+  private final boolean zeroCopy;
+
+  @Inject
+  public DefaultHttpResponseSender(@Named("${nexus.http.zeroCopy.enabled:-false}") final boolean zeroCopy) {
+    this.zeroCopy = zeroCopy;
+  }
+
+  public DefaultHttpResponseSender() {
+    this(false);
+  }
+
   @Override
   public void send(@Nullable final Request request, final Response response, final HttpServletResponse httpResponse)
       throws ServletException, IOException
@@ -75,8 +94,12 @@ public class DefaultHttpResponseSender
           }
 
           if (request != null && !HttpMethods.HEAD.equals(request.getAction())) {
-            try (InputStream input = payload.openInputStream(); OutputStream output = httpResponse.getOutputStream()) {
-              payload.copy(input, output);
+            try (OutputStream output = httpResponse.getOutputStream()) {
+              if (!maybeSendFileRegion(payload, output)) {
+                try (InputStream input = payload.openInputStream()) {
+                  payload.copy(input, output);
+                }
+              }
             }
           }
         }
@@ -86,4 +109,34 @@ public class DefaultHttpResponseSender
       }
     }
   }
+
+  /**
+   * Sends the payload directly from its file when possible.
+   *
+   * @return {@code false} if the payload must be copied through its input stream instead
+   */
+  private boolean maybeSendFileRegion(final Payload payload, final OutputStream output) throws IOException {
+    if (!zeroCopy) {
+      return false;
+    }
+    try (FileRegion region = payload.openFileRegion()) {
+      if (region == null) {
+        return false;
+      }
+      log.trace("Sending {} from {}", payload, region);
+      region.writeTo(byteChannel(output));
+      return true;
+    }
+  }
+
+  /**
+   * Returns the output stream as a channel, adapting it if it is not one already; closing the adapter would close the
+   * output, which is left to the caller.
+   */
+  static WritableByteChannel byteChannel(final OutputStream output) {
+    if (output instanceof WritableByteChannel) {
+      return (WritableByteChannel) output;
+    }
+    return Channels.newChannel(output);
+  }
 }
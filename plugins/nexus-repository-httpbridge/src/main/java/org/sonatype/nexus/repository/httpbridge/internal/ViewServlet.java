@@ -14,10 +14,16 @@ package org.sonatype.nexus.repository.httpbridge.internal;
 
 import java.io.IOException;
 import java.util.Enumeration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -81,6 +87,10 @@ public class ViewServlet
 
   private final boolean sandboxEnabled;
 
+  @Inject
+  @Nullable
+  private AsyncViewDispatcher asyncViewDispatcher;
+
   @Inject
   public ViewServlet(final RepositoryManager repositoryManager,
                      final HttpResponseSenderSelector httpResponseSenderSelector,
@@ -171,7 +181,13 @@ public class ViewServlet
 
     // Dispatch the request
     Request request = buildRequest(httpRequest, path.getRemainingPath());
-    dispatchAndSend(request, facet, httpResponseSenderSelector.sender(repo), httpResponse);
+    HttpResponseSender sender = httpResponseSenderSelector.sender(repo);
+    if (asyncViewDispatcher != null && asyncViewDispatcher.shouldDispatch(httpRequest, repo)) {
+      dispatchAsyncAndSend(request, facet, sender, httpRequest, httpResponse);
+    }
+    else {
+      dispatchAndSend(request, facet, sender, httpResponse);
+    }
   }
 
   /**
@@ -214,7 +230,141 @@ public class ViewServlet
     catch (Exception e) {
       failure = e;
     }
+    send(request, response, failure, sender, httpResponse);
+  }
+
+  /**
+   * Suspends the servlet request and dispatches it via {@link AsyncViewDispatcher}, sending the response once the
+   * dispatch completes so the container thread is free in the meantime.
+   */
+  private void dispatchAsyncAndSend(final Request request,
+                                    final ViewFacet facet,
+                                    final HttpResponseSender sender,
+                                    final HttpServletRequest httpRequest,
+                                    final HttpServletResponse httpResponse)
+  {
+    String uri = (String) MDC.get(getClass().getName());
+    AsyncContext asyncContext = httpRequest.startAsync(httpRequest, httpResponse);
+    asyncContext.setTimeout(asyncViewDispatcher.getTimeoutMillis());
+
+    // only one of completion, timeout and error may respond, the response is recycled after that
+    AtomicBoolean responded = new AtomicBoolean();
+    CompletableFuture<Response> dispatch = asyncViewDispatcher.dispatch(request, facet);
+
+    asyncContext.addListener(new AsyncListener()
+    {
+      @Override
+      public void onTimeout(final AsyncEvent event) {
+        abandon("Timed out servicing: {} {}");
+      }
+
+      @Override
+      public void onError(final AsyncEvent event) {
+        abandon("Failure servicing: {} {}");
+      }
+
+      @Override
+      public void onComplete(final AsyncEvent event) {
+        // no-op
+      }
+
+      @Override
+      public void onStartAsync(final AsyncEvent event) {
+        // no-op
+      }
+
+      private void abandon(final String message) {
+        if (responded.compareAndSet(false, true)) {
+          dispatch.cancel(false);
+          log.warn(message, httpRequest.getMethod(), uri);
+          sendErrorQuietly(httpResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+          completeQuietly(asyncContext, uri);
+        }
+      }
+    });
+
+    dispatch.whenComplete((response, throwable) -> {
+      if (!responded.compareAndSet(false, true)) {
+        // already abandoned by timeout or error
+        closeQuietly(response);
+        return;
+      }
+      MDC.put(getClass().getName(), uri);
+      try {
+        Exception failure = null;
+        if (throwable != null) {
+          Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+              ? throwable.getCause()
+              : throwable;
+          failure = cause instanceof Exception ? (Exception) cause : new ServletException(cause);
+        }
+        send(request, response, failure, sender, httpResponse);
+        log.debug("Service completed");
+      }
+      catch (BadRequestException e) { // NOSONAR
+        log.warn("Bad request. Reason: {}", e.getMessage());
+        sendQuietly(HttpResponses.badRequest(e.getMessage()), httpResponse);
+      }
+      catch (Exception e) {
+        if (!(e instanceof AuthorizationException)) {
+          log.warn("Failure servicing: {} {}", httpRequest.getMethod(), uri, e);
+        }
+        sendErrorQuietly(httpResponse, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      }
+      finally {
+        MDC.remove(getClass().getName());
+        completeQuietly(asyncContext, uri);
+      }
+    });
+  }
+
+  private static void completeQuietly(final AsyncContext asyncContext, final String uri) {
+    try {
+      asyncContext.complete();
+    }
+    catch (IllegalStateException e) {
+      log.debug("Request already completed: {}", uri, e);
+    }
+  }
+
+  private static void closeQuietly(@Nullable final Response response) {
+    if (response != null && response.getPayload() != null) {
+      try {
+        response.getPayload().close();
+      }
+      catch (IOException e) {
+        log.debug("Failed to close abandoned response", e);
+      }
+    }
+  }
+
+  private void sendQuietly(final Response response, final HttpServletResponse httpResponse) {
+    try {
+      send(null, response, httpResponse);
+    }
+    catch (Exception e) {
+      log.debug("Failed to send response", e);
+    }
+  }
 
+  private static void sendErrorQuietly(final HttpServletResponse httpResponse, final int status) {
+    try {
+      if (!httpResponse.isCommitted()) {
+        httpResponse.sendError(status);
+      }
+    }
+    catch (Exception e) {
+      log.debug("Failed to send error response", e);
+    }
+  }
+
+  private void send(final Request request,
+                    @Nullable final Response response,
+                    @Nullable final Exception failure,
+                    final HttpResponseSender sender,
+                    final HttpServletResponse httpResponse)
+      throws Exception
+  {
     String describeFlags = request.getParameters().get(P_DESCRIBE);
     log.trace("Describe flags: {}", describeFlags);
     if (describeFlags != null) {
@@ -0,0 +1,211 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.httpbridge.internal;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.types.HostedType;
+import org.sonatype.nexus.repository.types.ProxyType;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.Request;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.ViewFacet;
+
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncViewDispatcherTest
+    extends TestSupport
+{
+  @Mock
+  private HttpServletRequest httpRequest;
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private Request request;
+
+  @Mock
+  private Response response;
+
+  @Mock
+  private ViewFacet facet;
+
+  @Mock
+  private Subject subject;
+
+  private AsyncViewDispatcher underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(httpRequest.isAsyncSupported()).thenReturn(true);
+    when(httpRequest.getMethod()).thenReturn("GET");
+    when(repository.getType()).thenReturn(new ProxyType());
+    when(subject.associateWith(any(Runnable.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    ThreadContext.bind(subject);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ThreadContext.unbindSubject();
+    if (underTest != null) {
+      underTest.stop();
+    }
+  }
+
+  @Test
+  public void disabledDoesNotDispatch() throws Exception {
+    underTest = new AsyncViewDispatcher(false, 1, 1, Duration.ZERO);
+    underTest.start();
+
+    assertThat(underTest.shouldDispatch(httpRequest, repository), is(false));
+  }
+
+  @Test
+  public void onlyRemoteReadsAreDispatched() throws Exception {
+    underTest = new AsyncViewDispatcher(true, 1, 1, Duration.ZERO);
+    underTest.start();
+
+    assertThat(underTest.shouldDispatch(httpRequest, repository), is(true));
+
+    when(httpRequest.getMethod()).thenReturn("PUT");
+    assertThat(underTest.shouldDispatch(httpRequest, repository), is(false));
+
+    when(httpRequest.getMethod()).thenReturn("GET");
+    when(repository.getType()).thenReturn(new HostedType());
+    assertThat(underTest.shouldDispatch(httpRequest, repository), is(false));
+
+    when(repository.getType()).thenReturn(new ProxyType());
+    when(httpRequest.isAsyncSupported()).thenReturn(false);
+    assertThat(underTest.shouldDispatch(httpRequest, repository), is(false));
+  }
+
+  @Test
+  public void dispatchCompletesWithResponse() throws Exception {
+    underTest = new AsyncViewDispatcher(true, 1, 1, Duration.ZERO);
+    underTest.start();
+    when(facet.dispatch(request)).thenReturn(response);
+
+    CompletableFuture<Response> result = underTest.dispatch(request, facet);
+
+    assertThat(result.get(5, TimeUnit.SECONDS), is(sameInstance(response)));
+  }
+
+  @Test
+  public void dispatchFailsWithFacetException() throws Exception {
+    underTest = new AsyncViewDispatcher(true, 1, 1, Duration.ZERO);
+    underTest.start();
+    IllegalStateException failure = new IllegalStateException("boom");
+    when(facet.dispatch(request)).thenThrow(failure);
+
+    try {
+      underTest.dispatch(request, facet).get(5, TimeUnit.SECONDS);
+      fail("Expected failure");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), is(sameInstance(failure)));
+    }
+  }
+
+  @Test
+  public void dispatchRunsInlineWhenNotStarted() throws Exception {
+    AsyncViewDispatcher notStarted = new AsyncViewDispatcher(true, 1, 1, Duration.ZERO);
+    IllegalStateException failure = new IllegalStateException("boom");
+    when(facet.dispatch(request)).thenThrow(failure);
+
+    CompletableFuture<Response> result = notStarted.dispatch(request, facet);
+
+    assertThat(result.isCompletedExceptionally(), is(true));
+    try {
+      result.get();
+      fail("Expected failure");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+  }
+
+  @Test
+  public void cancelledDispatchIsSkippedIfNotStarted() throws Exception {
+    underTest = new AsyncViewDispatcher(true, 1, 2, Duration.ZERO);
+    underTest.start();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Request queued = mock(Request.class);
+    Request marker = mock(Request.class);
+    when(facet.dispatch(marker)).thenReturn(response);
+    when(facet.dispatch(request)).thenAnswer(invocation -> {
+      started.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return response;
+    });
+
+    CompletableFuture<Response> running = underTest.dispatch(request, facet);
+    assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+    CompletableFuture<Response> cancelled = underTest.dispatch(queued, facet);
+    cancelled.cancel(false);
+    release.countDown();
+
+    assertThat(running.get(5, TimeUnit.SECONDS), is(sameInstance(response)));
+    // the single thread takes queued dispatches in order
+    assertThat(underTest.dispatch(marker, facet).get(5, TimeUnit.SECONDS), is(sameInstance(response)));
+    verify(facet, never()).dispatch(queued);
+  }
+
+  @Test
+  public void responseOfCancelledRunningDispatchIsClosed() throws Exception {
+    underTest = new AsyncViewDispatcher(true, 1, 1, Duration.ZERO);
+    underTest.start();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Payload payload = mock(Payload.class);
+    when(response.getPayload()).thenReturn(payload);
+    when(facet.dispatch(request)).thenAnswer(invocation -> {
+      started.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return response;
+    });
+
+    CompletableFuture<Response> result = underTest.dispatch(request, facet);
+    assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+    result.cancel(false);
+    release.countDown();
+
+    verify(payload, timeout(5000)).close();
+  }
+}
@@ -13,11 +13,17 @@
 package org.sonatype.nexus.repository.httpbridge.internal;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 
 import org.sonatype.goodies.testsupport.TestSupport;
@@ -29,6 +35,7 @@ import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.Status;
+import org.sonatype.nexus.repository.view.payloads.PathPayload;
 import org.sonatype.nexus.repository.view.payloads.StringPayload;
 
 import org.junit.Before;
@@ -40,9 +47,14 @@ import org.mockito.Spy;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonatype.nexus.repository.http.HttpStatus.FORBIDDEN;
@@ -175,4 +187,75 @@ public class DefaultHttpResponseSenderTest
     verify(httpServletResponse).setStatus(403, "You can't see this");
   }
 
+  @Test
+  public void fileBackedPayloadIsWrittenToChannelOutput() throws Exception {
+    when(request.getAction()).thenReturn(HttpMethods.GET);
+    Path file = Files.write(util.createTempFile().toPath(), TEST_CONTENT);
+    Payload filePayload = spy(new PathPayload(file, "text/plain"));
+    ChannelOutputStream channelOutput = new ChannelOutputStream();
+    when(httpServletResponse.getOutputStream()).thenReturn(channelOutput);
+
+    new DefaultHttpResponseSender(true).send(request, HttpResponses.ok(filePayload), httpServletResponse);
+
+    assertThat(channelOutput.buffered.toByteArray(), is(TEST_CONTENT));
+    assertThat(channelOutput.streamed, is(0));
+    verify(filePayload, never()).openInputStream();
+  }
+
+  @Test
+  public void fileBackedPayloadIsWrittenThroughChannelAdapter() throws Exception {
+    when(request.getAction()).thenReturn(HttpMethods.GET);
+    Path file = Files.write(util.createTempFile().toPath(), TEST_CONTENT);
+    Payload filePayload = spy(new PathPayload(file, "text/plain"));
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    doAnswer(invocation -> {
+      written.write(invocation.<byte[]>getArgument(0), invocation.<Integer>getArgument(1),
+          invocation.<Integer>getArgument(2));
+      return null;
+    }).when(output).write(any(byte[].class), anyInt(), anyInt());
+
+    new DefaultHttpResponseSender(true).send(request, HttpResponses.ok(filePayload), httpServletResponse);
+
+    assertThat(written.toByteArray(), is(TEST_CONTENT));
+    verify(filePayload, never()).openInputStream();
+    verify(output).close();
+  }
+
+  public static class ChannelOutputStream
+      extends ServletOutputStream
+      implements WritableByteChannel
+  {
+    private final ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+
+    private int streamed;
+
+    @Override
+    public int write(final ByteBuffer buffer) {
+      int remaining = buffer.remaining();
+      while (buffer.hasRemaining()) {
+        buffered.write(buffer.get());
+      }
+      return remaining;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void write(final int b) {
+      streamed++;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(final WriteListener writeListener) {
+      // not used
+    }
+  }
 }
@@ -13,6 +13,7 @@
 package org.sonatype.nexus.content.maven;
 
 import java.io.IOException;
+import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -143,6 +144,25 @@ public interface MavenContentFacet
       @Nullable String continuationToken,
       String namespace);
 
+  /**
+   * Browse assets of the given kind whose blob was created after the given time.
+   *
+   * @param kind the asset kind to browse
+   * @param since only assets whose blob was created after this time are returned
+   * @param limit maximum number of assets to return
+   * @param continuationToken optional token to continue from a previous request
+   *
+   * @return collection of assets and the next continuation token
+   *
+   * @see Continuation#nextContinuationToken()
+   * @since 3.77
+   */
+  Continuation<Asset> browseAssetsOfKindAddedSince(
+      String kind,
+      OffsetDateTime since,
+      int limit,
+      @Nullable String continuationToken);
+
   /**
    * Find components with the GAbV.
    *
@@ -19,36 +19,42 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.StreamSupport;
+import java.util.Properties;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.sonatype.nexus.common.collect.NestedAttributesMap;
-import org.sonatype.nexus.common.entity.Continuation;
 import org.sonatype.nexus.common.hash.HashAlgorithm;
 import org.sonatype.nexus.content.maven.MavenContentFacet;
 import org.sonatype.nexus.repository.Repository;
-import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.repository.content.fluent.FluentAsset;
-import org.sonatype.nexus.repository.content.fluent.FluentQuery;
 import org.sonatype.nexus.repository.maven.MavenPath;
 import org.sonatype.nexus.repository.maven.MavenPath.SignatureType;
 import org.sonatype.nexus.repository.maven.MavenPathParser;
 import org.sonatype.nexus.repository.maven.internal.Maven2Format;
 import org.sonatype.nexus.repository.maven.internal.MavenIndexPublisher;
 import org.sonatype.nexus.repository.maven.internal.filter.DuplicateDetectionStrategy;
+import org.sonatype.nexus.repository.types.HostedType;
 import org.sonatype.nexus.repository.view.Content;
 
 import com.google.common.io.Closer;
+import org.apache.maven.index.reader.ChunkReader;
+import org.apache.maven.index.reader.ChunkWriter;
 import org.apache.maven.index.reader.IndexWriter;
 import org.apache.maven.index.reader.Record;
 import org.apache.maven.index.reader.WritableResourceHandler;
@@ -56,11 +62,15 @@ import org.apache.maven.index.reader.WritableResourceHandler.WritableResource;
 import org.joda.time.DateTime;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.concat;
+import static com.google.common.collect.Iterables.filter;
+import static com.google.common.collect.Iterables.transform;
 import static java.util.Optional.ofNullable;
-import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.maven.index.reader.Record.*;
 import static org.apache.maven.index.reader.Record.Type.ARTIFACT_ADD;
+import static org.sonatype.nexus.common.entity.Continuations.iterableOf;
 import static org.sonatype.nexus.repository.maven.internal.Attributes.AssetKind.ARTIFACT;
 import static org.sonatype.nexus.repository.maven.internal.Attributes.P_BASE_VERSION;
 import static org.sonatype.nexus.repository.maven.internal.Attributes.P_CLASSIFIER;
@@ -79,13 +89,36 @@ import static org.sonatype.nexus.repository.view.Content.CONTENT_LAST_MODIFIED;
 public class MavenContentIndexPublisher
     extends MavenIndexPublisher
 {
+  private static final String MAIN_CHUNK_NAME = "nexus-maven-repository-index.gz";
+
+  private static final String PROPERTIES_NAME = "nexus-maven-repository-index.properties";
+
+  private static final String INCREMENTAL_CHUNK_PREFIX = "nexus-maven-repository-index.";
+
+  private static final String LAST_INCREMENTAL = "nexus.index.last-incremental";
+
+  private static final int INDEX_V1 = 1;
+
   private final int browseAssetsPageSize;
 
+  private final boolean incremental;
+
+  private final int maxIncrementalChunks;
+
+  private final Duration incrementalOverlap;
+
   @Inject
   public MavenContentIndexPublisher(
-      @Named("${nexus.maven.index.publisher.browseAssetsPageSize:-1000}") final int browseAssetsPageSize)
+      @Named("${nexus.maven.index.publisher.browseAssetsPageSize:-1000}") final int browseAssetsPageSize,
+      @Named("${nexus.maven.index.publisher.incremental:-false}") final boolean incremental,
+      @Named("${nexus.maven.index.publisher.maxIncrementalChunks:-30}") final int maxIncrementalChunks,
+      @Named("${nexus.maven.index.publisher.incrementalOverlap:-1h}") final Duration incrementalOverlap)
   {
+    checkArgument(browseAssetsPageSize > 0, "Browse page size must be positive");
     this.browseAssetsPageSize = browseAssetsPageSize;
+    this.incremental = incremental;
+    this.maxIncrementalChunks = maxIncrementalChunks;
+    this.incrementalOverlap = checkNotNull(incrementalOverlap);
   }
 
   @Override
@@ -105,6 +138,12 @@ public class MavenContentIndexPublisher
     return mavenContentFacet.delete(mavenPath);
   }
 
+  @Override
+  public boolean unpublishIndexFiles(final Repository repository) throws IOException {
+    deleteIncrementalChunks(repository, lastIncrementalChunk(repository));
+    return super.unpublishIndexFiles(repository);
+  }
+
   @Override
   protected Iterable<Iterable<Record>> getGroupRecords(
       final List<Repository> repositories,
@@ -117,56 +156,116 @@ public class MavenContentIndexPublisher
     return records;
   }
 
+  /**
+   * Publishes the index of the repository, streaming its artifacts page by page into the index writer.
+   *
+   * In incremental mode the existing index of a hosted repository is extended with a new chunk holding only the
+   * artifacts added since it was last published, until {@code nexus.maven.index.publisher.maxIncrementalChunks} chunks
+   * have been added after which the index is published in full again and the previous chunks are deleted.
+   */
   @Override
   public void publishHostedIndex(
       final Repository repository, final DuplicateDetectionStrategy<Record> duplicateDetectionStrategy)
       throws IOException
   {
+    // a proxy falling back to its cached content may hold the properties of the remote index, not a chain of its own
+    boolean incrementalSupported = incremental && repository.getType() instanceof HostedType;
+    DateTime lastPublished = incrementalSupported ? lastPublished(repository) : null;
+    int lastIncrementalChunk = lastIncrementalChunk(repository);
+    if (lastPublished != null && lastIncrementalChunk < maxIncrementalChunks) {
+      publishIncrementalIndex(repository, lastPublished, duplicateDetectionStrategy);
+      return;
+    }
     try (Maven2WritableResourceHandler resourceHandler = new Maven2WritableResourceHandler(repository)) {
       try (IndexWriter indexWriter = new IndexWriter(resourceHandler, repository.getName(), false)) {
-        indexWriter.writeChunk(records(repository, duplicateDetectionStrategy).iterator());
+        indexWriter.writeChunk(compact(filter(getHostedRecords(repository, null), duplicateDetectionStrategy),
+            repository.getName()));
       }
     }
+    // the full index starts a new chain, the chunks of the previous one are no longer referenced
+    deleteIncrementalChunks(repository, lastIncrementalChunk);
   }
 
-  private Iterable<Map<String, String>> records(
+  /**
+   * Adds a chunk of the artifacts added since the given time to the published index. The main chunk is rewritten
+   * with those artifacts followed by the previously published ones, so clients fetching the full index see them too.
+   */
+  private void publishIncrementalIndex(
       final Repository repository,
-      final DuplicateDetectionStrategy<Record> duplicateDetectionStrategy)
+      final DateTime lastPublished,
+      final DuplicateDetectionStrategy<Record> duplicateDetectionStrategy) throws IOException
   {
-    List<Record> hostedRecords = getHostedRecords(repository, duplicateDetectionStrategy);
-    return StreamSupport.stream(decorate(hostedRecords, repository.getName()).spliterator(), false)
-        .map(RECORD_COMPACTOR::apply)
-        .collect(toList());
+    // overlap with the last publish to pick up artifacts added while it was running
+    OffsetDateTime since = OffsetDateTime.ofInstant(Instant.ofEpochMilli(lastPublished.getMillis()), ZoneOffset.UTC)
+        .minus(incrementalOverlap);
+    Closer closer = Closer.create();
+    try (Maven2WritableResourceHandler resourceHandler = new Maven2WritableResourceHandler(repository);
+         IndexWriter indexWriter = new IndexWriter(resourceHandler, repository.getName(), true)) {
+      // the strategy remembers the added artifacts, dropping their superseded records from the main chunk below
+      int added = indexWriter.writeChunk(
+          compact(filter(getHostedRecords(repository, since), duplicateDetectionStrategy), repository.getName()));
+      log.debug("Published {} records added to {} since {}", added, repository.getName(), since);
+
+      // read the added artifacts back from their chunk instead of querying them a second time
+      String chunkName = indexWriter.getNextChunkName();
+      ChunkReader addedChunk = closer.register(new ChunkReader(chunkName, resourceHandler.locate(chunkName).read()));
+      Iterable<Record> published = filter(getRecords(repository, closer), duplicateDetectionStrategy);
+      try (WritableResource mainChunk = resourceHandler.locate(MAIN_CHUNK_NAME);
+           ChunkWriter chunkWriter = new ChunkWriter(MAIN_CHUNK_NAME, mainChunk.write(), INDEX_V1, new Date())) {
+        chunkWriter.writeChunk(compact(concat(artifactRecords(addedChunk), published), repository.getName()));
+      }
+    }
+    catch (Throwable t) {
+      throw closer.rethrow(t);
+    }
+    finally {
+      closer.close();
+    }
   }
 
-  private List<Record> getHostedRecords(
-      final Repository repository,
-      final DuplicateDetectionStrategy<Record> duplicateDetectionStrategy) {
-
-    List<Record> records = new ArrayList<>();
-    MavenContentFacet mavenContentFacet = repository.facet(MavenContentFacet.class);
+  /**
+   * Returns the number of the last incremental chunk of the published index, {@code 0} if there is none.
+   */
+  private int lastIncrementalChunk(final Repository repository) throws IOException {
+    try (Maven2WritableResourceHandler resourceHandler = new Maven2WritableResourceHandler(repository)) {
+      try (WritableResource resource = resourceHandler.locate(PROPERTIES_NAME);
+           InputStream in = resource.read()) {
+        if (in == null) {
+          return 0;
+        }
+        Properties properties = new Properties();
+        properties.load(in);
+        return Integer.parseInt(properties.getProperty(LAST_INCREMENTAL, "0"));
+      }
+    }
+  }
 
-    FluentQuery<FluentAsset> artifactQuery = mavenContentFacet.assets().byKind(ARTIFACT.name());
-    Continuation<FluentAsset> assets = artifactQuery.browse(browseAssetsPageSize, null);
-    while (!assets.isEmpty()) {
-      records.addAll(assetsToRecords(assets, mavenContentFacet, duplicateDetectionStrategy));
-      assets = artifactQuery.browse(browseAssetsPageSize, assets.nextContinuationToken());
+  private void deleteIncrementalChunks(final Repository repository, final int lastIncrementalChunk) throws IOException {
+    for (int chunk = 1; chunk <= lastIncrementalChunk; chunk++) {
+      delete(repository, "/.index/" + INCREMENTAL_CHUNK_PREFIX + chunk + ".gz");
     }
+  }
 
-    return records;
+  private static Iterator<Map<String, String>> compact(final Iterable<Record> records, final String repositoryName) {
+    return transform(decorate(records, repositoryName), RECORD_COMPACTOR::apply).iterator();
   }
 
-  private List<Record> assetsToRecords(
-      final Continuation<FluentAsset> assets,
-      final MavenContentFacet mavenContentFacet,
-      final DuplicateDetectionStrategy<Record> duplicateDetectionStrategy)
-  {
-    return assets.stream()
-        .filter(Asset::hasBlob)
-        .filter(asset -> asset.component().isPresent())
-        .map(asset -> toRecord(asset, mavenContentFacet))
-        .filter(duplicateDetectionStrategy)
-        .collect(toList());
+  /**
+   * Returns the artifact records of the repository, optionally only those added after the given time. Assets are
+   * browsed a page at a time as the records are iterated, so only one page is held in memory.
+   */
+  private Iterable<Record> getHostedRecords(final Repository repository, @Nullable final OffsetDateTime since) {
+    MavenContentFacet mavenContentFacet = repository.facet(MavenContentFacet.class);
+
+    Iterable<FluentAsset> artifacts = since == null
+        ? iterableOf(mavenContentFacet.assets().byKind(ARTIFACT.name())::browse, browseAssetsPageSize)
+        : transform(iterableOf((limit, continuationToken) -> mavenContentFacet
+            .browseAssetsOfKindAddedSince(ARTIFACT.name(), since, limit, continuationToken), browseAssetsPageSize),
+            mavenContentFacet.assets()::with);
+
+    return transform(
+        filter(artifacts, asset -> asset.hasBlob() && asset.component().isPresent()),
+        asset -> toRecord(asset, mavenContentFacet));
   }
 
   private Record toRecord(final FluentAsset asset, final MavenContentFacet mavenContentFacet) {
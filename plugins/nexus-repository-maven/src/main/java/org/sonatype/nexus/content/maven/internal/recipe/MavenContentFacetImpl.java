@@ -15,6 +15,7 @@ package org.sonatype.nexus.content.maven.internal.recipe;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -632,6 +633,17 @@ public class MavenContentFacetImpl
         continuationToken, namespace);
   }
 
+  @Override
+  public Continuation<Asset> browseAssetsOfKindAddedSince(
+      final String kind,
+      final OffsetDateTime since,
+      final int limit,
+      @Nullable final String continuationToken)
+  {
+    return ((Maven2AssetStore) stores().assetStore).browseAssetsOfKindAddedSince(contentRepositoryId(), kind, since,
+        limit, continuationToken);
+  }
+
   @Override
   public Collection<String> getBaseVersions(final String namespace, final String name) {
     return ((Maven2ComponentStore) stores().componentStore).getBaseVersions(contentRepositoryId(), namespace, name);
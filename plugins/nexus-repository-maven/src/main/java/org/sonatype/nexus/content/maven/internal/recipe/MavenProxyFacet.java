@@ -132,6 +132,12 @@ public class MavenProxyFacet
     return content().put(mavenPath(context), payload);
   }
 
+  @Override
+  protected boolean isStreamThroughSupported(final Context context) {
+    // artifacts are stored as fetched, unlike metadata
+    return mavenPath(context).getCoordinates() != null;
+  }
+
   @Override
   protected String getUrl(@Nonnull final Context context) {
     return removePrefixingSlash(context.getRequest().getPath());
@@ -13,6 +13,8 @@
 
 package org.sonatype.nexus.content.maven.store;
 
+import java.time.OffsetDateTime;
+
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.common.entity.Continuation;
@@ -43,4 +45,24 @@ public interface Maven2AssetDAO
       @Param("limit") int limit,
       @Nullable @Param("continuationToken") String continuationToken,
       @Param("namespace") String namespace);
+
+  /**
+   * Browse assets of the given kind whose blob was created after the given time.
+   *
+   * @param repositoryId the repository to browse
+   * @param kind the asset kind to browse
+   * @param since only assets whose blob was created after this time are returned
+   * @param limit maximum number of assets to return
+   * @param continuationToken optional token to continue from a previous request
+   * @return collection of assets and the next continuation token
+   *
+   * @see Continuation#nextContinuationToken()
+   * @since 3.77
+   */
+  Continuation<Asset> browseAssetsOfKindAddedSince(
+      @Param("repositoryId") int repositoryId,
+      @Param("kind") String kind,
+      @Param("since") OffsetDateTime since,
+      @Param("limit") int limit,
+      @Nullable @Param("continuationToken") String continuationToken);
 }
@@ -12,6 +12,8 @@
  */
 package org.sonatype.nexus.content.maven.store;
 
+import java.time.OffsetDateTime;
+
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -46,4 +48,15 @@ public class Maven2AssetStore
   {
     return dao().findMavenPluginAssetsForNamespace(repositoryId, limit, continuationToken, namespace);
   }
+
+  @Transactional
+  public Continuation<Asset> browseAssetsOfKindAddedSince(
+      final int repositoryId,
+      final String kind,
+      final OffsetDateTime since,
+      final int limit,
+      @Nullable final String continuationToken)
+  {
+    return dao().browseAssetsOfKindAddedSince(repositoryId, kind, since, limit, continuationToken);
+  }
 }
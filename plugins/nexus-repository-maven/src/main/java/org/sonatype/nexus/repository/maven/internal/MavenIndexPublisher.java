@@ -113,6 +113,13 @@ public abstract class MavenIndexPublisher extends ComponentSupport
     ResourceHandler resourceHandler = closer.register(getResourceHandler(repository));
     IndexReader indexReader = closer.register(new IndexReader(null, resourceHandler));
     ChunkReader chunkReader = closer.register(indexReader.iterator().next());
+    return artifactRecords(chunkReader);
+  }
+
+  /**
+   * Returns the expanded artifact records of the given chunk.
+   */
+  protected static Iterable<Record> artifactRecords(final ChunkReader chunkReader) {
     return filter(transform(chunkReader, RECORD_EXPANDER::apply), new RecordTypeFilter(Type.ARTIFACT_ADD));
   }
 
@@ -0,0 +1,197 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.content.maven.internal.index;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.entity.Continuation;
+import org.sonatype.nexus.content.maven.MavenContentFacet;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.content.fluent.FluentAssets;
+import org.sonatype.nexus.repository.content.fluent.FluentQuery;
+import org.sonatype.nexus.repository.maven.MavenPath;
+import org.sonatype.nexus.repository.maven.internal.Maven2MavenPathParser;
+import org.sonatype.nexus.repository.maven.internal.filter.HashBasedDuplicateDetectionStrategy;
+import org.sonatype.nexus.repository.types.HostedType;
+import org.sonatype.nexus.repository.types.ProxyType;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MavenContentIndexPublisherTest
+    extends TestSupport
+{
+  private static final String PROPERTIES = ".index/nexus-maven-repository-index.properties";
+
+  private static final String MAIN_CHUNK = ".index/nexus-maven-repository-index.gz";
+
+  private static final String FIRST_CHUNK = ".index/nexus-maven-repository-index.1.gz";
+
+  private static final String SECOND_CHUNK = ".index/nexus-maven-repository-index.2.gz";
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private MavenContentFacet mavenContentFacet;
+
+  @Mock
+  private FluentAssets assets;
+
+  @Mock
+  private FluentQuery<FluentAsset> artifacts;
+
+  private final Map<String, byte[]> published = new HashMap<>();
+
+  private final MavenContentIndexPublisher underTest =
+      new MavenContentIndexPublisher(1000, true, 2, Duration.ofHours(1));
+
+  @Before
+  public void setup() throws IOException {
+    when(repository.getName()).thenReturn("maven-releases");
+    when(repository.getType()).thenReturn(new HostedType());
+    when(repository.facet(MavenContentFacet.class)).thenReturn(mavenContentFacet);
+
+    when(mavenContentFacet.getMavenPathParser()).thenReturn(new Maven2MavenPathParser());
+    when(mavenContentFacet.assets()).thenReturn(assets);
+    when(assets.byKind(anyString())).thenReturn(artifacts);
+    when(artifacts.browse(anyInt(), nullable(String.class))).thenReturn(new ContinuationArrayList<>());
+    when(mavenContentFacet.browseAssetsOfKindAddedSince(anyString(), any(), anyInt(), nullable(String.class)))
+        .thenReturn(new ContinuationArrayList<>());
+
+    when(mavenContentFacet.get(any(MavenPath.class))).thenAnswer(invocation -> {
+      byte[] bytes = published.get(invocation.<MavenPath>getArgument(0).getPath());
+      return Optional.ofNullable(bytes).map(content -> new Content(new BytesPayload(content, null)));
+    });
+    when(mavenContentFacet.put(any(MavenPath.class), any(Payload.class))).thenAnswer(invocation -> {
+      try (InputStream in = invocation.<Payload>getArgument(1).openInputStream()) {
+        published.put(invocation.<MavenPath>getArgument(0).getPath(), in.readAllBytes());
+      }
+      return null;
+    });
+    when(mavenContentFacet.delete(any(MavenPath.class))).thenAnswer(
+        invocation -> published.remove(invocation.<MavenPath>getArgument(0).getPath()) != null);
+  }
+
+  @Test
+  public void firstPublishWritesTheFullIndex() throws IOException {
+    publish();
+
+    assertThat(published, hasKey(PROPERTIES));
+    assertThat(published, hasKey(MAIN_CHUNK));
+    assertThat(published, not(hasKey(FIRST_CHUNK)));
+    assertThat(lastIncremental(), nullValue());
+    verify(mavenContentFacet, never()).browseAssetsOfKindAddedSince(anyString(), any(), anyInt(), any());
+  }
+
+  @Test
+  public void laterPublishAddsAnIncrementalChunkQueryingTheAddedArtifactsOnce() throws IOException {
+    publish();
+    publish();
+
+    assertThat(published, hasKey(MAIN_CHUNK));
+    assertThat(published, hasKey(FIRST_CHUNK));
+    assertThat(lastIncremental(), is("1"));
+    verify(artifacts, times(1)).browse(anyInt(), nullable(String.class));
+    verify(mavenContentFacet, times(1))
+        .browseAssetsOfKindAddedSince(anyString(), any(), anyInt(), nullable(String.class));
+  }
+
+  @Test
+  public void indexIsPublishedInFullAgainAfterTheLastIncrementalChunk() throws IOException {
+    publish();
+    publish();
+    publish();
+    assertThat(published, hasKey(SECOND_CHUNK));
+    assertThat(lastIncremental(), is("2"));
+
+    publish();
+
+    assertThat(published, hasKey(MAIN_CHUNK));
+    assertThat(published, not(hasKey(FIRST_CHUNK)));
+    assertThat(published, not(hasKey(SECOND_CHUNK)));
+    assertThat(lastIncremental(), nullValue());
+  }
+
+  @Test
+  public void unpublishDeletesTheIncrementalChunks() throws IOException {
+    publish();
+    publish();
+    publish();
+
+    underTest.unpublishIndexFiles(repository);
+
+    assertThat(published.isEmpty(), is(true));
+  }
+
+  @Test
+  public void proxyIndexIsNotPublishedIncrementally() throws IOException {
+    when(repository.getType()).thenReturn(new ProxyType());
+
+    publish();
+    publish();
+
+    assertThat(published, hasKey(MAIN_CHUNK));
+    assertThat(published, not(hasKey(FIRST_CHUNK)));
+    verify(mavenContentFacet, never()).browseAssetsOfKindAddedSince(anyString(), any(), anyInt(), any());
+  }
+
+  private void publish() throws IOException {
+    underTest.publishHostedIndex(repository, new HashBasedDuplicateDetectionStrategy());
+  }
+
+  private String lastIncremental() throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = new BytesPayload(published.get(PROPERTIES), null).openInputStream()) {
+      properties.load(in);
+    }
+    return properties.getProperty("nexus.index.last-incremental");
+  }
+
+  private static class ContinuationArrayList<E>
+      extends ArrayList<E>
+      implements Continuation<E>
+  {
+    @Override
+    public String nextContinuationToken() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.content.maven.internal.store;
+
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.blobstore.api.BlobRef;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.common.entity.Continuation;
+import org.sonatype.nexus.common.entity.EntityUUID;
+import org.sonatype.nexus.content.maven.store.Maven2AssetBlobDAO;
+import org.sonatype.nexus.content.maven.store.Maven2AssetDAO;
+import org.sonatype.nexus.content.maven.store.Maven2ContentRepositoryDAO;
+import org.sonatype.nexus.datastore.api.DataSession;
+import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.store.AssetBlobData;
+import org.sonatype.nexus.repository.content.store.AssetData;
+import org.sonatype.nexus.repository.content.store.BlobRefTypeHandler;
+import org.sonatype.nexus.repository.content.store.ContentRepositoryData;
+import org.sonatype.nexus.testdb.DataSessionRule;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.sonatype.nexus.datastore.api.DataStoreManager.DEFAULT_DATASTORE_NAME;
+import static org.sonatype.nexus.datastore.mybatis.CombUUID.combUUID;
+
+public class Maven2AssetDAOTest
+    extends TestSupport
+{
+  private final OffsetDateTime now = OffsetDateTime.now();
+
+  private int repositoryId;
+
+  @Rule
+  public DataSessionRule sessionRule = new DataSessionRule(DEFAULT_DATASTORE_NAME)
+      .handle(new BlobRefTypeHandler())
+      .access(Maven2ContentRepositoryDAO.class)
+      .access(Maven2AssetBlobDAO.class)
+      .access(Maven2AssetDAO.class);
+
+  @Before
+  public void setupContent() {
+    ContentRepositoryData contentRepository = new ContentRepositoryData();
+    contentRepository.setConfigRepositoryId(new EntityUUID(combUUID()));
+    contentRepository.setAttributes(newAttributes("repository"));
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      session.access(Maven2ContentRepositoryDAO.class).createContentRepository(contentRepository);
+      repositoryId = contentRepository.contentRepositoryId();
+
+      generateAsset("/old/artifact-1.0.jar", "ARTIFACT", now.minusDays(2), session);
+      generateAsset("/new/artifact-1.0.jar", "ARTIFACT", now.minusMinutes(5), session);
+      generateAsset("/new/artifact-1.0.jar.sha1", "ARTIFACT_SUBORDINATE", now.minusMinutes(5), session);
+      generateAsset("/newer/artifact-1.0.jar", "ARTIFACT", now.minusMinutes(1), session);
+      session.getTransaction().commit();
+    }
+  }
+
+  @Test
+  public void browseAssetsOfKindAddedSince() {
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      Maven2AssetDAO dao = session.access(Maven2AssetDAO.class);
+
+      assertThat(paths(dao.browseAssetsOfKindAddedSince(repositoryId, "ARTIFACT", now.minusHours(1), 10, null)),
+          contains("/new/artifact-1.0.jar", "/newer/artifact-1.0.jar"));
+      assertThat(paths(dao.browseAssetsOfKindAddedSince(repositoryId, "ARTIFACT", now, 10, null)), empty());
+    }
+  }
+
+  @Test
+  public void browseAssetsOfKindAddedSinceContinues() {
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      Maven2AssetDAO dao = session.access(Maven2AssetDAO.class);
+
+      OffsetDateTime since = now.minusHours(1);
+      Continuation<Asset> first = dao.browseAssetsOfKindAddedSince(repositoryId, "ARTIFACT", since, 1, null);
+      assertThat(paths(first), contains("/new/artifact-1.0.jar"));
+
+      Continuation<Asset> second =
+          dao.browseAssetsOfKindAddedSince(repositoryId, "ARTIFACT", since, 1, first.nextContinuationToken());
+      assertThat(paths(second), contains("/newer/artifact-1.0.jar"));
+    }
+  }
+
+  private void generateAsset(
+      final String path,
+      final String kind,
+      final OffsetDateTime blobCreated,
+      final DataSession<?> session)
+  {
+    AssetBlobData assetBlob = new AssetBlobData();
+    assetBlob.setBlobRef(new BlobRef("test-node", "test-store", randomUUID().toString()));
+    assetBlob.setBlobSize(1024);
+    assetBlob.setContentType("application/java-archive");
+    assetBlob.setChecksums(ImmutableMap.of());
+    assetBlob.setBlobCreated(blobCreated);
+    assetBlob.setAddedToRepository(blobCreated);
+    session.access(Maven2AssetBlobDAO.class).createAssetBlob(assetBlob);
+
+    AssetData asset = new AssetData();
+    asset.setRepositoryId(repositoryId);
+    asset.setPath(path);
+    asset.setKind(kind);
+    asset.setAttributes(newAttributes("asset"));
+    asset.setLastUpdated(blobCreated);
+    asset.setAssetBlob(assetBlob);
+    session.access(Maven2AssetDAO.class).createAsset(asset, false);
+  }
+
+  private static List<String> paths(final Continuation<Asset> assets) {
+    return assets.stream().map(Asset::path).collect(Collectors.toList());
+  }
+
+  private static NestedAttributesMap newAttributes(final String key) {
+    return new NestedAttributesMap("attributes", new HashMap<>(ImmutableMap.of(key, "test-value")));
+  }
+}
@@ -47,6 +47,12 @@ public class RawProxyFacet
     return content().put(assetPath(context), payload);
   }
 
+  @Override
+  protected boolean isStreamThroughSupported(final Context context) {
+    // raw content is stored as fetched
+    return true;
+  }
+
   @Override
   protected String getUrl(final Context context) {
     return new EscapeHelper().uriSegments(removeSlashPrefix(assetPath(context)));